@@ -17,10 +17,13 @@
 package org.springframework.cloud.gcp.autoconfigure.pubsub;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.core.ApiClock;
 import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.batching.FlowControlSettings;
@@ -37,12 +40,16 @@ import com.google.cloud.pubsub.v1.SubscriptionAdminClient;
 import com.google.cloud.pubsub.v1.SubscriptionAdminSettings;
 import com.google.cloud.pubsub.v1.TopicAdminClient;
 import com.google.cloud.pubsub.v1.TopicAdminSettings;
-
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.avro.specific.SpecificRecord;
 import org.threeten.bp.Duration;
 
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -55,14 +62,23 @@ import org.springframework.cloud.gcp.pubsub.PubSubAdmin;
 import org.springframework.cloud.gcp.pubsub.core.PubSubException;
 import org.springframework.cloud.gcp.pubsub.core.PubSubTemplate;
 import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherTemplate;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PublishFlowController;
 import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberTemplate;
 import org.springframework.cloud.gcp.pubsub.support.DefaultPublisherFactory;
 import org.springframework.cloud.gcp.pubsub.support.DefaultSubscriberFactory;
+import org.springframework.cloud.gcp.pubsub.support.MicrometerPubSubMetrics;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.pubsub.support.PublisherFactory;
 import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
+import org.springframework.cloud.gcp.pubsub.support.converter.AvroPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.JacksonPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.ProtobufPubSubMessageConverter;
 import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.SimplePubSubMessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 /**
  * @author João André Martins
@@ -70,7 +86,8 @@ import org.springframework.context.annotation.Configuration;
  * @author Chengyuan Zhao
  */
 @Configuration
-@AutoConfigureAfter(GcpContextAutoConfiguration.class)
+@AutoConfigureAfter(value = GcpContextAutoConfiguration.class,
+		name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @ConditionalOnProperty(value = "spring.cloud.gcp.pubsub.enabled", matchIfMissing = true)
 @ConditionalOnClass(PubSubTemplate.class)
 @EnableConfigurationProperties(GcpPubSubProperties.class)
@@ -123,16 +140,66 @@ public class GcpPubSubAutoConfiguration {
 	@Bean
 	@ConditionalOnMissingBean
 	public PubSubPublisherTemplate pubSubPublisherTemplate(PublisherFactory publisherFactory,
-			ObjectProvider<PubSubMessageConverter> pubSubMessageConverter) {
+			ObjectProvider<PubSubMessageConverter> pubSubMessageConverter,
+			ObjectProvider<PublishFlowController> publishFlowController,
+			ObjectProvider<PubSubMetrics> pubSubMetrics) {
 		PubSubPublisherTemplate pubSubPublisherTemplate = new PubSubPublisherTemplate(publisherFactory);
+		publishFlowController.ifAvailable(pubSubPublisherTemplate::setPublishFlowController);
+		pubSubMetrics.ifUnique(pubSubPublisherTemplate::setMetrics);
 		pubSubMessageConverter.ifUnique(pubSubPublisherTemplate::setMessageConverter);
 		return pubSubPublisherTemplate;
 	}
 
 	@Bean
 	@ConditionalOnMissingBean
-	public PubSubSubscriberTemplate pubSubSubscriberTemplate(SubscriberFactory subscriberFactory) {
-		return new PubSubSubscriberTemplate(subscriberFactory);
+	public PublishFlowController publishFlowController() {
+		GcpPubSubProperties.Budget budget = this.gcpPubSubProperties.getPublisher().getBudget();
+		if (budget.getMaxOutstandingElementCount() == null && budget.getMaxOutstandingRequestBytes() == null) {
+			return null;
+		}
+
+		PublishFlowController publishFlowController = new PublishFlowController(buildFlowControlSettings(budget));
+		publishFlowController.setMaxTopicShare(budget.getMaxTopicShare());
+		return publishFlowController;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public PubSubSubscriberTemplate pubSubSubscriberTemplate(SubscriberFactory subscriberFactory,
+			@Qualifier("subscriberExecutorProvider") ExecutorProvider executorProvider,
+			@Qualifier("subscriberAckBatchingSettings") ObjectProvider<BatchingSettings> ackBatchingSettings,
+			ObjectProvider<PubSubMessageConverter> pubSubMessageConverter,
+			ObjectProvider<PubSubMetrics> pubSubMetrics) {
+		PubSubSubscriberTemplate pubSubSubscriberTemplate = new PubSubSubscriberTemplate(subscriberFactory);
+		pubSubMetrics.ifUnique(pubSubSubscriberTemplate::setMetrics);
+		pubSubMessageConverter.ifUnique(pubSubSubscriberTemplate::setMessageConverter);
+		ackBatchingSettings.ifAvailable(
+				settings -> pubSubSubscriberTemplate.setAckBatchingSettings(settings, executorProvider));
+		Long pullMaxAckExtensionPeriod = this.gcpPubSubProperties.getSubscriber().getPullMaxAckExtensionPeriod();
+		if (pullMaxAckExtensionPeriod != null && pullMaxAckExtensionPeriod > 0) {
+			pubSubSubscriberTemplate.setMaxAckExtensionPeriod(
+					Duration.ofSeconds(pullMaxAckExtensionPeriod), executorProvider);
+		}
+		return pubSubSubscriberTemplate;
+	}
+
+	@Bean
+	@Primary
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("spring.cloud.gcp.pubsub.compression.enabled")
+	public CompressingPubSubMessageConverter compressingPubSubMessageConverter(
+			ObjectProvider<PubSubMessageConverter> pubSubMessageConverter) {
+		// The publisher and subscriber templates share this primary converter and its codec pool.
+		// It wraps the other converter bean, if there's exactly one; the stream never contains itself.
+		List<PubSubMessageConverter> messageConverters =
+				pubSubMessageConverter.orderedStream().collect(Collectors.toList());
+		GcpPubSubProperties.Compression compression = this.gcpPubSubProperties.getCompression();
+		CompressingPubSubMessageConverter compressingMessageConverter = new CompressingPubSubMessageConverter(
+				(messageConverters.size() == 1) ? messageConverters.get(0) : new SimplePubSubMessageConverter());
+		compressingMessageConverter.setMinimumPayloadSize(compression.getMinimumPayloadSize());
+		compressingMessageConverter.setCompressionLevel(compression.getLevel());
+		compressingMessageConverter.setMaxDecompressedSize(compression.getMaxDecompressedSize());
+		return compressingMessageConverter;
 	}
 
 	@Bean
@@ -155,6 +222,27 @@ public class GcpPubSubAutoConfiguration {
 				this.gcpPubSubProperties.getSubscriber().getFlowControl());
 	}
 
+	@Bean
+	@ConditionalOnMissingBean(name = "subscriberAckBatchingSettings")
+	public BatchingSettings subscriberAckBatchingSettings() {
+		GcpPubSubProperties.AckBatching ackBatching = this.gcpPubSubProperties.getSubscriber()
+				.getAckBatching();
+
+		if (!ackBatching.isEnabled()) {
+			return null;
+		}
+
+		BatchingSettings.Builder builder = BatchingSettings.newBuilder()
+				.setDelayThreshold(Duration.ofMillis(ackBatching.getDelayThresholdMillis()));
+		if (ackBatching.getElementCountThreshold() != null) {
+			builder.setElementCountThreshold(ackBatching.getElementCountThreshold());
+		}
+		if (ackBatching.getRequestByteThreshold() != null) {
+			builder.setRequestByteThreshold(ackBatching.getRequestByteThreshold());
+		}
+		return builder.build();
+	}
+
 	private FlowControlSettings buildFlowControlSettings(
 			GcpPubSubProperties.FlowControl flowControl) {
 		FlowControlSettings.Builder builder = FlowControlSettings.newBuilder();
@@ -233,6 +321,10 @@ public class GcpPubSubAutoConfiguration {
 	private RetrySettings buildRetrySettings(GcpPubSubProperties.Retry retryProperties) {
 		Builder builder = RetrySettings.newBuilder();
 
+		return applyRetrySettings(retryProperties, builder) ? builder.build() : null;
+	}
+
+	private boolean applyRetrySettings(GcpPubSubProperties.Retry retryProperties, Builder builder) {
 		return ifNotNull(retryProperties.getInitialRetryDelaySeconds(),
 				x -> builder.setInitialRetryDelay(Duration.ofSeconds(x)))
 				.apply(ifNotNull(retryProperties.getInitialRpcTimeoutSeconds(),
@@ -247,7 +339,54 @@ public class GcpPubSubAutoConfiguration {
 				.apply(ifNotNull(retryProperties.getTotalTimeoutSeconds(),
 						x -> builder.setTotalTimeout(Duration.ofSeconds(x)))
 				.apply(ifNotNull(retryProperties.getRpcTimeoutMultiplier(), builder::setRpcTimeoutMultiplier)
-				.apply(false))))))))) ? builder.build() : null;
+				.apply(false)))))))));
+	}
+
+	/**
+	 * Build the retry settings of a topic from its retry properties, defaulting unset properties
+	 * to the publisher retry settings.
+	 * @return the retry settings, or null if no retry property is set for the topic
+	 */
+	private RetrySettings buildTopicRetrySettings(GcpPubSubProperties.Retry retryProperties,
+			RetrySettings publisherRetrySettings) {
+		Builder builder = (publisherRetrySettings != null)
+				? publisherRetrySettings.toBuilder() : RetrySettings.newBuilder();
+
+		return applyRetrySettings(retryProperties, builder) ? builder.build() : null;
+	}
+
+	/**
+	 * Build the batching settings of a topic from its batching properties, defaulting unset
+	 * properties to the publisher batching settings.
+	 * @return the batching settings, or null if no batching or flow control property is set for
+	 * the topic
+	 */
+	private BatchingSettings buildTopicBatchingSettings(GcpPubSubProperties.Batching batching,
+			BatchingSettings publisherBatchingSettings) {
+		BatchingSettings.Builder builder = (publisherBatchingSettings != null)
+				? publisherBatchingSettings.toBuilder() : BatchingSettings.newBuilder();
+
+		FlowControlSettings.Builder flowControlBuilder = (publisherBatchingSettings != null)
+				? publisherBatchingSettings.getFlowControlSettings().toBuilder()
+				: FlowControlSettings.newBuilder();
+		GcpPubSubProperties.FlowControl flowControl = batching.getFlowControl();
+		boolean flowControlSet = ifNotNull(flowControl.getLimitExceededBehavior(),
+					flowControlBuilder::setLimitExceededBehavior)
+				.apply(ifNotNull(flowControl.getMaxOutstandingElementCount(),
+						flowControlBuilder::setMaxOutstandingElementCount)
+				.apply(ifNotNull(flowControl.getMaxOutstandingRequestBytes(),
+						flowControlBuilder::setMaxOutstandingRequestBytes)
+				.apply(false)));
+		if (flowControlSet) {
+			builder.setFlowControlSettings(flowControlBuilder.build());
+		}
+
+		return ifNotNull(batching.getDelayThresholdSeconds(),
+					x -> builder.setDelayThreshold(Duration.ofSeconds(x)))
+				.apply(ifNotNull(batching.getElementCountThreshold(), builder::setElementCountThreshold)
+				.apply(ifNotNull(batching.getEnabled(), builder::setIsEnabled)
+				.apply(ifNotNull(batching.getRequestByteThreshold(), builder::setRequestByteThreshold)
+				.apply(flowControlSet)))) ? builder.build() : null;
 	}
 
 	/**
@@ -279,6 +418,23 @@ public class GcpPubSubAutoConfiguration {
 		factory.setChannelProvider(transportChannelProvider);
 		retrySettings.ifAvailable(factory::setRetrySettings);
 		batchingSettings.ifAvailable(factory::setBatchingSettings);
+		GcpPubSubProperties.Publisher publisher = this.gcpPubSubProperties.getPublisher();
+		factory.setPoolSize(publisher.getPoolSize());
+		publisher.getTopics().forEach((topic, topicPublisher) -> {
+			if (topicPublisher.getPoolSize() != null) {
+				factory.setPoolSize(topic, topicPublisher.getPoolSize());
+			}
+			RetrySettings topicRetrySettings = buildTopicRetrySettings(
+					topicPublisher.getRetry(), retrySettings.getIfAvailable());
+			if (topicRetrySettings != null) {
+				factory.setRetrySettings(topic, topicRetrySettings);
+			}
+			BatchingSettings topicBatchingSettings = buildTopicBatchingSettings(
+					topicPublisher.getBatching(), batchingSettings.getIfAvailable());
+			if (topicBatchingSettings != null) {
+				factory.setBatchingSettings(topic, topicBatchingSettings);
+			}
+		});
 		return factory;
 	}
 
@@ -341,4 +497,80 @@ public class GcpPubSubAutoConfiguration {
 		return InstantiatingGrpcChannelProvider.newBuilder().build();
 	}
 
+	@Bean
+	@ConditionalOnMissingBean(ignored = CompressingPubSubMessageConverter.class)
+	@ConditionalOnProperty(value = "spring.cloud.gcp.pubsub.message-converter", havingValue = "protobuf")
+	public PubSubMessageConverter protobufPubSubMessageConverter() {
+		return new ProtobufPubSubMessageConverter();
+	}
+
+	/**
+	 * Provides the Jackson converter when selected with the message converter property.
+	 */
+	@Configuration
+	@ConditionalOnClass(ObjectMapper.class)
+	@ConditionalOnProperty(value = "spring.cloud.gcp.pubsub.message-converter", havingValue = "jackson")
+	static class JacksonMessageConverterConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(ignored = CompressingPubSubMessageConverter.class)
+		public PubSubMessageConverter jacksonPubSubMessageConverter(ObjectProvider<ObjectMapper> objectMapper) {
+			return new JacksonPubSubMessageConverter(objectMapper.getIfAvailable(ObjectMapper::new));
+		}
+	}
+
+	/**
+	 * Provides the Avro converter when selected with the message converter property.
+	 */
+	@Configuration
+	@ConditionalOnClass(SpecificRecord.class)
+	@ConditionalOnProperty(value = "spring.cloud.gcp.pubsub.message-converter", havingValue = "avro")
+	static class AvroMessageConverterConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(ignored = CompressingPubSubMessageConverter.class)
+		public PubSubMessageConverter avroPubSubMessageConverter() {
+			return new AvroPubSubMessageConverter();
+		}
+	}
+
+	/**
+	 * Records the events of the Pub/Sub templates and channel adapters as Micrometer meters, when
+	 * the application has a meter registry to record them to.
+	 */
+	@Configuration
+	@ConditionalOnClass(MeterBinder.class)
+	@ConditionalOnBean(MeterRegistry.class)
+	static class PubSubMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(PubSubMetrics.class)
+		public MicrometerPubSubMetrics pubSubMetrics() {
+			return new MicrometerPubSubMetrics();
+		}
+	}
+
+	/**
+	 * Exposes how much of the publish flow control limits is in use as Micrometer gauges.
+	 */
+	@Configuration
+	@ConditionalOnClass(MeterBinder.class)
+	static class PublishFlowControllerMetricsConfiguration {
+
+		@Bean
+		public MeterBinder publishFlowControllerMetrics(ObjectProvider<PublishFlowController> publishFlowController) {
+			return registry -> publishFlowController.ifAvailable(flowController -> {
+				Gauge.builder("pubsub.publish.outstanding.bytes", flowController,
+						PublishFlowController::getOutstandingBytes)
+						.description("The size of the messages being published")
+						.baseUnit("bytes")
+						.register(registry);
+				Gauge.builder("pubsub.publish.outstanding.messages", flowController,
+						PublishFlowController::getOutstandingMessageCount)
+						.description("The number of messages being published")
+						.register(registry);
+			});
+		}
+	}
+
 }
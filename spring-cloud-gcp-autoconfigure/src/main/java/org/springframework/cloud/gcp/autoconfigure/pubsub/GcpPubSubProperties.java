@@ -16,6 +16,9 @@
 
 package org.springframework.cloud.gcp.autoconfigure.pubsub;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -59,6 +62,17 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 	@NestedConfigurationProperty
 	private final Credentials credentials = new Credentials(GcpScope.PUBSUB.getUrl());
 
+	/**
+	 * The converter used by the Pub/Sub templates to convert payloads to and from Pub/Sub
+	 * messages. Ignored if a PubSubMessageConverter bean is provided.
+	 */
+	private MessageConverterType messageConverter = MessageConverterType.SIMPLE;
+
+	/**
+	 * Contains settings for compressing message payloads.
+	 */
+	private final Compression compression = new Compression();
+
 	public Subscriber getSubscriber() {
 		return this.subscriber;
 	}
@@ -87,6 +101,44 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 		this.emulatorHost = emulatorHost;
 	}
 
+	public MessageConverterType getMessageConverter() {
+		return this.messageConverter;
+	}
+
+	public void setMessageConverter(MessageConverterType messageConverter) {
+		this.messageConverter = messageConverter;
+	}
+
+	public Compression getCompression() {
+		return this.compression;
+	}
+
+	/**
+	 * The payload converters that can be selected with the {@code message-converter} property.
+	 */
+	public enum MessageConverterType {
+
+		/**
+		 * Maps {@code byte[]}, {@code ByteString}, {@code ByteBuffer} and {@code String} payloads.
+		 */
+		SIMPLE,
+
+		/**
+		 * Converts payloads to and from JSON with Jackson.
+		 */
+		JACKSON,
+
+		/**
+		 * Converts protobuf message payloads to and from the protobuf binary format.
+		 */
+		PROTOBUF,
+
+		/**
+		 * Converts Avro record payloads to and from the Avro binary encoding.
+		 */
+		AVRO
+	}
+
 	public static class Publisher {
 
 		/**
@@ -104,6 +156,21 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 		 */
 		private final Batching batching = new Batching();
 
+		/**
+		 * Number of publishers used per topic.
+		 */
+		private int poolSize = 1;
+
+		/**
+		 * Limits on the messages being published at the same time, shared by all topics.
+		 */
+		private final Budget budget = new Budget();
+
+		/**
+		 * Publisher settings of individual topics, by topic name.
+		 */
+		private final Map<String, TopicPublisher> topics = new HashMap<>();
+
 		public Batching getBatching() {
 			return this.batching;
 		}
@@ -119,6 +186,74 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 		public void setExecutorThreads(int executorThreads) {
 			this.executorThreads = executorThreads;
 		}
+
+		public int getPoolSize() {
+			return this.poolSize;
+		}
+
+		public void setPoolSize(int poolSize) {
+			this.poolSize = poolSize;
+		}
+
+		public Map<String, TopicPublisher> getTopics() {
+			return this.topics;
+		}
+
+		public Budget getBudget() {
+			return this.budget;
+		}
+	}
+
+	public static class Budget extends FlowControl {
+
+		/**
+		 * The largest share of the maximum outstanding bytes that the messages of a single topic
+		 * may hold, between 0 (exclusive) and 1.
+		 */
+		private double maxTopicShare = 0.5;
+
+		public double getMaxTopicShare() {
+			return this.maxTopicShare;
+		}
+
+		public void setMaxTopicShare(double maxTopicShare) {
+			this.maxTopicShare = maxTopicShare;
+		}
+	}
+
+	public static class TopicPublisher {
+
+		/**
+		 * Number of publishers used for the topic. Defaults to the publisher pool size.
+		 */
+		private Integer poolSize;
+
+		/**
+		 * Retry properties of the topic. Unset properties default to the publisher retry properties.
+		 */
+		private final Retry retry = new Retry();
+
+		/**
+		 * Batching properties of the topic. Unset properties default to the publisher batching
+		 * properties.
+		 */
+		private final Batching batching = new Batching();
+
+		public Integer getPoolSize() {
+			return this.poolSize;
+		}
+
+		public void setPoolSize(Integer poolSize) {
+			this.poolSize = poolSize;
+		}
+
+		public Retry getRetry() {
+			return this.retry;
+		}
+
+		public Batching getBatching() {
+			return this.batching;
+		}
 	}
 
 	public static class Subscriber {
@@ -138,6 +273,13 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 		 */
 		private Long maxAckExtensionPeriod = 0L;
 
+		/**
+		 * The optional max ack extension period in seconds for messages pulled synchronously.
+		 * Their ack deadlines are extended automatically until they are acked or nacked, or until
+		 * this period elapses. 0 disables ack deadline extension for pulled messages.
+		 */
+		private Long pullMaxAckExtensionPeriod = 0L;
+
 		/**
 		 * The optional parallel pull count setting for the subscriber factory.
 		 */
@@ -153,6 +295,11 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 		 */
 		private final FlowControl flowControl = new FlowControl();
 
+		/**
+		 * Batching settings for acknowledging individual pulled messages.
+		 */
+		private final AckBatching ackBatching = new AckBatching();
+
 		public Retry getRetry() {
 			return this.retry;
 		}
@@ -161,6 +308,10 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 			return this.flowControl;
 		}
 
+		public AckBatching getAckBatching() {
+			return this.ackBatching;
+		}
+
 		public String getPullEndpoint() {
 			return this.pullEndpoint;
 		}
@@ -177,6 +328,14 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 			this.maxAckExtensionPeriod = maxAckExtensionPeriod;
 		}
 
+		public Long getPullMaxAckExtensionPeriod() {
+			return this.pullMaxAckExtensionPeriod;
+		}
+
+		public void setPullMaxAckExtensionPeriod(Long pullMaxAckExtensionPeriod) {
+			this.pullMaxAckExtensionPeriod = pullMaxAckExtensionPeriod;
+		}
+
 		public Integer getParallelPullCount() {
 			return this.parallelPullCount;
 		}
@@ -434,4 +593,116 @@ public class GcpPubSubProperties implements CredentialsSupplier {
 			return this.flowControl;
 		}
 	}
+
+	public static class AckBatching {
+
+		/**
+		 * Enables batching the acks, nacks and ack deadline modifications of individual pulled
+		 * messages if true.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The maximum number of ack IDs to buffer before sending a batch.
+		 */
+		private Long elementCountThreshold;
+
+		/**
+		 * The request size in bytes that triggers sending a batch.
+		 */
+		private Long requestByteThreshold;
+
+		/**
+		 * The maximum time in milliseconds an ack ID is buffered before its batch is sent.
+		 */
+		private long delayThresholdMillis = 100;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Long getElementCountThreshold() {
+			return this.elementCountThreshold;
+		}
+
+		public void setElementCountThreshold(Long elementCountThreshold) {
+			this.elementCountThreshold = elementCountThreshold;
+		}
+
+		public Long getRequestByteThreshold() {
+			return this.requestByteThreshold;
+		}
+
+		public void setRequestByteThreshold(Long requestByteThreshold) {
+			this.requestByteThreshold = requestByteThreshold;
+		}
+
+		public long getDelayThresholdMillis() {
+			return this.delayThresholdMillis;
+		}
+
+		public void setDelayThresholdMillis(long delayThresholdMillis) {
+			this.delayThresholdMillis = delayThresholdMillis;
+		}
+	}
+
+	public static class Compression {
+
+		/**
+		 * Enables gzip compression of message payloads, and decompression of received gzip-compressed
+		 * payloads, if true.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The payload size in bytes below which payloads aren't compressed.
+		 */
+		private int minimumPayloadSize = 1024;
+
+		/**
+		 * The gzip compression level, from 0 to 9, or -1 for the default level.
+		 */
+		private int level = -1;
+
+		/**
+		 * The size in bytes that decompressed payloads can't exceed.
+		 */
+		private int maxDecompressedSize = 100 * 1024 * 1024;
+
+		public boolean isEnabled() {
+			return this.enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getMinimumPayloadSize() {
+			return this.minimumPayloadSize;
+		}
+
+		public void setMinimumPayloadSize(int minimumPayloadSize) {
+			this.minimumPayloadSize = minimumPayloadSize;
+		}
+
+		public int getLevel() {
+			return this.level;
+		}
+
+		public void setLevel(int level) {
+			this.level = level;
+		}
+
+		public int getMaxDecompressedSize() {
+			return this.maxDecompressedSize;
+		}
+
+		public void setMaxDecompressedSize(int maxDecompressedSize) {
+			this.maxDecompressedSize = maxDecompressedSize;
+		}
+	}
 }
@@ -25,6 +25,9 @@ import com.google.api.gax.retrying.RetrySettings;
 import com.google.api.gax.rpc.FixedTransportChannelProvider;
 import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.cloud.pubsub.v1.TopicAdminSettings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.Test;
 import org.threeten.bp.Duration;
@@ -32,6 +35,20 @@ import org.threeten.bp.Duration;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.cloud.gcp.autoconfigure.core.GcpContextAutoConfiguration;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherTemplate;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PublishFlowController;
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import org.springframework.cloud.gcp.pubsub.support.MicrometerPubSubMetrics;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
+import org.springframework.cloud.gcp.pubsub.support.PublisherFactory;
+import org.springframework.cloud.gcp.pubsub.support.converter.AvroPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.JacksonPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.ProtobufPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.SimplePubSubMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 
 /**
  * @author Andreas Berger
@@ -67,13 +84,18 @@ public class GcpPubSubEmulatorConfigurationTests {
 					"spring.cloud.gcp.pubsub.subscriber.flow-control.max-outstanding-request-Bytes=18",
 					"spring.cloud.gcp.pubsub.subscriber.flow-control.limit-exceeded-behavior=Ignore",
 					"spring.cloud.gcp.pubsub.subscriber.max-ack-extension-period=1",
+					"spring.cloud.gcp.pubsub.subscriber.pull-max-ack-extension-period=27",
 					"spring.cloud.gcp.pubsub.publisher.batching.flow-control.max-outstanding-element-Count=19",
 					"spring.cloud.gcp.pubsub.publisher.batching.flow-control.max-outstanding-request-Bytes=20",
 					"spring.cloud.gcp.pubsub.publisher.batching.flow-control.limit-exceeded-behavior=Ignore",
 					"spring.cloud.gcp.pubsub.publisher.batching.element-Count-threshold=21",
 					"spring.cloud.gcp.pubsub.publisher.batching.request-byte-threshold=22",
 					"spring.cloud.gcp.pubsub.publisher.batching.delay-threshold-seconds=23",
-					"spring.cloud.gcp.pubsub.publisher.batching.enabled=true")
+					"spring.cloud.gcp.pubsub.publisher.batching.enabled=true",
+					"spring.cloud.gcp.pubsub.subscriber.ack-batching.enabled=true",
+					"spring.cloud.gcp.pubsub.subscriber.ack-batching.element-count-threshold=24",
+					"spring.cloud.gcp.pubsub.subscriber.ack-batching.request-byte-threshold=25",
+					"spring.cloud.gcp.pubsub.subscriber.ack-batching.delay-threshold-millis=26")
 			.withConfiguration(AutoConfigurations.of(GcpPubSubEmulatorConfiguration.class,
 					GcpContextAutoConfiguration.class,
 					GcpPubSubAutoConfiguration.class));
@@ -107,6 +129,8 @@ public class GcpPubSubEmulatorConfigurationTests {
 					(int) gcpPubSubProperties.getSubscriber().getParallelPullCount());
 			Assert.assertEquals("max-ack-extension-period should be set to 1", new Long(1),
 					gcpPubSubProperties.getSubscriber().getMaxAckExtensionPeriod());
+			Assert.assertEquals("pull-max-ack-extension-period should be set to 27", new Long(27),
+					gcpPubSubProperties.getSubscriber().getPullMaxAckExtensionPeriod());
 		});
 	}
 
@@ -173,4 +197,206 @@ public class GcpPubSubEmulatorConfigurationTests {
 			Assert.assertTrue(settings.getIsEnabled());
 		});
 	}
+
+	@Test
+	public void testSubscriberAckBatchingSettings() {
+		this.contextRunner.run(context -> {
+			BatchingSettings settings = context.getBean("subscriberAckBatchingSettings",
+					BatchingSettings.class);
+			Assert.assertEquals(24, (long) settings.getElementCountThreshold());
+			Assert.assertEquals(25, (long) settings.getRequestByteThreshold());
+			Assert.assertEquals(Duration.ofMillis(26), settings.getDelayThreshold());
+			Assert.assertTrue(settings.getIsEnabled());
+		});
+	}
+
+	@Test
+	public void testDefaultMessageConverter() {
+		this.contextRunner.run(context -> {
+			Assert.assertTrue(context.getBeansOfType(PubSubMessageConverter.class).isEmpty());
+			Assert.assertTrue(context.getBean(PubSubSubscriberTemplate.class).getMessageConverter()
+					instanceof SimplePubSubMessageConverter);
+		});
+	}
+
+	@Test
+	public void testProtobufMessageConverter() {
+		testMessageConverter("protobuf", ProtobufPubSubMessageConverter.class);
+	}
+
+	@Test
+	public void testJacksonMessageConverter() {
+		testMessageConverter("jackson", JacksonPubSubMessageConverter.class);
+	}
+
+	@Test
+	public void testAvroMessageConverter() {
+		testMessageConverter("avro", AvroPubSubMessageConverter.class);
+	}
+
+	@Test
+	public void testCompressingMessageConverter() {
+		this.contextRunner.withPropertyValues("spring.cloud.gcp.pubsub.message-converter=jackson",
+				"spring.cloud.gcp.pubsub.compression.enabled=true",
+				"spring.cloud.gcp.pubsub.compression.minimum-payload-size=512",
+				"spring.cloud.gcp.pubsub.compression.level=9",
+				"spring.cloud.gcp.pubsub.compression.max-decompressed-size=1048576")
+				.run(context -> {
+					CompressingPubSubMessageConverter messageConverter = (CompressingPubSubMessageConverter)
+							context.getBean(PubSubPublisherTemplate.class).getMessageConverter();
+					Assert.assertTrue(messageConverter.getDelegate() instanceof JacksonPubSubMessageConverter);
+					Assert.assertEquals(512, messageConverter.getMinimumPayloadSize());
+					Assert.assertEquals(9, messageConverter.getCompressionLevel());
+					Assert.assertEquals(1048576, messageConverter.getMaxDecompressedSize());
+					Assert.assertSame(messageConverter,
+							context.getBean(PubSubSubscriberTemplate.class).getMessageConverter());
+					Assert.assertSame(messageConverter, context.getBean(PubSubMessageConverter.class));
+				});
+	}
+
+	@Test
+	public void testCompressingMessageConverterWrapsConverterBean() {
+		this.contextRunner.withPropertyValues("spring.cloud.gcp.pubsub.compression.enabled=true")
+				.withUserConfiguration(MessageConverterConfiguration.class)
+				.run(context -> {
+					CompressingPubSubMessageConverter messageConverter =
+							context.getBean(CompressingPubSubMessageConverter.class);
+					Assert.assertSame(context.getBean("messageConverter"), messageConverter.getDelegate());
+					Assert.assertSame(messageConverter,
+							context.getBean(PubSubPublisherTemplate.class).getMessageConverter());
+					Assert.assertSame(messageConverter,
+							context.getBean(PubSubSubscriberTemplate.class).getMessageConverter());
+				});
+	}
+
+	@Test
+	public void testCompressingMessageConverterWrapsSimpleConverter() {
+		this.contextRunner.withPropertyValues("spring.cloud.gcp.pubsub.compression.enabled=true")
+				.run(context -> {
+					CompressingPubSubMessageConverter messageConverter =
+							context.getBean(CompressingPubSubMessageConverter.class);
+					Assert.assertTrue(messageConverter.getDelegate() instanceof SimplePubSubMessageConverter);
+					Assert.assertSame(messageConverter,
+							context.getBean(PubSubPublisherTemplate.class).getMessageConverter());
+				});
+	}
+
+	@Test
+	public void testTopicBatchingSettings() {
+		this.contextRunner.withPropertyValues(
+				"spring.cloud.gcp.pubsub.publisher.topics.control.batching.delay-threshold-seconds=1",
+				"spring.cloud.gcp.pubsub.publisher.topics.control.batching.element-count-threshold=1",
+				"spring.cloud.gcp.pubsub.publisher.topics.control.batching.flow-control."
+						+ "max-outstanding-request-bytes=28")
+				.run(context -> {
+					PublisherFactory publisherFactory = context.getBean(PublisherFactory.class);
+
+					BatchingSettings settings = publisherFactory.createPublisher("control").getBatchingSettings();
+					Assert.assertEquals(Duration.ofSeconds(1), settings.getDelayThreshold());
+					Assert.assertEquals(1, (long) settings.getElementCountThreshold());
+					Assert.assertEquals(22, (long) settings.getRequestByteThreshold());
+					Assert.assertEquals(19,
+							(long) settings.getFlowControlSettings().getMaxOutstandingElementCount());
+					Assert.assertEquals(28,
+							(long) settings.getFlowControlSettings().getMaxOutstandingRequestBytes());
+
+					settings = publisherFactory.createPublisher("telemetry").getBatchingSettings();
+					Assert.assertEquals(Duration.ofSeconds(23), settings.getDelayThreshold());
+					Assert.assertEquals(21, (long) settings.getElementCountThreshold());
+					Assert.assertEquals(20,
+							(long) settings.getFlowControlSettings().getMaxOutstandingRequestBytes());
+				});
+	}
+
+	@Test
+	public void testPublishFlowController() {
+		this.contextRunner.withPropertyValues(
+				"spring.cloud.gcp.pubsub.publisher.budget.max-outstanding-request-bytes=1000",
+				"spring.cloud.gcp.pubsub.publisher.budget.limit-exceeded-behavior=ThrowException",
+				"spring.cloud.gcp.pubsub.publisher.budget.max-topic-share=0.25")
+				.run(context -> {
+					PublishFlowController flowController = context.getBean(PublishFlowController.class);
+					Assert.assertEquals(1000, flowController.getMaxOutstandingBytes());
+					Assert.assertEquals(Long.MAX_VALUE, flowController.getMaxOutstandingMessageCount());
+					Assert.assertEquals(LimitExceededBehavior.ThrowException,
+							flowController.getLimitExceededBehavior());
+					Assert.assertEquals(0.25, flowController.getMaxTopicShare(), 0.0001);
+					Assert.assertSame(flowController,
+							context.getBean(PubSubPublisherTemplate.class).getPublishFlowController());
+
+					flowController.reserve("topic", 100);
+					MeterRegistry meterRegistry = new SimpleMeterRegistry();
+					context.getBean("publishFlowControllerMetrics", MeterBinder.class).bindTo(meterRegistry);
+					Assert.assertEquals(100, meterRegistry.get("pubsub.publish.outstanding.bytes").gauge().value(),
+							0.0001);
+					Assert.assertEquals(1, meterRegistry.get("pubsub.publish.outstanding.messages").gauge().value(),
+							0.0001);
+				});
+	}
+
+	@Test
+	public void testPubSubMetrics() {
+		this.contextRunner.withUserConfiguration(MeterRegistryConfiguration.class).run(context -> {
+			MicrometerPubSubMetrics metrics = context.getBean(MicrometerPubSubMetrics.class);
+			Assert.assertSame(metrics, context.getBean(PubSubPublisherTemplate.class).getMetrics());
+			Assert.assertSame(metrics, context.getBean(PubSubSubscriberTemplate.class).getMetrics());
+
+			MeterRegistry meterRegistry = new SimpleMeterRegistry();
+			metrics.bindTo(meterRegistry);
+			metrics.messagesAcked("projects/test-project/subscriptions/orders", 2);
+			Assert.assertEquals(2, meterRegistry.get("pubsub.acks").tag("subscription", "orders").counter().count(),
+					0.0001);
+		});
+	}
+
+	@Test
+	public void testNoPubSubMetricsWithoutMeterRegistry() {
+		this.contextRunner.run(context -> {
+			Assert.assertTrue(context.getBeansOfType(MicrometerPubSubMetrics.class).isEmpty());
+			Assert.assertSame(PubSubMetrics.NONE, context.getBean(PubSubPublisherTemplate.class).getMetrics());
+			Assert.assertSame(PubSubMetrics.NONE, context.getBean(PubSubSubscriberTemplate.class).getMetrics());
+		});
+	}
+
+	@Test
+	public void testNoPublishFlowControllerByDefault() {
+		this.contextRunner.run(context -> {
+			Assert.assertNull(context.getBean(PubSubPublisherTemplate.class).getPublishFlowController());
+		});
+	}
+
+	private void testMessageConverter(String messageConverter, Class<?> expectedType) {
+		this.contextRunner.withPropertyValues("spring.cloud.gcp.pubsub.message-converter=" + messageConverter)
+				.run(context -> {
+					Assert.assertTrue(expectedType.isInstance(context.getBean(PubSubMessageConverter.class)));
+					Assert.assertTrue(expectedType.isInstance(
+							context.getBean(PubSubPublisherTemplate.class).getMessageConverter()));
+					Assert.assertTrue(expectedType.isInstance(
+							context.getBean(PubSubSubscriberTemplate.class).getMessageConverter()));
+				});
+	}
+
+	/**
+	 * Provides the meter registry that Spring Boot's metrics auto-configuration would.
+	 */
+	@Configuration
+	static class MeterRegistryConfiguration {
+
+		@Bean
+		public MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	/**
+	 * Provides an application message converter.
+	 */
+	@Configuration
+	static class MessageConverterConfiguration {
+
+		@Bean
+		public PubSubMessageConverter messageConverter() {
+			return new SimplePubSubMessageConverter();
+		}
+	}
 }
@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import java.util.Map;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherOperations;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * A {@link PubSubPublisherOperations} that completes every publish right away, without
+ * converting or sending the message.
+ */
+final class FakePublisherOperations implements PubSubPublisherOperations {
+
+	private final SettableListenableFuture<String> publishFuture = new SettableListenableFuture<>();
+
+	FakePublisherOperations() {
+		this.publishFuture.set("message-id");
+	}
+
+	@Override
+	public <T> ListenableFuture<String> publish(String topic, T payload, Map<String, String> headers) {
+		return this.publishFuture;
+	}
+
+	@Override
+	public <T> ListenableFuture<String> publish(String topic, T payload) {
+		return this.publishFuture;
+	}
+
+	@Override
+	public ListenableFuture<String> publish(String topic, PubsubMessage pubsubMessage) {
+		return this.publishFuture;
+	}
+
+}
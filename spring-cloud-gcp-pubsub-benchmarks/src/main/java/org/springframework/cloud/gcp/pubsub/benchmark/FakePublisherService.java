@@ -0,0 +1,41 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * A Pub/Sub publisher gRPC service that accepts every message without storing it, to be served
+ * in-process so benchmarks go through the real gRPC client without the network.
+ */
+final class FakePublisherService extends PublisherGrpc.PublisherImplBase {
+
+	@Override
+	public void publish(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+		PublishResponse.Builder response = PublishResponse.newBuilder();
+		for (int i = 0; i < request.getMessagesCount(); i++) {
+			response.addMessageIds(Integer.toString(i));
+		}
+		responseObserver.onNext(response.build());
+		responseObserver.onCompleted();
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+
+import org.springframework.cloud.gcp.pubsub.support.DefaultSubscriberFactory;
+
+/**
+ * A {@link DefaultSubscriberFactory} whose pulls, acks and ack deadline modifications go to a
+ * {@link FakeSubscriberStub}. Streaming pull subscribers are created as usual.
+ */
+final class FakeSubscriberFactory extends DefaultSubscriberFactory {
+
+	private final SubscriberStub subscriberStub;
+
+	FakeSubscriberFactory(String projectId, SubscriberStub subscriberStub) {
+		super(() -> projectId);
+		this.subscriberStub = subscriberStub;
+	}
+
+	@Override
+	public SubscriberStub createSubscriberStub() {
+		return this.subscriberStub;
+	}
+
+}
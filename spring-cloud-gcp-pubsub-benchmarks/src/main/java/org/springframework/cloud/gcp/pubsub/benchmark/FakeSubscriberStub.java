@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import com.google.pubsub.v1.PullRequest;
+import com.google.pubsub.v1.PullResponse;
+
+/**
+ * An in-memory {@link SubscriberStub} that answers every pull with the same response and
+ * completes acks and ack deadline modifications immediately, so benchmarks measure the client
+ * code rather than the network.
+ */
+final class FakeSubscriberStub extends SubscriberStub {
+
+	private final PullResponse pullResponse;
+
+	private final UnaryCallable<PullRequest, PullResponse> pullCallable;
+
+	private final UnaryCallable<AcknowledgeRequest, Empty> acknowledgeCallable;
+
+	private final UnaryCallable<ModifyAckDeadlineRequest, Empty> modifyAckDeadlineCallable;
+
+	FakeSubscriberStub(PullResponse pullResponse) {
+		this.pullResponse = pullResponse;
+		this.pullCallable = new ImmediateCallable<>(this.pullResponse);
+		this.acknowledgeCallable = new ImmediateCallable<>(Empty.getDefaultInstance());
+		this.modifyAckDeadlineCallable = new ImmediateCallable<>(Empty.getDefaultInstance());
+	}
+
+	@Override
+	public UnaryCallable<PullRequest, PullResponse> pullCallable() {
+		return this.pullCallable;
+	}
+
+	@Override
+	public UnaryCallable<AcknowledgeRequest, Empty> acknowledgeCallable() {
+		return this.acknowledgeCallable;
+	}
+
+	@Override
+	public UnaryCallable<ModifyAckDeadlineRequest, Empty> modifyAckDeadlineCallable() {
+		return this.modifyAckDeadlineCallable;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public void shutdown() {
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return false;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return false;
+	}
+
+	@Override
+	public void shutdownNow() {
+	}
+
+	@Override
+	public boolean awaitTermination(long duration, TimeUnit unit) {
+		return true;
+	}
+
+	/**
+	 * A callable that returns an already completed future with a fixed response.
+	 */
+	private static final class ImmediateCallable<RequestT, ResponseT> extends UnaryCallable<RequestT, ResponseT> {
+
+		private final ResponseT response;
+
+		ImmediateCallable(ResponseT response) {
+			this.response = response;
+		}
+
+		@Override
+		public ApiFuture<ResponseT> futureCall(RequestT request, ApiCallContext context) {
+			return ApiFutures.immediateFuture(this.response);
+		}
+	}
+
+}
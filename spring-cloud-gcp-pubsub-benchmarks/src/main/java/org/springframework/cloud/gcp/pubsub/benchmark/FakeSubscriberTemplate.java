@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import java.util.function.Consumer;
+
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.pubsub.v1.PullResponse;
+
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+
+/**
+ * A {@link PubSubSubscriberTemplate} whose converting subscriptions don't start a
+ * {@link Subscriber}, but keep the message consumer so benchmarks can hand it messages directly.
+ */
+final class FakeSubscriberTemplate extends PubSubSubscriberTemplate {
+
+	private Consumer<ConvertedBasicAcknowledgeablePubsubMessage<?>> messageConsumer;
+
+	FakeSubscriberTemplate(String projectId) {
+		super(new FakeSubscriberFactory(projectId, new FakeSubscriberStub(PullResponse.getDefaultInstance())));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> Subscriber subscribeAndConvert(String subscription,
+			Consumer<ConvertedBasicAcknowledgeablePubsubMessage<T>> messageConsumer, Class<T> payloadType) {
+		this.messageConsumer =
+				message -> messageConsumer.accept((ConvertedBasicAcknowledgeablePubsubMessage<T>) message);
+		return null;
+	}
+
+	/**
+	 * Hand a message to the consumer of the last subscription, as a streaming pull would.
+	 * @param message the received message
+	 */
+	void deliver(ConvertedBasicAcknowledgeablePubsubMessage<?> message) {
+		this.messageConsumer.accept(message);
+	}
+
+}
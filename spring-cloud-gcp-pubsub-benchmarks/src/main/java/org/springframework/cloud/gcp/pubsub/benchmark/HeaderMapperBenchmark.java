@@ -0,0 +1,92 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.gcp.pubsub.integration.PubSubHeaderMapper;
+import org.springframework.messaging.MessageHeaders;
+
+/**
+ * Measures the cost of mapping message headers to and from Pub/Sub attributes with
+ * {@link PubSubHeaderMapper}.
+ *
+ * <p>The {@code patterns} parameter selects the default header patterns or a prefix pattern
+ * matching half of the headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderMapperBenchmark {
+
+	private static final int HEADER_COUNT = 8;
+
+	@Param({ "default", "prefix" })
+	private String patterns;
+
+	private PubSubHeaderMapper headerMapper;
+
+	private Map<String, String> attributes;
+
+	private MessageHeaders messageHeaders;
+
+	@Setup
+	public void setUp() {
+		this.headerMapper = new PubSubHeaderMapper();
+		if ("prefix".equals(this.patterns)) {
+			this.headerMapper.setInboundHeaderPatterns("mapped-*");
+			this.headerMapper.setOutboundHeaderPatterns("mapped-*");
+		}
+
+		this.attributes = new HashMap<>();
+		for (int i = 0; i < HEADER_COUNT; i++) {
+			this.attributes.put(((i % 2 == 0) ? "mapped-" : "other-") + i, "value-" + i);
+		}
+		this.messageHeaders = new MessageHeaders(new HashMap<>(this.attributes));
+	}
+
+	@Benchmark
+	public Map<String, Object> toHeaders() {
+		return this.headerMapper.toHeaders(this.attributes);
+	}
+
+	@Benchmark
+	public Map<String, String> fromHeaders() {
+		Map<String, String> pubsubMessageHeaders = new HashMap<>();
+		this.headerMapper.fromHeaders(this.messageHeaders, pubsubMessageHeaders);
+		return pubsubMessageHeaders;
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PubsubMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+import org.springframework.cloud.gcp.pubsub.integration.inbound.PubSubInboundChannelAdapter;
+import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import org.springframework.integration.channel.NullChannel;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Measures the per-message cost of {@link PubSubInboundChannelAdapter} turning a received message
+ * into a Spring message, sending it and acknowledging it.
+ *
+ * <p>Messages are handed to the adapter as a streaming pull would, already converted, and are sent
+ * to a {@link NullChannel}, so the results only reflect the adapter itself. A {@code batchSize}
+ * above 1 sends one message per batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InboundChannelAdapterBenchmark {
+
+	private static final String PROJECT_ID = "benchmark-project";
+
+	private static final String SUBSCRIPTION = "benchmark-subscription";
+
+	@Param({ "AUTO", "MANUAL" })
+	private AckMode ackMode;
+
+	@Param({ "1", "100" })
+	private int batchSize;
+
+	private FakeSubscriberTemplate subscriberTemplate;
+
+	private ThreadPoolTaskScheduler taskScheduler;
+
+	private PubSubInboundChannelAdapter adapter;
+
+	private ConvertedBasicAcknowledgeablePubsubMessage<String> message;
+
+	@Setup
+	public void setUp() {
+		this.subscriberTemplate = new FakeSubscriberTemplate(PROJECT_ID);
+		this.taskScheduler = new ThreadPoolTaskScheduler();
+		this.taskScheduler.initialize();
+
+		this.adapter = new PubSubInboundChannelAdapter(this.subscriberTemplate, SUBSCRIPTION);
+		this.adapter.setOutputChannel(new NullChannel());
+		this.adapter.setTaskScheduler(this.taskScheduler);
+		this.adapter.setAckMode(this.ackMode);
+		this.adapter.setPayloadType(String.class);
+		this.adapter.setBatchSize(this.batchSize);
+		this.adapter.afterPropertiesSet();
+		this.adapter.start();
+
+		PubsubMessage pubsubMessage = PubsubMessage.newBuilder()
+				.setData(ByteString.copyFromUtf8("payload"))
+				.putAttributes("key", "value")
+				.putAttributes("region", "europe")
+				.build();
+		this.message = new ReceivedMessage(ProjectSubscriptionName.of(PROJECT_ID, SUBSCRIPTION), pubsubMessage);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.adapter.stop();
+		this.taskScheduler.shutdown();
+	}
+
+	@Benchmark
+	public void consumeMessage() {
+		this.subscriberTemplate.deliver(this.message);
+	}
+
+	/**
+	 * A received message whose acks and nacks complete right away.
+	 */
+	private static final class ReceivedMessage implements ConvertedBasicAcknowledgeablePubsubMessage<String> {
+
+		private final ProjectSubscriptionName projectSubscriptionName;
+
+		private final PubsubMessage pubsubMessage;
+
+		private final String payload;
+
+		private final SettableListenableFuture<Void> completed = new SettableListenableFuture<>();
+
+		ReceivedMessage(ProjectSubscriptionName projectSubscriptionName, PubsubMessage pubsubMessage) {
+			this.projectSubscriptionName = projectSubscriptionName;
+			this.pubsubMessage = pubsubMessage;
+			this.payload = pubsubMessage.getData().toStringUtf8();
+			this.completed.set(null);
+		}
+
+		@Override
+		public ProjectSubscriptionName getProjectSubscriptionName() {
+			return this.projectSubscriptionName;
+		}
+
+		@Override
+		public PubsubMessage getPubsubMessage() {
+			return this.pubsubMessage;
+		}
+
+		@Override
+		public String getPayload() {
+			return this.payload;
+		}
+
+		@Override
+		public ListenableFuture<Void> ack() {
+			return this.completed;
+		}
+
+		@Override
+		public ListenableFuture<Void> nack() {
+			return this.completed;
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.pubsub.v1.PubsubMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.gcp.pubsub.support.converter.JacksonPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.SimplePubSubMessageConverter;
+
+/**
+ * Measures the cost of converting payloads to and from messages with
+ * {@link SimplePubSubMessageConverter} and {@link JacksonPubSubMessageConverter}.
+ *
+ * <p>The simple converter converts a string of {@code payloadSize} characters, and the Jackson
+ * converter a small object holding such a string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageConverterBenchmark {
+
+	@Param({ "simple", "jackson" })
+	private String converter;
+
+	@Param({ "16", "4096" })
+	private int payloadSize;
+
+	private final Map<String, String> headers = Collections.singletonMap("key", "value");
+
+	private PubSubMessageConverter messageConverter;
+
+	private Object payload;
+
+	private Class<?> payloadType;
+
+	private PubsubMessage message;
+
+	@Setup
+	public void setUp() {
+		String body = String.join("", Collections.nCopies(this.payloadSize, "a"));
+
+		if ("jackson".equals(this.converter)) {
+			this.messageConverter = new JacksonPubSubMessageConverter(new ObjectMapper());
+			this.payload = new BenchmarkPayload("order-1", 1234567890L, body);
+			this.payloadType = BenchmarkPayload.class;
+		}
+		else {
+			this.messageConverter = new SimplePubSubMessageConverter();
+			this.payload = body;
+			this.payloadType = String.class;
+		}
+
+		this.message = this.messageConverter.toPubSubMessage(this.payload, this.headers);
+	}
+
+	@Benchmark
+	public PubsubMessage toPubSubMessage() {
+		return this.messageConverter.toPubSubMessage(this.payload, this.headers);
+	}
+
+	@Benchmark
+	public Object fromPubSubMessage() {
+		return this.messageConverter.fromPubSubMessage(this.message, this.payloadType);
+	}
+
+	/**
+	 * The payload converted by the Jackson converter.
+	 */
+	public static class BenchmarkPayload {
+
+		private String id;
+
+		private long timestamp;
+
+		private String body;
+
+		public BenchmarkPayload() {
+		}
+
+		BenchmarkPayload(String id, long timestamp, String body) {
+			this.id = id;
+			this.timestamp = timestamp;
+			this.body = body;
+		}
+
+		public String getId() {
+			return this.id;
+		}
+
+		public void setId(String id) {
+			this.id = id;
+		}
+
+		public long getTimestamp() {
+			return this.timestamp;
+		}
+
+		public void setTimestamp(long timestamp) {
+			this.timestamp = timestamp;
+		}
+
+		public String getBody() {
+			return this.body;
+		}
+
+		public void setBody(String body) {
+			this.body = body;
+		}
+	}
+
+}
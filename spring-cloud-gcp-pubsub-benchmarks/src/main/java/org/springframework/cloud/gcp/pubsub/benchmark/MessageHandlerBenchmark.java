@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.gcp.pubsub.integration.outbound.PubSubMessageHandler;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.integration.expression.ValueExpression;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Measures the per-message cost of resolving the topic and publish timeout in
+ * {@link PubSubMessageHandler}.
+ *
+ * <p>Publishes complete right away, so the results only reflect the adapter itself. The
+ * {@code expressions} parameter selects literal expressions, which are resolved once, an
+ * interpreted SpEL topic expression, or the same expression set from a string, which is compiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageHandlerBenchmark {
+
+	private static final String TOPIC_EXPRESSION = "headers['region'] + '-events'";
+
+	@Param({ "literal", "interpreted", "compiled" })
+	private String expressions;
+
+	private PubSubMessageHandler messageHandler;
+
+	private Message<String> message;
+
+	@Setup
+	public void setUp() {
+		this.messageHandler = new PubSubMessageHandler(new FakePublisherOperations(), "benchmark-topic");
+		this.messageHandler.setSync(true);
+
+		if ("interpreted".equals(this.expressions)) {
+			this.messageHandler.setTopicExpression(new SpelExpressionParser().parseExpression(TOPIC_EXPRESSION));
+			this.messageHandler.setPublishTimeoutExpression(
+					new SpelExpressionParser().parseExpression("headers['timeout']"));
+		}
+		else if ("compiled".equals(this.expressions)) {
+			this.messageHandler.setTopicExpressionString(TOPIC_EXPRESSION);
+			this.messageHandler.setPublishTimeoutExpressionString("headers['timeout']");
+		}
+		else {
+			this.messageHandler.setPublishTimeoutExpression(new ValueExpression<>(10000L));
+		}
+		this.messageHandler.afterPropertiesSet();
+
+		this.message = MessageBuilder.withPayload("payload")
+				.setHeader("region", "europe")
+				.setHeader("timeout", 10000L)
+				.build();
+	}
+
+	@Benchmark
+	public void handleMessage() {
+		this.messageHandler.handleMessage(this.message);
+	}
+
+}
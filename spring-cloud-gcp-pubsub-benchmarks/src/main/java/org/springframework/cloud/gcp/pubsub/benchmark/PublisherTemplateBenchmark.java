@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.core.FixedExecutorProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.threeten.bp.Duration;
+
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherTemplate;
+import org.springframework.cloud.gcp.pubsub.support.DefaultPublisherFactory;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * Measures the client-side cost of publishing messages with {@link PubSubPublisherTemplate}.
+ *
+ * <p>Messages go through the real {@link com.google.cloud.pubsub.v1.Publisher} and gRPC client to a
+ * {@link FakePublisherService} served in-process, so the results include converting, batching and
+ * serializing the messages, but not the network. Each invocation publishes one full batch and
+ * waits for it; scores and allocation rates are per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(PublisherTemplateBenchmark.MESSAGES_PER_BATCH)
+public class PublisherTemplateBenchmark {
+
+	static final int MESSAGES_PER_BATCH = 100;
+
+	private static final String SERVER_NAME = "benchmark-pubsub";
+
+	private static final String TOPIC = "benchmark-topic";
+
+	@Param({ "16", "4096" })
+	private int payloadSize;
+
+	private Server server;
+
+	private ManagedChannel channel;
+
+	private ScheduledExecutorService executor;
+
+	private PubSubPublisherTemplate publisherTemplate;
+
+	private String payload;
+
+	@SuppressWarnings("unchecked")
+	private final ListenableFuture<String>[] futures = new ListenableFuture[MESSAGES_PER_BATCH];
+
+	@Setup
+	public void setUp() throws IOException {
+		this.server = InProcessServerBuilder.forName(SERVER_NAME)
+				.directExecutor()
+				.addService(new FakePublisherService())
+				.build()
+				.start();
+		this.channel = InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build();
+		this.executor = Executors.newScheduledThreadPool(1);
+
+		DefaultPublisherFactory publisherFactory = new DefaultPublisherFactory(() -> "benchmark-project");
+		publisherFactory.setChannelProvider(
+				FixedTransportChannelProvider.create(GrpcTransportChannel.create(this.channel)));
+		publisherFactory.setCredentialsProvider(NoCredentialsProvider.create());
+		publisherFactory.setExecutorProvider(FixedExecutorProvider.create(this.executor));
+		publisherFactory.setBatchingSettings(BatchingSettings.newBuilder()
+				.setElementCountThreshold((long) MESSAGES_PER_BATCH)
+				.setRequestByteThreshold(Long.MAX_VALUE)
+				.setDelayThreshold(Duration.ofSeconds(1))
+				.build());
+
+		this.publisherTemplate = new PubSubPublisherTemplate(publisherFactory);
+		this.payload = String.join("", Collections.nCopies(this.payloadSize, "a"));
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.channel.shutdownNow();
+		this.server.shutdownNow();
+		this.executor.shutdownNow();
+	}
+
+	@Benchmark
+	public String publish() throws InterruptedException, ExecutionException {
+		for (int i = 0; i < MESSAGES_PER_BATCH; i++) {
+			this.futures[i] = this.publisherTemplate.publish(TOPIC, this.payload);
+		}
+
+		String messageId = null;
+		for (ListenableFuture<String> future : this.futures) {
+			messageId = future.get();
+		}
+		return messageId;
+	}
+
+}
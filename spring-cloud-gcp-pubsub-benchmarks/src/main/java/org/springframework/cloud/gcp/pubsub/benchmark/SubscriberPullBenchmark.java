@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.PullResponse;
+import com.google.pubsub.v1.ReceivedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberTemplate;
+
+/**
+ * Measures the client-side cost of receiving messages with {@link PubSubSubscriberTemplate}.
+ *
+ * <p>Pulls are answered by an in-memory stub, so the results only reflect wrapping, converting and
+ * acknowledging the received messages. Scores and allocation rates are per message; run with
+ * {@code -prof gc} and compare {@code gc.alloc.rate.norm} before and after a change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(SubscriberPullBenchmark.MESSAGES_PER_PULL)
+public class SubscriberPullBenchmark {
+
+	static final int MESSAGES_PER_PULL = 100;
+
+	private static final String SUBSCRIPTION = "benchmark-subscription";
+
+	@Param({ "16", "4096" })
+	private int payloadSize;
+
+	private PubSubSubscriberTemplate subscriberTemplate;
+
+	@Setup
+	public void setUp() {
+		PubsubMessage message = PubsubMessage.newBuilder()
+				.setData(ByteString.copyFrom(new byte[this.payloadSize]))
+				.putAttributes("key", "value")
+				.build();
+
+		PullResponse.Builder pullResponse = PullResponse.newBuilder();
+		for (int i = 0; i < MESSAGES_PER_PULL; i++) {
+			pullResponse.addReceivedMessages(ReceivedMessage.newBuilder()
+					.setAckId("ack-id-" + i)
+					.setMessage(message));
+		}
+
+		this.subscriberTemplate = new PubSubSubscriberTemplate(
+				new FakeSubscriberFactory("benchmark-project", new FakeSubscriberStub(pullResponse.build())));
+	}
+
+	@Benchmark
+	public void pull(Blackhole blackhole) {
+		blackhole.consume(this.subscriberTemplate.pull(SUBSCRIPTION, MESSAGES_PER_PULL, true));
+	}
+
+	@Benchmark
+	public void pullAndConvert(Blackhole blackhole) {
+		blackhole.consume(this.subscriberTemplate.pullAndConvert(SUBSCRIPTION, MESSAGES_PER_PULL, true,
+				ByteString.class));
+	}
+
+	@Benchmark
+	public void pullAndAck(Blackhole blackhole) {
+		blackhole.consume(this.subscriberTemplate.pullAndAck(SUBSCRIPTION, MESSAGES_PER_PULL, true));
+	}
+
+}
@@ -16,24 +16,56 @@
 
 package org.springframework.cloud.gcp.stream.binder.pubsub;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.core.FixedExecutorProvider;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.springframework.cloud.gcp.pubsub.core.PubSubTemplate;
 import org.springframework.cloud.gcp.pubsub.integration.inbound.PubSubInboundChannelAdapter;
 import org.springframework.cloud.gcp.pubsub.integration.outbound.PubSubMessageHandler;
+import org.springframework.cloud.gcp.pubsub.support.DefaultSubscriberFactory;
+import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubConsumerProperties;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubProducerProperties;
 import org.springframework.cloud.gcp.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
+import org.springframework.cloud.gcp.stream.binder.pubsub.provisioning.PubSubConsumerDestination;
 import org.springframework.cloud.stream.binder.AbstractMessageChannelBinder;
 import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
 import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
 import org.springframework.cloud.stream.binder.ExtendedPropertiesBinder;
 import org.springframework.cloud.stream.provisioning.ConsumerDestination;
 import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.integration.core.MessageProducer;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 /**
+ * Message channel binder for Google Cloud Pub/Sub.
+ *
+ * <p>Consumer bindings share the subscriber threads, flow control and pull workers of the
+ * {@link PubSubTemplate}'s {@link SubscriberFactory}, unless their {@link PubSubConsumerProperties}
+ * or concurrency call for their own, in which case they are registered for the binding's
+ * subscription with the {@link DefaultSubscriberFactory}. Bindings to the same subscription share
+ * the settings of the first of them that has any, and the settings are removed once all of them
+ * are unbound and their subscribers terminated.
+ *
+ * <p>Consumer bindings with a dead-letter topic retry failed messages with the binding's back off
+ * settings, and publish them to the dead-letter topic after its maximum number of attempts, with a
+ * {@link PubSubRetryHandler}. Retried messages are published to the topic again, and every consumer
+ * binding drops the ones retried for another subscription.
+ *
  * @author João André Martins
  * @author Mike Eltsufin
  */
@@ -44,6 +76,12 @@ public class PubSubMessageChannelBinder
 	implements ExtendedPropertiesBinder<MessageChannel, PubSubConsumerProperties,
 		PubSubProducerProperties> {
 
+	private static final Log LOGGER = LogFactory.getLog(PubSubMessageChannelBinder.class);
+
+	private static final long SUBSCRIBER_TERMINATION_TIMEOUT_SECONDS = 30;
+
+	private final Map<String, SubscriptionBindings> subscriptionBindings = new HashMap<>();
+
 	private PubSubTemplate pubSubTemplate;
 
 	private PubSubExtendedBindingProperties pubSubExtendedBindingProperties =
@@ -69,10 +107,124 @@ public class PubSubMessageChannelBinder
 			ExtendedConsumerProperties<PubSubConsumerProperties> properties) {
 		PubSubInboundChannelAdapter inboundAdapter =
 				new PubSubInboundChannelAdapter(this.pubSubTemplate, destination.getName());
+		// Messages retried by the bindings of other subscriptions of the topic are published to this one too.
+		inboundAdapter.setMessageFilter(message -> !PubSubRetryHandler.isRetriedForOtherSubscription(
+				message.getPubsubMessage(), destination.getName()));
+
+		synchronized (this.subscriptionBindings) {
+			SubscriptionBindings bindings = this.subscriptionBindings.computeIfAbsent(
+					destination.getName(), subscriptionName -> new SubscriptionBindings());
+			bindings.adapters.add(inboundAdapter);
+			applyConsumerSettings(destination.getName(), properties, bindings);
+		}
+
+		String deadLetterTopic = properties.getExtension().getDeadLetterTopic();
+		if (deadLetterTopic != null) {
+			PubSubRetryHandler retryHandler = new PubSubRetryHandler(this.pubSubTemplate,
+					IntegrationContextUtils.getTaskScheduler(getBeanFactory()), destination.getName(),
+					((PubSubConsumerDestination) destination).getTopicName(), deadLetterTopic);
+			retryHandler.setMaxAttempts(properties.getMaxAttempts());
+			retryHandler.setInitialDelay(properties.getBackOffInitialInterval());
+			retryHandler.setMultiplier(properties.getBackOffMultiplier());
+			retryHandler.setMaxDelay(properties.getBackOffMaxInterval());
+			inboundAdapter.setFailureHandler(retryHandler);
+		}
 
 		return inboundAdapter;
 	}
 
+	@Override
+	protected void afterUnbindConsumer(ConsumerDestination destination, String group,
+			ExtendedConsumerProperties<PubSubConsumerProperties> consumerProperties) {
+		List<PubSubInboundChannelAdapter> stoppedAdapters = new ArrayList<>();
+		SubscriptionBindings removedBindings = null;
+
+		synchronized (this.subscriptionBindings) {
+			SubscriptionBindings bindings = this.subscriptionBindings.get(destination.getName());
+			if (bindings == null) {
+				return;
+			}
+			bindings.adapters.removeIf(adapter -> !adapter.isRunning() && stoppedAdapters.add(adapter));
+			if (bindings.adapters.isEmpty()) {
+				removedBindings = this.subscriptionBindings.remove(destination.getName());
+				removeConsumerSettings(destination.getName(), removedBindings);
+			}
+		}
+
+		// Subscribers stop asynchronously, and may still use their executor until they terminate.
+		for (PubSubInboundChannelAdapter adapter : stoppedAdapters) {
+			if (!adapter.awaitSubscriberTermination(SUBSCRIBER_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				LOGGER.warn("The subscriber of the binding to " + destination.getName()
+						+ " didn't terminate in " + SUBSCRIBER_TERMINATION_TIMEOUT_SECONDS + " seconds.");
+			}
+		}
+
+		if (removedBindings != null && removedBindings.executor != null) {
+			removedBindings.executor.shutdown();
+		}
+	}
+
+	/**
+	 * Register the executor, pull workers and flow control of a consumer binding for its
+	 * subscription, if the binding doesn't use the shared ones and no other binding to the
+	 * subscription registered its own already.
+	 */
+	private void applyConsumerSettings(String subscriptionName,
+			ExtendedConsumerProperties<PubSubConsumerProperties> properties, SubscriptionBindings bindings) {
+		PubSubConsumerProperties consumerProperties = properties.getExtension();
+		Integer executorThreads = consumerProperties.getExecutorThreads();
+		if (executorThreads == null && properties.getConcurrency() > 1) {
+			executorThreads = properties.getConcurrency();
+		}
+		boolean flowControlled = consumerProperties.getMaxOutstandingElementCount() != null
+				|| consumerProperties.getMaxOutstandingRequestBytes() != null;
+
+		if (executorThreads == null && consumerProperties.getParallelPullCount() == null && !flowControlled) {
+			return;
+		}
+
+		if (bindings.settingsApplied) {
+			LOGGER.warn("The consumer settings of a binding to " + subscriptionName + " are ignored, "
+					+ "because another binding to the subscription already set them.");
+			return;
+		}
+
+		SubscriberFactory subscriberFactory = this.pubSubTemplate.getSubscriberFactory();
+		if (!(subscriberFactory instanceof DefaultSubscriberFactory)) {
+			LOGGER.warn("The consumer settings of the binding to " + subscriptionName + " are ignored, "
+					+ "because the subscriber factory isn't a DefaultSubscriberFactory.");
+			return;
+		}
+		DefaultSubscriberFactory defaultSubscriberFactory = (DefaultSubscriberFactory) subscriberFactory;
+
+		if (executorThreads != null) {
+			ScheduledExecutorService executor = Executors.newScheduledThreadPool(executorThreads,
+					new CustomizableThreadFactory("gcp-pubsub-subscriber-" + subscriptionName + "-"));
+			bindings.executor = executor;
+			defaultSubscriberFactory.setExecutorProvider(subscriptionName, FixedExecutorProvider.create(executor));
+		}
+
+		defaultSubscriberFactory.setParallelPullCount(subscriptionName, consumerProperties.getParallelPullCount());
+
+		if (flowControlled) {
+			defaultSubscriberFactory.setFlowControlSettings(subscriptionName, FlowControlSettings.newBuilder()
+					.setMaxOutstandingElementCount(consumerProperties.getMaxOutstandingElementCount())
+					.setMaxOutstandingRequestBytes(consumerProperties.getMaxOutstandingRequestBytes())
+					.build());
+		}
+		bindings.settingsApplied = true;
+	}
+
+	private void removeConsumerSettings(String subscriptionName, SubscriptionBindings bindings) {
+		SubscriberFactory subscriberFactory = this.pubSubTemplate.getSubscriberFactory();
+		if (bindings.settingsApplied && subscriberFactory instanceof DefaultSubscriberFactory) {
+			DefaultSubscriberFactory defaultSubscriberFactory = (DefaultSubscriberFactory) subscriberFactory;
+			defaultSubscriberFactory.setExecutorProvider(subscriptionName, null);
+			defaultSubscriberFactory.setParallelPullCount(subscriptionName, null);
+			defaultSubscriberFactory.setFlowControlSettings(subscriptionName, null);
+		}
+	}
+
 	@Override
 	public PubSubConsumerProperties getExtendedConsumerProperties(String channelName) {
 		return this.pubSubExtendedBindingProperties.getExtendedConsumerProperties(channelName);
@@ -83,4 +235,16 @@ public class PubSubMessageChannelBinder
 		return this.pubSubExtendedBindingProperties.getExtendedProducerProperties(channelName);
 	}
 
+	/**
+	 * The inbound adapters bound to a subscription, and the consumer settings registered for it.
+	 */
+	private static final class SubscriptionBindings {
+
+		private final List<PubSubInboundChannelAdapter> adapters = new ArrayList<>();
+
+		private boolean settingsApplied;
+
+		private ScheduledExecutorService executor;
+	}
+
 }
@@ -0,0 +1,262 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.stream.binder.pubsub;
+
+import java.util.Date;
+import java.util.function.BiConsumer;
+
+import com.google.pubsub.v1.PubsubMessage;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherOperations;
+import org.springframework.cloud.gcp.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Retries the messages of a consumer binding that failed to be processed with an exponential
+ * backoff, and publishes them to a dead-letter topic once they failed a maximum number of times.
+ *
+ * <p>A failed message is kept, with the subscriber extending its acknowledgement deadline, until
+ * its backoff delay expired. A copy of it is then published to the topic of the subscription, with
+ * the number of failed delivery attempts in the {@link #DELIVERY_ATTEMPTS_ATTRIBUTE} attribute,
+ * and the original message is acked once the copy was published. Since the count travels with the
+ * message, it's kept across redeliveries to any consumer instance of the subscription.
+ *
+ * <p>The copy also reaches the other subscriptions of the topic, so it carries the subscription it
+ * is retried for in the {@link #RETRY_SUBSCRIPTION_ATTRIBUTE} attribute, and consumers of the other
+ * subscriptions should drop it, as those of the binder do with {@link #isRetriedForOtherSubscription}.
+ *
+ * <p>The message published to the dead-letter topic carries the delivery attempts, and the
+ * subscription it failed in in the {@link #SUBSCRIPTION_ATTRIBUTE} attribute. The original message
+ * is only acked once the dead-letter message was published.
+ *
+ * @since 1.1
+ */
+public class PubSubRetryHandler implements BiConsumer<BasicAcknowledgeablePubsubMessage, Throwable> {
+
+	/**
+	 * The attribute of a retried or dead-letter message holding the number of times it failed to
+	 * be processed.
+	 */
+	public static final String DELIVERY_ATTEMPTS_ATTRIBUTE = "gcp_pubsub_delivery_attempts";
+
+	/**
+	 * The attribute of a retried message holding the subscription it is retried for.
+	 */
+	public static final String RETRY_SUBSCRIPTION_ATTRIBUTE = "gcp_pubsub_retry_subscription";
+
+	/**
+	 * The attribute of a dead-letter message holding the subscription it failed in.
+	 */
+	public static final String SUBSCRIPTION_ATTRIBUTE = "gcp_pubsub_subscription";
+
+	private static final Log LOGGER = LogFactory.getLog(PubSubRetryHandler.class);
+
+	private final PubSubPublisherOperations pubSubPublisherOperations;
+
+	private final TaskScheduler taskScheduler;
+
+	private final String subscriptionName;
+
+	private final String topicName;
+
+	private final String deadLetterTopic;
+
+	private int maxAttempts = 3;
+
+	private long initialDelay = 1000;
+
+	private double multiplier = 2.0;
+
+	private long maxDelay = 10000;
+
+	/**
+	 * Create a handler retrying the messages of a subscription.
+	 * @param pubSubPublisherOperations publishes the dead-letter messages
+	 * @param taskScheduler schedules the redelivery of failed messages
+	 * @param subscriptionName the subscription the messages are received from
+	 * @param topicName the topic of the subscription, which failed messages are published to again
+	 * @param deadLetterTopic the topic messages are published to once they failed
+	 * {@link #setMaxAttempts(int) too many times}
+	 */
+	public PubSubRetryHandler(PubSubPublisherOperations pubSubPublisherOperations, TaskScheduler taskScheduler,
+			String subscriptionName, String topicName, String deadLetterTopic) {
+		Assert.notNull(pubSubPublisherOperations, "The publisher operations can't be null.");
+		Assert.notNull(taskScheduler, "The task scheduler can't be null.");
+		Assert.hasText(subscriptionName, "The subscription name can't be null or empty.");
+		Assert.hasText(topicName, "The topic name can't be null or empty.");
+		Assert.hasText(deadLetterTopic, "The dead-letter topic can't be null or empty.");
+		this.pubSubPublisherOperations = pubSubPublisherOperations;
+		this.taskScheduler = taskScheduler;
+		this.subscriptionName = subscriptionName;
+		this.topicName = topicName;
+		this.deadLetterTopic = deadLetterTopic;
+	}
+
+	public int getMaxAttempts() {
+		return this.maxAttempts;
+	}
+
+	/**
+	 * Set the number of times a message is delivered before it's published to the dead-letter
+	 * topic. Defaults to 3.
+	 * @param maxAttempts the maximum number of delivery attempts
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		Assert.isTrue(maxAttempts > 0, "The maximum number of attempts must be positive.");
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getInitialDelay() {
+		return this.initialDelay;
+	}
+
+	/**
+	 * Set the delay in milliseconds before a message that failed once is redelivered. Defaults to
+	 * 1000 milliseconds.
+	 * @param initialDelay the initial redelivery delay
+	 */
+	public void setInitialDelay(long initialDelay) {
+		Assert.isTrue(initialDelay >= 0, "The initial delay can't be negative.");
+		this.initialDelay = initialDelay;
+	}
+
+	public double getMultiplier() {
+		return this.multiplier;
+	}
+
+	/**
+	 * Set the factor the redelivery delay grows by with every failed attempt. Defaults to 2.
+	 * @param multiplier the delay multiplier
+	 */
+	public void setMultiplier(double multiplier) {
+		Assert.isTrue(multiplier >= 1, "The delay multiplier can't be less than 1.");
+		this.multiplier = multiplier;
+	}
+
+	public long getMaxDelay() {
+		return this.maxDelay;
+	}
+
+	/**
+	 * Set the longest delay in milliseconds before a failed message is redelivered. Defaults to
+	 * 10000 milliseconds. It should be well below the maximum ack extension period of the
+	 * subscriber, past which the subscriber stops extending the deadline of the message.
+	 * @param maxDelay the maximum redelivery delay
+	 */
+	public void setMaxDelay(long maxDelay) {
+		Assert.isTrue(maxDelay >= 0, "The maximum delay can't be negative.");
+		this.maxDelay = maxDelay;
+	}
+
+	@Override
+	public void accept(BasicAcknowledgeablePubsubMessage message, Throwable failure) {
+		int attempts = getDeliveryAttempts(message.getPubsubMessage()) + 1;
+
+		if (attempts < this.maxAttempts) {
+			this.taskScheduler.schedule(() -> retry(message, attempts),
+					new Date(System.currentTimeMillis() + getDelay(attempts)));
+		}
+		else {
+			publishDeadLetter(message, attempts, failure);
+		}
+	}
+
+	/**
+	 * Return whether a message is a copy retried for another subscription of its topic, and
+	 * should be dropped by the consumers of a subscription.
+	 * @param message the received message
+	 * @param subscriptionName the subscription it was received from
+	 * @return true if the message is retried for another subscription, false otherwise
+	 */
+	public static boolean isRetriedForOtherSubscription(PubsubMessage message, String subscriptionName) {
+		String retrySubscription = message.getAttributesOrDefault(RETRY_SUBSCRIPTION_ATTRIBUTE, null);
+		return retrySubscription != null && !retrySubscription.equals(subscriptionName);
+	}
+
+	private static int getDeliveryAttempts(PubsubMessage message) {
+		String deliveryAttempts = message.getAttributesOrDefault(DELIVERY_ATTEMPTS_ATTRIBUTE, null);
+		if (deliveryAttempts == null) {
+			return 0;
+		}
+
+		try {
+			return Math.max(Integer.parseInt(deliveryAttempts), 0);
+		}
+		catch (NumberFormatException nfe) {
+			// The attribute wasn't set by a retry handler, so the message hasn't been retried.
+			return 0;
+		}
+	}
+
+	/**
+	 * Return the delay before the redelivery of a message that failed a number of times.
+	 * @param attempts the number of failed attempts
+	 * @return the delay in milliseconds
+	 */
+	long getDelay(int attempts) {
+		double delay = this.initialDelay * Math.pow(this.multiplier, attempts - 1);
+		return (long) Math.min(delay, this.maxDelay);
+	}
+
+	private void retry(BasicAcknowledgeablePubsubMessage message, int attempts) {
+		PubsubMessage retriedMessage = message.getPubsubMessage().toBuilder()
+				.clearMessageId()
+				.clearPublishTime()
+				.putAttributes(DELIVERY_ATTEMPTS_ATTRIBUTE, Integer.toString(attempts))
+				.putAttributes(RETRY_SUBSCRIPTION_ATTRIBUTE, this.subscriptionName)
+				.build();
+
+		this.pubSubPublisherOperations.publish(this.topicName, retriedMessage).addCallback(
+				messageId -> message.ack(),
+				ex -> {
+					// The original message is redelivered instead, without counting this attempt.
+					LOGGER.warn("Failed to publish message " + message.getPubsubMessage().getMessageId()
+							+ " to " + this.topicName + " to retry it.", ex);
+					message.nack();
+				});
+	}
+
+	private void redeliverLater(BasicAcknowledgeablePubsubMessage message, long delay) {
+		this.taskScheduler.schedule(message::nack, new Date(System.currentTimeMillis() + delay));
+	}
+
+	private void publishDeadLetter(BasicAcknowledgeablePubsubMessage message, int attempts, Throwable failure) {
+		PubsubMessage deadLetter = message.getPubsubMessage().toBuilder()
+				.clearMessageId()
+				.clearPublishTime()
+				.putAttributes(DELIVERY_ATTEMPTS_ATTRIBUTE, Integer.toString(attempts))
+				.putAttributes(SUBSCRIPTION_ATTRIBUTE, this.subscriptionName)
+				.removeAttributes(RETRY_SUBSCRIPTION_ATTRIBUTE)
+				.build();
+
+		LOGGER.warn("Publishing message " + message.getPubsubMessage().getMessageId() + " of subscription "
+				+ this.subscriptionName + " to " + this.deadLetterTopic + " after " + attempts
+				+ " failed delivery attempts.", failure);
+
+		this.pubSubPublisherOperations.publish(this.deadLetterTopic, deadLetter).addCallback(
+				messageId -> message.ack(),
+				ex -> {
+					LOGGER.warn("Failed to publish message " + message.getPubsubMessage().getMessageId()
+							+ " to " + this.deadLetterTopic + ".", ex);
+					redeliverLater(message, this.maxDelay);
+				});
+	}
+
+}
@@ -16,6 +16,16 @@
 
 package org.springframework.cloud.gcp.stream.binder.pubsub.config;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.gcp.pubsub.PubSubAdmin;
@@ -24,8 +34,12 @@ import org.springframework.cloud.gcp.stream.binder.pubsub.PubSubMessageChannelBi
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
 import org.springframework.cloud.gcp.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
 import org.springframework.cloud.stream.binder.Binder;
+import org.springframework.cloud.stream.binding.Bindable;
+import org.springframework.cloud.stream.config.BindingProperties;
+import org.springframework.cloud.stream.config.BindingServiceProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 
 /**
  * @author João André Martins
@@ -35,6 +49,8 @@ import org.springframework.context.annotation.Configuration;
 @EnableConfigurationProperties(PubSubExtendedBindingProperties.class)
 public class PubSubBinderConfiguration {
 
+	private static final String PUBSUB_BINDER_TYPE = "pubsub";
+
 	@Bean
 	public PubSubChannelProvisioner pubSubChannelProvisioner(PubSubAdmin pubSubAdmin) {
 		return new PubSubChannelProvisioner(pubSubAdmin);
@@ -46,4 +62,95 @@ public class PubSubBinderConfiguration {
 			PubSubTemplate pubSubTemplate) {
 		return new PubSubMessageChannelBinder(null, pubSubChannelProvisioner, pubSubTemplate);
 	}
+
+	/**
+	 * Look up the topics and subscriptions of all the bindings concurrently when the binder starts,
+	 * instead of one after the other as the bindings are provisioned. Only the topics of the output
+	 * bindings and the subscriptions of the input bindings that use this binder are looked up, and
+	 * created if they are missing and the bindings would create them.
+	 * @param pubSubChannelProvisioner the provisioner caching the destinations
+	 * @param pubSubExtendedBindingProperties the Pub/Sub properties of the bindings
+	 * @param bindingServiceProperties the properties of the bindings, if available
+	 * @param bindables the bound interfaces declaring the input and output bindings
+	 * @return the bean prefetching the destinations once the binder's beans are created
+	 */
+	@Bean
+	public SmartInitializingSingleton pubSubDestinationPrefetcher(PubSubChannelProvisioner pubSubChannelProvisioner,
+			PubSubExtendedBindingProperties pubSubExtendedBindingProperties,
+			ObjectProvider<BindingServiceProperties> bindingServiceProperties, ObjectProvider<Bindable> bindables) {
+		return () -> {
+			BindingServiceProperties properties = bindingServiceProperties.getIfAvailable();
+			if (properties != null) {
+				Set<String> inputs = bindables.stream()
+						.flatMap(bindable -> bindable.getInputs().stream())
+						.collect(Collectors.toSet());
+				Set<String> outputs = bindables.stream()
+						.flatMap(bindable -> bindable.getOutputs().stream())
+						.collect(Collectors.toSet());
+				prefetchDestinations(pubSubChannelProvisioner, pubSubExtendedBindingProperties, properties,
+						inputs, outputs);
+			}
+		};
+	}
+
+	static void prefetchDestinations(PubSubChannelProvisioner pubSubChannelProvisioner,
+			PubSubExtendedBindingProperties pubSubExtendedBindingProperties,
+			BindingServiceProperties bindingServiceProperties, Set<String> inputs, Set<String> outputs) {
+		Set<String> createdTopics = new LinkedHashSet<>();
+		Set<String> subscriptions = new LinkedHashSet<>();
+		Map<String, String> createdSubscriptions = new LinkedHashMap<>();
+		Set<String> pubSubBinders = pubSubBinderNames(bindingServiceProperties);
+
+		bindingServiceProperties.getBindings().forEach((bindingName, bindingProperties) -> {
+			boolean input = inputs.contains(bindingName);
+			boolean output = outputs.contains(bindingName);
+			if ((!input && !output)
+					|| !usesPubSubBinder(bindingProperties, bindingServiceProperties, pubSubBinders)) {
+				return;
+			}
+			String destinations = (bindingProperties.getDestination() != null)
+					? bindingProperties.getDestination() : bindingName;
+			boolean autoCreate = input && pubSubExtendedBindingProperties
+					.getExtendedConsumerProperties(bindingName).isAutoCreateResources();
+			for (String destination : StringUtils.commaDelimitedListToStringArray(destinations)) {
+				String name = destination.trim();
+				if (output) {
+					// Producer bindings always create their topics.
+					createdTopics.add(name);
+				}
+				String subscription = PubSubChannelProvisioner.subscriptionName(name, bindingProperties.getGroup());
+				if (autoCreate) {
+					createdSubscriptions.put(subscription, name);
+				}
+				else if (input) {
+					subscriptions.add(subscription);
+				}
+			}
+		});
+
+		pubSubChannelProvisioner.prefetch(Collections.emptySet(), subscriptions, createdTopics, createdSubscriptions);
+	}
+
+	/**
+	 * Return the names a binding can use to select this binder: its type, and the names of the
+	 * binder configurations of that type.
+	 */
+	private static Set<String> pubSubBinderNames(BindingServiceProperties bindingServiceProperties) {
+		Set<String> names = new HashSet<>();
+		names.add(PUBSUB_BINDER_TYPE);
+		bindingServiceProperties.getBinders().forEach((name, binderProperties) -> {
+			if (PUBSUB_BINDER_TYPE.equals(binderProperties.getType())) {
+				names.add(name);
+			}
+		});
+		return names;
+	}
+
+	private static boolean usesPubSubBinder(BindingProperties bindingProperties,
+			BindingServiceProperties bindingServiceProperties, Set<String> pubSubBinders) {
+		String binder = (bindingProperties.getBinder() != null)
+				? bindingProperties.getBinder() : bindingServiceProperties.getDefaultBinder();
+		// Without a binder or a default binder, the bindings use the only binder there is.
+		return binder == null || pubSubBinders.contains(binder);
+	}
 }
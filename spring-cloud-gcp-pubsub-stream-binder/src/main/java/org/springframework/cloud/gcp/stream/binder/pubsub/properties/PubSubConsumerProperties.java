@@ -23,6 +23,36 @@ public class PubSubConsumerProperties {
 
 	private boolean autoCreateResources = true;
 
+	/**
+	 * Number of threads handling the messages of the binding. Defaults to the binding's
+	 * concurrency if greater than 1, or else to the threads shared by all bindings.
+	 */
+	private Integer executorThreads;
+
+	/**
+	 * Number of pull workers of the binding. Defaults to the global subscriber setting.
+	 */
+	private Integer parallelPullCount;
+
+	/**
+	 * Maximum number of messages of the binding waiting to be acknowledged. Setting either
+	 * maximum replaces the global subscriber flow control for the binding.
+	 */
+	private Long maxOutstandingElementCount;
+
+	/**
+	 * Maximum size in bytes of the messages of the binding waiting to be acknowledged. Setting
+	 * either maximum replaces the global subscriber flow control for the binding.
+	 */
+	private Long maxOutstandingRequestBytes;
+
+	/**
+	 * Topic that messages are published to once they failed the binding's maximum number of
+	 * attempts. When set, failed messages are redelivered after the binding's back off delays,
+	 * instead of right away.
+	 */
+	private String deadLetterTopic;
+
 	public boolean isAutoCreateResources() {
 		return this.autoCreateResources;
 	}
@@ -30,4 +60,44 @@ public class PubSubConsumerProperties {
 	public void setAutoCreateResources(boolean autoCreateResources) {
 		this.autoCreateResources = autoCreateResources;
 	}
+
+	public Integer getExecutorThreads() {
+		return this.executorThreads;
+	}
+
+	public void setExecutorThreads(Integer executorThreads) {
+		this.executorThreads = executorThreads;
+	}
+
+	public Integer getParallelPullCount() {
+		return this.parallelPullCount;
+	}
+
+	public void setParallelPullCount(Integer parallelPullCount) {
+		this.parallelPullCount = parallelPullCount;
+	}
+
+	public Long getMaxOutstandingElementCount() {
+		return this.maxOutstandingElementCount;
+	}
+
+	public void setMaxOutstandingElementCount(Long maxOutstandingElementCount) {
+		this.maxOutstandingElementCount = maxOutstandingElementCount;
+	}
+
+	public Long getMaxOutstandingRequestBytes() {
+		return this.maxOutstandingRequestBytes;
+	}
+
+	public void setMaxOutstandingRequestBytes(Long maxOutstandingRequestBytes) {
+		this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+	}
+
+	public String getDeadLetterTopic() {
+		return this.deadLetterTopic;
+	}
+
+	public void setDeadLetterTopic(String deadLetterTopic) {
+		this.deadLetterTopic = deadLetterTopic;
+	}
 }
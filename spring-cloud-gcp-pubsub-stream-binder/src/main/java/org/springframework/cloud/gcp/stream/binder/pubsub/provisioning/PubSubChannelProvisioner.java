@@ -16,6 +16,22 @@
 
 package org.springframework.cloud.gcp.stream.binder.pubsub.provisioning;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.springframework.cloud.gcp.pubsub.PubSubAdmin;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubConsumerProperties;
 import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubProducerProperties;
@@ -25,27 +41,73 @@ import org.springframework.cloud.stream.provisioning.ConsumerDestination;
 import org.springframework.cloud.stream.provisioning.ProducerDestination;
 import org.springframework.cloud.stream.provisioning.ProvisioningException;
 import org.springframework.cloud.stream.provisioning.ProvisioningProvider;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
 
 /**
+ * Provisions the topics and subscriptions of the binder's destinations.
+ *
+ * <p>The topics and subscriptions known to exist are cached and shared by all bindings, so that
+ * bindings provisioned together look up or create each one only once. The cached entries expire
+ * after {@link #setCacheExpiration(Duration) a while}, so that destinations deleted later are
+ * provisioned again. {@link #prefetch(Collection, Collection, Collection, Map)} looks up or
+ * creates many of them concurrently, so that provisioning the bindings one by one afterwards
+ * mostly hits the cache.
+ *
+ * <p>The dead-letter topics of consumer bindings are provisioned along with their subscriptions.
+ *
  * @author João André Martins
  */
 public class PubSubChannelProvisioner
 		implements ProvisioningProvider<ExtendedConsumerProperties<PubSubConsumerProperties>,
 		ExtendedProducerProperties<PubSubProducerProperties>> {
 
+	private static final Log LOGGER = LogFactory.getLog(PubSubChannelProvisioner.class);
+
+	private static final int MAX_PREFETCH_THREADS = 16;
+
+	private static final Duration DEFAULT_CACHE_EXPIRATION = Duration.ofMinutes(1);
+
 	private final PubSubAdmin pubSubAdmin;
 
+	/** The names of the topics known to exist, and when they were found. */
+	private final Map<String, Long> existingTopics = new ConcurrentHashMap<>();
+
+	/** The names of the subscriptions known to exist, and when they were found. */
+	private final Map<String, Long> existingSubscriptions = new ConcurrentHashMap<>();
+
+	private volatile long cacheExpirationNanos = DEFAULT_CACHE_EXPIRATION.toNanos();
+
 	public PubSubChannelProvisioner(PubSubAdmin pubSubAdmin) {
 		this.pubSubAdmin = pubSubAdmin;
 	}
 
+	/**
+	 * Set how long topics and subscriptions are known to exist after they are looked up or
+	 * created. Defaults to one minute.
+	 * @param cacheExpiration the expiration of the cached destinations; zero disables the cache
+	 */
+	public void setCacheExpiration(Duration cacheExpiration) {
+		Assert.notNull(cacheExpiration, "The cache expiration can't be null.");
+		Assert.isTrue(!cacheExpiration.isNegative(), "The cache expiration can't be negative.");
+		this.cacheExpirationNanos = cacheExpiration.toNanos();
+	}
+
+	/**
+	 * Return the name of the subscription of a consumer binding.
+	 * @param name the destination of the binding
+	 * @param group the group of the binding, or {@code null} if it doesn't have one
+	 * @return the name of the subscription the binding consumes from
+	 */
+	public static String subscriptionName(String name, String group) {
+		return (group == null) ? name : (name + '.' + group);
+	}
+
 	@Override
 	public ProducerDestination provisionProducerDestination(String name,
 			ExtendedProducerProperties<PubSubProducerProperties> properties)
 			throws ProvisioningException {
-		if (this.pubSubAdmin.getTopic(name) == null) {
-			this.pubSubAdmin.createTopic(name);
-		}
+		ensureTopicExists(name);
 
 		return new PubSubProducerDestination(name);
 	}
@@ -55,19 +117,149 @@ public class PubSubChannelProvisioner
 			ExtendedConsumerProperties<PubSubConsumerProperties> properties)
 			throws ProvisioningException {
 
-		String subscription = group == null ? name : (name + '.' + group);
-		if (this.pubSubAdmin.getSubscription(subscription) == null) {
+		String subscription = subscriptionName(name, group);
+		if (!subscriptionExists(subscription)) {
 			if (properties.getExtension().isAutoCreateResources()) {
-				if (this.pubSubAdmin.getTopic(name) == null) {
-					this.pubSubAdmin.createTopic(name);
-				}
+				ensureTopicExists(name);
 
 				this.pubSubAdmin.createSubscription(subscription, name);
+				cache(this.existingSubscriptions, subscription);
 			}
 			else {
 				throw new ProvisioningException("Unexisting '" + subscription + "' subscription.");
 			}
 		}
-		return new PubSubConsumerDestination(subscription);
+
+		String deadLetterTopic = properties.getExtension().getDeadLetterTopic();
+		if (deadLetterTopic != null) {
+			if (properties.getExtension().isAutoCreateResources()) {
+				ensureTopicExists(deadLetterTopic);
+			}
+			else if (!topicExists(deadLetterTopic)) {
+				throw new ProvisioningException("Unexisting '" + deadLetterTopic + "' dead-letter topic.");
+			}
+		}
+		return new PubSubConsumerDestination(subscription, name);
+	}
+
+	/**
+	 * Concurrently look up topics and subscriptions that are about to be provisioned, and cache the
+	 * ones that exist. Failed lookups are logged and retried when the destinations are provisioned.
+	 * @param topicNames the names of the topics
+	 * @param subscriptionNames the names of the subscriptions
+	 */
+	public void prefetch(Collection<String> topicNames, Collection<String> subscriptionNames) {
+		prefetch(topicNames, subscriptionNames, Collections.emptySet(), Collections.emptyMap());
+	}
+
+	/**
+	 * Concurrently look up topics and subscriptions that are about to be provisioned, create the
+	 * missing ones of bindings that create their resources, and cache them. Topics are created
+	 * before the subscriptions to them. Failures are logged and retried when the destinations are
+	 * provisioned.
+	 * @param topicNames the names of the topics to look up
+	 * @param subscriptionNames the names of the subscriptions to look up
+	 * @param createdTopicNames the names of the topics to create if they don't exist
+	 * @param createdSubscriptions the topic names of the subscriptions to create if they don't
+	 * exist, by subscription name; their topics are created too
+	 */
+	public void prefetch(Collection<String> topicNames, Collection<String> subscriptionNames,
+			Collection<String> createdTopicNames, Map<String, String> createdSubscriptions) {
+		Set<String> createdTopics = new LinkedHashSet<>(createdTopicNames);
+		createdTopics.addAll(createdSubscriptions.values());
+		Set<String> lookedUpTopics = new LinkedHashSet<>(topicNames);
+		lookedUpTopics.removeAll(createdTopics);
+
+		int tasks = Math.max(lookedUpTopics.size() + subscriptionNames.size() + createdTopics.size(),
+				createdSubscriptions.size());
+		if (tasks == 0) {
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks, MAX_PREFETCH_THREADS),
+				new CustomizableThreadFactory("gcp-pubsub-provisioning-"));
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>(tasks);
+			lookedUpTopics.forEach(topic -> futures.add(prefetchAsync(topic, () -> topicExists(topic), executor)));
+			subscriptionNames.forEach(subscription -> futures.add(
+					prefetchAsync(subscription, () -> subscriptionExists(subscription), executor)));
+			createdTopics.forEach(topic -> futures.add(prefetchAsync(topic, () -> ensureTopicExists(topic), executor)));
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+			// Subscriptions can only be created once their topics exist.
+			futures.clear();
+			createdSubscriptions.forEach((subscription, topic) -> futures.add(
+					prefetchAsync(subscription, () -> ensureSubscriptionExists(subscription, topic), executor)));
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private static CompletableFuture<Void> prefetchAsync(String name, Runnable task, ExecutorService executor) {
+		return CompletableFuture.runAsync(task, executor)
+				.exceptionally(ex -> {
+					LOGGER.warn("Failed to look up or create " + name + " before provisioning it.", ex);
+					return null;
+				});
+	}
+
+	private boolean topicExists(String name) {
+		if (isCached(this.existingTopics, name)) {
+			return true;
+		}
+
+		boolean exists = this.pubSubAdmin.getTopic(name) != null;
+		if (exists) {
+			cache(this.existingTopics, name);
+		}
+		return exists;
+	}
+
+	private boolean subscriptionExists(String name) {
+		if (isCached(this.existingSubscriptions, name)) {
+			return true;
+		}
+
+		boolean exists = this.pubSubAdmin.getSubscription(name) != null;
+		if (exists) {
+			cache(this.existingSubscriptions, name);
+		}
+		return exists;
+	}
+
+	private void ensureTopicExists(String name) {
+		if (!topicExists(name)) {
+			this.pubSubAdmin.createTopic(name);
+			cache(this.existingTopics, name);
+		}
+	}
+
+	private void ensureSubscriptionExists(String name, String topicName) {
+		if (!subscriptionExists(name)) {
+			this.pubSubAdmin.createSubscription(name, topicName);
+			cache(this.existingSubscriptions, name);
+		}
+	}
+
+	private boolean isCached(Map<String, Long> cache, String name) {
+		Long cachedAt = cache.get(name);
+		if (cachedAt == null) {
+			return false;
+		}
+
+		// Expired entries are removed as they are looked up, since the destinations are few.
+		if (System.nanoTime() - cachedAt >= this.cacheExpirationNanos) {
+			cache.remove(name, cachedAt);
+			return false;
+		}
+		return true;
+	}
+
+	private void cache(Map<String, Long> cache, String name) {
+		if (this.cacheExpirationNanos > 0) {
+			cache.put(name, System.nanoTime());
+		}
 	}
 }
@@ -25,12 +25,34 @@ public class PubSubConsumerDestination implements ConsumerDestination {
 
 	private String name;
 
+	private String topicName;
+
 	public PubSubConsumerDestination(String name) {
 		this.name = name;
 	}
 
+	/**
+	 * Create the destination of a subscription to a topic.
+	 * @param name the name of the subscription
+	 * @param topicName the name of the topic
+	 * @since 1.1
+	 */
+	public PubSubConsumerDestination(String name, String topicName) {
+		this.name = name;
+		this.topicName = topicName;
+	}
+
 	@Override
 	public String getName() {
 		return this.name;
 	}
+
+	/**
+	 * Return the name of the topic of the subscription.
+	 * @return the topic name, or {@code null} if it isn't known
+	 * @since 1.1
+	 */
+	public String getTopicName() {
+		return this.topicName;
+	}
 }
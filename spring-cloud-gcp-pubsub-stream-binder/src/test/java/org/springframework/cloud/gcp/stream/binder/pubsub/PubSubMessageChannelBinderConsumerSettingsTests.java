@@ -0,0 +1,164 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.stream.binder.pubsub;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import com.google.api.gax.core.ExecutorProvider;
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubTemplate;
+import org.springframework.cloud.gcp.pubsub.integration.inbound.PubSubInboundChannelAdapter;
+import org.springframework.cloud.gcp.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.DefaultSubscriberFactory;
+import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubConsumerProperties;
+import org.springframework.cloud.gcp.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the per-subscription consumer settings of {@link PubSubMessageChannelBinder}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PubSubMessageChannelBinderConsumerSettingsTests {
+
+	@Mock
+	private PubSubTemplate pubSubTemplate;
+
+	@Mock
+	private DefaultSubscriberFactory subscriberFactory;
+
+	@Mock
+	private PubSubChannelProvisioner provisioner;
+
+	@Mock
+	private ConsumerDestination destination;
+
+	private PubSubMessageChannelBinder binder;
+
+	@Before
+	public void setUp() {
+		when(this.pubSubTemplate.getSubscriberFactory()).thenReturn(this.subscriberFactory);
+		when(this.destination.getName()).thenReturn("orders.billing");
+		this.binder = new PubSubMessageChannelBinder(new String[0], this.provisioner, this.pubSubTemplate);
+	}
+
+	@Test
+	public void testConcurrencySetsExecutorThreads() {
+		this.binder.createConsumerEndpoint(this.destination, "billing", consumerProperties(4));
+
+		ScheduledExecutorService executor = registeredExecutor();
+		assertThat(executor).isInstanceOf(ScheduledThreadPoolExecutor.class);
+		assertThat(((ScheduledThreadPoolExecutor) executor).getCorePoolSize()).isEqualTo(4);
+
+		this.binder.afterUnbindConsumer(this.destination, "billing", consumerProperties(4));
+	}
+
+	@Test
+	public void testExecutorThreadsOverrideConcurrency() {
+		ExtendedConsumerProperties<PubSubConsumerProperties> properties = consumerProperties(4);
+		properties.getExtension().setExecutorThreads(2);
+		this.binder.createConsumerEndpoint(this.destination, "billing", properties);
+
+		assertThat(((ScheduledThreadPoolExecutor) registeredExecutor()).getCorePoolSize()).isEqualTo(2);
+
+		this.binder.afterUnbindConsumer(this.destination, "billing", properties);
+	}
+
+	@Test
+	public void testNoSettingsWithoutConcurrency() {
+		this.binder.createConsumerEndpoint(this.destination, "billing", consumerProperties(1));
+		this.binder.afterUnbindConsumer(this.destination, "billing", consumerProperties(1));
+
+		verify(this.subscriberFactory, never()).setExecutorProvider(any(), any());
+		verify(this.subscriberFactory, never()).setParallelPullCount(any(), any());
+		verify(this.subscriberFactory, never()).setFlowControlSettings(any(), any());
+	}
+
+	@Test
+	public void testSettingsRemovedAfterLastUnbind() {
+		ExtendedConsumerProperties<PubSubConsumerProperties> properties = consumerProperties(4);
+		properties.getExtension().setParallelPullCount(3);
+		this.binder.createConsumerEndpoint(this.destination, "billing", properties);
+		this.binder.createConsumerEndpoint(this.destination, "billing", properties);
+		ScheduledExecutorService executor = registeredExecutor();
+
+		this.binder.afterUnbindConsumer(this.destination, "billing", properties);
+
+		assertThat(executor.isShutdown()).isFalse();
+		verify(this.subscriberFactory, never()).setExecutorProvider(eq("orders.billing"), isNull());
+		verify(this.subscriberFactory, never()).setParallelPullCount(eq("orders.billing"), isNull());
+
+		this.binder.afterUnbindConsumer(this.destination, "billing", properties);
+
+		assertThat(executor.isShutdown()).isTrue();
+		verify(this.subscriberFactory).setExecutorProvider(eq("orders.billing"), isNull());
+		verify(this.subscriberFactory).setParallelPullCount(eq("orders.billing"), isNull());
+		verify(this.subscriberFactory).setFlowControlSettings(eq("orders.billing"), isNull());
+	}
+
+	@Test
+	public void testMessagesRetriedForOtherSubscriptionsFiltered() {
+		PubSubInboundChannelAdapter adapter = (PubSubInboundChannelAdapter) this.binder.createConsumerEndpoint(
+				this.destination, "billing", consumerProperties(1));
+		this.binder.afterUnbindConsumer(this.destination, "billing", consumerProperties(1));
+
+		assertThat(adapter.getMessageFilter().test(mockMessage("orders.shipping"))).isFalse();
+		assertThat(adapter.getMessageFilter().test(mockMessage("orders.billing"))).isTrue();
+		assertThat(adapter.getMessageFilter().test(mockMessage(null))).isTrue();
+	}
+
+	private static BasicAcknowledgeablePubsubMessage mockMessage(String retrySubscription) {
+		PubsubMessage.Builder pubsubMessage = PubsubMessage.newBuilder();
+		if (retrySubscription != null) {
+			pubsubMessage.putAttributes(PubSubRetryHandler.RETRY_SUBSCRIPTION_ATTRIBUTE, retrySubscription);
+		}
+		BasicAcknowledgeablePubsubMessage message = mock(BasicAcknowledgeablePubsubMessage.class);
+		when(message.getPubsubMessage()).thenReturn(pubsubMessage.build());
+		return message;
+	}
+
+	private ScheduledExecutorService registeredExecutor() {
+		ArgumentCaptor<ExecutorProvider> executorProvider = ArgumentCaptor.forClass(ExecutorProvider.class);
+		verify(this.subscriberFactory).setExecutorProvider(eq("orders.billing"), executorProvider.capture());
+		return executorProvider.getValue().getExecutor();
+	}
+
+	private static ExtendedConsumerProperties<PubSubConsumerProperties> consumerProperties(int concurrency) {
+		ExtendedConsumerProperties<PubSubConsumerProperties> properties =
+				new ExtendedConsumerProperties<>(new PubSubConsumerProperties());
+		properties.setConcurrency(concurrency);
+		return properties;
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.stream.binder.pubsub;
+
+import java.util.Date;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherOperations;
+import org.springframework.cloud.gcp.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PubSubRetryHandler}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PubSubRetryHandlerTests {
+
+	private static final RuntimeException FAILURE = new RuntimeException("Processing failed.");
+
+	@Test
+	public void testDelays() {
+		PubSubRetryHandler retryHandler = new PubSubRetryHandler(mock(PubSubPublisherOperations.class),
+				mock(TaskScheduler.class), "orders.billing", "orders", "orders.dlq");
+		retryHandler.setInitialDelay(100);
+		retryHandler.setMultiplier(3);
+		retryHandler.setMaxDelay(1000);
+
+		assertThat(retryHandler.getDelay(1)).isEqualTo(100);
+		assertThat(retryHandler.getDelay(2)).isEqualTo(300);
+		assertThat(retryHandler.getDelay(3)).isEqualTo(900);
+		assertThat(retryHandler.getDelay(4)).isEqualTo(1000);
+	}
+
+	@Test
+	public void testRetriedAfterDelay() {
+		TaskScheduler taskScheduler = mock(TaskScheduler.class);
+		PubSubPublisherOperations publisherOperations = mock(PubSubPublisherOperations.class);
+		SettableListenableFuture<String> publishFuture = new SettableListenableFuture<>();
+		when(publisherOperations.publish(eq("orders"), any(PubsubMessage.class))).thenReturn(publishFuture);
+		PubSubRetryHandler retryHandler = new PubSubRetryHandler(publisherOperations, taskScheduler,
+				"orders.billing", "orders", "orders.dlq");
+		BasicAcknowledgeablePubsubMessage message = mockMessage(null);
+
+		long before = System.currentTimeMillis();
+		retryHandler.accept(message, FAILURE);
+
+		ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+		ArgumentCaptor<Date> time = ArgumentCaptor.forClass(Date.class);
+		verify(taskScheduler).schedule(retry.capture(), time.capture());
+		assertThat(time.getValue().getTime()).isGreaterThanOrEqualTo(before + 1000);
+		verify(publisherOperations, never()).publish(any(), any(PubsubMessage.class));
+
+		retry.getValue().run();
+		ArgumentCaptor<PubsubMessage> retriedMessage = ArgumentCaptor.forClass(PubsubMessage.class);
+		verify(publisherOperations).publish(eq("orders"), retriedMessage.capture());
+		assertThat(retriedMessage.getValue().getData().toStringUtf8()).isEqualTo("payload");
+		assertThat(retriedMessage.getValue().getMessageId()).isEmpty();
+		assertThat(retriedMessage.getValue().getAttributesMap())
+				.containsEntry("key", "value")
+				.containsEntry(PubSubRetryHandler.DELIVERY_ATTEMPTS_ATTRIBUTE, "1")
+				.containsEntry(PubSubRetryHandler.RETRY_SUBSCRIPTION_ATTRIBUTE, "orders.billing");
+		verify(message, never()).ack();
+
+		publishFuture.set("retry-id");
+		verify(message, times(1)).ack();
+		verify(message, never()).nack();
+	}
+
+	@Test
+	public void testNackedWhenRetryFails() {
+		TaskScheduler taskScheduler = mock(TaskScheduler.class);
+		PubSubPublisherOperations publisherOperations = mock(PubSubPublisherOperations.class);
+		SettableListenableFuture<String> publishFuture = new SettableListenableFuture<>();
+		publishFuture.setException(new PubSubException("Publishing failed."));
+		when(publisherOperations.publish(eq("orders"), any(PubsubMessage.class))).thenReturn(publishFuture);
+		PubSubRetryHandler retryHandler = new PubSubRetryHandler(publisherOperations, taskScheduler,
+				"orders.billing", "orders", "orders.dlq");
+		BasicAcknowledgeablePubsubMessage message = mockMessage("1");
+
+		retryHandler.accept(message, FAILURE);
+		ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+		verify(taskScheduler).schedule(retry.capture(), any(Date.class));
+		retry.getValue().run();
+
+		verify(message, times(1)).nack();
+		verify(message, never()).ack();
+	}
+
+	@Test
+	public void testDeadLetterAfterMaxAttempts() {
+		TaskScheduler taskScheduler = mock(TaskScheduler.class);
+		PubSubPublisherOperations publisherOperations = mock(PubSubPublisherOperations.class);
+		SettableListenableFuture<String> publishFuture = new SettableListenableFuture<>();
+		when(publisherOperations.publish(eq("orders.dlq"), any(PubsubMessage.class))).thenReturn(publishFuture);
+		PubSubRetryHandler retryHandler = new PubSubRetryHandler(publisherOperations, taskScheduler,
+				"orders.billing", "orders", "orders.dlq");
+		retryHandler.setMaxAttempts(2);
+		// A copy that was retried once, possibly by another consumer instance.
+		BasicAcknowledgeablePubsubMessage message = mockMessage("1");
+
+		retryHandler.accept(message, FAILURE);
+
+		ArgumentCaptor<PubsubMessage> deadLetter = ArgumentCaptor.forClass(PubsubMessage.class);
+		verify(publisherOperations).publish(eq("orders.dlq"), deadLetter.capture());
+		assertThat(deadLetter.getValue().getData().toStringUtf8()).isEqualTo("payload");
+		assertThat(deadLetter.getValue().getMessageId()).isEmpty();
+		assertThat(deadLetter.getValue().getAttributesMap())
+				.containsEntry("key", "value")
+				.containsEntry(PubSubRetryHandler.DELIVERY_ATTEMPTS_ATTRIBUTE, "2")
+				.containsEntry(PubSubRetryHandler.SUBSCRIPTION_ATTRIBUTE, "orders.billing")
+				.doesNotContainKey(PubSubRetryHandler.RETRY_SUBSCRIPTION_ATTRIBUTE);
+		verify(message, never()).ack();
+
+		publishFuture.set("dead-letter-id");
+		verify(message, times(1)).ack();
+		verify(taskScheduler, never()).schedule(any(Runnable.class), any(Date.class));
+	}
+
+	@Test
+	public void testRedeliveredWhenDeadLetterFails() {
+		TaskScheduler taskScheduler = mock(TaskScheduler.class);
+		PubSubPublisherOperations publisherOperations = mock(PubSubPublisherOperations.class);
+		SettableListenableFuture<String> publishFuture = new SettableListenableFuture<>();
+		when(publisherOperations.publish(eq("orders.dlq"), any(PubsubMessage.class))).thenReturn(publishFuture);
+		PubSubRetryHandler retryHandler = new PubSubRetryHandler(publisherOperations, taskScheduler,
+				"orders.billing", "orders", "orders.dlq");
+		retryHandler.setMaxAttempts(1);
+		BasicAcknowledgeablePubsubMessage message = mockMessage(null);
+
+		retryHandler.accept(message, FAILURE);
+		publishFuture.setException(new PubSubException("Publishing failed."));
+
+		verify(message, never()).ack();
+		verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Date.class));
+	}
+
+	@Test
+	public void testRetriedForOtherSubscription() {
+		PubsubMessage retriedMessage = PubsubMessage.newBuilder()
+				.putAttributes(PubSubRetryHandler.RETRY_SUBSCRIPTION_ATTRIBUTE, "orders.billing")
+				.build();
+
+		assertThat(PubSubRetryHandler.isRetriedForOtherSubscription(retriedMessage, "orders.shipping")).isTrue();
+		assertThat(PubSubRetryHandler.isRetriedForOtherSubscription(retriedMessage, "orders.billing")).isFalse();
+		assertThat(PubSubRetryHandler.isRetriedForOtherSubscription(
+				PubsubMessage.getDefaultInstance(), "orders.shipping")).isFalse();
+	}
+
+	private static BasicAcknowledgeablePubsubMessage mockMessage(String deliveryAttempts) {
+		PubsubMessage.Builder pubsubMessage = PubsubMessage.newBuilder()
+				.setMessageId("message-id")
+				.setData(ByteString.copyFromUtf8("payload"))
+				.putAttributes("key", "value");
+		if (deliveryAttempts != null) {
+			pubsubMessage.putAttributes(PubSubRetryHandler.DELIVERY_ATTEMPTS_ATTRIBUTE, deliveryAttempts)
+					.putAttributes(PubSubRetryHandler.RETRY_SUBSCRIPTION_ATTRIBUTE, "orders.billing");
+		}
+		BasicAcknowledgeablePubsubMessage message = mock(BasicAcknowledgeablePubsubMessage.class);
+		when(message.getPubsubMessage()).thenReturn(pubsubMessage.build());
+		return message;
+	}
+
+}
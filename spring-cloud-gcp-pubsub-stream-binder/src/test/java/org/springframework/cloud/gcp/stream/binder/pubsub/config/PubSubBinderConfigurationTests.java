@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.stream.binder.pubsub.config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubBindingProperties;
+import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
+import org.springframework.cloud.gcp.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
+import org.springframework.cloud.stream.config.BinderProperties;
+import org.springframework.cloud.stream.config.BindingProperties;
+import org.springframework.cloud.stream.config.BindingServiceProperties;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the destination prefetching of {@link PubSubBinderConfiguration}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PubSubBinderConfigurationTests {
+
+	@Mock
+	private PubSubChannelProvisioner provisioner;
+
+	@Mock
+	private BindingServiceProperties bindingServiceProperties;
+
+	private PubSubExtendedBindingProperties pubSubExtendedBindingProperties = new PubSubExtendedBindingProperties();
+
+	@Test
+	public void testPrefetchesDestinationsOfPubSubBindingsByRole() {
+		Map<String, BindingProperties> bindings = new HashMap<>();
+		bindings.put("billing", binding("orders", "billing", null));
+		bindings.put("shipping", binding("orders", null, "gcp"));
+		bindings.put("payments", binding(null, null, "pubsub"));
+		bindings.put("audit", binding("audit", "auditors", "kafka"));
+		bindings.put("unbound", binding("unbound", null, null));
+		BinderProperties gcpBinder = new BinderProperties();
+		gcpBinder.setType("pubsub");
+		BinderProperties kafkaBinder = new BinderProperties();
+		kafkaBinder.setType("kafka");
+		Map<String, BinderProperties> binders = new HashMap<>();
+		binders.put("gcp", gcpBinder);
+		binders.put("kafka", kafkaBinder);
+		when(this.bindingServiceProperties.getBindings()).thenReturn(bindings);
+		when(this.bindingServiceProperties.getBinders()).thenReturn(binders);
+
+		PubSubBinderConfiguration.prefetchDestinations(this.provisioner, this.pubSubExtendedBindingProperties,
+				this.bindingServiceProperties, new HashSet<>(Arrays.asList("billing", "shipping", "audit")),
+				new HashSet<>(Arrays.asList("shipping", "payments")));
+
+		Map<String, String> createdSubscriptions = new HashMap<>();
+		createdSubscriptions.put("orders.billing", "orders");
+		createdSubscriptions.put("orders", "orders");
+		verify(this.provisioner).prefetch(eq(Collections.emptySet()), eq(Collections.emptySet()),
+				argThat(topics -> new HashSet<>(topics).equals(new HashSet<>(Arrays.asList("orders", "payments")))),
+				eq(createdSubscriptions));
+	}
+
+	@Test
+	public void testLooksUpSubscriptionsWithoutAutoCreate() {
+		PubSubBindingProperties billing = new PubSubBindingProperties();
+		billing.getConsumer().setAutoCreateResources(false);
+		this.pubSubExtendedBindingProperties.getBindings().put("billing", billing);
+		when(this.bindingServiceProperties.getBindings())
+				.thenReturn(Collections.singletonMap("billing", binding("orders", "billing", null)));
+		when(this.bindingServiceProperties.getBinders()).thenReturn(Collections.emptyMap());
+
+		PubSubBinderConfiguration.prefetchDestinations(this.provisioner, this.pubSubExtendedBindingProperties,
+				this.bindingServiceProperties, Collections.singleton("billing"), Collections.emptySet());
+
+		verify(this.provisioner).prefetch(Collections.emptySet(), Collections.singleton("orders.billing"),
+				Collections.emptySet(), Collections.emptyMap());
+	}
+
+	@Test
+	public void testSkipsBindingsOfOtherDefaultBinder() {
+		when(this.bindingServiceProperties.getBindings())
+				.thenReturn(Collections.singletonMap("billing", binding("orders", "billing", null)));
+		when(this.bindingServiceProperties.getBinders()).thenReturn(Collections.emptyMap());
+		when(this.bindingServiceProperties.getDefaultBinder()).thenReturn("kafka");
+
+		PubSubBinderConfiguration.prefetchDestinations(this.provisioner, this.pubSubExtendedBindingProperties,
+				this.bindingServiceProperties, Collections.singleton("billing"), Collections.emptySet());
+
+		verify(this.provisioner).prefetch(Collections.emptySet(), Collections.emptySet(), Collections.emptySet(),
+				Collections.emptyMap());
+	}
+
+	private static BindingProperties binding(String destination, String group, String binder) {
+		BindingProperties bindingProperties = new BindingProperties();
+		bindingProperties.setDestination(destination);
+		bindingProperties.setGroup(group);
+		bindingProperties.setBinder(binder);
+		return bindingProperties;
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.stream.binder.pubsub.provisioning;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.Topic;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.springframework.cloud.gcp.pubsub.PubSubAdmin;
+import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubConsumerProperties;
+import org.springframework.cloud.gcp.stream.binder.pubsub.properties.PubSubProducerProperties;
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.cloud.stream.provisioning.ProvisioningException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PubSubChannelProvisioner}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PubSubChannelProvisionerTests {
+
+	@Mock
+	private PubSubAdmin pubSubAdmin;
+
+	private PubSubChannelProvisioner provisioner;
+
+	private ExtendedConsumerProperties<PubSubConsumerProperties> consumerProperties;
+
+	private ExtendedProducerProperties<PubSubProducerProperties> producerProperties;
+
+	@Before
+	public void setUp() {
+		this.provisioner = new PubSubChannelProvisioner(this.pubSubAdmin);
+		this.consumerProperties = new ExtendedConsumerProperties<>(new PubSubConsumerProperties());
+		this.producerProperties = new ExtendedProducerProperties<>(new PubSubProducerProperties());
+	}
+
+	@Test
+	public void testProducerTopicCached() {
+		when(this.pubSubAdmin.getTopic("orders")).thenReturn(Topic.getDefaultInstance());
+
+		assertThat(this.provisioner.provisionProducerDestination("orders", this.producerProperties).getName())
+				.isEqualTo("orders");
+		this.provisioner.provisionProducerDestination("orders", this.producerProperties);
+
+		verify(this.pubSubAdmin, times(1)).getTopic("orders");
+		verify(this.pubSubAdmin, never()).createTopic("orders");
+	}
+
+	@Test
+	public void testCreatedTopicCached() {
+		this.provisioner.provisionProducerDestination("orders", this.producerProperties);
+		this.provisioner.provisionProducerDestination("orders", this.producerProperties);
+
+		verify(this.pubSubAdmin, times(1)).getTopic("orders");
+		verify(this.pubSubAdmin, times(1)).createTopic("orders");
+	}
+
+	@Test
+	public void testExpiredTopicLookedUpAgain() {
+		when(this.pubSubAdmin.getTopic("orders")).thenReturn(Topic.getDefaultInstance());
+		this.provisioner.setCacheExpiration(Duration.ZERO);
+
+		this.provisioner.provisionProducerDestination("orders", this.producerProperties);
+		this.provisioner.provisionProducerDestination("orders", this.producerProperties);
+
+		verify(this.pubSubAdmin, times(2)).getTopic("orders");
+		verify(this.pubSubAdmin, never()).createTopic("orders");
+	}
+
+	@Test
+	public void testSubscriptionName() {
+		assertThat(PubSubChannelProvisioner.subscriptionName("orders", "billing")).isEqualTo("orders.billing");
+		assertThat(PubSubChannelProvisioner.subscriptionName("orders", null)).isEqualTo("orders");
+	}
+
+	@Test
+	public void testConsumerCreatesTopicAndSubscription() {
+		assertThat(this.provisioner.provisionConsumerDestination("orders", "billing", this.consumerProperties)
+				.getName()).isEqualTo("orders.billing");
+		this.provisioner.provisionConsumerDestination("orders", "billing", this.consumerProperties);
+		this.provisioner.provisionProducerDestination("orders", this.producerProperties);
+
+		verify(this.pubSubAdmin, times(1)).getSubscription("orders.billing");
+		verify(this.pubSubAdmin, times(1)).createSubscription("orders.billing", "orders");
+		verify(this.pubSubAdmin, times(1)).getTopic("orders");
+		verify(this.pubSubAdmin, times(1)).createTopic("orders");
+	}
+
+	@Test(expected = ProvisioningException.class)
+	public void testMissingSubscriptionWithoutAutoCreate() {
+		this.consumerProperties.getExtension().setAutoCreateResources(false);
+
+		this.provisioner.provisionConsumerDestination("orders", "billing", this.consumerProperties);
+	}
+
+	@Test
+	public void testConsumerCreatesDeadLetterTopic() {
+		when(this.pubSubAdmin.getSubscription("orders.billing")).thenReturn(Subscription.getDefaultInstance());
+		this.consumerProperties.getExtension().setDeadLetterTopic("orders.dlq");
+
+		this.provisioner.provisionConsumerDestination("orders", "billing", this.consumerProperties);
+
+		verify(this.pubSubAdmin, times(1)).getTopic("orders.dlq");
+		verify(this.pubSubAdmin, times(1)).createTopic("orders.dlq");
+	}
+
+	@Test(expected = ProvisioningException.class)
+	public void testMissingDeadLetterTopicWithoutAutoCreate() {
+		when(this.pubSubAdmin.getSubscription("orders.billing")).thenReturn(Subscription.getDefaultInstance());
+		this.consumerProperties.getExtension().setAutoCreateResources(false);
+		this.consumerProperties.getExtension().setDeadLetterTopic("orders.dlq");
+
+		this.provisioner.provisionConsumerDestination("orders", "billing", this.consumerProperties);
+	}
+
+	@Test
+	public void testPrefetch() {
+		when(this.pubSubAdmin.getTopic("orders")).thenReturn(Topic.getDefaultInstance());
+		when(this.pubSubAdmin.getTopic("payments")).thenThrow(new RuntimeException("Lookup failed."));
+		when(this.pubSubAdmin.getSubscription("orders.billing")).thenReturn(Subscription.getDefaultInstance());
+
+		this.provisioner.prefetch(Arrays.asList("orders", "payments"), Collections.singletonList("orders.billing"));
+		this.provisioner.provisionConsumerDestination("orders", "billing", this.consumerProperties);
+		this.provisioner.provisionProducerDestination("orders", this.producerProperties);
+
+		verify(this.pubSubAdmin, times(1)).getTopic("orders");
+		verify(this.pubSubAdmin, times(1)).getSubscription("orders.billing");
+		verify(this.pubSubAdmin, never()).createTopic("orders");
+		verify(this.pubSubAdmin, never()).createSubscription("orders.billing", "orders");
+	}
+
+	@Test
+	public void testPrefetchCreatesMissingResources() {
+		when(this.pubSubAdmin.getTopic("payments")).thenReturn(Topic.getDefaultInstance());
+
+		this.provisioner.prefetch(Collections.emptySet(), Collections.emptySet(),
+				Arrays.asList("orders", "payments"), Collections.singletonMap("orders.billing", "orders"));
+		this.provisioner.provisionConsumerDestination("orders", "billing", this.consumerProperties);
+		this.provisioner.provisionProducerDestination("payments", this.producerProperties);
+
+		verify(this.pubSubAdmin, times(1)).getTopic("orders");
+		verify(this.pubSubAdmin, times(1)).createTopic("orders");
+		verify(this.pubSubAdmin, times(1)).getTopic("payments");
+		verify(this.pubSubAdmin, never()).createTopic("payments");
+		verify(this.pubSubAdmin, times(1)).getSubscription("orders.billing");
+		verify(this.pubSubAdmin, times(1)).createSubscription("orders.billing", "orders");
+	}
+
+}
@@ -17,8 +17,20 @@
 package org.springframework.cloud.gcp.pubsub;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.api.gax.rpc.ApiException;
 import com.google.api.gax.rpc.StatusCode;
@@ -27,6 +39,8 @@ import com.google.cloud.pubsub.v1.SubscriptionAdminSettings;
 import com.google.cloud.pubsub.v1.TopicAdminClient;
 import com.google.cloud.pubsub.v1.TopicAdminSettings;
 import com.google.common.collect.Lists;
+import com.google.pubsub.v1.DeleteSubscriptionRequest;
+import com.google.pubsub.v1.DeleteTopicRequest;
 import com.google.pubsub.v1.ProjectName;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.ProjectTopicName;
@@ -35,11 +49,18 @@ import com.google.pubsub.v1.Subscription;
 import com.google.pubsub.v1.Topic;
 
 import org.springframework.cloud.gcp.core.GcpProjectIdProvider;
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
 import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 /**
  * Pub/Sub admin utility that creates new topics and subscriptions on Google Cloud Pub/Sub.
  *
+ * <p>Besides the blocking operations, topics and subscriptions can be created and deleted
+ * asynchronously, or in bulk with at most {@link #setMaxConcurrentRequests(int) a number of}
+ * requests running at the same time, and listed lazily, one page at a time, as a {@link Stream}.
+ *
  * @author João André Martins
  */
 public class PubSubAdmin {
@@ -48,6 +69,8 @@ public class PubSubAdmin {
 
 	private static final int MAX_ACK_DEADLINE_SECONDS = 600;
 
+	private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 16;
+
 	private final String projectId;
 
 	private final TopicAdminClient topicAdminClient;
@@ -57,6 +80,8 @@ public class PubSubAdmin {
 	/** Default inspired in the subscription creation web UI. */
 	private int defaultAckDeadline = MIN_ACK_DEADLINE_SECONDS;
 
+	private int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+
 	/**
 	 * This constructor instantiates TopicAdminClient and SubscriptionAdminClient with all their
 	 * defaults and the provided credentials provider.
@@ -143,6 +168,65 @@ public class PubSubAdmin {
 		return Lists.newArrayList(topicListPage.iterateAll());
 	}
 
+	/**
+	 * Return every topic in a project as a stream that fetches the pages of topics as it's
+	 * consumed, starting when a terminal operation is invoked.
+	 * @return the stream of topics
+	 */
+	public Stream<Topic> streamTopics() {
+		return StreamSupport.stream(
+				() -> this.topicAdminClient.listTopics(ProjectName.of(this.projectId)).iterateAll().spliterator(),
+				Spliterator.ORDERED | Spliterator.NONNULL, false);
+	}
+
+	/**
+	 * Create a new topic on Google Cloud Pub/Sub asynchronously.
+	 * @param topicName the name for the new topic
+	 * @return the future of the created topic
+	 */
+	public ListenableFuture<Topic> createTopicAsync(String topicName) {
+		Assert.hasText(topicName, "No topic name was specified.");
+
+		Topic topic = Topic.newBuilder()
+				.setName(ProjectTopicName.of(this.projectId, topicName).toString())
+				.build();
+		return toListenableFuture(this.topicAdminClient.createTopicCallable().futureCall(topic),
+				Function.identity());
+	}
+
+	/**
+	 * Delete a topic from Google Cloud Pub/Sub asynchronously.
+	 * @param topicName the name of the topic to be deleted
+	 * @return the future completing when the topic was deleted
+	 */
+	public ListenableFuture<Void> deleteTopicAsync(String topicName) {
+		Assert.hasText(topicName, "No topic name was specified.");
+
+		DeleteTopicRequest request = DeleteTopicRequest.newBuilder()
+				.setTopic(ProjectTopicName.of(this.projectId, topicName).toString())
+				.build();
+		return toListenableFuture(this.topicAdminClient.deleteTopicCallable().futureCall(request), empty -> null);
+	}
+
+	/**
+	 * Create many topics concurrently, and wait for all of them to be created.
+	 * @param topicNames the names of the new topics
+	 * @return the created topics, in the order of their names
+	 * @throws PubSubException if any topic couldn't be created, once the others were
+	 */
+	public List<Topic> createTopics(Collection<String> topicNames) {
+		return runConcurrently(topicNames, this::createTopicAsync, "create topics");
+	}
+
+	/**
+	 * Delete many topics concurrently, and wait for all of them to be deleted.
+	 * @param topicNames the names of the topics to be deleted
+	 * @throws PubSubException if any topic couldn't be deleted, once the others were
+	 */
+	public void deleteTopics(Collection<String> topicNames) {
+		runConcurrently(topicNames, this::deleteTopicAsync, "delete topics");
+	}
+
 	/**
 	 * Create a new subscription on Google Cloud Pub/Sub.
 	 *
@@ -262,6 +346,76 @@ public class PubSubAdmin {
 		return Lists.newArrayList(subscriptionsPage.iterateAll());
 	}
 
+	/**
+	 * Return every subscription in a project as a stream that fetches the pages of subscriptions
+	 * as it's consumed, starting when a terminal operation is invoked.
+	 * @return the stream of subscriptions
+	 */
+	public Stream<Subscription> streamSubscriptions() {
+		return StreamSupport.stream(
+				() -> this.subscriptionAdminClient.listSubscriptions(ProjectName.of(this.projectId))
+						.iterateAll().spliterator(),
+				Spliterator.ORDERED | Spliterator.NONNULL, false);
+	}
+
+	/**
+	 * Create a new pull subscription with the default acknowledgement deadline on Google Cloud
+	 * Pub/Sub asynchronously.
+	 * @param subscriptionName the name of the new subscription
+	 * @param topicName the name of the topic being subscribed to
+	 * @return the future of the created subscription
+	 */
+	public ListenableFuture<Subscription> createSubscriptionAsync(String subscriptionName, String topicName) {
+		Assert.hasText(subscriptionName, "No subscription name was specified.");
+		Assert.hasText(topicName, "No topic name was specified.");
+
+		Subscription subscription = Subscription.newBuilder()
+				.setName(ProjectSubscriptionName.of(this.projectId, subscriptionName).toString())
+				.setTopic(ProjectTopicName.of(this.projectId, topicName).toString())
+				.setPushConfig(PushConfig.getDefaultInstance())
+				.setAckDeadlineSeconds(this.defaultAckDeadline)
+				.build();
+		return toListenableFuture(this.subscriptionAdminClient.createSubscriptionCallable().futureCall(subscription),
+				Function.identity());
+	}
+
+	/**
+	 * Delete a subscription from Google Cloud Pub/Sub asynchronously.
+	 * @param subscriptionName canonical subscription name, e.g., "subscriptionName"
+	 * @return the future completing when the subscription was deleted
+	 */
+	public ListenableFuture<Void> deleteSubscriptionAsync(String subscriptionName) {
+		Assert.hasText(subscriptionName, "No subscription name was specified");
+
+		DeleteSubscriptionRequest request = DeleteSubscriptionRequest.newBuilder()
+				.setSubscription(ProjectSubscriptionName.of(this.projectId, subscriptionName).toString())
+				.build();
+		return toListenableFuture(this.subscriptionAdminClient.deleteSubscriptionCallable().futureCall(request),
+				empty -> null);
+	}
+
+	/**
+	 * Create many pull subscriptions with the default acknowledgement deadline concurrently, and
+	 * wait for all of them to be created.
+	 * @param topicNamesBySubscriptionName the names of the topics being subscribed to, by the
+	 * names of the new subscriptions
+	 * @return the created subscriptions, in the iteration order of the map
+	 * @throws PubSubException if any subscription couldn't be created, once the others were
+	 */
+	public List<Subscription> createSubscriptions(Map<String, String> topicNamesBySubscriptionName) {
+		return runConcurrently(topicNamesBySubscriptionName.entrySet(),
+				entry -> createSubscriptionAsync(entry.getKey(), entry.getValue()), "create subscriptions");
+	}
+
+	/**
+	 * Delete many subscriptions concurrently, and wait for all of them to be deleted.
+	 * @param subscriptionNames the names of the subscriptions to be deleted
+	 * @throws PubSubException if any subscription couldn't be deleted, once the others were
+	 */
+	public void deleteSubscriptions(Collection<String> subscriptionNames) {
+		runConcurrently(subscriptionNames, this::deleteSubscriptionAsync, "delete subscriptions");
+	}
+
 	/**
 	 * @return the default acknowledgement deadline value in seconds
 	 */
@@ -280,6 +434,90 @@ public class PubSubAdmin {
 		this.defaultAckDeadline = defaultAckDeadline;
 	}
 
+	public int getMaxConcurrentRequests() {
+		return this.maxConcurrentRequests;
+	}
+
+	/**
+	 * Set the maximum number of requests running at the same time in bulk operations. Defaults
+	 * to 16.
+	 * @param maxConcurrentRequests the maximum number of concurrent requests
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		Assert.isTrue(maxConcurrentRequests > 0, "The maximum number of concurrent requests must be positive.");
+		this.maxConcurrentRequests = maxConcurrentRequests;
+	}
+
+	/**
+	 * Start a request for every item, with at most {@link #maxConcurrentRequests} of them
+	 * running at the same time, and wait for all of them to complete.
+	 */
+	private <T, R> List<R> runConcurrently(Collection<T> items, Function<T, ListenableFuture<R>> request,
+			String operation) {
+		Assert.notNull(items, "The names can't be null.");
+
+		Semaphore permits = new Semaphore(this.maxConcurrentRequests);
+		List<ListenableFuture<R>> futures = new ArrayList<>(items.size());
+		try {
+			for (T item : items) {
+				permits.acquire();
+				ListenableFuture<R> future = startRequest(item, request);
+				future.addCallback(result -> permits.release(), ex -> permits.release());
+				futures.add(future);
+			}
+
+			List<R> results = new ArrayList<>(futures.size());
+			List<Throwable> failures = new ArrayList<>();
+			for (ListenableFuture<R> future : futures) {
+				try {
+					results.add(future.get());
+				}
+				catch (ExecutionException ee) {
+					failures.add(ee.getCause());
+				}
+			}
+
+			if (!failures.isEmpty()) {
+				PubSubException failure = new PubSubException("Failed to " + operation + "; " + failures.size()
+						+ " of " + futures.size() + " requests failed.", failures.get(0));
+				failures.subList(1, failures.size()).forEach(failure::addSuppressed);
+				throw failure;
+			}
+			return results;
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new PubSubException("Interrupted while waiting to " + operation + ".", ie);
+		}
+	}
+
+	private static <T, R> ListenableFuture<R> startRequest(T item, Function<T, ListenableFuture<R>> request) {
+		try {
+			return request.apply(item);
+		}
+		catch (RuntimeException ex) {
+			SettableListenableFuture<R> failedFuture = new SettableListenableFuture<>();
+			failedFuture.setException(ex);
+			return failedFuture;
+		}
+	}
+
+	private static <T, R> ListenableFuture<R> toListenableFuture(ApiFuture<T> apiFuture, Function<T, R> result) {
+		SettableListenableFuture<R> settableListenableFuture = new SettableListenableFuture<>();
+		ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+			@Override
+			public void onFailure(Throwable throwable) {
+				settableListenableFuture.setException(throwable);
+			}
+
+			@Override
+			public void onSuccess(T response) {
+				settableListenableFuture.set(result.apply(response));
+			}
+		});
+		return settableListenableFuture;
+	}
+
 	private void validateAckDeadline(int ackDeadline) {
 		Assert.isTrue(ackDeadline >= MIN_ACK_DEADLINE_SECONDS
 						&& ackDeadline <= MAX_ACK_DEADLINE_SECONDS,
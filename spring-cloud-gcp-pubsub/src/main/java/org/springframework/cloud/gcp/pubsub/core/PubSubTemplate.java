@@ -134,6 +134,22 @@ public class PubSubTemplate implements PubSubOperations, InitializingBean {
 		return this.pubSubPublisherTemplate.publish(topic, pubsubMessage);
 	}
 
+	@Override
+	public <T> ListenableFuture<List<String>> publishAll(String topic, Collection<T> payloads,
+			Map<String, String> headers) {
+		return this.pubSubPublisherTemplate.publishAll(topic, payloads, headers);
+	}
+
+	@Override
+	public <T> ListenableFuture<List<String>> publishAll(String topic, Collection<T> payloads) {
+		return this.pubSubPublisherTemplate.publishAll(topic, payloads);
+	}
+
+	@Override
+	public void resumePublishing(String topic, String orderingKey) {
+		this.pubSubPublisherTemplate.resumePublishing(topic, orderingKey);
+	}
+
 	@Override
 	@Deprecated
 	public Subscriber subscribe(String subscription, MessageReceiver messageReceiver) {
@@ -159,6 +175,13 @@ public class PubSubTemplate implements PubSubOperations, InitializingBean {
 		return this.pubSubSubscriberTemplate.pull(subscription, maxMessages, returnImmediately);
 	}
 
+	@Override
+	public List<AcknowledgeablePubsubMessage> parallelPull(String subscription, int maxMessages,
+			Boolean returnImmediately, int parallelPullCount) {
+		return this.pubSubSubscriberTemplate.parallelPull(subscription, maxMessages, returnImmediately,
+				parallelPullCount);
+	}
+
 	@Override
 	public <T> List<ConvertedAcknowledgeablePubsubMessage<T>> pullAndConvert(String subscription, Integer maxMessages,
 			Boolean returnImmediately, Class<T> payloadType) {
@@ -0,0 +1,81 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.publisher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Collects the results of the messages published by the default
+ * {@link PubSubPublisherOperations#publishAll(String, java.util.Collection, java.util.Map)}, and
+ * completes once all of them are published.
+ *
+ * @since 1.1
+ */
+final class BulkPublishFuture extends SettableListenableFuture<List<String>> {
+
+	private final String topic;
+
+	private final String[] messageIds;
+
+	private final SortedMap<Integer, Throwable> failures = new ConcurrentSkipListMap<>();
+
+	private final AtomicInteger remaining;
+
+	BulkPublishFuture(String topic, int size) {
+		this.topic = topic;
+		this.messageIds = new String[size];
+		this.remaining = new AtomicInteger(size);
+		if (size == 0) {
+			set(Collections.emptyList());
+		}
+	}
+
+	void track(int index, ListenableFuture<String> publishFuture) {
+		publishFuture.addCallback(
+				messageId -> {
+					this.messageIds[index] = messageId;
+					countDown();
+				},
+				ex -> fail(index, ex));
+	}
+
+	void fail(int index, Throwable cause) {
+		this.failures.put(index, cause);
+		countDown();
+	}
+
+	private void countDown() {
+		if (this.remaining.decrementAndGet() == 0) {
+			List<String> messageIds = Collections.unmodifiableList(Arrays.asList(this.messageIds));
+			if (this.failures.isEmpty()) {
+				set(messageIds);
+			}
+			else {
+				setException(new PubSubBulkPublishException(this.topic, messageIds, this.failures));
+			}
+		}
+	}
+
+}
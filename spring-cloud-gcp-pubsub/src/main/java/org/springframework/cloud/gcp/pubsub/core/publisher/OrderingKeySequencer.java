@@ -0,0 +1,306 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.publisher;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.PubsubMessage;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.util.Assert;
+
+/**
+ * Publishes the messages of each topic and ordering key one at a time, in the order they were
+ * submitted, while messages of different keys are published in parallel.
+ *
+ * <p>A message is only handed to the publisher once the previous message with the same key was
+ * published, so retries of one message can't reorder it with the next. Each key therefore has at
+ * most one message in flight, and messages with the same key are never batched together.
+ *
+ * <p>When a message fails, the messages queued behind it fail too, and so do new messages with
+ * that key, until {@link #resume(String, String)} is called or the key has been paused for
+ * {@link #setPausedExpiration(Duration) a while}, after which it is forgotten, so that keys that
+ * are never resumed don't pile up.
+ */
+final class OrderingKeySequencer {
+
+	/**
+	 * The default time after which a paused key is forgotten, if it isn't resumed.
+	 */
+	static final Duration DEFAULT_PAUSED_EXPIRATION = Duration.ofMinutes(10);
+
+	private final Map<String, KeySequence> sequences = new HashMap<>();
+
+	// The paused sequences, oldest first.
+	private final Queue<KeySequence> pausedSequences = new ArrayDeque<>();
+
+	private volatile long pausedExpirationNanos = DEFAULT_PAUSED_EXPIRATION.toNanos();
+
+	/**
+	 * Set how long a key stays paused after a failure if it isn't resumed.
+	 * @param pausedExpiration the time after which a paused key is forgotten
+	 */
+	void setPausedExpiration(Duration pausedExpiration) {
+		Assert.isTrue(pausedExpiration != null && !pausedExpiration.isNegative(),
+				"The paused expiration can't be null or negative.");
+		this.pausedExpirationNanos = pausedExpiration.toNanos();
+	}
+
+	/**
+	 * Publish a message after the previously submitted messages with the same topic and key.
+	 * @param topic the topic of the message
+	 * @param orderingKey the ordering key of the message
+	 * @param pubsubMessage the message
+	 * @param sender publishes a message and returns its future
+	 * @return the future of the message ID
+	 */
+	ApiFuture<String> publish(String topic, String orderingKey, PubsubMessage pubsubMessage,
+			Function<PubsubMessage, ApiFuture<String>> sender) {
+		SettableApiFuture<String> result = SettableApiFuture.create();
+		PendingMessage pendingMessage = new PendingMessage(pubsubMessage, result);
+		String sequenceKey = sequenceKey(topic, orderingKey);
+		KeySequence sequence;
+		boolean drain;
+
+		synchronized (this.sequences) {
+			evictExpiredPausedSequences();
+			sequence = this.sequences.computeIfAbsent(sequenceKey, key -> new KeySequence(key, sender));
+			if (sequence.failure != null) {
+				result.setException(pausedException(topic, orderingKey, sequence.failure));
+				return result;
+			}
+			sequence.pending.add(pendingMessage);
+			drain = !sequence.inFlight && makeReady(sequence, pendingMessage);
+		}
+
+		if (drain) {
+			drain(topic, orderingKey, sequence);
+		}
+		return result;
+	}
+
+	/**
+	 * Resume publishing messages with a topic and key after a failure.
+	 * @param topic the topic
+	 * @param orderingKey the ordering key
+	 */
+	void resume(String topic, String orderingKey) {
+		synchronized (this.sequences) {
+			KeySequence sequence = this.sequences.get(sequenceKey(topic, orderingKey));
+			if (sequence != null && sequence.failure != null) {
+				this.sequences.remove(sequence.key);
+				this.pausedSequences.remove(sequence);
+			}
+		}
+	}
+
+	/**
+	 * Return the number of topic and key pairs with queued or in-flight messages, or paused after
+	 * a failure and not expired yet.
+	 * @return the number of active sequences
+	 */
+	int getSequenceCount() {
+		synchronized (this.sequences) {
+			evictExpiredPausedSequences();
+			return this.sequences.size();
+		}
+	}
+
+	/**
+	 * Forget the sequences paused for longer than the expiration. Must be called while holding the
+	 * lock.
+	 */
+	private void evictExpiredPausedSequences() {
+		long now = System.nanoTime();
+		KeySequence oldest = this.pausedSequences.peek();
+		while (oldest != null && now - oldest.pausedAt >= this.pausedExpirationNanos) {
+			this.pausedSequences.remove();
+			this.sequences.remove(oldest.key, oldest);
+			oldest = this.pausedSequences.peek();
+		}
+	}
+
+	/**
+	 * Mark a message as the next one to send, and the sequence as in flight. Must be called while
+	 * holding the lock.
+	 * @param sequence the sequence of the message
+	 * @param pendingMessage the message to send next
+	 * @return whether the caller must drain the sequence, because no other thread is draining it
+	 */
+	private boolean makeReady(KeySequence sequence, PendingMessage pendingMessage) {
+		sequence.inFlight = true;
+		sequence.ready = pendingMessage;
+		boolean drain = !sequence.draining;
+		sequence.draining = true;
+		return drain;
+	}
+
+	/**
+	 * Send the ready messages of a sequence one after the other. A message that completes while it
+	 * is being sent only makes the next message ready, rather than sending it, so publisher futures
+	 * that complete right away don't grow the stack with every queued message.
+	 * @param topic the topic of the sequence
+	 * @param orderingKey the ordering key of the sequence
+	 * @param sequence the sequence
+	 */
+	private void drain(String topic, String orderingKey, KeySequence sequence) {
+		PendingMessage ready = takeReady(sequence);
+		while (ready != null) {
+			send(topic, orderingKey, sequence, ready);
+			ready = takeReady(sequence);
+		}
+	}
+
+	private PendingMessage takeReady(KeySequence sequence) {
+		synchronized (this.sequences) {
+			PendingMessage ready = sequence.ready;
+			sequence.ready = null;
+			sequence.draining = ready != null;
+			return ready;
+		}
+	}
+
+	private void send(String topic, String orderingKey, KeySequence sequence, PendingMessage pendingMessage) {
+		ApiFuture<String> publishFuture;
+		try {
+			publishFuture = sequence.sender.apply(pendingMessage.pubsubMessage);
+		}
+		catch (RuntimeException ex) {
+			complete(topic, orderingKey, sequence, pendingMessage, null, ex);
+			return;
+		}
+
+		publishFuture.addListener(() -> {
+			try {
+				complete(topic, orderingKey, sequence, pendingMessage, publishFuture.get(), null);
+			}
+			catch (ExecutionException ee) {
+				complete(topic, orderingKey, sequence, pendingMessage, null, ee.getCause());
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				complete(topic, orderingKey, sequence, pendingMessage, null, ie);
+			}
+		}, MoreExecutors.directExecutor());
+	}
+
+	private void complete(String topic, String orderingKey, KeySequence sequence, PendingMessage pendingMessage,
+			String messageId, Throwable failure) {
+		List<PendingMessage> failed = new ArrayList<>();
+		boolean drain = false;
+
+		synchronized (this.sequences) {
+			sequence.pending.remove();
+			if (failure != null) {
+				sequence.failure = failure;
+				failed.addAll(sequence.pending);
+				sequence.pending.clear();
+			}
+
+			PendingMessage next = sequence.pending.peek();
+			if (next != null) {
+				drain = makeReady(sequence, next);
+			}
+			else {
+				sequence.inFlight = false;
+				if (sequence.failure == null) {
+					this.sequences.remove(sequence.key, sequence);
+				}
+				else {
+					sequence.pausedAt = System.nanoTime();
+					this.pausedSequences.add(sequence);
+				}
+			}
+		}
+
+		if (failure != null) {
+			pendingMessage.result.setException(failure);
+			failed.forEach(message -> message.result.setException(pausedException(topic, orderingKey, failure)));
+		}
+		else {
+			pendingMessage.result.set(messageId);
+		}
+
+		if (drain) {
+			drain(topic, orderingKey, sequence);
+		}
+	}
+
+	private static String sequenceKey(String topic, String orderingKey) {
+		return topic + '\u0000' + orderingKey;
+	}
+
+	private static PubSubException pausedException(String topic, String orderingKey, Throwable failure) {
+		return new PubSubException("Publishing to " + topic + " with ordering key " + orderingKey
+				+ " is paused after a failure; resume publishing the key to publish again.", failure);
+	}
+
+	/**
+	 * The messages of a topic and ordering key waiting to be published, the first of which is
+	 * in flight, or ready to be sent by the thread draining the sequence.
+	 */
+	private static final class KeySequence {
+
+		private final String key;
+
+		private final Queue<PendingMessage> pending = new ArrayDeque<>();
+
+		private final Function<PubsubMessage, ApiFuture<String>> sender;
+
+		private boolean inFlight;
+
+		private PendingMessage ready;
+
+		private boolean draining;
+
+		private Throwable failure;
+
+		private long pausedAt;
+
+		KeySequence(String key, Function<PubsubMessage, ApiFuture<String>> sender) {
+			this.key = key;
+			this.sender = sender;
+		}
+	}
+
+	/**
+	 * A message and the future of its message ID.
+	 */
+	private static final class PendingMessage {
+
+		private final PubsubMessage pubsubMessage;
+
+		private final SettableApiFuture<String> result;
+
+		PendingMessage(PubsubMessage pubsubMessage, SettableApiFuture<String> result) {
+			this.pubsubMessage = pubsubMessage;
+			this.result = result;
+		}
+	}
+
+}
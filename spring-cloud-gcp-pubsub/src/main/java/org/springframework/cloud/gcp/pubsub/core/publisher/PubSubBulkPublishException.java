@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.publisher;
+
+import java.util.List;
+import java.util.SortedMap;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+
+/**
+ * Thrown when some of the messages published together by
+ * {@link PubSubPublisherOperations#publishAll} could not be published.
+ *
+ * <p>Reports which messages failed, by their index in the published collection, and the message
+ * IDs of those that were published successfully.
+ *
+ * @since 1.1
+ */
+public class PubSubBulkPublishException extends PubSubException {
+
+	private final List<String> messageIds;
+
+	private final SortedMap<Integer, Throwable> failures;
+
+	public PubSubBulkPublishException(String topic, List<String> messageIds,
+			SortedMap<Integer, Throwable> failures) {
+		super(failures.size() + " of " + messageIds.size() + " messages published to " + topic
+				+ " failed.", failures.get(failures.firstKey()));
+		this.messageIds = messageIds;
+		this.failures = failures;
+	}
+
+	/**
+	 * Return the message IDs of the published messages, in the order of the published collection.
+	 * @return the message IDs, with null in the positions of messages that failed
+	 */
+	public List<String> getMessageIds() {
+		return this.messageIds;
+	}
+
+	/**
+	 * Return the failures of the messages that could not be published.
+	 * @return the failure causes, by the index of the message in the published collection
+	 */
+	public SortedMap<Integer, Throwable> getFailures() {
+		return this.failures;
+	}
+
+}
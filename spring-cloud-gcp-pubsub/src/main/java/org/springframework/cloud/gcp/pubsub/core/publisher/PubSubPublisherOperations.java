@@ -16,10 +16,13 @@
 
 package org.springframework.cloud.gcp.pubsub.core.publisher;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import com.google.pubsub.v1.PubsubMessage;
 
+import org.springframework.util.Assert;
 import org.springframework.util.concurrent.ListenableFuture;
 
 /**
@@ -59,4 +62,57 @@ public interface PubSubPublisherOperations {
 	 */
 	ListenableFuture<String> publish(String topic, PubsubMessage pubsubMessage);
 
+	/**
+	 * Send a collection of messages to Pub/Sub, all with the same headers.
+	 * <p>The returned future completes once every message was published. If any message fails, it
+	 * completes with a {@link PubSubBulkPublishException} that reports the failures by index.
+	 * <p>By default, each message is sent with {@link #publish(String, Object, Map)}.
+	 * @param topic    the name of an existing topic
+	 * @param payloads the objects that will be serialized and sent
+	 * @param headers  the headers of every message; may be null
+	 * @return the listenable future of the message IDs, in the order of the payloads
+	 */
+	default <T> ListenableFuture<List<String>> publishAll(String topic, Collection<T> payloads,
+			Map<String, String> headers) {
+		Assert.notNull(payloads, "The payloads can't be null.");
+
+		BulkPublishFuture bulkPublishFuture = new BulkPublishFuture(topic, payloads.size());
+		int index = 0;
+		for (T payload : payloads) {
+			try {
+				bulkPublishFuture.track(index, publish(topic, payload, headers));
+			}
+			catch (RuntimeException ex) {
+				bulkPublishFuture.fail(index, ex);
+			}
+			index++;
+		}
+		return bulkPublishFuture;
+	}
+
+	/**
+	 * Send a collection of messages to Pub/Sub.
+	 * <p>The returned future completes once every message was published. If any message fails, it
+	 * completes with a {@link PubSubBulkPublishException} that reports the failures by index.
+	 * @param topic    the name of an existing topic
+	 * @param payloads the objects that will be serialized and sent
+	 * @return the listenable future of the message IDs, in the order of the payloads
+	 */
+	default <T> ListenableFuture<List<String>> publishAll(String topic, Collection<T> payloads) {
+		return publishAll(topic, payloads, null);
+	}
+
+	/**
+	 * Resume publishing messages with an ordering key after the publication of one of them failed.
+	 * <p>Messages with the {@link org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders#ORDERING_KEY}
+	 * header are published in order. Once one of them fails, later messages with the same topic and
+	 * ordering key fail without being published, so they can't overtake the failed one, until this
+	 * method is called.
+	 * <p>Does nothing by default, for implementations that don't publish in order.
+	 * @param topic       the name of the topic
+	 * @param orderingKey the ordering key
+	 */
+	default void resumePublishing(String topic, String orderingKey) {
+	}
+
 }
@@ -16,26 +16,48 @@
 
 package org.springframework.cloud.gcp.pubsub.core.publisher;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.pubsub.v1.PubsubMessage;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.pubsub.support.PublisherFactory;
 import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConverter;
 import org.springframework.cloud.gcp.pubsub.support.converter.SimplePubSubMessageConverter;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.SettableListenableFuture;
 
 /**
  * Default implementation of {@link PubSubPublisherOperations}.
  * <p>The main Google Cloud Pub/Sub integration component for publishing to topics.
+ * <p>Messages with a {@link GcpPubSubHeaders#ORDERING_KEY} attribute are published in order per
+ * topic and ordering key: each is sent once the previous one with the same key was published,
+ * while messages with different keys are published in parallel, so messages with the same key are
+ * never batched together. After a failure, messages with that key fail until
+ * {@link #resumePublishing(String, String)} is called, or until the key has been paused for
+ * {@link #setPausedOrderingKeyExpiration(Duration) a while}.
+ * <p>The conversion, latency, size and outcome of every message are reported to the
+ * {@link #setMetrics(PubSubMetrics) metrics} of the template.
  *
  * @author Vinicius Carvalho
  * @author João André Martins
@@ -53,6 +75,12 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 
 	private final PublisherFactory publisherFactory;
 
+	private PublishFlowController publishFlowController;
+
+	private final OrderingKeySequencer orderingKeySequencer = new OrderingKeySequencer();
+
+	private PubSubMetrics metrics = PubSubMetrics.NONE;
+
 	/**
 	 * Default {@link PubSubPublisherTemplate} constructor that uses {@link SimplePubSubMessageConverter}
 	 * to serialize and deserialize payloads.
@@ -76,13 +104,49 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 		this.pubSubMessageConverter = pubSubMessageConverter;
 	}
 
+	public PublishFlowController getPublishFlowController() {
+		return this.publishFlowController;
+	}
+
+	/**
+	 * Set a {@link PublishFlowController} that limits the messages being published at the same
+	 * time. The same flow controller can be shared by several templates.
+	 * @param publishFlowController the flow controller, or null to publish without limits
+	 */
+	public void setPublishFlowController(PublishFlowController publishFlowController) {
+		this.publishFlowController = publishFlowController;
+	}
+
+	/**
+	 * Set how long an ordering key stays paused after a failure if publishing it isn't resumed.
+	 * Paused keys are forgotten afterwards, so that keys that are never resumed don't pile up.
+	 * @param pausedOrderingKeyExpiration the time after which a paused ordering key is forgotten,
+	 * 10 minutes by default
+	 */
+	public void setPausedOrderingKeyExpiration(Duration pausedOrderingKeyExpiration) {
+		this.orderingKeySequencer.setPausedExpiration(pausedOrderingKeyExpiration);
+	}
+
+	public PubSubMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Set the metrics that the published messages are reported to.
+	 * @param metrics the metrics, {@link PubSubMetrics#NONE} by default
+	 */
+	public void setMetrics(PubSubMetrics metrics) {
+		Assert.notNull(metrics, "The metrics can't be null.");
+		this.metrics = metrics;
+	}
+
 	/**
 	 * Uses the configured message converter to first convert the payload and headers to a
 	 * {@code PubsubMessage} and then publish it.
 	 */
 	@Override
 	public <T> ListenableFuture<String> publish(String topic, T payload, Map<String, String> headers) {
-		return publish(topic, this.pubSubMessageConverter.toPubSubMessage(payload, headers));
+		return publish(topic, convert(topic, payload, headers));
 	}
 
 	@Override
@@ -95,20 +159,38 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 		Assert.hasText(topic, "The topic can't be null or empty.");
 		Assert.notNull(pubsubMessage, "The pubsubMessage can't be null.");
 
-		ApiFuture<String> publishFuture =
-				this.publisherFactory.createPublisher(topic).publish(pubsubMessage);
+		String orderingKey = getOrderingKey(pubsubMessage.getAttributesMap());
+		Publisher publisher = getPublisher(topic, orderingKey);
+		long messageSize = reserve(topic, pubsubMessage);
+		ApiFuture<String> publishFuture;
+		try {
+			publishFuture = send(publisher, topic, orderingKey, pubsubMessage);
+		}
+		catch (RuntimeException ex) {
+			release(topic, messageSize);
+			throw ex;
+		}
+
+		long startTime = System.nanoTime();
+		this.metrics.publishStarted(topic);
 
 		final SettableListenableFuture<String> settableFuture = new SettableListenableFuture<>();
 		ApiFutures.addCallback(publishFuture, new ApiFutureCallback<String>() {
 
 			@Override
 			public void onFailure(Throwable throwable) {
+				release(topic, messageSize);
+				PubSubPublisherTemplate.this.metrics.publishCompleted(topic, pubsubMessage.getSerializedSize(),
+						System.nanoTime() - startTime, throwable);
 				LOGGER.warn("Publishing to " + topic + " topic failed.", throwable);
 				settableFuture.setException(throwable);
 			}
 
 			@Override
 			public void onSuccess(String result) {
+				release(topic, messageSize);
+				PubSubPublisherTemplate.this.metrics.publishCompleted(topic, pubsubMessage.getSerializedSize(),
+						System.nanoTime() - startTime, null);
 				if (LOGGER.isDebugEnabled()) {
 					LOGGER.debug(
 							"Publishing to " + topic + " was successful. Message ID: " + result);
@@ -121,8 +203,200 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 		return settableFuture;
 	}
 
+	/**
+	 * Uses the configured message converter to convert every payload to a {@code PubsubMessage},
+	 * and hands all of them to the topic's publisher.
+	 * <p>Unlike calling {@link #publish(String, Object, Map)} for every payload, no future and
+	 * callback are created per message; a single future tracks the whole collection. Payloads that
+	 * can't be converted or admitted by the {@link PublishFlowController} are reported as failures
+	 * at their index, without preventing the other payloads from being published.
+	 */
+	@Override
+	public <T> ListenableFuture<List<String>> publishAll(String topic, Collection<T> payloads,
+			Map<String, String> headers) {
+		Assert.hasText(topic, "The topic can't be null or empty.");
+		Assert.notNull(payloads, "The payloads can't be null.");
+
+		PublishAllFuture publishAllFuture =
+				new PublishAllFuture(topic, payloads.size(), this.publishFlowController, this.metrics);
+		if (payloads.isEmpty()) {
+			publishAllFuture.set(Collections.emptyList());
+			return publishAllFuture;
+		}
+
+		String orderingKey = getOrderingKey(headers);
+		Publisher publisher = getPublisher(topic, orderingKey);
+		int index = 0;
+		for (T payload : payloads) {
+			try {
+				PubsubMessage pubsubMessage = convert(topic, payload, headers);
+				long messageSize = reserve(topic, pubsubMessage);
+				try {
+					publishAllFuture.track(index, send(publisher, topic, orderingKey, pubsubMessage), messageSize,
+							pubsubMessage.getSerializedSize());
+				}
+				catch (RuntimeException ex) {
+					release(topic, messageSize);
+					throw ex;
+				}
+			}
+			catch (RuntimeException ex) {
+				publishAllFuture.fail(index, ex);
+			}
+			index++;
+		}
+
+		return publishAllFuture;
+	}
+
+	@Override
+	public <T> ListenableFuture<List<String>> publishAll(String topic, Collection<T> payloads) {
+		return publishAll(topic, payloads, null);
+	}
+
+	@Override
+	public void resumePublishing(String topic, String orderingKey) {
+		Assert.hasText(topic, "The topic can't be null or empty.");
+		Assert.hasText(orderingKey, "The ordering key can't be null or empty.");
+
+		this.orderingKeySequencer.resume(topic, orderingKey);
+	}
+
 	public PublisherFactory getPublisherFactory() {
 		return this.publisherFactory;
 	}
 
+	private static String getOrderingKey(Map<String, String> attributes) {
+		String orderingKey = (attributes != null) ? attributes.get(GcpPubSubHeaders.ORDERING_KEY) : null;
+		return StringUtils.hasLength(orderingKey) ? orderingKey : null;
+	}
+
+	private <T> PubsubMessage convert(String topic, T payload, Map<String, String> headers) {
+		long startTime = System.nanoTime();
+		PubsubMessage pubsubMessage = this.pubSubMessageConverter.toPubSubMessage(payload, headers);
+		this.metrics.messageSerialized(topic, System.nanoTime() - startTime);
+		return pubsubMessage;
+	}
+
+	private Publisher getPublisher(String topic, String orderingKey) {
+		return (orderingKey != null)
+				? this.publisherFactory.createPublisher(topic, orderingKey)
+				: this.publisherFactory.createPublisher(topic);
+	}
+
+	private ApiFuture<String> send(Publisher publisher, String topic, String orderingKey,
+			PubsubMessage pubsubMessage) {
+		return (orderingKey != null)
+				? this.orderingKeySequencer.publish(topic, orderingKey, pubsubMessage, publisher::publish)
+				: publisher.publish(pubsubMessage);
+	}
+
+	private long reserve(String topic, PubsubMessage pubsubMessage) {
+		if (this.publishFlowController == null) {
+			return 0;
+		}
+		long messageSize = pubsubMessage.getSerializedSize();
+		this.publishFlowController.reserve(topic, messageSize);
+		return messageSize;
+	}
+
+	private void release(String topic, long messageSize) {
+		if (this.publishFlowController != null) {
+			this.publishFlowController.release(topic, messageSize);
+		}
+	}
+
+	/**
+	 * Collects the results of the messages published by
+	 * {@link #publishAll(String, Collection, Map)}, and completes once all of them are published.
+	 */
+	private static final class PublishAllFuture extends SettableListenableFuture<List<String>> {
+
+		private final String topic;
+
+		private final String[] messageIds;
+
+		private final Throwable[] failures;
+
+		private final AtomicInteger remaining;
+
+		private final PublishFlowController publishFlowController;
+
+		private final PubSubMetrics metrics;
+
+		PublishAllFuture(String topic, int size, PublishFlowController publishFlowController, PubSubMetrics metrics) {
+			this.topic = topic;
+			this.messageIds = new String[size];
+			this.failures = new Throwable[size];
+			this.remaining = new AtomicInteger(size);
+			this.publishFlowController = publishFlowController;
+			this.metrics = metrics;
+		}
+
+		void track(int index, ApiFuture<String> publishFuture, long messageSize, long serializedSize) {
+			long startTime = System.nanoTime();
+			this.metrics.publishStarted(this.topic);
+			publishFuture.addListener(() -> complete(index, publishFuture, messageSize, serializedSize, startTime),
+					MoreExecutors.directExecutor());
+		}
+
+		void fail(int index, Throwable cause) {
+			this.failures[index] = cause;
+			countDown();
+		}
+
+		private void complete(int index, ApiFuture<String> publishFuture, long messageSize, long serializedSize,
+				long startTime) {
+			if (this.publishFlowController != null) {
+				this.publishFlowController.release(this.topic, messageSize);
+			}
+
+			try {
+				this.messageIds[index] = publishFuture.get();
+			}
+			catch (ExecutionException ee) {
+				this.failures[index] = ee.getCause();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				this.failures[index] = ie;
+			}
+
+			this.metrics.publishCompleted(this.topic, serializedSize, System.nanoTime() - startTime,
+					this.failures[index]);
+			countDown();
+		}
+
+		private void countDown() {
+			if (this.remaining.decrementAndGet() == 0) {
+				finish();
+			}
+		}
+
+		private void finish() {
+			List<String> messageIds = Collections.unmodifiableList(Arrays.asList(this.messageIds));
+
+			SortedMap<Integer, Throwable> failures = new TreeMap<>();
+			for (int i = 0; i < this.failures.length; i++) {
+				if (this.failures[i] != null) {
+					failures.put(i, this.failures[i]);
+				}
+			}
+
+			if (failures.isEmpty()) {
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("Publishing " + messageIds.size() + " messages to " + this.topic
+							+ " was successful.");
+				}
+				set(messageIds);
+			}
+			else {
+				PubSubBulkPublishException exception =
+						new PubSubBulkPublishException(this.topic, messageIds, failures);
+				LOGGER.warn(exception.getMessage(), exception.getCause());
+				setException(exception);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,203 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.publisher;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.util.Assert;
+
+/**
+ * Limits the number and size of messages that are being published at the same time, across all
+ * topics.
+ *
+ * <p>The {@link FlowControlSettings} of a {@link com.google.cloud.pubsub.v1.Publisher} only limit
+ * the messages outstanding in that publisher, so an application publishing to many topics can
+ * buffer many times that limit. A {@link PubSubPublisherTemplate} with a
+ * {@code PublishFlowController} reserves room for every message before handing it to a publisher,
+ * and releases it once the message is published or fails.
+ *
+ * <p>When there's no room left, publishing either blocks until messages complete
+ * ({@link LimitExceededBehavior#Block}), fails right away ({@link LimitExceededBehavior#ThrowException}),
+ * or goes ahead while still counting the outstanding messages ({@link LimitExceededBehavior#Ignore}).
+ * To keep a single busy topic from using the whole budget, a topic may only hold
+ * {@link #DEFAULT_MAX_TOPIC_SHARE half} of the outstanding bytes by default; see
+ * {@link #setMaxTopicShare(double)}.
+ *
+ * @since 1.1
+ */
+public class PublishFlowController {
+
+	/**
+	 * The default largest share of the maximum outstanding bytes that a single topic may hold.
+	 */
+	public static final double DEFAULT_MAX_TOPIC_SHARE = 0.5;
+
+	private final long maxOutstandingMessageCount;
+
+	private final long maxOutstandingBytes;
+
+	private final LimitExceededBehavior limitExceededBehavior;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition released = this.lock.newCondition();
+
+	private final Map<String, Long> topicOutstandingBytes = new HashMap<>();
+
+	private long maxTopicOutstandingBytes;
+
+	private double maxTopicShare;
+
+	// Only updated under the lock, but volatile so that the getters can read them without it.
+	private volatile long outstandingMessageCount;
+
+	private volatile long outstandingBytes;
+
+	public PublishFlowController(FlowControlSettings flowControlSettings) {
+		Assert.notNull(flowControlSettings, "The flow control settings can't be null.");
+
+		this.maxOutstandingMessageCount = (flowControlSettings.getMaxOutstandingElementCount() != null)
+				? flowControlSettings.getMaxOutstandingElementCount() : Long.MAX_VALUE;
+		this.maxOutstandingBytes = (flowControlSettings.getMaxOutstandingRequestBytes() != null)
+				? flowControlSettings.getMaxOutstandingRequestBytes() : Long.MAX_VALUE;
+		this.limitExceededBehavior = flowControlSettings.getLimitExceededBehavior();
+
+		Assert.isTrue(this.maxOutstandingMessageCount > 0, "The maximum outstanding message count must be positive.");
+		Assert.isTrue(this.maxOutstandingBytes > 0, "The maximum outstanding bytes must be positive.");
+		setMaxTopicShare(DEFAULT_MAX_TOPIC_SHARE);
+	}
+
+	/**
+	 * Set the largest share of the maximum outstanding bytes that the messages of a single topic
+	 * may hold, between 0 (exclusive) and 1. Defaults to {@link #DEFAULT_MAX_TOPIC_SHARE}; 1 lets
+	 * any topic use the whole budget.
+	 * @param maxTopicShare the largest share of a single topic
+	 */
+	public void setMaxTopicShare(double maxTopicShare) {
+		Assert.isTrue(maxTopicShare > 0 && maxTopicShare <= 1, "The maximum topic share must be in (0, 1].");
+		this.maxTopicShare = maxTopicShare;
+		this.maxTopicOutstandingBytes = (this.maxOutstandingBytes == Long.MAX_VALUE) ? Long.MAX_VALUE
+				: Math.max(1L, (long) (this.maxOutstandingBytes * maxTopicShare));
+	}
+
+	public double getMaxTopicShare() {
+		return this.maxTopicShare;
+	}
+
+	public long getMaxOutstandingMessageCount() {
+		return this.maxOutstandingMessageCount;
+	}
+
+	public long getMaxOutstandingBytes() {
+		return this.maxOutstandingBytes;
+	}
+
+	public LimitExceededBehavior getLimitExceededBehavior() {
+		return this.limitExceededBehavior;
+	}
+
+	/**
+	 * Return the number of messages currently being published.
+	 * @return the outstanding message count
+	 */
+	public long getOutstandingMessageCount() {
+		return this.outstandingMessageCount;
+	}
+
+	/**
+	 * Return the size in bytes of the messages currently being published.
+	 * @return the outstanding bytes
+	 */
+	public long getOutstandingBytes() {
+		return this.outstandingBytes;
+	}
+
+	/**
+	 * Reserve room for a message about to be published to a topic. A message larger than the
+	 * topic's share is admitted once nothing else is outstanding in its topic, if the overall
+	 * budget has room for it. A message larger than the overall budget is admitted once nothing
+	 * else is outstanding in any topic, rather than never.
+	 * @param topic the topic of the message
+	 * @param bytes the size of the message
+	 * @throws PubSubException if the budget is exhausted and the limit exceeded behavior is
+	 * {@link LimitExceededBehavior#ThrowException}, or if interrupted while blocking
+	 */
+	public void reserve(String topic, long bytes) {
+		long cost = cost(bytes);
+		this.lock.lock();
+		try {
+			while (this.limitExceededBehavior != LimitExceededBehavior.Ignore && !fits(topic, cost)) {
+				if (this.limitExceededBehavior == LimitExceededBehavior.ThrowException) {
+					throw new PubSubException("The publish flow control limits were reached; "
+							+ this.outstandingMessageCount + " messages and " + this.outstandingBytes
+							+ " bytes are outstanding.");
+				}
+				this.released.await();
+			}
+
+			this.outstandingMessageCount++;
+			this.outstandingBytes += cost;
+			this.topicOutstandingBytes.merge(topic, cost, Long::sum);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new PubSubException("Interrupted while waiting for the publish flow control limits.", ie);
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Release the room reserved for a message that was published or failed.
+	 * @param topic the topic of the message
+	 * @param bytes the size of the message, as passed to {@link #reserve(String, long)}
+	 */
+	public void release(String topic, long bytes) {
+		long cost = cost(bytes);
+		this.lock.lock();
+		try {
+			this.outstandingMessageCount--;
+			this.outstandingBytes -= cost;
+			this.topicOutstandingBytes.computeIfPresent(topic,
+					(key, topicBytes) -> (topicBytes > cost) ? topicBytes - cost : null);
+			this.released.signalAll();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	private long cost(long bytes) {
+		return Math.min(bytes, this.maxOutstandingBytes);
+	}
+
+	private boolean fits(String topic, long cost) {
+		long topicBytes = this.topicOutstandingBytes.getOrDefault(topic, 0L);
+		return this.outstandingMessageCount < this.maxOutstandingMessageCount
+				&& this.outstandingBytes + cost <= this.maxOutstandingBytes
+				&& (topicBytes == 0 || topicBytes + cost <= this.maxTopicOutstandingBytes);
+	}
+
+}
@@ -0,0 +1,284 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * Keeps the leases of synchronously pulled messages alive until they are acked or nacked.
+ *
+ * <p>Every ack ID returned by a pull is tracked until the message is acked or nacked, or until the
+ * max ack extension period has elapsed since it was received. A periodic task extends the ack
+ * deadlines of the leases about to expire with batched {@link ModifyAckDeadlineRequest}s.
+ *
+ * <p>Like the streaming {@code Subscriber}, the extended deadline is the 99th percentile of the
+ * observed processing times, i.e. the time between pulling and (n)acking a message, bounded by the
+ * minimum and maximum ack deadlines allowed by Pub/Sub.
+ *
+ * @since 1.1
+ */
+final class AckLeaseManager {
+
+	private static final Log LOGGER = LogFactory.getLog(AckLeaseManager.class);
+
+	/**
+	 * The minimum ack deadline Pub/Sub accepts, and the deadline pulled messages are assumed to
+	 * have when they are received.
+	 */
+	static final int MIN_ACK_DEADLINE_SECONDS = 10;
+
+	/**
+	 * The maximum ack deadline Pub/Sub accepts.
+	 */
+	static final int MAX_ACK_DEADLINE_SECONDS = 600;
+
+	/**
+	 * Leases expiring within this margin are extended by the next extension run.
+	 */
+	static final long EXPIRATION_PADDING_MILLIS = 5000;
+
+	private static final long EXTENSION_PERIOD_MILLIS = 1000;
+
+	private static final int MAX_ACK_IDS_PER_REQUEST = AcknowledgementBatcher.MAX_ACK_IDS_PER_REQUEST;
+
+	private static final double PERCENTILE = 99.0;
+
+	private final SubscriberStub subscriberStub;
+
+	private final ScheduledExecutorService executor;
+
+	private final long maxAckExtensionPeriodMillis;
+
+	private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+	/**
+	 * Histogram of processing times in whole seconds, one bucket per second up to the maximum
+	 * ack deadline.
+	 */
+	private final AtomicLongArray processingSeconds = new AtomicLongArray(MAX_ACK_DEADLINE_SECONDS + 1);
+
+	private final AtomicLong processingCount = new AtomicLong();
+
+	private ScheduledFuture<?> extensionTask;
+
+	AckLeaseManager(SubscriberStub subscriberStub, long maxAckExtensionPeriodMillis,
+			ScheduledExecutorService executor) {
+		Assert.notNull(subscriberStub, "The subscriberStub can't be null.");
+		Assert.isTrue(maxAckExtensionPeriodMillis > 0, "The maxAckExtensionPeriod must be greater than 0.");
+		Assert.notNull(executor, "The executor can't be null.");
+
+		this.subscriberStub = subscriberStub;
+		this.maxAckExtensionPeriodMillis = maxAckExtensionPeriodMillis;
+		this.executor = executor;
+	}
+
+	/**
+	 * Start extending leases periodically.
+	 */
+	synchronized void start() {
+		if (this.extensionTask == null) {
+			this.extensionTask = this.executor.scheduleWithFixedDelay(
+					() -> extendLeases(System.currentTimeMillis()),
+					EXTENSION_PERIOD_MILLIS, EXTENSION_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stop extending leases. Tracked leases are left to expire.
+	 */
+	synchronized void stop() {
+		if (this.extensionTask != null) {
+			this.extensionTask.cancel(false);
+			this.extensionTask = null;
+		}
+		this.leases.clear();
+	}
+
+	/**
+	 * Start tracking the lease of a pulled message.
+	 * @param subscription the subscription name, as used in the requests
+	 * @param ackId the ack ID of the pulled message
+	 * @param receivedAtMillis when the message was received
+	 */
+	void track(String subscription, String ackId, long receivedAtMillis) {
+		this.leases.put(ackId, new Lease(subscription, receivedAtMillis,
+				receivedAtMillis + TimeUnit.SECONDS.toMillis(MIN_ACK_DEADLINE_SECONDS)));
+	}
+
+	/**
+	 * Stop tracking the lease of an acked or nacked message and record its processing time.
+	 * @param ackId the ack ID of the message
+	 * @param nowMillis the current time
+	 */
+	void release(String ackId, long nowMillis) {
+		Lease lease = this.leases.remove(ackId);
+		if (lease != null) {
+			long seconds = TimeUnit.MILLISECONDS.toSeconds(nowMillis - lease.receivedAtMillis + 999);
+			this.processingSeconds.incrementAndGet(
+					(int) Math.max(0, Math.min(seconds, MAX_ACK_DEADLINE_SECONDS)));
+			this.processingCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Record that the ack deadline of a tracked message was modified by the user.
+	 * @param ackId the ack ID of the message
+	 * @param ackDeadlineSeconds the new ack deadline
+	 * @param nowMillis the current time
+	 */
+	void deadlineModified(String ackId, int ackDeadlineSeconds, long nowMillis) {
+		if (ackDeadlineSeconds == 0) {
+			release(ackId, nowMillis);
+		}
+		else {
+			Lease lease = this.leases.get(ackId);
+			if (lease != null) {
+				lease.expiresAtMillis = nowMillis + TimeUnit.SECONDS.toMillis(ackDeadlineSeconds);
+			}
+		}
+	}
+
+	/**
+	 * The ack deadline leases are extended by, based on the observed processing times.
+	 * @return the 99th percentile processing time in seconds, bounded by the allowed ack deadlines
+	 */
+	int getAckDeadlineSeconds() {
+		long count = this.processingCount.get();
+		int percentile = MIN_ACK_DEADLINE_SECONDS;
+
+		if (count > 0) {
+			long rank = (long) Math.ceil(count * PERCENTILE / 100.0);
+			long cumulative = 0;
+			for (int seconds = 0; seconds <= MAX_ACK_DEADLINE_SECONDS; seconds++) {
+				cumulative += this.processingSeconds.get(seconds);
+				if (cumulative >= rank) {
+					percentile = seconds;
+					break;
+				}
+			}
+		}
+
+		return Math.max(MIN_ACK_DEADLINE_SECONDS, Math.min(percentile, MAX_ACK_DEADLINE_SECONDS));
+	}
+
+	int getLeaseCount() {
+		return this.leases.size();
+	}
+
+	/**
+	 * Extend the leases that expire within the expiration padding, and drop the ones that have
+	 * reached the max ack extension period.
+	 * @param nowMillis the current time
+	 */
+	void extendLeases(long nowMillis) {
+		int ackDeadlineSeconds = getAckDeadlineSeconds();
+		Map<String, Map<Integer, List<String>>> extensions = new HashMap<>();
+
+		this.leases.forEach((ackId, lease) -> {
+			if (lease.expiresAtMillis - nowMillis > EXPIRATION_PADDING_MILLIS) {
+				return;
+			}
+
+			long remainingMillis = lease.receivedAtMillis + this.maxAckExtensionPeriodMillis - nowMillis;
+			int seconds = (int) Math.min(ackDeadlineSeconds, TimeUnit.MILLISECONDS.toSeconds(remainingMillis));
+			if (seconds <= 0) {
+				this.leases.remove(ackId, lease);
+			}
+			else {
+				lease.expiresAtMillis = nowMillis + TimeUnit.SECONDS.toMillis(seconds);
+				extensions.computeIfAbsent(lease.subscription, s -> new HashMap<>())
+						.computeIfAbsent(seconds, s -> new ArrayList<>())
+						.add(ackId);
+			}
+		});
+
+		extensions.forEach((subscription, ackIdsByDeadline) ->
+				ackIdsByDeadline.forEach((seconds, ackIds) -> {
+					for (int i = 0; i < ackIds.size(); i += MAX_ACK_IDS_PER_REQUEST) {
+						modifyAckDeadline(subscription, seconds,
+								ackIds.subList(i, Math.min(i + MAX_ACK_IDS_PER_REQUEST, ackIds.size())));
+					}
+				}));
+	}
+
+	private void modifyAckDeadline(String subscription, int ackDeadlineSeconds, List<String> ackIds) {
+		ModifyAckDeadlineRequest modifyAckDeadlineRequest = ModifyAckDeadlineRequest.newBuilder()
+				.setSubscription(subscription)
+				.setAckDeadlineSeconds(ackDeadlineSeconds)
+				.addAllAckIds(ackIds)
+				.build();
+
+		try {
+			ApiFuture<Empty> apiFuture =
+					this.subscriberStub.modifyAckDeadlineCallable().futureCall(modifyAckDeadlineRequest);
+			ApiFutures.addCallback(apiFuture, new ApiFutureCallback<Empty>() {
+				@Override
+				public void onFailure(Throwable throwable) {
+					LOGGER.warn("Failed to extend the ack deadline of " + ackIds.size()
+							+ " messages from subscription " + subscription, throwable);
+				}
+
+				@Override
+				public void onSuccess(Empty empty) {
+				}
+			});
+		}
+		catch (RuntimeException re) {
+			LOGGER.warn("Failed to extend the ack deadline of " + ackIds.size()
+					+ " messages from subscription " + subscription, re);
+		}
+	}
+
+	/**
+	 * The lease of a pulled message.
+	 */
+	private static final class Lease {
+
+		private final String subscription;
+
+		private final long receivedAtMillis;
+
+		private volatile long expiresAtMillis;
+
+		Lease(String subscription, long receivedAtMillis, long expiresAtMillis) {
+			this.subscription = subscription;
+			this.receivedAtMillis = receivedAtMillis;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+	}
+
+}
@@ -0,0 +1,276 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Coalesces the acks, nacks and ack deadline modifications of individual pulled messages into
+ * batched {@link AcknowledgeRequest}s and {@link ModifyAckDeadlineRequest}s.
+ *
+ * <p>Ack IDs are buffered per subscription and per ack deadline. A batch is sent when it reaches
+ * the element count or request byte threshold of the {@link BatchingSettings}, or when the delay
+ * threshold has elapsed since its first ack ID was added. The future returned for each ack ID
+ * completes when the request carrying its batch completes.
+ *
+ * @since 1.1
+ */
+final class AcknowledgementBatcher {
+
+	/**
+	 * The maximum number of ack IDs sent in a single request, regardless of the element count
+	 * threshold. Matches the limit used by the client library's streaming subscriber.
+	 */
+	static final int MAX_ACK_IDS_PER_REQUEST = 1000;
+
+	/**
+	 * Deadline key for acknowledgements, which don't have an ack deadline.
+	 */
+	private static final int ACK = -1;
+
+	private final SubscriberStub subscriberStub;
+
+	private final ScheduledExecutorService executor;
+
+	private final long elementCountThreshold;
+
+	private final long requestByteThreshold;
+
+	private final long delayThresholdMillis;
+
+	/**
+	 * Batches being filled, guarded by {@code this}.
+	 */
+	private final Map<BatchKey, Batch> batches = new HashMap<>();
+
+	AcknowledgementBatcher(SubscriberStub subscriberStub, BatchingSettings batchingSettings,
+			ScheduledExecutorService executor) {
+		Assert.notNull(subscriberStub, "The subscriberStub can't be null.");
+		Assert.notNull(batchingSettings, "The batchingSettings can't be null.");
+		Assert.notNull(batchingSettings.getDelayThreshold(),
+				"A delay threshold is required for batching acknowledgements.");
+		Assert.notNull(executor, "The executor can't be null.");
+
+		this.subscriberStub = subscriberStub;
+		this.executor = executor;
+		this.elementCountThreshold = batchingSettings.getElementCountThreshold() != null
+				? Math.min(batchingSettings.getElementCountThreshold(), MAX_ACK_IDS_PER_REQUEST)
+				: MAX_ACK_IDS_PER_REQUEST;
+		this.requestByteThreshold = batchingSettings.getRequestByteThreshold() != null
+				? batchingSettings.getRequestByteThreshold()
+				: Long.MAX_VALUE;
+		this.delayThresholdMillis = batchingSettings.getDelayThreshold().toMillis();
+	}
+
+	/**
+	 * Add an ack ID to the next acknowledgement batch of a subscription.
+	 * @param subscription the subscription name, as used in the requests
+	 * @param ackId the ack ID to acknowledge
+	 * @return a future that completes when the batch containing the ack ID is sent
+	 */
+	ListenableFuture<Void> ack(String subscription, String ackId) {
+		return add(new BatchKey(subscription, ACK), ackId);
+	}
+
+	/**
+	 * Add an ack ID to the next batch that modifies ack deadlines of a subscription to the given
+	 * value.
+	 * @param subscription the subscription name, as used in the requests
+	 * @param ackId the ack ID whose deadline to modify
+	 * @param ackDeadlineSeconds the new ack deadline in seconds. A deadline of 0 nacks the message.
+	 * @return a future that completes when the batch containing the ack ID is sent
+	 */
+	ListenableFuture<Void> modifyAckDeadline(String subscription, String ackId, int ackDeadlineSeconds) {
+		Assert.isTrue(ackDeadlineSeconds >= 0, "The ackDeadlineSeconds must not be negative.");
+
+		return add(new BatchKey(subscription, ackDeadlineSeconds), ackId);
+	}
+
+	/**
+	 * Send every buffered batch right away.
+	 */
+	void flush() {
+		List<Batch> batchesToSend;
+		synchronized (this) {
+			batchesToSend = new ArrayList<>(this.batches.values());
+			this.batches.clear();
+		}
+
+		batchesToSend.forEach(this::send);
+	}
+
+	private ListenableFuture<Void> add(BatchKey key, String ackId) {
+		SettableListenableFuture<Void> future = new SettableListenableFuture<>();
+		Batch fullBatch = null;
+
+		synchronized (this) {
+			Batch batch = this.batches.get(key);
+			if (batch == null) {
+				batch = new Batch(key);
+				this.batches.put(key, batch);
+				Batch scheduledBatch = batch;
+				batch.scheduledFlush = this.executor.schedule(() -> flush(scheduledBatch),
+						this.delayThresholdMillis, TimeUnit.MILLISECONDS);
+			}
+
+			batch.add(ackId, future);
+
+			if (batch.ackIds.size() >= this.elementCountThreshold
+					|| batch.requestBytes >= this.requestByteThreshold) {
+				this.batches.remove(key);
+				fullBatch = batch;
+			}
+		}
+
+		if (fullBatch != null) {
+			send(fullBatch);
+		}
+
+		return future;
+	}
+
+	private void flush(Batch batch) {
+		boolean pending;
+		synchronized (this) {
+			pending = this.batches.remove(batch.key, batch);
+		}
+
+		if (pending) {
+			send(batch);
+		}
+	}
+
+	private void send(Batch batch) {
+		if (batch.scheduledFlush != null) {
+			batch.scheduledFlush.cancel(false);
+		}
+
+		ApiFuture<Empty> apiFuture;
+		try {
+			apiFuture = (batch.key.ackDeadlineSeconds == ACK)
+					? this.subscriberStub.acknowledgeCallable().futureCall(
+							AcknowledgeRequest.newBuilder()
+									.setSubscription(batch.key.subscription)
+									.addAllAckIds(batch.ackIds)
+									.build())
+					: this.subscriberStub.modifyAckDeadlineCallable().futureCall(
+							ModifyAckDeadlineRequest.newBuilder()
+									.setSubscription(batch.key.subscription)
+									.setAckDeadlineSeconds(batch.key.ackDeadlineSeconds)
+									.addAllAckIds(batch.ackIds)
+									.build());
+		}
+		catch (RuntimeException re) {
+			batch.futures.forEach(future -> future.setException(re));
+			return;
+		}
+
+		ApiFutures.addCallback(apiFuture, new ApiFutureCallback<Empty>() {
+			@Override
+			public void onFailure(Throwable throwable) {
+				batch.futures.forEach(future -> future.setException(throwable));
+			}
+
+			@Override
+			public void onSuccess(Empty empty) {
+				batch.futures.forEach(future -> future.set(null));
+			}
+		});
+	}
+
+	/**
+	 * Identifies the request an ack ID belongs to.
+	 */
+	private static final class BatchKey {
+
+		private final String subscription;
+
+		private final int ackDeadlineSeconds;
+
+		BatchKey(String subscription, int ackDeadlineSeconds) {
+			this.subscription = subscription;
+			this.ackDeadlineSeconds = ackDeadlineSeconds;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			BatchKey that = (BatchKey) o;
+			return this.ackDeadlineSeconds == that.ackDeadlineSeconds
+					&& this.subscription.equals(that.subscription);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.subscription, this.ackDeadlineSeconds);
+		}
+	}
+
+	/**
+	 * The ack IDs and futures of a request being assembled.
+	 */
+	private static final class Batch {
+
+		private final BatchKey key;
+
+		private final List<String> ackIds = new ArrayList<>();
+
+		private final List<SettableListenableFuture<Void>> futures = new ArrayList<>();
+
+		private long requestBytes;
+
+		private ScheduledFuture<?> scheduledFlush;
+
+		Batch(BatchKey key) {
+			this.key = key;
+		}
+
+		void add(String ackId, SettableListenableFuture<Void> future) {
+			this.ackIds.add(ackId);
+			this.futures.add(future);
+			// One byte for the field tag, plus the length-delimited ack ID.
+			this.requestBytes += 1 + CodedOutputStream.computeStringSizeNoTag(ackId);
+		}
+	}
+
+}
@@ -92,6 +92,26 @@ public interface PubSubSubscriberOperations {
 	 */
 	List<AcknowledgeablePubsubMessage> pull(String subscription, Integer maxMessages, Boolean returnImmediately);
 
+	/**
+	 * Pull a number of messages from a Google Cloud Pub/Sub subscription using several concurrent pull requests.
+	 * <p>The {@code maxMessages} are split across {@code parallelPullCount} pull requests, which are sent at the
+	 * same time. The method returns once all of them have completed, with their messages merged into a single list.
+	 * This allows draining a large backlog faster than pulling one request at a time. If any request fails, the
+	 * messages returned by the others are nacked before the failure is thrown.
+	 * <p>By default, the messages are pulled with a single {@link #pull(String, Integer, Boolean)} request.
+	 * @param subscription the subscription name
+	 * @param maxMessages the maximum number of pulled messages, across all pull requests
+	 * @param returnImmediately returns immediately even if subscription doesn't contain enough
+	 * messages to satisfy {@code maxMessages}
+	 * @param parallelPullCount the number of concurrent pull requests
+	 * @return the list of received acknowledgeable messages
+	 * @since 1.1
+	 */
+	default List<AcknowledgeablePubsubMessage> parallelPull(String subscription, int maxMessages,
+			Boolean returnImmediately, int parallelPullCount) {
+		return pull(subscription, maxMessages, returnImmediately);
+	}
+
 	/**
 	 * Pull a number of messages from a Google Cloud Pub/Sub subscription and convert them to Spring messages with
 	 * the desired payload type.
@@ -20,12 +20,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.core.ExecutorProvider;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
@@ -37,9 +42,14 @@ import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.PullRequest;
 import com.google.pubsub.v1.PullResponse;
+import com.google.pubsub.v1.ReceivedMessage;
+import org.threeten.bp.Duration;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
 import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
@@ -55,6 +65,9 @@ import org.springframework.util.concurrent.SettableListenableFuture;
  * <p>The main Google Cloud Pub/Sub integration component for consuming
  * messages from subscriptions asynchronously or by pulling.
  *
+ * <p>The received messages, pull sizes, conversions, acks and nacks are reported to the
+ * {@link #setMetrics(PubSubMetrics) metrics} of the template.
+ *
  * @author Vinicius Carvalho
  * @author João André Martins
  * @author Mike Eltsufin
@@ -63,7 +76,13 @@ import org.springframework.util.concurrent.SettableListenableFuture;
  *
  * @since 1.1
  */
-public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
+public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, DisposableBean {
+
+	/**
+	 * The maximum number of cached subscription names. Subscriptions seen once the cache is full
+	 * get a new name for every pull or subscription.
+	 */
+	static final int MAX_CACHED_SUBSCRIPTION_NAMES = 1000;
 
 	private final SubscriberFactory subscriberFactory;
 
@@ -71,6 +90,18 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 
 	private PubSubMessageConverter pubSubMessageConverter = new SimplePubSubMessageConverter();
 
+	private volatile AcknowledgementBatcher acknowledgementBatcher;
+
+	private AckLeaseManager ackLeaseManager;
+
+	private PubSubMetrics metrics = PubSubMetrics.NONE;
+
+	/**
+	 * Subscription names by the subscription strings they were created from, so receiving a message
+	 * doesn't allocate a new name. Holds at most {@link #MAX_CACHED_SUBSCRIPTION_NAMES} entries.
+	 */
+	private final Map<String, ProjectSubscriptionName> projectSubscriptionNames = new ConcurrentHashMap<>();
+
 	/**
 	 * Default {@link PubSubSubscriberTemplate} constructor
 	 *
@@ -94,6 +125,94 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		this.pubSubMessageConverter = pubSubMessageConverter;
 	}
 
+	public PubSubMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Set the metrics that the received messages are reported to.
+	 * @param metrics the metrics, {@link PubSubMetrics#NONE} by default
+	 */
+	public void setMetrics(PubSubMetrics metrics) {
+		Assert.notNull(metrics, "The metrics can't be null.");
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Enable batching of the acks, nacks and ack deadline modifications of individual pulled messages.
+	 * <p>When enabled, {@link AcknowledgeablePubsubMessage#ack()}, {@link AcknowledgeablePubsubMessage#nack()}
+	 * and {@link AcknowledgeablePubsubMessage#modifyAckDeadline(int)} buffer the message's ack ID per
+	 * subscription instead of sending a request for every message. A batch is sent when it reaches the element
+	 * count or request byte threshold, or when the delay threshold has elapsed since its first ack ID was added.
+	 * The returned futures complete when the request carrying the batch completes.
+	 * <p>Batching is disabled by default. It doesn't affect {@link #ack(Collection)}, {@link #nack(Collection)}
+	 * and {@link #modifyAckDeadline(Collection, int)}, which always send a single request right away.
+	 * <p>The ack IDs buffered with the previous settings, if any, are sent right away.
+	 * @param batchingSettings the batching thresholds. The delay threshold is required.
+	 * @param executorProvider provides the executor that sends batches once their delay threshold elapses
+	 */
+	public void setAckBatchingSettings(BatchingSettings batchingSettings, ExecutorProvider executorProvider) {
+		Assert.notNull(batchingSettings, "The batchingSettings can't be null.");
+		Assert.notNull(executorProvider, "The executorProvider can't be null.");
+
+		AcknowledgementBatcher previousBatcher = this.acknowledgementBatcher;
+		this.acknowledgementBatcher = batchingSettings.getIsEnabled()
+				? new AcknowledgementBatcher(this.subscriberStub, batchingSettings, executorProvider.getExecutor())
+				: null;
+		if (previousBatcher != null) {
+			previousBatcher.flush();
+		}
+	}
+
+	/**
+	 * Enable automatic ack deadline extension for pulled messages.
+	 * <p>When enabled, the ack deadline of every message returned by {@link #pull(String, Integer, Boolean)}
+	 * and {@link #pullAndConvert(String, Integer, Boolean, Class)} is extended periodically, in batches, until
+	 * the message is acked or nacked, or until {@code maxAckExtensionPeriod} has elapsed since it was pulled.
+	 * Leases are extended by the 99th percentile of the observed processing times, the same way the streaming
+	 * {@link Subscriber} extends them.
+	 * <p>Lease management is disabled by default.
+	 * @param maxAckExtensionPeriod the maximum time to keep extending the lease of a pulled message.
+	 * {@link Duration#ZERO} disables lease management.
+	 * @param executorProvider provides the executor that periodically extends the leases
+	 */
+	public void setMaxAckExtensionPeriod(Duration maxAckExtensionPeriod, ExecutorProvider executorProvider) {
+		Assert.notNull(maxAckExtensionPeriod, "The maxAckExtensionPeriod can't be null.");
+		Assert.isTrue(!maxAckExtensionPeriod.isNegative(), "The maxAckExtensionPeriod must not be negative.");
+		Assert.notNull(executorProvider, "The executorProvider can't be null.");
+
+		if (this.ackLeaseManager != null) {
+			this.ackLeaseManager.stop();
+			this.ackLeaseManager = null;
+		}
+
+		if (!maxAckExtensionPeriod.isZero()) {
+			AckLeaseManager leaseManager = new AckLeaseManager(this.subscriberStub,
+					maxAckExtensionPeriod.toMillis(), executorProvider.getExecutor());
+			leaseManager.start();
+			this.ackLeaseManager = leaseManager;
+		}
+	}
+
+	/**
+	 * Send the acks, nacks and ack deadline modifications still buffered for batching, instead of
+	 * leaving them to scheduled flushes that may never run, and stop extending leases.
+	 * <p>Acknowledgements of messages pulled earlier are sent right away from then on.
+	 */
+	@Override
+	public void destroy() {
+		AcknowledgementBatcher batcher = this.acknowledgementBatcher;
+		this.acknowledgementBatcher = null;
+		if (batcher != null) {
+			batcher.flush();
+		}
+
+		if (this.ackLeaseManager != null) {
+			this.ackLeaseManager.stop();
+			this.ackLeaseManager = null;
+		}
+	}
+
 	@Override
 	@Deprecated
 	public Subscriber subscribe(String subscription, MessageReceiver messageReceiver) {
@@ -111,13 +230,16 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 			Consumer<BasicAcknowledgeablePubsubMessage> messageConsumer) {
 		Assert.notNull(messageConsumer, "The messageConsumer can't be null.");
 
+		ProjectSubscriptionName projectSubscriptionName = getProjectSubscriptionName(subscription);
 		Subscriber subscriber =
 				this.subscriberFactory.createSubscriber(subscription,
-						(message, ackReplyConsumer) -> messageConsumer.accept(
-								new PushedAcknowledgeablePubsubMessage(
-										ProjectSubscriptionName.of(this.subscriberFactory.getProjectId(), subscription),
-										message,
-										ackReplyConsumer)));
+						(message, ackReplyConsumer) -> {
+							this.metrics.messageReceived(subscription, message.getSerializedSize());
+							messageConsumer.accept(new PushedAcknowledgeablePubsubMessage(
+									projectSubscriptionName,
+									message,
+									ackReplyConsumer));
+						});
 		subscriber.startAsync();
 		return subscriber;
 	}
@@ -127,14 +249,17 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 			Consumer<ConvertedBasicAcknowledgeablePubsubMessage<T>> messageConsumer, Class<T> payloadType) {
 		Assert.notNull(messageConsumer, "The messageConsumer can't be null.");
 
+		ProjectSubscriptionName projectSubscriptionName = getProjectSubscriptionName(subscription);
 		Subscriber subscriber =
 				this.subscriberFactory.createSubscriber(subscription,
-						(message, ackReplyConsumer) -> messageConsumer.accept(
-								new ConvertedPushedAcknowledgeablePubsubMessage<T>(
-										ProjectSubscriptionName.of(this.subscriberFactory.getProjectId(), subscription),
-										message,
-										this.getMessageConverter().fromPubSubMessage(message, payloadType),
-										ackReplyConsumer)));
+						(message, ackReplyConsumer) -> {
+							this.metrics.messageReceived(subscription, message.getSerializedSize());
+							messageConsumer.accept(new ConvertedPushedAcknowledgeablePubsubMessage<T>(
+									projectSubscriptionName,
+									message,
+									convert(subscription, message, payloadType),
+									ackReplyConsumer));
+						});
 		subscriber.startAsync();
 		return subscriber;
 	}
@@ -150,16 +275,72 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		Assert.notNull(pullRequest, "The pull request can't be null.");
 
 		PullResponse pullResponse = this.subscriberStub.pullCallable().call(pullRequest);
-		List<AcknowledgeablePubsubMessage> receivedMessages =
-				pullResponse.getReceivedMessagesList().stream()
-						.map(message -> new PulledAcknowledgeablePubsubMessage(
-								ProjectSubscriptionName.of(
-										this.subscriberFactory.getProjectId(), pullRequest.getSubscription()),
-								message.getMessage(),
-								message.getAckId()))
-						.collect(Collectors.toList());
+		return toAcknowledgeablePubsubMessages(pullRequest, pullResponse);
+	}
 
-		return receivedMessages;
+	/**
+	 * Wrap the messages of a pull response so they can be acknowledged, and start tracking their leases.
+	 *
+	 * @param pullRequest the pull request the response was received for
+	 * @param pullResponse the pull response
+	 * @return the list of {@link AcknowledgeablePubsubMessage} containing the ack ID, subscription
+	 * and acknowledger
+	 */
+	private List<AcknowledgeablePubsubMessage> toAcknowledgeablePubsubMessages(PullRequest pullRequest,
+			PullResponse pullResponse) {
+		trackLeases(pullRequest, pullResponse);
+		recordPull(pullRequest, pullResponse);
+
+		ProjectSubscriptionName projectSubscriptionName = getProjectSubscriptionName(pullRequest.getSubscription());
+		List<ReceivedMessage> receivedMessages = pullResponse.getReceivedMessagesList();
+		List<AcknowledgeablePubsubMessage> ackableMessages = new ArrayList<>(receivedMessages.size());
+		for (ReceivedMessage receivedMessage : receivedMessages) {
+			ackableMessages.add(new PulledAcknowledgeablePubsubMessage(
+					projectSubscriptionName, receivedMessage.getMessage(), receivedMessage.getAckId()));
+		}
+
+		return ackableMessages;
+	}
+
+	private void trackLeases(PullRequest pullRequest, PullResponse pullResponse) {
+		AckLeaseManager leaseManager = this.ackLeaseManager;
+		if (leaseManager != null) {
+			long receivedAt = System.currentTimeMillis();
+			pullResponse.getReceivedMessagesList().forEach(message ->
+					leaseManager.track(pullRequest.getSubscription(), message.getAckId(), receivedAt));
+		}
+	}
+
+	private void recordPull(PullRequest pullRequest, PullResponse pullResponse) {
+		String subscription = pullRequest.getSubscription();
+		this.metrics.messagesPulled(subscription, pullResponse.getReceivedMessagesCount());
+		for (ReceivedMessage receivedMessage : pullResponse.getReceivedMessagesList()) {
+			this.metrics.messageReceived(subscription, receivedMessage.getMessage().getSerializedSize());
+		}
+	}
+
+	private <T> T convert(String subscription, PubsubMessage message, Class<T> payloadType) {
+		long startTime = System.nanoTime();
+		T payload = this.pubSubMessageConverter.fromPubSubMessage(message, payloadType);
+		this.metrics.messageDeserialized(subscription, System.nanoTime() - startTime);
+		return payload;
+	}
+
+	/**
+	 * Get the {@link ProjectSubscriptionName} of a subscription, creating it only the first time the
+	 * subscription is seen, as long as the cache isn't full.
+	 * @param subscription the subscription name, as passed to the subscriber factory or found in a pull request
+	 * @return the project subscription name
+	 */
+	private ProjectSubscriptionName getProjectSubscriptionName(String subscription) {
+		ProjectSubscriptionName projectSubscriptionName = this.projectSubscriptionNames.get(subscription);
+		if (projectSubscriptionName == null) {
+			projectSubscriptionName = ProjectSubscriptionName.of(this.subscriberFactory.getProjectId(), subscription);
+			if (this.projectSubscriptionNames.size() < MAX_CACHED_SUBSCRIPTION_NAMES) {
+				this.projectSubscriptionNames.putIfAbsent(subscription, projectSubscriptionName);
+			}
+		}
+		return projectSubscriptionName;
 	}
 
 	@Override
@@ -169,15 +350,113 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 				returnImmediately));
 	}
 
+	@Override
+	public List<AcknowledgeablePubsubMessage> parallelPull(String subscription, int maxMessages,
+			Boolean returnImmediately, int parallelPullCount) {
+		Assert.hasText(subscription, "The subscription can't be null or empty.");
+		Assert.isTrue(maxMessages > 0, "The maxMessages must be greater than 0.");
+		Assert.isTrue(parallelPullCount > 0, "The parallelPullCount must be greater than 0.");
+
+		// Spread maxMessages as evenly as possible, never sending a request for 0 messages.
+		int pullCount = Math.min(parallelPullCount, maxMessages);
+		List<PullRequest> pullRequests = new ArrayList<>(pullCount);
+		List<ApiFuture<PullResponse>> pullResponseFutures = new ArrayList<>(pullCount);
+		for (int i = 0; i < pullCount; i++) {
+			int requestMaxMessages = maxMessages / pullCount + ((i < maxMessages % pullCount) ? 1 : 0);
+			PullRequest pullRequest = this.subscriberFactory.createPullRequest(
+					subscription, requestMaxMessages, returnImmediately);
+			pullRequests.add(pullRequest);
+			pullResponseFutures.add(this.subscriberStub.pullCallable().futureCall(pullRequest));
+		}
+
+		// Wait for every request, even after one failed, so the messages of the others can be released.
+		List<PullResponse> pullResponses = new ArrayList<>(pullCount);
+		Throwable failure = null;
+		try {
+			for (ApiFuture<PullResponse> pullResponseFuture : pullResponseFutures) {
+				try {
+					pullResponses.add(pullResponseFuture.get());
+				}
+				catch (ExecutionException ee) {
+					pullResponses.add(null);
+					failure = (failure != null) ? failure : ee.getCause();
+				}
+			}
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			pullResponseFutures.forEach(future -> future.cancel(true));
+			nackPulledMessages(pullRequests, pullResponses);
+			throw new PubSubException("Interrupted while pulling messages from subscription " + subscription, ie);
+		}
+
+		if (failure != null) {
+			nackPulledMessages(pullRequests, pullResponses);
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			throw new PubSubException("Failed to pull messages from subscription " + subscription, failure);
+		}
+
+		List<AcknowledgeablePubsubMessage> receivedMessages = new ArrayList<>(maxMessages);
+		for (int i = 0; i < pullCount; i++) {
+			receivedMessages.addAll(toAcknowledgeablePubsubMessages(pullRequests.get(i), pullResponses.get(i)));
+		}
+
+		return receivedMessages;
+	}
+
+	/**
+	 * Nack the messages of the pull requests that succeeded when another one failed, so they
+	 * are redelivered right away rather than once their ack deadline expires.
+	 * @param pullRequests the pull requests
+	 * @param pullResponses the responses to the first pull requests, null for failed requests
+	 */
+	private void nackPulledMessages(List<PullRequest> pullRequests, List<PullResponse> pullResponses) {
+		for (int i = 0; i < pullResponses.size(); i++) {
+			PullResponse pullResponse = pullResponses.get(i);
+			if (pullResponse != null && pullResponse.getReceivedMessagesCount() > 0) {
+				nack(pullRequests.get(i).getSubscription(), pullResponse.getReceivedMessagesList().stream()
+						.map(ReceivedMessage::getAckId)
+						.collect(Collectors.toList()));
+			}
+		}
+	}
+
 	@Override
 	public <T> List<ConvertedAcknowledgeablePubsubMessage<T>> pullAndConvert(String subscription, Integer maxMessages,
 			Boolean returnImmediately, Class<T> payloadType) {
-		List<AcknowledgeablePubsubMessage> ackableMessages = this.pull(subscription, maxMessages, returnImmediately);
+		PullRequest pullRequest = this.subscriberFactory.createPullRequest(
+				subscription, maxMessages, returnImmediately);
 
-		return ackableMessages.stream().map(
-				m -> new ConvertedPulledAcknowledgeablePubsubMessage<>(m,
-						this.pubSubMessageConverter.fromPubSubMessage(m.getPubsubMessage(), payloadType))
-		).collect(Collectors.toList());
+		PullResponse pullResponse = this.subscriberStub.pullCallable().call(pullRequest);
+		trackLeases(pullRequest, pullResponse);
+		recordPull(pullRequest, pullResponse);
+
+		// Convert straight from the received messages, without an intermediate unconverted wrapper.
+		ProjectSubscriptionName projectSubscriptionName = getProjectSubscriptionName(pullRequest.getSubscription());
+		List<ReceivedMessage> receivedMessages = pullResponse.getReceivedMessagesList();
+		List<ConvertedAcknowledgeablePubsubMessage<T>> convertedMessages = new ArrayList<>(receivedMessages.size());
+		try {
+			for (ReceivedMessage receivedMessage : receivedMessages) {
+				convertedMessages.add(new ConvertedPulledAcknowledgeablePubsubMessage<>(
+						projectSubscriptionName,
+						receivedMessage.getMessage(),
+						receivedMessage.getAckId(),
+						convert(pullRequest.getSubscription(), receivedMessage.getMessage(), payloadType)));
+			}
+		}
+		catch (RuntimeException ex) {
+			// None of the messages reach the caller, so stop extending their leases and redeliver them.
+			List<String> ackIds = receivedMessages.stream()
+					.map(ReceivedMessage::getAckId)
+					.collect(Collectors.toList());
+			releaseLeases(ackIds, 0);
+			nack(pullRequest.getSubscription(), ackIds);
+			throw ex;
+		}
+
+		return convertedMessages;
 	}
 
 	@Override
@@ -192,12 +471,17 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		PullRequest pullRequest = this.subscriberFactory.createPullRequest(
 				subscription, maxMessages, returnImmediately);
 
-		List<AcknowledgeablePubsubMessage> ackableMessages = pull(pullRequest);
+		// The messages are acked right away, so there's no need to wrap them or track their leases.
+		PullResponse pullResponse = this.subscriberStub.pullCallable().call(pullRequest);
+		recordPull(pullRequest, pullResponse);
+		List<ReceivedMessage> receivedMessages = pullResponse.getReceivedMessagesList();
 
-		ack(ackableMessages);
+		if (!receivedMessages.isEmpty()) {
+			ack(pullRequest.getSubscription(), receivedMessages.stream().map(ReceivedMessage::getAckId)
+					.collect(Collectors.toList()));
+		}
 
-		return ackableMessages.stream().map(AcknowledgeablePubsubMessage::getPubsubMessage)
-				.collect(Collectors.toList());
+		return receivedMessages.stream().map(ReceivedMessage::getMessage).collect(Collectors.toList());
 	}
 
 	@Override
@@ -219,6 +503,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		AcknowledgeablePubsubMessage acknowledgeablePubsubMessage = acknowledgeablePubsubMessages.iterator().next();
 		ProjectSubscriptionName projectSubscriptionName = acknowledgeablePubsubMessage.getProjectSubscriptionName();
 		List<String> ackIds = collectAckIds(projectSubscriptionName, acknowledgeablePubsubMessages);
+		releaseLeases(ackIds, 0);
 
 		SettableListenableFuture<Void> settableListenableFuture = new SettableListenableFuture<>();
 
@@ -253,6 +538,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		AcknowledgeablePubsubMessage acknowledgeablePubsubMessage = acknowledgeablePubsubMessages.iterator().next();
 		ProjectSubscriptionName projectSubscriptionName = acknowledgeablePubsubMessage.getProjectSubscriptionName();
 		List<String> ackIds = collectAckIds(projectSubscriptionName, acknowledgeablePubsubMessages);
+		releaseLeases(ackIds, ackDeadlineSeconds);
 
 		SettableListenableFuture<Void> settableListenableFuture = new SettableListenableFuture<>();
 
@@ -289,13 +575,28 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		return ackIds;
 	}
 
+	/**
+	 * Let the lease manager, if any, know that the ack deadlines of messages are being modified.
+	 * @param ackIds the ack IDs of the messages
+	 * @param ackDeadlineSeconds the new ack deadline. 0 for acks and nacks, which end the leases.
+	 */
+	private void releaseLeases(Collection<String> ackIds, int ackDeadlineSeconds) {
+		AckLeaseManager leaseManager = this.ackLeaseManager;
+		if (leaseManager != null) {
+			long now = System.currentTimeMillis();
+			ackIds.forEach(ackId -> leaseManager.deadlineModified(ackId, ackDeadlineSeconds, now));
+		}
+	}
+
 	private ApiFuture<Empty> ack(String subscriptionName, Collection<String> ackIds) {
 		AcknowledgeRequest acknowledgeRequest = AcknowledgeRequest.newBuilder()
 				.addAllAckIds(ackIds)
 				.setSubscription(subscriptionName)
 				.build();
 
-		return this.subscriberStub.acknowledgeCallable().futureCall(acknowledgeRequest);
+		ApiFuture<Empty> apiFuture = this.subscriberStub.acknowledgeCallable().futureCall(acknowledgeRequest);
+		recordOnSuccess(apiFuture, () -> this.metrics.messagesAcked(subscriptionName, ackIds.size()));
+		return apiFuture;
 	}
 
 	private ApiFuture<Empty> nack(String subscriptionName, Collection<String> ackIds) {
@@ -310,7 +611,49 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 				.setSubscription(subscriptionName)
 				.build();
 
-		return this.subscriberStub.modifyAckDeadlineCallable().futureCall(modifyAckDeadlineRequest);
+		ApiFuture<Empty> apiFuture =
+				this.subscriberStub.modifyAckDeadlineCallable().futureCall(modifyAckDeadlineRequest);
+		if (ackDeadlineSeconds == 0) {
+			recordOnSuccess(apiFuture, () -> this.metrics.messagesNacked(subscriptionName, ackIds.size()));
+		}
+		return apiFuture;
+	}
+
+	/**
+	 * Record acks or nacks once the request sending them succeeds, so that failed requests aren't
+	 * counted.
+	 * @param apiFuture the future of the request
+	 * @param recorder records the acks or nacks
+	 */
+	private void recordOnSuccess(ApiFuture<Empty> apiFuture, Runnable recorder) {
+		if (this.metrics == PubSubMetrics.NONE) {
+			return;
+		}
+
+		ApiFutures.addCallback(apiFuture, new ApiFutureCallback<Empty>() {
+			@Override
+			public void onFailure(Throwable throwable) {
+				// Failures are reported through the future returned to the caller.
+			}
+
+			@Override
+			public void onSuccess(Empty empty) {
+				recorder.run();
+			}
+		});
+	}
+
+	/**
+	 * Record acks or nacks sent in a batch once the batch's request succeeds.
+	 * @param future the future of the batched ack ID
+	 * @param recorder records the ack or nack
+	 * @return the future
+	 */
+	private ListenableFuture<Void> recordOnSuccess(ListenableFuture<Void> future, Runnable recorder) {
+		if (this.metrics != PubSubMetrics.NONE) {
+			future.addCallback(result -> recorder.run(), failure -> { });
+		}
+		return future;
 	}
 
 	private static abstract class AbstractBasicAcknowledgeablePubsubMessage
@@ -355,7 +698,15 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 
 		@Override
 		public ListenableFuture<Void> ack() {
-			return PubSubSubscriberTemplate.this.ack(Collections.singleton(this));
+			AcknowledgementBatcher batcher = PubSubSubscriberTemplate.this.acknowledgementBatcher;
+			if (batcher == null) {
+				return PubSubSubscriberTemplate.this.ack(Collections.singleton(this));
+			}
+
+			releaseLeases(Collections.singleton(this.ackId), 0);
+			String subscription = getProjectSubscriptionName().getSubscription();
+			return recordOnSuccess(batcher.ack(subscription, this.ackId),
+					() -> PubSubSubscriberTemplate.this.metrics.messagesAcked(subscription, 1));
 		}
 
 		@Override
@@ -365,7 +716,18 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 
 		@Override
 		public ListenableFuture<Void> modifyAckDeadline(int ackDeadlineSeconds) {
-			return PubSubSubscriberTemplate.this.modifyAckDeadline(Collections.singleton(this), ackDeadlineSeconds);
+			AcknowledgementBatcher batcher = PubSubSubscriberTemplate.this.acknowledgementBatcher;
+			if (batcher == null) {
+				return PubSubSubscriberTemplate.this.modifyAckDeadline(Collections.singleton(this), ackDeadlineSeconds);
+			}
+
+			releaseLeases(Collections.singleton(this.ackId), ackDeadlineSeconds);
+			String subscription = getProjectSubscriptionName().getSubscription();
+			ListenableFuture<Void> future = batcher.modifyAckDeadline(subscription, this.ackId, ackDeadlineSeconds);
+			if (ackDeadlineSeconds == 0) {
+				recordOnSuccess(future, () -> PubSubSubscriberTemplate.this.metrics.messagesNacked(subscription, 1));
+			}
+			return future;
 		}
 
 		@Override
@@ -379,7 +741,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		}
 	}
 
-	private static class PushedAcknowledgeablePubsubMessage extends AbstractBasicAcknowledgeablePubsubMessage {
+	private class PushedAcknowledgeablePubsubMessage extends AbstractBasicAcknowledgeablePubsubMessage {
 
 		private final AckReplyConsumer ackReplyConsumer;
 
@@ -395,6 +757,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 
 			try {
 				this.ackReplyConsumer.ack();
+				PubSubSubscriberTemplate.this.metrics.messagesAcked(getProjectSubscriptionName().getSubscription(), 1);
 				settableListenableFuture.set(null);
 			}
 			catch (Throwable throwable) {
@@ -410,6 +773,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 
 			try {
 				this.ackReplyConsumer.nack();
+				PubSubSubscriberTemplate.this.metrics.messagesNacked(getProjectSubscriptionName().getSubscription(), 1);
 				settableListenableFuture.set(null);
 			}
 			catch (Throwable throwable) {
@@ -434,8 +798,9 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 
 		private final T payload;
 
-		ConvertedPulledAcknowledgeablePubsubMessage(AcknowledgeablePubsubMessage message, T payload) {
-			super(message.getProjectSubscriptionName(), message.getPubsubMessage(), message.getAckId());
+		ConvertedPulledAcknowledgeablePubsubMessage(ProjectSubscriptionName projectSubscriptionName,
+				PubsubMessage message, String ackId, T payload) {
+			super(projectSubscriptionName, message, ackId);
 
 			this.payload = payload;
 		}
@@ -446,7 +811,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations {
 		}
 	}
 
-	private static class ConvertedPushedAcknowledgeablePubsubMessage<T> extends PushedAcknowledgeablePubsubMessage
+	private class ConvertedPushedAcknowledgeablePubsubMessage<T> extends PushedAcknowledgeablePubsubMessage
 			implements ConvertedBasicAcknowledgeablePubsubMessage<T> {
 
 		private final T payload;
@@ -0,0 +1,166 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.integration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.util.PatternMatchUtils;
+
+/**
+ * Decides whether a header is mapped by a list of header patterns, the same way as
+ * {@link org.springframework.integration.support.utils.PatternMatchUtils#smartMatch(String, String...)}:
+ * the first pattern that matches the header name decides, and patterns starting with {@code !} exclude
+ * the headers they match. A {@code \} at the start of a pattern escapes a leading {@code !}.
+ *
+ * <p>The patterns are compiled once: names without wildcards are looked up in a hash map, names
+ * ending with a single {@code *} in a prefix trie, and only the remaining patterns are matched one
+ * by one. The decisions are cached per header name.
+ */
+final class HeaderPatternMatcher {
+
+	private static final int MAX_CACHED_DECISIONS = 1024;
+
+	private static final int NO_MATCH = Integer.MAX_VALUE;
+
+	private final boolean[] negated;
+
+	private final Map<String, Integer> exactPatterns = new HashMap<>();
+
+	private final PrefixNode prefixPatterns = new PrefixNode();
+
+	private final List<String> wildcardPatterns = new ArrayList<>();
+
+	private final List<Integer> wildcardPatternIndexes = new ArrayList<>();
+
+	private final int matchAllIndex;
+
+	private final boolean matchesAll;
+
+	private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+	HeaderPatternMatcher(String... patterns) {
+		this.negated = new boolean[patterns.length];
+		int firstMatchAll = NO_MATCH;
+
+		for (int i = 0; i < patterns.length; i++) {
+			String pattern = patterns[i];
+			if (pattern.startsWith("!")) {
+				this.negated[i] = true;
+				pattern = pattern.substring(1);
+			}
+			else if (pattern.startsWith("\\")) {
+				pattern = pattern.substring(1);
+			}
+
+			int wildcard = pattern.indexOf('*');
+			if (wildcard < 0) {
+				this.exactPatterns.putIfAbsent(pattern, i);
+			}
+			else if (pattern.length() == 1) {
+				firstMatchAll = Math.min(firstMatchAll, i);
+			}
+			else if (wildcard == pattern.length() - 1) {
+				this.prefixPatterns.add(pattern.substring(0, wildcard), i);
+			}
+			else {
+				this.wildcardPatterns.add(pattern);
+				this.wildcardPatternIndexes.add(i);
+			}
+		}
+
+		this.matchAllIndex = firstMatchAll;
+		this.matchesAll = firstMatchAll == 0 && !this.negated[0];
+	}
+
+	/**
+	 * Return whether every header is mapped, so headers can be copied without matching them.
+	 * @return true if the first pattern maps every header
+	 */
+	boolean matchesAll() {
+		return this.matchesAll;
+	}
+
+	/**
+	 * Return whether a header is mapped.
+	 * @param headerName the name of the header
+	 * @return true if the first pattern matching the header doesn't exclude it, false if it does or
+	 * if no pattern matches the header
+	 */
+	boolean matches(String headerName) {
+		if (this.matchesAll) {
+			return true;
+		}
+
+		Boolean decision = this.decisions.get(headerName);
+		if (decision == null) {
+			decision = decide(headerName);
+			if (this.decisions.size() < MAX_CACHED_DECISIONS) {
+				this.decisions.put(headerName, decision);
+			}
+		}
+		return decision;
+	}
+
+	private boolean decide(String headerName) {
+		int first = Math.min(this.matchAllIndex,
+				Math.min(this.exactPatterns.getOrDefault(headerName, NO_MATCH),
+						this.prefixPatterns.firstMatch(headerName)));
+
+		for (int i = 0; i < this.wildcardPatterns.size() && this.wildcardPatternIndexes.get(i) < first; i++) {
+			if (PatternMatchUtils.simpleMatch(this.wildcardPatterns.get(i), headerName)) {
+				first = this.wildcardPatternIndexes.get(i);
+			}
+		}
+
+		return first != NO_MATCH && !this.negated[first];
+	}
+
+	/**
+	 * A node of the trie of the patterns made of a prefix followed by {@code *}.
+	 */
+	private static final class PrefixNode {
+
+		private final Map<Character, PrefixNode> children = new HashMap<>();
+
+		private int patternIndex = NO_MATCH;
+
+		void add(String prefix, int index) {
+			PrefixNode node = this;
+			for (int i = 0; i < prefix.length(); i++) {
+				node = node.children.computeIfAbsent(prefix.charAt(i), key -> new PrefixNode());
+			}
+			node.patternIndex = Math.min(node.patternIndex, index);
+		}
+
+		int firstMatch(String headerName) {
+			int first = this.patternIndex;
+			PrefixNode node = this;
+			for (int i = 0; i < headerName.length() && node != null; i++) {
+				node = node.children.get(headerName.charAt(i));
+				if (node != null) {
+					first = Math.min(first, node.patternIndex);
+				}
+			}
+			return first;
+		}
+	}
+
+}
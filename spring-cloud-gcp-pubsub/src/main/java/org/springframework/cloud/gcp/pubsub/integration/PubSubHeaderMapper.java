@@ -16,13 +16,11 @@
 
 package org.springframework.cloud.gcp.pubsub.integration;
 
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
 import org.springframework.integration.mapping.HeaderMapper;
-import org.springframework.integration.support.utils.PatternMatchUtils;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.NativeMessageHeaderAccessor;
 import org.springframework.util.Assert;
@@ -33,7 +31,12 @@ import org.springframework.util.Assert;
  *
  * <p>By default, filters out headers called "id", "timestamp", "gcp_pubsub_acknowledgement" or
  * "nativeHeaders" on the {@link org.springframework.messaging.Message} to
- * {@link com.google.pubsub.v1.PubsubMessage} header conversion.
+ * {@link com.google.pubsub.v1.PubsubMessage} header conversion. Other headers, including
+ * {@link GcpPubSubHeaders#ORDERING_KEY}, are mapped to attributes of the same name; custom outbound
+ * header patterns should keep matching the ordering key header for messages to be published in order.
+ *
+ * <p>The header patterns are compiled when they are set, so mapping a header usually costs a hash
+ * lookup, and mapping every inbound header, the default, is a plain copy.
  *
  * @author João André Martins
  */
@@ -43,18 +46,18 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 	 * Patterns of headers to map in {@link #fromHeaders(MessageHeaders, Map)}.
 	 * First patterns take precedence.
 	 */
-	private String[] outboundHeaderPatterns = {
+	private HeaderPatternMatcher outboundHeaderMatcher = new HeaderPatternMatcher(
 			"!" + MessageHeaders.ID,
 			"!" + MessageHeaders.TIMESTAMP,
 			"!" + GcpPubSubHeaders.ACKNOWLEDGEMENT,
 			"!" + NativeMessageHeaderAccessor.NATIVE_HEADERS,
-			"*"};
+			"*");
 
 	/**
 	 * Patterns of headers to map in {@link #toHeaders(Map)}.
 	 * First patterns take precedence.
 	 */
-	private String[] inboundHeaderPatterns = {"*"};
+	private HeaderPatternMatcher inboundHeaderMatcher = new HeaderPatternMatcher("*");
 
 	/**
 	 * Set the patterns of the headers to be mapped in {@link #fromHeaders(MessageHeaders, Map)}.
@@ -64,8 +67,7 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 	public void setOutboundHeaderPatterns(String... outboundHeaderPatterns) {
 		Assert.notNull(outboundHeaderPatterns, "Header patterns can't be null.");
 		Assert.noNullElements(outboundHeaderPatterns, "No header pattern can be null.");
-		this.outboundHeaderPatterns =
-				Arrays.copyOf(outboundHeaderPatterns, outboundHeaderPatterns.length);
+		this.outboundHeaderMatcher = new HeaderPatternMatcher(outboundHeaderPatterns);
 	}
 
 	/**
@@ -76,8 +78,7 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 	public void setInboundHeaderPatterns(String... inboundHeaderPatterns) {
 		Assert.notNull(inboundHeaderPatterns, "Header patterns can't be null.");
 		Assert.noNullElements(inboundHeaderPatterns, "No header pattern can be null.");
-		this.inboundHeaderPatterns =
-				Arrays.copyOf(inboundHeaderPatterns, inboundHeaderPatterns.length);
+		this.inboundHeaderMatcher = new HeaderPatternMatcher(inboundHeaderPatterns);
 	}
 
 	/**
@@ -90,12 +91,12 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 	@Override
 	public void fromHeaders(MessageHeaders messageHeaders,
 			final Map<String, String> pubsubMessageHeaders) {
-		messageHeaders.entrySet().stream()
-				.filter(entry -> Boolean.TRUE.equals(
-						PatternMatchUtils.smartMatch(entry.getKey(),
-								this.outboundHeaderPatterns)))
-				.forEach(entry -> pubsubMessageHeaders.put(
-						entry.getKey(), entry.getValue().toString()));
+		HeaderPatternMatcher matcher = this.outboundHeaderMatcher;
+		for (Map.Entry<String, Object> entry : messageHeaders.entrySet()) {
+			if (matcher.matches(entry.getKey())) {
+				pubsubMessageHeaders.put(entry.getKey(), entry.getValue().toString());
+			}
+		}
 	}
 
 	/**
@@ -107,10 +108,17 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 	 */
 	@Override
 	public Map<String, Object> toHeaders(Map<String, String> pubsubMessageHeaders) {
-		return pubsubMessageHeaders.entrySet().stream()
-				.filter(entry -> Boolean.TRUE.equals(
-						PatternMatchUtils.smartMatch(entry.getKey(),
-								this.inboundHeaderPatterns)))
-				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+		HeaderPatternMatcher matcher = this.inboundHeaderMatcher;
+		if (matcher.matchesAll()) {
+			return new HashMap<>(pubsubMessageHeaders);
+		}
+
+		Map<String, Object> headers = new HashMap<>();
+		for (Map.Entry<String, String> entry : pubsubMessageHeaders.entrySet()) {
+			if (matcher.matches(entry.getKey())) {
+				headers.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return headers;
 	}
 }
@@ -16,36 +16,72 @@
 
 package org.springframework.cloud.gcp.pubsub.integration.inbound;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.Subscriber;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.cloud.gcp.pubsub.core.PubSubException;
 import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
 import org.springframework.cloud.gcp.pubsub.integration.AckMode;
 import org.springframework.cloud.gcp.pubsub.integration.PubSubHeaderMapper;
+import org.springframework.cloud.gcp.pubsub.support.BasicAcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
 import org.springframework.integration.endpoint.MessageProducerSupport;
 import org.springframework.integration.mapping.HeaderMapper;
 import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
 
 /**
  * Converts from GCP Pub/Sub message to Spring message and sends the Spring message to the
  * attached channels.
  *
+ * <p>With a {@link #setBatchSize(int) batch size} greater than 1, up to that many messages, or the
+ * messages received within the {@link #setBatchTimeout(long) batch timeout}, are sent as a single
+ * message with a {@link List} of the payloads. The headers of the individual messages are in the
+ * {@link GcpPubSubHeaders#BATCH_HEADERS} header, and the messages of a batch are acknowledged
+ * together.
+ *
+ * <p>In {@link AckMode#AUTO}, messages that fail to be sent are nacked right away, unless a
+ * {@link #setFailureHandler(BiConsumer) failure handler} takes care of them instead. The failure
+ * is then only logged, rather than thrown back to the subscriber, which would nack the messages.
+ *
+ * <p>The time taken to send every message downstream, and whether it failed, is reported to the
+ * {@link #setMetrics(PubSubMetrics) metrics} of the adapter.
+ *
  * @author João André Martins
  * @author Mike Eltsufin
  * @author Doug Hoard
  */
 public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 
+	private static final Log LOGGER = LogFactory.getLog(PubSubInboundChannelAdapter.class);
+
+	private static final long DEFAULT_BATCH_TIMEOUT = 1000;
+
 	private final String subscriptionName;
 
 	private final PubSubSubscriberOperations pubSubSubscriberOperations;
 
+	private final Object batchMonitor = new Object();
+
 	private Subscriber subscriber;
 
 	private AckMode ackMode = AckMode.AUTO;
@@ -54,6 +90,20 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 
 	private Class payloadType = byte[].class;
 
+	private int batchSize = 1;
+
+	private long batchTimeout = DEFAULT_BATCH_TIMEOUT;
+
+	private List<ConvertedBasicAcknowledgeablePubsubMessage> batch = new ArrayList<>();
+
+	private ScheduledFuture<?> batchTimeoutFuture;
+
+	private BiConsumer<BasicAcknowledgeablePubsubMessage, Throwable> failureHandler;
+
+	private Predicate<BasicAcknowledgeablePubsubMessage> messageFilter;
+
+	private PubSubMetrics metrics = PubSubMetrics.NONE;
+
 	public PubSubInboundChannelAdapter(PubSubSubscriberOperations pubSubSubscriberOperations, String subscriptionName) {
 		Assert.notNull(pubSubSubscriberOperations, "Pub/Sub subscriber template can't be null.");
 		Assert.notNull(subscriptionName, "Pub/Sub subscription name can't be null.");
@@ -98,10 +148,96 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 		this.headerMapper = headerMapper;
 	}
 
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Set the maximum number of Pub/Sub messages sent downstream as a single message. The default,
+	 * 1, sends every Pub/Sub message as a message of its own.
+	 * @param batchSize the maximum number of messages in a batch
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "The batch size must be positive.");
+		this.batchSize = batchSize;
+	}
+
+	public long getBatchTimeout() {
+		return this.batchTimeout;
+	}
+
+	/**
+	 * Set the time in milliseconds after the first message of a batch was received at which the
+	 * batch is sent, even if it isn't full. Defaults to 1000 milliseconds.
+	 * <p>Batches are sent from the {@link TaskScheduler} of the adapter when they time out.
+	 * @param batchTimeout the batch timeout in milliseconds
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		Assert.isTrue(batchTimeout > 0, "The batch timeout must be positive.");
+		this.batchTimeout = batchTimeout;
+	}
+
+	public BiConsumer<BasicAcknowledgeablePubsubMessage, Throwable> getFailureHandler() {
+		return this.failureHandler;
+	}
+
+	/**
+	 * Set the handler of the Pub/Sub messages whose Spring message failed to be sent in
+	 * {@link AckMode#AUTO}, called with each message and the failure. The handler then decides
+	 * when to ack or nack the messages, instead of the adapter nacking them right away. The
+	 * failure isn't thrown back to the subscriber, so the messages stay leased until the handler
+	 * acks or nacks them.
+	 * @param failureHandler the handler of failed messages, or {@code null} to nack them
+	 */
+	public void setFailureHandler(BiConsumer<BasicAcknowledgeablePubsubMessage, Throwable> failureHandler) {
+		this.failureHandler = failureHandler;
+	}
+
+	public Predicate<BasicAcknowledgeablePubsubMessage> getMessageFilter() {
+		return this.messageFilter;
+	}
+
+	/**
+	 * Set the filter of the received Pub/Sub messages. Messages it rejects are acked without
+	 * being sent downstream.
+	 * @param messageFilter the filter of received messages, or {@code null} to send every message
+	 */
+	public void setMessageFilter(Predicate<BasicAcknowledgeablePubsubMessage> messageFilter) {
+		this.messageFilter = messageFilter;
+	}
+
+	public PubSubMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Set the metrics that the delivery of messages downstream is reported to. Defaults to the
+	 * {@link PubSubMetrics} bean of the application context, if there's exactly one.
+	 * @param metrics the metrics
+	 */
+	public void setMetrics(PubSubMetrics metrics) {
+		Assert.notNull(metrics, "The metrics can't be null.");
+		this.metrics = metrics;
+	}
+
+	@Override
+	protected void onInit() {
+		super.onInit();
+
+		BeanFactory beanFactory = getBeanFactory();
+		if (this.metrics == PubSubMetrics.NONE && beanFactory != null) {
+			this.metrics = beanFactory.getBeanProvider(PubSubMetrics.class).getIfUnique(() -> PubSubMetrics.NONE);
+		}
+	}
+
 	@Override
 	protected void doStart() {
 		super.doStart();
 
+		if (this.batchSize > 1) {
+			Assert.state(getTaskScheduler() != null, "A task scheduler is required to send batches.");
+		}
+
 		this.subscriber = this.pubSubSubscriberOperations.subscribeAndConvert(
 				this.subscriptionName, this::consumeMessage, this.payloadType);
 	}
@@ -112,40 +248,185 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 			this.subscriber.stopAsync();
 		}
 
+		// The messages of an incomplete batch were never sent downstream, so get them redelivered.
+		List<ConvertedBasicAcknowledgeablePubsubMessage> unsent;
+		synchronized (this.batchMonitor) {
+			unsent = takeBatch();
+		}
+		unsent.forEach(ConvertedBasicAcknowledgeablePubsubMessage::nack);
+
 		super.doStop();
 	}
 
+	/**
+	 * Wait for the subscriber of a stopped adapter to terminate, so that the resources it uses,
+	 * such as its executor, can be released.
+	 * @param timeout the maximum time to wait
+	 * @param unit the unit of the timeout
+	 * @return false if the subscriber didn't terminate in time, true otherwise
+	 */
+	public boolean awaitSubscriberTermination(long timeout, TimeUnit unit) {
+		Subscriber stoppedSubscriber = this.subscriber;
+		if (stoppedSubscriber == null) {
+			return true;
+		}
+
+		try {
+			stoppedSubscriber.awaitTerminated(timeout, unit);
+		}
+		catch (TimeoutException te) {
+			return false;
+		}
+		catch (IllegalStateException ise) {
+			// The subscriber failed, so it isn't running either.
+		}
+		return true;
+	}
+
 	private void consumeMessage(ConvertedBasicAcknowledgeablePubsubMessage message) {
-		Map<String, Object> messageHeaders =
-				this.headerMapper.toHeaders(message.getPubsubMessage().getAttributesMap());
+		if (this.messageFilter != null && !this.messageFilter.test(message)) {
+			message.ack();
+			return;
+		}
+
+		if (this.batchSize > 1) {
+			addToBatch(message);
+			return;
+		}
+
+		AckReplyConsumer acknowledgement = new AckReplyConsumer() {
+			@Override
+			public void ack() {
+				message.ack();
+			}
+
+			@Override
+			public void nack() {
+				message.nack();
+			}
+		};
+
+		Map<String, Object> messageHeaders = mapHeaders(message);
 
 		if (this.ackMode == AckMode.MANUAL) {
 			// Send the consumer downstream so user decides on when to ack/nack.
-			messageHeaders.put(GcpPubSubHeaders.ACKNOWLEDGEMENT, new AckReplyConsumer() {
-				@Override
-				public void ack() {
-					message.ack();
-				}
+			messageHeaders.put(GcpPubSubHeaders.ACKNOWLEDGEMENT, acknowledgement);
+		}
+
+		deliver(MessageBuilder.withPayload(message.getPayload()).copyHeaders(messageHeaders).build(),
+				acknowledgement, Collections.singletonList(message));
+	}
+
+	private void addToBatch(ConvertedBasicAcknowledgeablePubsubMessage message) {
+		List<ConvertedBasicAcknowledgeablePubsubMessage> fullBatch = null;
+
+		synchronized (this.batchMonitor) {
+			this.batch.add(message);
+			if (this.batch.size() >= this.batchSize) {
+				fullBatch = takeBatch();
+			}
+			else if (this.batch.size() == 1) {
+				List<ConvertedBasicAcknowledgeablePubsubMessage> timedBatch = this.batch;
+				this.batchTimeoutFuture = getTaskScheduler().schedule(() -> sendTimedOutBatch(timedBatch),
+						new Date(System.currentTimeMillis() + this.batchTimeout));
+			}
+		}
+
+		if (fullBatch != null) {
+			sendBatch(fullBatch);
+		}
+	}
 
-				@Override
-				public void nack() {
-					message.nack();
-				}
-			});
+	private void sendTimedOutBatch(List<ConvertedBasicAcknowledgeablePubsubMessage> timedBatch) {
+		List<ConvertedBasicAcknowledgeablePubsubMessage> timedOutBatch = null;
+
+		synchronized (this.batchMonitor) {
+			// The batch may have filled up, and a new one started, while the timeout was due.
+			if (this.batch == timedBatch) {
+				timedOutBatch = takeBatch();
+			}
+		}
+
+		if (timedOutBatch != null && !timedOutBatch.isEmpty()) {
+			sendBatch(timedOutBatch);
+		}
+	}
+
+	/**
+	 * Take the current batch and start a new one. Must be called while holding the batch monitor.
+	 */
+	private List<ConvertedBasicAcknowledgeablePubsubMessage> takeBatch() {
+		List<ConvertedBasicAcknowledgeablePubsubMessage> currentBatch = this.batch;
+		this.batch = new ArrayList<>();
+		if (this.batchTimeoutFuture != null) {
+			this.batchTimeoutFuture.cancel(false);
+			this.batchTimeoutFuture = null;
+		}
+		return currentBatch;
+	}
+
+	private Map<String, Object> mapHeaders(ConvertedBasicAcknowledgeablePubsubMessage message) {
+		Map<String, Object> messageHeaders =
+				this.headerMapper.toHeaders(message.getPubsubMessage().getAttributesMap());
+		// The payload was decoded by the message converter, so the encoding of the data doesn't apply to it.
+		messageHeaders.remove(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+		return messageHeaders;
+	}
+
+	private void sendBatch(List<ConvertedBasicAcknowledgeablePubsubMessage> messages) {
+		List<Object> payloads = new ArrayList<>(messages.size());
+		List<Map<String, Object>> batchHeaders = new ArrayList<>(messages.size());
+		for (ConvertedBasicAcknowledgeablePubsubMessage message : messages) {
+			payloads.add(message.getPayload());
+			batchHeaders.add(mapHeaders(message));
+		}
+
+		AckReplyConsumer acknowledgement = new AckReplyConsumer() {
+			@Override
+			public void ack() {
+				messages.forEach(ConvertedBasicAcknowledgeablePubsubMessage::ack);
+			}
+
+			@Override
+			public void nack() {
+				messages.forEach(ConvertedBasicAcknowledgeablePubsubMessage::nack);
+			}
+		};
+
+		MessageBuilder<List<Object>> batchMessage = MessageBuilder.withPayload(payloads)
+				.setHeader(GcpPubSubHeaders.BATCH_HEADERS, batchHeaders);
+		if (this.ackMode == AckMode.MANUAL) {
+			// Send the consumer downstream so user decides on when to ack/nack the whole batch.
+			batchMessage.setHeader(GcpPubSubHeaders.ACKNOWLEDGEMENT, acknowledgement);
 		}
 
+		deliver(batchMessage.build(), acknowledgement, messages);
+	}
+
+	private void deliver(Message<?> message, AckReplyConsumer acknowledgement,
+			List<ConvertedBasicAcknowledgeablePubsubMessage> pubsubMessages) {
+		long startTime = System.nanoTime();
 		try {
-			sendMessage(MessageBuilder.withPayload(message.getPayload()).copyHeaders(messageHeaders).build());
+			sendMessage(message);
 		}
 		catch (RuntimeException re) {
+			this.metrics.messageDelivered(this.subscriptionName, System.nanoTime() - startTime, re);
+			if (this.ackMode == AckMode.AUTO && this.failureHandler != null) {
+				// Throwing to the subscriber would nack the messages, and stop it from extending
+				// their ack deadlines, before the failure handler gets to ack or nack them.
+				LOGGER.warn("Sending Spring message failed; passing it to the failure handler.", re);
+				pubsubMessages.forEach(pubsubMessage -> this.failureHandler.accept(pubsubMessage, re));
+				return;
+			}
 			if (this.ackMode == AckMode.AUTO) {
-				message.nack();
+				acknowledgement.nack();
 			}
 			throw new PubSubException("Sending Spring message failed.", re);
 		}
+		this.metrics.messageDelivered(this.subscriptionName, System.nanoTime() - startTime, null);
 
 		if ((this.ackMode == AckMode.AUTO) || (this.ackMode == AckMode.AUTO_ACK)) {
-			message.ack();
+			acknowledgement.ack();
 		}
 	}
 
@@ -0,0 +1,254 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.integration.inbound;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
+import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+import org.springframework.cloud.gcp.pubsub.integration.PubSubHeaderMapper;
+import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.integration.endpoint.AbstractMessageSource;
+import org.springframework.integration.mapping.HeaderMapper;
+import org.springframework.integration.support.AbstractIntegrationMessageBuilder;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link org.springframework.integration.core.MessageSource} that synchronously pulls messages
+ * from a Google Cloud Pub/Sub subscription, for use with pollable channels and pollers.
+ *
+ * <p>Each pull requests up to {@link #setMaxMessages(int) the maximum number of messages}; the
+ * messages beyond the first are buffered and returned by the next polls before pulling again.
+ * Buffered messages keep counting against their acknowledgement deadline, so the maximum number of
+ * messages should be small enough for them to be processed within it.
+ *
+ * <p>Received messages carry an {@link AcknowledgmentCallback}, so the poller acks them once they
+ * were handled and nacks them if handling failed, depending on the {@link AckMode}:
+ * <ul>
+ * <li>{@link AckMode#AUTO} acks handled messages and nacks failed ones.
+ * <li>{@link AckMode#AUTO_ACK} acks handled messages and leaves failed ones for redelivery after
+ * their acknowledgement deadline.
+ * <li>{@link AckMode#MANUAL} leaves acking to the application, through the callback or the
+ * {@link AckReplyConsumer} in the {@link GcpPubSubHeaders#ACKNOWLEDGEMENT} header.
+ * </ul>
+ *
+ * @since 1.1
+ */
+public class PubSubMessageSource extends AbstractMessageSource<Object> {
+
+	private final PubSubSubscriberOperations pubSubSubscriberOperations;
+
+	private final String subscriptionName;
+
+	private final Queue<ConvertedAcknowledgeablePubsubMessage<?>> bufferedMessages = new ConcurrentLinkedQueue<>();
+
+	private int maxMessages = 1;
+
+	private boolean blockOnPull;
+
+	private AckMode ackMode = AckMode.AUTO;
+
+	private HeaderMapper<Map<String, String>> headerMapper = new PubSubHeaderMapper();
+
+	private Class<?> payloadType = byte[].class;
+
+	public PubSubMessageSource(PubSubSubscriberOperations pubSubSubscriberOperations, String subscriptionName) {
+		Assert.notNull(pubSubSubscriberOperations, "Pub/Sub subscriber template can't be null.");
+		Assert.notNull(subscriptionName, "Pub/Sub subscription name can't be null.");
+		this.pubSubSubscriberOperations = pubSubSubscriberOperations;
+		this.subscriptionName = subscriptionName;
+	}
+
+	public int getMaxMessages() {
+		return this.maxMessages;
+	}
+
+	/**
+	 * Set the maximum number of messages requested by a pull. Messages beyond the first one are
+	 * buffered for the next polls. Defaults to 1.
+	 * @param maxMessages the maximum number of messages pulled at once
+	 */
+	public void setMaxMessages(int maxMessages) {
+		Assert.isTrue(maxMessages > 0, "The maximum number of messages must be positive.");
+		this.maxMessages = maxMessages;
+	}
+
+	public boolean isBlockOnPull() {
+		return this.blockOnPull;
+	}
+
+	/**
+	 * Set whether a pull waits for messages to be available in the subscription, rather than
+	 * returning right away when there are none. Defaults to false.
+	 * @param blockOnPull true to wait for messages when pulling
+	 */
+	public void setBlockOnPull(boolean blockOnPull) {
+		this.blockOnPull = blockOnPull;
+	}
+
+	public AckMode getAckMode() {
+		return this.ackMode;
+	}
+
+	public void setAckMode(AckMode ackMode) {
+		Assert.notNull(ackMode, "The acknowledgement mode can't be null.");
+		this.ackMode = ackMode;
+	}
+
+	public Class<?> getPayloadType() {
+		return this.payloadType;
+	}
+
+	/**
+	 * Set the desired type of the payload of the {@link org.springframework.messaging.Message}s
+	 * produced by the message source. The default payload type is {@code byte[].class}.
+	 * @param payloadType the type of the payload of the received messages
+	 */
+	public void setPayloadType(Class<?> payloadType) {
+		Assert.notNull(payloadType, "The payload type cannot be null.");
+		this.payloadType = payloadType;
+	}
+
+	/**
+	 * Set the header mapper to map headers from incoming {@link com.google.pubsub.v1.PubsubMessage}
+	 * into {@link org.springframework.messaging.Message}.
+	 * @param headerMapper the header mapper
+	 */
+	public void setHeaderMapper(HeaderMapper<Map<String, String>> headerMapper) {
+		Assert.notNull(headerMapper, "The header mapper can't be null.");
+		this.headerMapper = headerMapper;
+	}
+
+	/**
+	 * Return the number of pulled messages waiting to be returned by the next polls.
+	 * @return the number of buffered messages
+	 */
+	public int getBufferedMessageCount() {
+		return this.bufferedMessages.size();
+	}
+
+	@Override
+	public String getComponentType() {
+		return "gcp-pubsub:message-source";
+	}
+
+	@Override
+	protected Object doReceive() {
+		ConvertedAcknowledgeablePubsubMessage<?> message = this.bufferedMessages.poll();
+		if (message == null) {
+			List<? extends ConvertedAcknowledgeablePubsubMessage<?>> messages =
+					this.pubSubSubscriberOperations.pullAndConvert(this.subscriptionName, this.maxMessages,
+							!this.blockOnPull, this.payloadType);
+			if (messages.isEmpty()) {
+				return null;
+			}
+			message = messages.get(0);
+			this.bufferedMessages.addAll(messages.subList(1, messages.size()));
+		}
+
+		try {
+			return toMessageBuilder(message);
+		}
+		catch (RuntimeException ex) {
+			// The message never reaches the poller, so redeliver it rather than extend its lease.
+			message.nack();
+			throw ex;
+		}
+	}
+
+	private AbstractIntegrationMessageBuilder<?> toMessageBuilder(ConvertedAcknowledgeablePubsubMessage<?> message) {
+		Map<String, Object> messageHeaders =
+				this.headerMapper.toHeaders(message.getPubsubMessage().getAttributesMap());
+		// The payload was decoded by the message converter, so the encoding of the data doesn't apply to it.
+		messageHeaders.remove(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+		PubSubAcknowledgmentCallback acknowledgmentCallback = new PubSubAcknowledgmentCallback(message);
+
+		if (this.ackMode == AckMode.MANUAL) {
+			// Send the consumer downstream so user decides on when to ack/nack.
+			messageHeaders.put(GcpPubSubHeaders.ACKNOWLEDGEMENT, acknowledgmentCallback);
+		}
+
+		return getMessageBuilderFactory()
+				.withPayload(message.getPayload())
+				.copyHeaders(messageHeaders)
+				.setHeader(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK, acknowledgmentCallback);
+	}
+
+	/**
+	 * Acknowledges a received message through the poller's {@link AcknowledgmentCallback}, or
+	 * directly as an {@link AckReplyConsumer}.
+	 */
+	private final class PubSubAcknowledgmentCallback implements AcknowledgmentCallback, AckReplyConsumer {
+
+		private final ConvertedAcknowledgeablePubsubMessage<?> message;
+
+		private volatile boolean acknowledged;
+
+		private volatile boolean autoAck = PubSubMessageSource.this.ackMode != AckMode.MANUAL;
+
+		PubSubAcknowledgmentCallback(ConvertedAcknowledgeablePubsubMessage<?> message) {
+			this.message = message;
+		}
+
+		@Override
+		public void acknowledge(Status status) {
+			if (status == Status.ACCEPT) {
+				ack();
+			}
+			else if (PubSubMessageSource.this.ackMode != AckMode.AUTO_ACK || !this.autoAck) {
+				nack();
+			}
+		}
+
+		@Override
+		public void ack() {
+			this.message.ack();
+			this.acknowledged = true;
+		}
+
+		@Override
+		public void nack() {
+			this.message.nack();
+			this.acknowledged = true;
+		}
+
+		@Override
+		public boolean isAcknowledged() {
+			return this.acknowledged;
+		}
+
+		@Override
+		public void noAutoAck() {
+			this.autoAck = false;
+		}
+
+		@Override
+		public boolean isAutoAck() {
+			return this.autoAck;
+		}
+	}
+
+}
@@ -18,6 +18,7 @@ package org.springframework.cloud.gcp.pubsub.integration.outbound;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherOperations;
@@ -26,11 +27,20 @@ import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.common.LiteralExpression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.integration.MessageTimeoutException;
 import org.springframework.integration.expression.ExpressionUtils;
 import org.springframework.integration.expression.ValueExpression;
 import org.springframework.integration.handler.AbstractMessageHandler;
 import org.springframework.integration.mapping.HeaderMapper;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.support.ErrorMessage;
 import org.springframework.util.Assert;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
@@ -41,6 +51,16 @@ import org.springframework.util.concurrent.ListenableFutureCallback;
  * <p>It delegates Google Cloud Pub/Sub interaction to
  * {@link org.springframework.cloud.gcp.pubsub.core.PubSubTemplate}.
  *
+ * <p>Messages are published asynchronously by default, or synchronously with
+ * {@link #setSync(boolean)}. In between, {@link #setMaxInFlight(int)} lets up to a number of
+ * publishes be outstanding at once, and only blocks the sending thread while that window is full.
+ * Failed asynchronous publishes are sent to the {@link #setErrorChannel(MessageChannel) error
+ * channel}, if one is set.
+ *
+ * <p>Literal topic and publish timeout expressions are resolved once rather than for every message,
+ * and expressions set from strings are compiled to bytecode once they have been evaluated a few
+ * times.
+ *
  * @author João André Martins
  * @author Mike Eltsufin
  */
@@ -48,26 +68,41 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 
 	private static final long DEFAULT_PUBLISH_TIMEOUT = 10000;
 
+	private static final SpelExpressionParser COMPILING_EXPRESSION_PARSER =
+			new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, null));
+
 	private final PubSubPublisherOperations pubSubPublisherOperations;
 
 	private Expression topicExpression;
 
+	private String literalTopic;
+
 	private boolean sync;
 
 	private EvaluationContext evaluationContext;
 
 	private Expression publishTimeoutExpression = new ValueExpression<>(DEFAULT_PUBLISH_TIMEOUT);
 
+	private Long literalPublishTimeout = DEFAULT_PUBLISH_TIMEOUT;
+
 	private ListenableFutureCallback<String> publishCallback;
 
 	private HeaderMapper<Map<String, String>> headerMapper = new PubSubHeaderMapper();
 
+	private int maxInFlight;
+
+	private Semaphore inFlightWindow;
+
+	private MessageChannel errorChannel;
+
+	private String errorChannelName;
+
 	public PubSubMessageHandler(PubSubPublisherOperations pubSubPublisherOperations, String topic) {
 		Assert.notNull(pubSubPublisherOperations, "Pub/Sub publisher template can't be null.");
 		Assert.hasText(topic, "Pub/Sub topic can't be null or empty.");
 
 		this.pubSubPublisherOperations = pubSubPublisherOperations;
-		this.topicExpression = new LiteralExpression(topic);
+		setTopic(topic);
 	}
 
 	public boolean isSync() {
@@ -97,6 +132,8 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 	public void setPublishTimeoutExpression(Expression publishTimeoutExpression) {
 		Assert.notNull(publishTimeoutExpression, "Publish timeout expression can't be null.");
 		this.publishTimeoutExpression = publishTimeoutExpression;
+		Object literalValue = getLiteralValue(publishTimeoutExpression);
+		this.literalPublishTimeout = (literalValue instanceof Number) ? ((Number) literalValue).longValue() : null;
 	}
 
 	/**
@@ -107,7 +144,7 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 	 */
 	public void setPublishTimeoutExpressionString(String publishTimeoutExpression) {
 		Assert.notNull(publishTimeoutExpression, "Publish timeout expression can't be null.");
-		setPublishTimeoutExpression(EXPRESSION_PARSER.parseExpression(publishTimeoutExpression));
+		setPublishTimeoutExpression(COMPILING_EXPRESSION_PARSER.parseExpression(publishTimeoutExpression));
 	}
 
 	/**
@@ -118,6 +155,56 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 		setPublishTimeoutExpression(new ValueExpression<>(timeoutMillis));
 	}
 
+	public int getMaxInFlight() {
+		return this.maxInFlight;
+	}
+
+	/**
+	 * Set the maximum number of asynchronous publishes that may be outstanding at once.
+	 *
+	 * <p>When the window is full, handling a message blocks until a publish completes, for up to
+	 * the publish timeout. The default, 0, doesn't limit the outstanding publishes. Ignored when
+	 * publishing synchronously.
+	 * @param maxInFlight the maximum number of outstanding publishes, or 0 for no limit
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		Assert.isTrue(maxInFlight >= 0, "The maximum in-flight publishes can't be negative.");
+		this.maxInFlight = maxInFlight;
+		this.inFlightWindow = (maxInFlight > 0) ? new Semaphore(maxInFlight) : null;
+	}
+
+	/**
+	 * Return the number of asynchronous publishes currently outstanding in the window set by
+	 * {@link #setMaxInFlight(int)}, or 0 if there is no window.
+	 * @return the number of outstanding publishes
+	 */
+	public int getInFlightCount() {
+		Semaphore window = this.inFlightWindow;
+		return (window != null) ? this.maxInFlight - window.availablePermits() : 0;
+	}
+
+	public MessageChannel getErrorChannel() {
+		return this.errorChannel;
+	}
+
+	/**
+	 * Set the channel to send an {@link ErrorMessage} to when an asynchronous publish fails.
+	 * @param errorChannel the error channel
+	 */
+	public void setErrorChannel(MessageChannel errorChannel) {
+		this.errorChannel = errorChannel;
+	}
+
+	/**
+	 * Set the name of the channel to send an {@link ErrorMessage} to when an asynchronous publish
+	 * fails, resolved when the adapter is initialized.
+	 * @param errorChannelName the error channel name
+	 */
+	public void setErrorChannelName(String errorChannelName) {
+		Assert.hasText(errorChannelName, "The error channel name can't be null or empty.");
+		this.errorChannelName = errorChannelName;
+	}
+
 	protected ListenableFutureCallback<String> getPublishCallback() {
 		return this.publishCallback;
 	}
@@ -139,7 +226,10 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 	 * @param topicExpression SpEL expression representing the topic name
 	 */
 	public void setTopicExpression(Expression topicExpression) {
+		Assert.notNull(topicExpression, "The topic expression can't be null.");
 		this.topicExpression = topicExpression;
+		Object literalValue = getLiteralValue(topicExpression);
+		this.literalTopic = (literalValue instanceof String) ? (String) literalValue : null;
 	}
 
 	/**
@@ -148,7 +238,7 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 	 */
 	public void setTopic(String topic) {
 		Assert.hasText(topic, "The topic can't be null or empty");
-		this.topicExpression = new LiteralExpression(topic);
+		setTopicExpression(new LiteralExpression(topic));
 	}
 
 	/**
@@ -156,7 +246,7 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 	 * @param topicExpressionString topic expression string
 	 */
 	public void setTopicExpressionString(String topicExpressionString) {
-		this.topicExpression = this.EXPRESSION_PARSER.parseExpression(topicExpressionString);
+		setTopicExpression(COMPILING_EXPRESSION_PARSER.parseExpression(topicExpressionString));
 	}
 
 	/**
@@ -174,22 +264,49 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 		Object payload = message.getPayload();
 		String topic = message.getHeaders().containsKey(GcpPubSubHeaders.TOPIC)
 				? message.getHeaders().get(GcpPubSubHeaders.TOPIC, String.class)
-				: this.topicExpression.getValue(this.evaluationContext, message, String.class);
+				: getTopic(message);
 
 		ListenableFuture<String> pubsubFuture;
 
 		Map<String, String> headers = new HashMap<>();
 		this.headerMapper.fromHeaders(message.getHeaders(), headers);
 
-		pubsubFuture = this.pubSubPublisherOperations.publish(topic, payload, headers);
+		Semaphore window = this.sync ? null : this.inFlightWindow;
+		if (window != null) {
+			acquire(window, message);
+		}
+
+		try {
+			pubsubFuture = this.pubSubPublisherOperations.publish(topic, payload, headers);
+		}
+		catch (RuntimeException ex) {
+			if (window != null) {
+				window.release();
+			}
+			throw ex;
+		}
+
+		if (window != null || (!this.sync && this.errorChannel != null)) {
+			pubsubFuture.addCallback(
+					messageId -> {
+						if (window != null) {
+							window.release();
+						}
+					},
+					ex -> {
+						if (window != null) {
+							window.release();
+						}
+						sendError(message, ex);
+					});
+		}
 
 		if (this.publishCallback != null) {
 			pubsubFuture.addCallback(this.publishCallback);
 		}
 
 		if (this.sync) {
-			Long timeout = this.publishTimeoutExpression.getValue(
-					this.evaluationContext, message, Long.class);
+			Long timeout = getPublishTimeout(message);
 			if (timeout == null || timeout < 0) {
 				pubsubFuture.get();
 			}
@@ -199,9 +316,55 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 		}
 	}
 
+	private void acquire(Semaphore window, Message<?> message) throws InterruptedException {
+		Long timeout = getPublishTimeout(message);
+		if (timeout == null || timeout < 0) {
+			window.acquire();
+		}
+		else if (!window.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+			throw new MessageTimeoutException(message, "Timed out waiting for one of the "
+					+ this.maxInFlight + " in-flight publishes to complete.");
+		}
+	}
+
+	private String getTopic(Message<?> message) {
+		return (this.literalTopic != null) ? this.literalTopic
+				: this.topicExpression.getValue(this.evaluationContext, message, String.class);
+	}
+
+	private Long getPublishTimeout(Message<?> message) {
+		return (this.literalPublishTimeout != null) ? this.literalPublishTimeout
+				: this.publishTimeoutExpression.getValue(this.evaluationContext, message, Long.class);
+	}
+
+	/**
+	 * Return the value of an expression that evaluates to the same value for every message, or
+	 * {@code null} if it depends on the message.
+	 */
+	private static Object getLiteralValue(Expression expression) {
+		Object literalValue = null;
+		if (expression instanceof LiteralExpression || expression instanceof ValueExpression) {
+			literalValue = expression.getValue();
+		}
+		else if (expression instanceof SpelExpression && ((SpelExpression) expression).getAST() instanceof Literal) {
+			literalValue = ((Literal) ((SpelExpression) expression).getAST()).getLiteralValue().getValue();
+		}
+		return literalValue;
+	}
+
+	private void sendError(Message<?> message, Throwable ex) {
+		if (this.errorChannel != null) {
+			this.errorChannel.send(new ErrorMessage(
+					new MessageHandlingException(message, "Failed to publish the message.", ex), message));
+		}
+	}
+
 	@Override
 	protected void onInit() throws Exception {
 		super.onInit();
 		this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
+		if (this.errorChannel == null && this.errorChannelName != null) {
+			this.errorChannel = getChannelResolver().resolveDestination(this.errorChannelName);
+		}
 	}
 }
@@ -0,0 +1,193 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.reactive;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+import org.springframework.util.Assert;
+
+/**
+ * A factory for procuring {@link Flux} instances backed by Google Cloud Pub/Sub subscriptions.
+ *
+ * <p>The produced {@link Flux} instances are backpressure-aware: messages are only pulled while
+ * there is outstanding demand from the downstream subscriber, and the {@code maxMessages} of each
+ * pull request is sized from that outstanding demand. Messages are therefore never pulled ahead of
+ * the consumer, and their ack deadlines don't expire while they wait in a client-side buffer.
+ *
+ * <p>Pulls are executed on the provided {@link Scheduler}, so the blocking pull calls never run on
+ * the subscriber's thread.
+ *
+ * @since 1.1
+ */
+public final class PubSubReactiveFactory {
+
+	/**
+	 * The default upper bound for the number of messages requested by a single pull.
+	 */
+	public static final int DEFAULT_MAX_MESSAGES_PER_PULL = 1000;
+
+	private final PubSubSubscriberOperations subscriberOperations;
+
+	private final Scheduler scheduler;
+
+	private int maxMessagesPerPull = DEFAULT_MAX_MESSAGES_PER_PULL;
+
+	/**
+	 * Instantiate a {@link PubSubReactiveFactory} capable of generating subscription-based streams.
+	 * @param subscriberOperations template for interacting with GCP Pub/Sub subscriber operations
+	 * @param scheduler the {@link Scheduler} on which the pull requests are executed
+	 */
+	public PubSubReactiveFactory(PubSubSubscriberOperations subscriberOperations, Scheduler scheduler) {
+		Assert.notNull(subscriberOperations, "The subscriberOperations can't be null.");
+		Assert.notNull(scheduler, "The scheduler can't be null.");
+
+		this.subscriberOperations = subscriberOperations;
+		this.scheduler = scheduler;
+	}
+
+	public int getMaxMessagesPerPull() {
+		return this.maxMessagesPerPull;
+	}
+
+	/**
+	 * Set the upper bound for the number of messages requested by a single pull, regardless of
+	 * how much demand is outstanding.
+	 * @param maxMessagesPerPull the maximum number of messages per pull request
+	 */
+	public void setMaxMessagesPerPull(int maxMessagesPerPull) {
+		Assert.isTrue(maxMessagesPerPull > 0, "The maxMessagesPerPull must be greater than 0.");
+		this.maxMessagesPerPull = maxMessagesPerPull;
+	}
+
+	/**
+	 * Create an infinite stream {@link Flux} of {@link AcknowledgeablePubsubMessage} objects.
+	 * <p>The {@link Flux} pulls messages only when the downstream subscriber requests them, and
+	 * never asks for more messages than were requested. When the subscription has no messages
+	 * available, it is polled again after {@code pollingPeriodMs} while demand remains.
+	 * <p>The messages are not acknowledged automatically; the subscriber is expected to (n)ack
+	 * each message once it is processed.
+	 * @param subscriptionName the name of the subscription to pull messages from
+	 * @param pollingPeriodMs how long to wait before polling an empty subscription again, in
+	 * milliseconds
+	 * @return infinite stream of {@link AcknowledgeablePubsubMessage} objects
+	 */
+	public Flux<AcknowledgeablePubsubMessage> poll(String subscriptionName, long pollingPeriodMs) {
+		Assert.hasText(subscriptionName, "The subscriptionName can't be null or empty.");
+		Assert.isTrue(pollingPeriodMs > 0, "The pollingPeriodMs must be greater than 0.");
+
+		return Flux.create(sink -> {
+			DemandDrivenPuller puller = new DemandDrivenPuller(subscriptionName, pollingPeriodMs, sink);
+			sink.onRequest(puller::request);
+			sink.onDispose(puller::dispose);
+		});
+	}
+
+	/**
+	 * Pulls messages on behalf of a single {@link FluxSink}, one pull at a time, for as long as the
+	 * sink has outstanding demand.
+	 */
+	private final class DemandDrivenPuller {
+
+		private final String subscriptionName;
+
+		private final long pollingPeriodMs;
+
+		private final FluxSink<AcknowledgeablePubsubMessage> sink;
+
+		private final AtomicLong demand = new AtomicLong();
+
+		private final AtomicBoolean pulling = new AtomicBoolean();
+
+		private volatile Disposable scheduledPull;
+
+		DemandDrivenPuller(String subscriptionName, long pollingPeriodMs,
+				FluxSink<AcknowledgeablePubsubMessage> sink) {
+			this.subscriptionName = subscriptionName;
+			this.pollingPeriodMs = pollingPeriodMs;
+			this.sink = sink;
+		}
+
+		void request(long requested) {
+			this.demand.getAndUpdate(current -> Operators.addCap(current, requested));
+			schedulePull(0);
+		}
+
+		void dispose() {
+			Disposable pull = this.scheduledPull;
+			if (pull != null) {
+				pull.dispose();
+			}
+		}
+
+		private void schedulePull(long delayMs) {
+			if (!this.sink.isCancelled() && this.pulling.compareAndSet(false, true)) {
+				this.scheduledPull = (delayMs > 0)
+						? PubSubReactiveFactory.this.scheduler.schedule(this::pull, delayMs, TimeUnit.MILLISECONDS)
+						: PubSubReactiveFactory.this.scheduler.schedule(this::pull);
+			}
+		}
+
+		private void pull() {
+			while (!this.sink.isCancelled() && this.demand.get() > 0) {
+				int maxMessages = (int) Math.min(this.demand.get(),
+						PubSubReactiveFactory.this.maxMessagesPerPull);
+
+				List<AcknowledgeablePubsubMessage> messages;
+				try {
+					messages = PubSubReactiveFactory.this.subscriberOperations.pull(
+							this.subscriptionName, maxMessages, true);
+				}
+				catch (RuntimeException ex) {
+					this.sink.error(ex);
+					return;
+				}
+
+				if (messages.isEmpty()) {
+					// Nothing available right now; keep the demand and poll again later.
+					this.pulling.set(false);
+					schedulePull(this.pollingPeriodMs);
+					return;
+				}
+
+				messages.forEach(this.sink::next);
+
+				if (this.demand.get() != Long.MAX_VALUE) {
+					this.demand.addAndGet(-messages.size());
+				}
+			}
+
+			this.pulling.set(false);
+
+			// Demand may have arrived after the loop condition was checked.
+			if (this.demand.get() > 0) {
+				schedulePull(0);
+			}
+		}
+	}
+
+}
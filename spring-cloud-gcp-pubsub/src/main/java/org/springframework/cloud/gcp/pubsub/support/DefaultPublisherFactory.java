@@ -17,8 +17,10 @@
 package org.springframework.cloud.gcp.pubsub.support;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.core.CredentialsProvider;
@@ -39,6 +41,11 @@ import org.springframework.util.Assert;
  *
  * <p>Creates {@link Publisher}s for topics once, caches and reuses them.
  *
+ * <p>By default, a single {@link Publisher} is used per topic. For topics whose throughput
+ * exceeds what a single {@link Publisher} can batch and send, a pool of publishers can be
+ * configured with {@link #setPoolSize(String, int)}. Messages without a key are then spread
+ * round-robin across the pool, and messages with a key always go to the same publisher.
+ *
  * @author João André Martins
  */
 public class DefaultPublisherFactory implements PublisherFactory {
@@ -46,9 +53,13 @@ public class DefaultPublisherFactory implements PublisherFactory {
 	private final String projectId;
 
 	/**
-	 * {@link Publisher} cache, enforces only one {@link Publisher} per PubSub topic exists.
+	 * {@link Publisher} cache, enforces only one pool of {@link Publisher}s per PubSub topic exists.
 	 */
-	private final ConcurrentHashMap<String, Publisher> publishers = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, PublisherPool> publisherPools = new ConcurrentHashMap<>();
+
+	private final Map<String, Integer> topicPoolSizes = new ConcurrentHashMap<>();
+
+	private int poolSize = 1;
 
 	private ExecutorProvider executorProvider;
 
@@ -62,6 +73,10 @@ public class DefaultPublisherFactory implements PublisherFactory {
 
 	private BatchingSettings batchingSettings;
 
+	private final Map<String, RetrySettings> topicRetrySettings = new ConcurrentHashMap<>();
+
+	private final Map<String, BatchingSettings> topicBatchingSettings = new ConcurrentHashMap<>();
+
 	/**
 	 * Create {@link DefaultPublisherFactory} instance based on the provided {@link GcpProjectIdProvider}.
 	 *
@@ -119,48 +134,141 @@ public class DefaultPublisherFactory implements PublisherFactory {
 		this.batchingSettings = batchingSettings;
 	}
 
+	/**
+	 * Set the API call retry configuration of a topic, overriding the one set by
+	 * {@link #setRetrySettings(RetrySettings)}. Only affects publishers that haven't been created yet.
+	 */
+	public void setRetrySettings(String topic, RetrySettings retrySettings) {
+		Assert.hasText(topic, "The topic can't be null or empty.");
+		Assert.notNull(retrySettings, "The retry settings can't be null.");
+		this.topicRetrySettings.put(topic, retrySettings);
+	}
+
+	/**
+	 * Set the API call batching and flow control configuration of a topic, overriding the one set
+	 * by {@link #setBatchingSettings(BatchingSettings)}. Only affects publishers that haven't been
+	 * created yet.
+	 */
+	public void setBatchingSettings(String topic, BatchingSettings batchingSettings) {
+		Assert.hasText(topic, "The topic can't be null or empty.");
+		Assert.notNull(batchingSettings, "The batching settings can't be null.");
+		this.topicBatchingSettings.put(topic, batchingSettings);
+	}
+
+	/**
+	 * Set the number of publishers used per topic, unless configured otherwise for a topic.
+	 * Defaults to 1.
+	 */
+	public void setPoolSize(int poolSize) {
+		Assert.isTrue(poolSize > 0, "The pool size must be greater than 0.");
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * Set the number of publishers used for a topic. Only affects publishers that haven't been
+	 * created yet.
+	 */
+	public void setPoolSize(String topic, int poolSize) {
+		Assert.hasText(topic, "The topic can't be null or empty.");
+		Assert.isTrue(poolSize > 0, "The pool size must be greater than 0.");
+		this.topicPoolSizes.put(topic, poolSize);
+	}
+
 	@Override
 	public Publisher createPublisher(String topic) {
-		return this.publishers.computeIfAbsent(topic, key -> {
-			try {
-				Publisher.Builder publisherBuilder =
-						Publisher.newBuilder(ProjectTopicName.of(this.projectId, key));
+		return getPublisherPool(topic).next();
+	}
+
+	@Override
+	public Publisher createPublisher(String topic, String key) {
+		PublisherPool publisherPool = getPublisherPool(topic);
+		return (key != null) ? publisherPool.forKey(key) : publisherPool.next();
+	}
 
-				if (this.executorProvider != null) {
-					publisherBuilder.setExecutorProvider(this.executorProvider);
-				}
+	private PublisherPool getPublisherPool(String topic) {
+		return this.publisherPools.computeIfAbsent(topic, key -> {
+			Publisher[] publishers = new Publisher[this.topicPoolSizes.getOrDefault(key, this.poolSize)];
+			for (int i = 0; i < publishers.length; i++) {
+				publishers[i] = buildPublisher(key);
+			}
+			return new PublisherPool(publishers);
+		});
+	}
 
-				if (this.channelProvider != null) {
-					publisherBuilder.setChannelProvider(this.channelProvider);
-				}
+	private Publisher buildPublisher(String topic) {
+		try {
+			Publisher.Builder publisherBuilder =
+					Publisher.newBuilder(ProjectTopicName.of(this.projectId, topic));
 
-				if (this.credentialsProvider != null) {
-					publisherBuilder.setCredentialsProvider(this.credentialsProvider);
-				}
+			if (this.executorProvider != null) {
+				publisherBuilder.setExecutorProvider(this.executorProvider);
+			}
 
-				if (this.headerProvider != null) {
-					publisherBuilder.setHeaderProvider(this.headerProvider);
-				}
+			if (this.channelProvider != null) {
+				publisherBuilder.setChannelProvider(this.channelProvider);
+			}
 
-				if (this.retrySettings != null) {
-					publisherBuilder.setRetrySettings(this.retrySettings);
-				}
+			if (this.credentialsProvider != null) {
+				publisherBuilder.setCredentialsProvider(this.credentialsProvider);
+			}
 
-				if (this.batchingSettings != null) {
-					publisherBuilder.setBatchingSettings(this.batchingSettings);
-				}
+			if (this.headerProvider != null) {
+				publisherBuilder.setHeaderProvider(this.headerProvider);
+			}
 
-				return publisherBuilder.build();
+			RetrySettings retrySettings = this.topicRetrySettings.getOrDefault(topic, this.retrySettings);
+			if (retrySettings != null) {
+				publisherBuilder.setRetrySettings(retrySettings);
 			}
-			catch (IOException ioe) {
-				throw new PubSubException("An error creating the Google Cloud Pub/Sub publisher " +
-						"occurred.", ioe);
+
+			BatchingSettings batchingSettings = this.topicBatchingSettings.getOrDefault(topic, this.batchingSettings);
+			if (batchingSettings != null) {
+				publisherBuilder.setBatchingSettings(batchingSettings);
 			}
-		});
+
+			return publisherBuilder.build();
+		}
+		catch (IOException ioe) {
+			throw new PubSubException("An error creating the Google Cloud Pub/Sub publisher " +
+					"occurred.", ioe);
+		}
 	}
 
 	@VisibleForTesting
 	Map<String, Publisher> getCache() {
-		return this.publishers;
+		Map<String, Publisher> cache = new HashMap<>();
+		this.publisherPools.forEach((topic, publisherPool) -> cache.put(topic, publisherPool.publishers[0]));
+		return cache;
+	}
+
+	@VisibleForTesting
+	Publisher[] getPublishers(String topic) {
+		PublisherPool publisherPool = this.publisherPools.get(topic);
+		return (publisherPool != null) ? publisherPool.publishers.clone() : new Publisher[0];
+	}
+
+	/**
+	 * The {@link Publisher}s of a topic.
+	 */
+	private static final class PublisherPool {
+
+		private final Publisher[] publishers;
+
+		private final AtomicInteger nextIndex = new AtomicInteger();
+
+		PublisherPool(Publisher[] publishers) {
+			this.publishers = publishers;
+		}
+
+		Publisher next() {
+			if (this.publishers.length == 1) {
+				return this.publishers[0];
+			}
+			return this.publishers[Math.floorMod(this.nextIndex.getAndIncrement(), this.publishers.length)];
+		}
+
+		Publisher forKey(String key) {
+			return this.publishers[Math.floorMod(key.hashCode(), this.publishers.length)];
+		}
 	}
 }
@@ -17,6 +17,8 @@
 package org.springframework.cloud.gcp.pubsub.support;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.api.core.ApiClock;
 import com.google.api.gax.batching.FlowControlSettings;
@@ -40,6 +42,10 @@ import org.springframework.util.Assert;
 /**
  * The default {@link SubscriberFactory} implementation.
  *
+ * <p>The executor, flow control settings and parallel pull count of the subscribers can be
+ * overridden for individual subscriptions, for example so that a busy subscription gets threads
+ * of its own instead of starving the others.
+ *
  * @author João André Martins
  * @author Mike Eltsufin
  * @author Doug Hoard
@@ -48,6 +54,12 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 
 	private final String projectId;
 
+	private final Map<String, ExecutorProvider> subscriptionExecutorProviders = new ConcurrentHashMap<>();
+
+	private final Map<String, FlowControlSettings> subscriptionFlowControlSettings = new ConcurrentHashMap<>();
+
+	private final Map<String, Integer> subscriptionParallelPullCounts = new ConcurrentHashMap<>();
+
 	private ExecutorProvider executorProvider;
 
 	private TransportChannelProvider channelProvider;
@@ -95,6 +107,16 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 		this.executorProvider = executorProvider;
 	}
 
+	/**
+	 * Set the provider for the executor of the subscribers of a subscription, overriding
+	 * {@link #setExecutorProvider(ExecutorProvider)}.
+	 * @param subscriptionName the name of the subscription
+	 * @param executorProvider the executor provider, or {@code null} to remove the override
+	 */
+	public void setExecutorProvider(String subscriptionName, ExecutorProvider executorProvider) {
+		setSubscriptionSetting(this.subscriptionExecutorProviders, subscriptionName, executorProvider);
+	}
+
 	/**
 	 * Set the provider for the subscribers' transport channel.
 	 */
@@ -131,6 +153,16 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 		this.flowControlSettings = flowControlSettings;
 	}
 
+	/**
+	 * Set the flow control of the subscribers of a subscription, replacing the flow control set by
+	 * {@link #setFlowControlSettings(FlowControlSettings)}.
+	 * @param subscriptionName the name of the subscription
+	 * @param flowControlSettings the flow control settings, or {@code null} to remove the override
+	 */
+	public void setFlowControlSettings(String subscriptionName, FlowControlSettings flowControlSettings) {
+		setSubscriptionSetting(this.subscriptionFlowControlSettings, subscriptionName, flowControlSettings);
+	}
+
 	/**
 	 * Set the maximum period the ack timeout is extended by.
 	 */
@@ -145,6 +177,16 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 		this.parallelPullCount = parallelPullCount;
 	}
 
+	/**
+	 * Set the number of pull workers of the subscribers of a subscription, overriding
+	 * {@link #setParallelPullCount(Integer)}.
+	 * @param subscriptionName the name of the subscription
+	 * @param parallelPullCount the number of pull workers, or {@code null} to remove the override
+	 */
+	public void setParallelPullCount(String subscriptionName, Integer parallelPullCount) {
+		setSubscriptionSetting(this.subscriptionParallelPullCounts, subscriptionName, parallelPullCount);
+	}
+
 	/**
 	 * Set the endpoint for synchronous pulling messages.
 	 */
@@ -173,12 +215,19 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 		Subscriber.Builder subscriberBuilder = Subscriber.newBuilder(
 				ProjectSubscriptionName.of(this.projectId, subscriptionName), receiver);
 
+		ExecutorProvider executorProvider =
+				this.subscriptionExecutorProviders.getOrDefault(subscriptionName, this.executorProvider);
+		FlowControlSettings flowControlSettings =
+				this.subscriptionFlowControlSettings.getOrDefault(subscriptionName, this.flowControlSettings);
+		Integer parallelPullCount =
+				this.subscriptionParallelPullCounts.getOrDefault(subscriptionName, this.parallelPullCount);
+
 		if (this.channelProvider != null) {
 			subscriberBuilder.setChannelProvider(this.channelProvider);
 		}
 
-		if (this.executorProvider != null) {
-			subscriberBuilder.setExecutorProvider(this.executorProvider);
+		if (executorProvider != null) {
+			subscriberBuilder.setExecutorProvider(executorProvider);
 		}
 
 		if (this.credentialsProvider != null) {
@@ -193,16 +242,16 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 			subscriberBuilder.setSystemExecutorProvider(this.systemExecutorProvider);
 		}
 
-		if (this.flowControlSettings != null) {
-			subscriberBuilder.setFlowControlSettings(this.flowControlSettings);
+		if (flowControlSettings != null) {
+			subscriberBuilder.setFlowControlSettings(flowControlSettings);
 		}
 
 		if (this.maxAckExtensionPeriod != null) {
 			subscriberBuilder.setMaxAckExtensionPeriod(this.maxAckExtensionPeriod);
 		}
 
-		if (this.parallelPullCount != null) {
-			subscriberBuilder.setParallelPullCount(this.parallelPullCount);
+		if (parallelPullCount != null) {
+			subscriberBuilder.setParallelPullCount(parallelPullCount);
 		}
 
 		return subscriberBuilder.build();
@@ -269,4 +318,13 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 		}
 	}
 
+	private static <T> void setSubscriptionSetting(Map<String, T> settings, String subscriptionName, T value) {
+		Assert.hasText(subscriptionName, "The subscription name can't be null or empty.");
+		if (value != null) {
+			settings.put(subscriptionName, value);
+		}
+		else {
+			settings.remove(subscriptionName);
+		}
+	}
 }
@@ -29,4 +29,16 @@ public abstract class GcpPubSubHeaders {
 
 	public static final String TOPIC = PREFIX + "topic";
 
+	/**
+	 * The ordering key of a message. Messages with the same ordering key are published to a topic
+	 * in the order they're sent. The header is mapped to a message attribute of the same name.
+	 */
+	public static final String ORDERING_KEY = PREFIX + "ordering_key";
+
+	/**
+	 * The headers of each of the messages of a batch, as a list of header maps in the order of the
+	 * payloads of the batch message.
+	 */
+	public static final String BATCH_HEADERS = PREFIX + "batch_headers";
+
 }
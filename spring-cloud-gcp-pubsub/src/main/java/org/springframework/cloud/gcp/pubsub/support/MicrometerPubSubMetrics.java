@@ -0,0 +1,285 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import org.springframework.util.Assert;
+
+/**
+ * Records the events of publishing and receiving Pub/Sub messages as Micrometer meters, tagged
+ * with the short name of their topic or subscription.
+ *
+ * <table>
+ * <caption>Meters</caption>
+ * <tr><th>Name</th><th>Type</th><th>Tags</th></tr>
+ * <tr><td>{@code pubsub.publish}</td><td>timer of the publish latency</td><td>topic, outcome</td></tr>
+ * <tr><td>{@code pubsub.publish.bytes}</td><td>counter</td><td>topic</td></tr>
+ * <tr><td>{@code pubsub.publish.pending}</td><td>gauge</td><td>topic</td></tr>
+ * <tr><td>{@code pubsub.publish.conversion}</td><td>timer</td><td>topic</td></tr>
+ * <tr><td>{@code pubsub.receive.messages}</td><td>counter</td><td>subscription</td></tr>
+ * <tr><td>{@code pubsub.receive.bytes}</td><td>counter</td><td>subscription</td></tr>
+ * <tr><td>{@code pubsub.receive.conversion}</td><td>timer</td><td>subscription</td></tr>
+ * <tr><td>{@code pubsub.pull.size}</td><td>distribution summary</td><td>subscription</td></tr>
+ * <tr><td>{@code pubsub.acks}</td><td>counter</td><td>subscription</td></tr>
+ * <tr><td>{@code pubsub.nacks}</td><td>counter</td><td>subscription</td></tr>
+ * <tr><td>{@code pubsub.delivery}</td><td>timer</td><td>subscription, outcome</td></tr>
+ * </table>
+ *
+ * <p>The meters of a topic or subscription are registered the first time it's seen, and looked up
+ * without allocating afterwards. They're registered in every {@link MeterRegistry} the metrics are
+ * {@link #bindTo(MeterRegistry) bound to}, including the registries bound after the meters were
+ * registered.
+ *
+ * @since 1.1
+ */
+public class MicrometerPubSubMetrics implements PubSubMetrics, MeterBinder {
+
+	private static final String TOPIC_TAG = "topic";
+
+	private static final String SUBSCRIPTION_TAG = "subscription";
+
+	private static final String OUTCOME_TAG = "outcome";
+
+	private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+
+	/**
+	 * The meters by topic, as reported. Short and fully qualified names of the same topic share
+	 * the meters of {@link #topicMetersByShortName}.
+	 */
+	private final Map<String, TopicMeters> topicMeters = new ConcurrentHashMap<>();
+
+	private final Map<String, TopicMeters> topicMetersByShortName = new ConcurrentHashMap<>();
+
+	/**
+	 * The meters by subscription, as reported. Short and fully qualified names of the same
+	 * subscription share the meters of {@link #subscriptionMetersByShortName}.
+	 */
+	private final Map<String, SubscriptionMeters> subscriptionMeters = new ConcurrentHashMap<>();
+
+	private final Map<String, SubscriptionMeters> subscriptionMetersByShortName = new ConcurrentHashMap<>();
+
+	/**
+	 * Create metrics that record to the registries they're {@link #bindTo(MeterRegistry) bound to}.
+	 */
+	public MicrometerPubSubMetrics() {
+	}
+
+	/**
+	 * Create metrics that record to a registry.
+	 * @param registry the registry
+	 */
+	public MicrometerPubSubMetrics(MeterRegistry registry) {
+		bindTo(registry);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Assert.notNull(registry, "The meter registry can't be null.");
+		this.registry.add(registry);
+	}
+
+	@Override
+	public void messageSerialized(String topic, long durationNanos) {
+		topicMeters(topic).conversion.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void publishStarted(String topic) {
+		topicMeters(topic).pending.incrementAndGet();
+	}
+
+	@Override
+	public void publishCompleted(String topic, long bytes, long durationNanos, Throwable failure) {
+		TopicMeters meters = topicMeters(topic);
+		meters.pending.decrementAndGet();
+		if (failure == null) {
+			meters.published.record(durationNanos, TimeUnit.NANOSECONDS);
+			meters.publishedBytes.increment(bytes);
+		}
+		else {
+			meters.failed.record(durationNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public void messageReceived(String subscription, long bytes) {
+		SubscriptionMeters meters = subscriptionMeters(subscription);
+		meters.received.increment();
+		meters.receivedBytes.increment(bytes);
+	}
+
+	@Override
+	public void messagesPulled(String subscription, int count) {
+		subscriptionMeters(subscription).pullSize.record(count);
+	}
+
+	@Override
+	public void messageDeserialized(String subscription, long durationNanos) {
+		subscriptionMeters(subscription).conversion.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void messagesAcked(String subscription, int count) {
+		subscriptionMeters(subscription).acks.increment(count);
+	}
+
+	@Override
+	public void messagesNacked(String subscription, int count) {
+		subscriptionMeters(subscription).nacks.increment(count);
+	}
+
+	@Override
+	public void messageDelivered(String subscription, long durationNanos, Throwable failure) {
+		SubscriptionMeters meters = subscriptionMeters(subscription);
+		Timer timer = (failure == null) ? meters.delivered : meters.deliveryFailed;
+		timer.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private TopicMeters topicMeters(String topic) {
+		TopicMeters meters = this.topicMeters.get(topic);
+		return (meters != null) ? meters
+				: this.topicMeters.computeIfAbsent(topic, key -> this.topicMetersByShortName.computeIfAbsent(
+						shortName(key), shortName -> new TopicMeters(this.registry, shortName)));
+	}
+
+	private SubscriptionMeters subscriptionMeters(String subscription) {
+		SubscriptionMeters meters = this.subscriptionMeters.get(subscription);
+		return (meters != null) ? meters
+				: this.subscriptionMeters.computeIfAbsent(subscription,
+						key -> this.subscriptionMetersByShortName.computeIfAbsent(
+								shortName(key), shortName -> new SubscriptionMeters(this.registry, shortName)));
+	}
+
+	/**
+	 * Return the last segment of a fully qualified topic or subscription name, such as
+	 * {@code projects/my-project/topics/my-topic}, or a short name as it is.
+	 */
+	private static String shortName(String name) {
+		return name.substring(name.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * The meters of a topic.
+	 */
+	private static final class TopicMeters {
+
+		private final Timer published;
+
+		private final Timer failed;
+
+		private final Counter publishedBytes;
+
+		private final Timer conversion;
+
+		private final AtomicLong pending = new AtomicLong();
+
+		TopicMeters(MeterRegistry registry, String topic) {
+			this.published = Timer.builder("pubsub.publish")
+					.description("The time to publish messages")
+					.tags(TOPIC_TAG, topic, OUTCOME_TAG, "success")
+					.register(registry);
+			this.failed = Timer.builder("pubsub.publish")
+					.description("The time to publish messages")
+					.tags(TOPIC_TAG, topic, OUTCOME_TAG, "failure")
+					.register(registry);
+			this.publishedBytes = Counter.builder("pubsub.publish.bytes")
+					.description("The size of the published messages")
+					.baseUnit("bytes")
+					.tag(TOPIC_TAG, topic)
+					.register(registry);
+			this.conversion = Timer.builder("pubsub.publish.conversion")
+					.description("The time to convert payloads to Pub/Sub messages")
+					.tag(TOPIC_TAG, topic)
+					.register(registry);
+			Gauge.builder("pubsub.publish.pending", this.pending, AtomicLong::get)
+					.description("The number of messages handed to a publisher and not yet published")
+					.tag(TOPIC_TAG, topic)
+					.register(registry);
+		}
+	}
+
+	/**
+	 * The meters of a subscription.
+	 */
+	private static final class SubscriptionMeters {
+
+		private final Counter received;
+
+		private final Counter receivedBytes;
+
+		private final DistributionSummary pullSize;
+
+		private final Timer conversion;
+
+		private final Counter acks;
+
+		private final Counter nacks;
+
+		private final Timer delivered;
+
+		private final Timer deliveryFailed;
+
+		SubscriptionMeters(MeterRegistry registry, String subscription) {
+			this.received = Counter.builder("pubsub.receive.messages")
+					.description("The number of received messages")
+					.tag(SUBSCRIPTION_TAG, subscription)
+					.register(registry);
+			this.receivedBytes = Counter.builder("pubsub.receive.bytes")
+					.description("The size of the received messages")
+					.baseUnit("bytes")
+					.tag(SUBSCRIPTION_TAG, subscription)
+					.register(registry);
+			this.pullSize = DistributionSummary.builder("pubsub.pull.size")
+					.description("The number of messages returned by pull requests")
+					.tag(SUBSCRIPTION_TAG, subscription)
+					.register(registry);
+			this.conversion = Timer.builder("pubsub.receive.conversion")
+					.description("The time to convert Pub/Sub messages to payloads")
+					.tag(SUBSCRIPTION_TAG, subscription)
+					.register(registry);
+			this.acks = Counter.builder("pubsub.acks")
+					.description("The number of acked messages")
+					.tag(SUBSCRIPTION_TAG, subscription)
+					.register(registry);
+			this.nacks = Counter.builder("pubsub.nacks")
+					.description("The number of nacked messages")
+					.tag(SUBSCRIPTION_TAG, subscription)
+					.register(registry);
+			this.delivered = Timer.builder("pubsub.delivery")
+					.description("The time channel adapters take to send received messages downstream")
+					.tags(SUBSCRIPTION_TAG, subscription, OUTCOME_TAG, "success")
+					.register(registry);
+			this.deliveryFailed = Timer.builder("pubsub.delivery")
+					.description("The time channel adapters take to send received messages downstream")
+					.tags(SUBSCRIPTION_TAG, subscription, OUTCOME_TAG, "failure")
+					.register(registry);
+		}
+	}
+
+}
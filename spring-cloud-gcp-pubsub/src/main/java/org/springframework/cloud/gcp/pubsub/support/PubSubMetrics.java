@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+/**
+ * Receives the events of publishing and receiving Pub/Sub messages, to record them as metrics.
+ *
+ * <p>The publisher and subscriber templates, the inbound channel adapter and the message source
+ * report to the {@code PubSubMetrics} they're given, which is {@link #NONE} by default. Topics and
+ * subscriptions are reported as they were passed to the templates, either as short names or as
+ * fully qualified names. Every method has an empty default implementation, so implementations only
+ * need to override the events they're interested in.
+ *
+ * @since 1.1
+ * @see MicrometerPubSubMetrics
+ */
+public interface PubSubMetrics {
+
+	/**
+	 * Metrics that ignore every event.
+	 */
+	PubSubMetrics NONE = new PubSubMetrics() { };
+
+	/**
+	 * A payload and headers were converted to a Pub/Sub message to be published.
+	 * @param topic the topic the message is published to
+	 * @param durationNanos the time the conversion took, in nanoseconds
+	 */
+	default void messageSerialized(String topic, long durationNanos) {
+	}
+
+	/**
+	 * A message was handed to a publisher.
+	 * @param topic the topic the message is published to
+	 */
+	default void publishStarted(String topic) {
+	}
+
+	/**
+	 * A message that was handed to a publisher was published, or failed to be.
+	 * @param topic the topic the message is published to
+	 * @param bytes the serialized size of the message
+	 * @param durationNanos the time from handing the message to the publisher until it was
+	 * published or failed, in nanoseconds
+	 * @param failure the cause of the failure, or {@code null} if the message was published
+	 */
+	default void publishCompleted(String topic, long bytes, long durationNanos, Throwable failure) {
+	}
+
+	/**
+	 * A message was received from a subscription, either pushed to a subscriber or pulled.
+	 * @param subscription the subscription the message was received from
+	 * @param bytes the serialized size of the message
+	 */
+	default void messageReceived(String subscription, long bytes) {
+	}
+
+	/**
+	 * A pull request returned messages.
+	 * @param subscription the subscription the messages were pulled from
+	 * @param count the number of messages returned, which may be 0
+	 */
+	default void messagesPulled(String subscription, int count) {
+	}
+
+	/**
+	 * A received Pub/Sub message was converted to the desired payload type.
+	 * @param subscription the subscription the message was received from
+	 * @param durationNanos the time the conversion took, in nanoseconds
+	 */
+	default void messageDeserialized(String subscription, long durationNanos) {
+	}
+
+	/**
+	 * Received messages were acked, reported once the request acking them succeeds.
+	 * @param subscription the subscription the messages were received from
+	 * @param count the number of messages
+	 */
+	default void messagesAcked(String subscription, int count) {
+	}
+
+	/**
+	 * Received messages were nacked, reported once the request nacking them succeeds.
+	 * @param subscription the subscription the messages were received from
+	 * @param count the number of messages
+	 */
+	default void messagesNacked(String subscription, int count) {
+	}
+
+	/**
+	 * A channel adapter sent a received message, or a batch of messages, downstream.
+	 * @param subscription the subscription the messages were received from
+	 * @param durationNanos the time sending the message downstream took, in nanoseconds
+	 * @param failure the cause of the failure, or {@code null} if the message was handled
+	 */
+	default void messageDelivered(String subscription, long durationNanos, Throwable failure) {
+	}
+
+}
@@ -24,4 +24,16 @@ import com.google.cloud.pubsub.v1.Publisher;
 public interface PublisherFactory {
 
 	Publisher createPublisher(String topic);
+
+	/**
+	 * Return the {@link Publisher} for a topic that should publish messages with a given key.
+	 * Messages with the same key are always published by the same {@link Publisher}.
+	 * @param topic the topic to publish to
+	 * @param key the key of the messages, such as an ordering key; may be null if the messages
+	 * have no key
+	 * @return the {@link Publisher} for the topic and key
+	 */
+	default Publisher createPublisher(String topic, String key) {
+		return createPublisher(topic);
+	}
 }
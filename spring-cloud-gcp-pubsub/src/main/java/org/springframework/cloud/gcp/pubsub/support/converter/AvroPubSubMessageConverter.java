@@ -0,0 +1,117 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+
+/**
+ * A converter for payloads that are Avro {@link SpecificRecord}s.
+ *
+ * <p>Payloads are sent in the Avro binary encoding, and the full name of their schema is set in the
+ * {@link #SCHEMA_ATTRIBUTE} attribute. When converting a received message, the attribute, if
+ * present, must match the schema of the requested payload type. The {@link DatumReader} and
+ * {@link DatumWriter} of each record type are created once and reused.
+ *
+ * @since 1.1
+ */
+public class AvroPubSubMessageConverter implements PubSubMessageConverter {
+
+	/**
+	 * The attribute carrying the full name of the Avro schema of the payload.
+	 */
+	public static final String SCHEMA_ATTRIBUTE = "avro_schema";
+
+	private final Map<Class<?>, SpecificDatumReader<?>> readers = new ConcurrentHashMap<>();
+
+	private final Map<Class<?>, DatumWriter<SpecificRecord>> writers = new ConcurrentHashMap<>();
+
+	@Override
+	public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+		if (!(payload instanceof SpecificRecord)) {
+			throw new PubSubMessageConversionException("Unable to convert payload of type " +
+					(payload != null ? payload.getClass().getName() : null) + " to an Avro record.");
+		}
+
+		SpecificRecord record = (SpecificRecord) payload;
+		DatumWriter<SpecificRecord> writer = this.writers.computeIfAbsent(payload.getClass(),
+				type -> new SpecificDatumWriter<>(record.getSchema()));
+
+		try {
+			ByteString.Output output = ByteString.newOutput();
+			BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(output, null);
+			writer.write(record, encoder);
+			encoder.flush();
+
+			PubsubMessage.Builder pubsubMessageBuilder = PubsubMessage.newBuilder()
+					.setData(output.toByteString());
+
+			if (headers != null) {
+				pubsubMessageBuilder.putAllAttributes(headers);
+			}
+
+			return pubsubMessageBuilder
+					.putAttributes(SCHEMA_ATTRIBUTE, record.getSchema().getFullName())
+					.build();
+		}
+		catch (IOException | RuntimeException e) {
+			throw new PubSubMessageConversionException("Avro serialization of an object of type " +
+					payload.getClass().getName() + " failed.", e);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+		if (!SpecificRecord.class.isAssignableFrom(payloadType)) {
+			throw new PubSubMessageConversionException("Unable to convert Pub/Sub message to payload of type " +
+					payloadType.getName() + ", which isn't an Avro record.");
+		}
+
+		SpecificDatumReader<T> reader = (SpecificDatumReader<T>) this.readers.computeIfAbsent(payloadType,
+				type -> new SpecificDatumReader<>(payloadType));
+
+		Schema schema = reader.getSchema();
+		String schemaName = message.getAttributesOrDefault(SCHEMA_ATTRIBUTE, null);
+		if (schemaName != null && !schemaName.equals(schema.getFullName())) {
+			throw new PubSubMessageConversionException("The Pub/Sub message contains an Avro record of schema " +
+					schemaName + ", which can't be converted to " + schema.getFullName() + ".");
+		}
+
+		try {
+			return reader.read(null, DecoderFactory.get().binaryDecoder(message.getData().newInput(), null));
+		}
+		catch (IOException | RuntimeException e) {
+			throw new PubSubMessageConversionException("Avro deserialization of an object of type " +
+					payloadType.getName() + " failed.", e);
+		}
+	}
+
+}
@@ -0,0 +1,374 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link PubSubMessageConverter} decorator that gzip-compresses the data of the messages
+ * produced by another converter.
+ *
+ * <p>Only messages whose data is at least {@link #setMinimumPayloadSize(int) the minimum payload
+ * size} are compressed, and only if compression makes them smaller. Compressed messages carry the
+ * {@link #CONTENT_ENCODING_ATTRIBUTE} attribute, and are decompressed before being handed to the
+ * delegate converter. Messages without the attribute are passed to the delegate as they are.
+ * A {@link #CONTENT_ENCODING_ATTRIBUTE} header on a payload being converted is ignored, since it
+ * describes the data of the message the payload was received in.
+ *
+ * <p>Decompressed data is limited to {@link #setMaxDecompressedSize(int) a maximum size}, so that
+ * a small message can't inflate into an arbitrarily large payload. Data that isn't valid gzip, is
+ * truncated, or exceeds the maximum size fails with a {@link PubSubMessageConversionException}.
+ *
+ * <p>The {@link Deflater}s, {@link Inflater}s and buffers used for compression are pooled, so
+ * converting a message doesn't allocate native compression state. Their native memory is released
+ * when the converter is {@link #destroy() destroyed}.
+ *
+ * @since 1.1
+ */
+public class CompressingPubSubMessageConverter implements PubSubMessageConverter, DisposableBean {
+
+	/**
+	 * The attribute identifying the encoding of compressed message data.
+	 */
+	public static final String CONTENT_ENCODING_ATTRIBUTE = "content_encoding";
+
+	/**
+	 * The value of {@link #CONTENT_ENCODING_ATTRIBUTE} for gzip-compressed message data.
+	 */
+	public static final String GZIP_ENCODING = "gzip";
+
+	private static final int DEFAULT_MINIMUM_PAYLOAD_SIZE = 1024;
+
+	private static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 100 * 1024 * 1024;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+
+	private static final int GZIP_TRAILER_SIZE = 8;
+
+	private static final int FHCRC = 2;
+
+	private static final int FEXTRA = 4;
+
+	private static final int FNAME = 8;
+
+	private static final int FCOMMENT = 16;
+
+	private static final byte[] GZIP_HEADER = {
+			(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	private final PubSubMessageConverter delegate;
+
+	private final BlockingQueue<Codec> codecs =
+			new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+
+	private int minimumPayloadSize = DEFAULT_MINIMUM_PAYLOAD_SIZE;
+
+	private volatile int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+	private int maxDecompressedSize = DEFAULT_MAX_DECOMPRESSED_SIZE;
+
+	public CompressingPubSubMessageConverter(PubSubMessageConverter delegate) {
+		Assert.notNull(delegate, "The delegate converter can't be null.");
+		this.delegate = delegate;
+	}
+
+	public PubSubMessageConverter getDelegate() {
+		return this.delegate;
+	}
+
+	public int getMinimumPayloadSize() {
+		return this.minimumPayloadSize;
+	}
+
+	/**
+	 * Set the size in bytes below which message data isn't compressed.
+	 * @param minimumPayloadSize the minimum size of compressed message data
+	 */
+	public void setMinimumPayloadSize(int minimumPayloadSize) {
+		Assert.isTrue(minimumPayloadSize >= 0, "The minimum payload size can't be negative.");
+		this.minimumPayloadSize = minimumPayloadSize;
+	}
+
+	public int getCompressionLevel() {
+		return this.compressionLevel;
+	}
+
+	/**
+	 * Set the gzip compression level, from 0 to 9, or -1 for the default level.
+	 * @param compressionLevel the compression level
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		Assert.isTrue(compressionLevel >= Deflater.DEFAULT_COMPRESSION
+				&& compressionLevel <= Deflater.BEST_COMPRESSION, "The compression level must be between -1 and 9.");
+		this.compressionLevel = compressionLevel;
+	}
+
+	public int getMaxDecompressedSize() {
+		return this.maxDecompressedSize;
+	}
+
+	/**
+	 * Set the size in bytes that decompressed message data can't exceed. Defaults to 100 MiB.
+	 * @param maxDecompressedSize the maximum size of decompressed message data
+	 */
+	public void setMaxDecompressedSize(int maxDecompressedSize) {
+		Assert.isTrue(maxDecompressedSize > 0, "The maximum decompressed size must be positive.");
+		this.maxDecompressedSize = maxDecompressedSize;
+	}
+
+	@Override
+	public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+		Map<String, String> messageHeaders = headers;
+		if (messageHeaders != null && messageHeaders.containsKey(CONTENT_ENCODING_ATTRIBUTE)) {
+			// The encoding of a received message describes its original data, not this payload.
+			messageHeaders = new HashMap<>(messageHeaders);
+			messageHeaders.remove(CONTENT_ENCODING_ATTRIBUTE);
+		}
+
+		PubsubMessage message = this.delegate.toPubSubMessage(payload, messageHeaders);
+		ByteString data = message.getData();
+
+		if (data.size() < this.minimumPayloadSize) {
+			return message;
+		}
+
+		ByteString compressedData = compress(data);
+		if (compressedData.size() >= data.size()) {
+			return message;
+		}
+
+		return message.toBuilder()
+				.setData(compressedData)
+				.putAttributes(CONTENT_ENCODING_ATTRIBUTE, GZIP_ENCODING)
+				.build();
+	}
+
+	@Override
+	public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+		String contentEncoding = message.getAttributesOrDefault(CONTENT_ENCODING_ATTRIBUTE, null);
+		if (contentEncoding == null) {
+			return this.delegate.fromPubSubMessage(message, payloadType);
+		}
+
+		if (!GZIP_ENCODING.equals(contentEncoding)) {
+			throw new PubSubMessageConversionException("Unsupported message content encoding: "
+					+ contentEncoding + ".");
+		}
+
+		PubsubMessage decompressedMessage = message.toBuilder()
+				.setData(decompress(message.getData()))
+				.removeAttributes(CONTENT_ENCODING_ATTRIBUTE)
+				.build();
+
+		return this.delegate.fromPubSubMessage(decompressedMessage, payloadType);
+	}
+
+	/**
+	 * Release the native memory of the pooled codecs.
+	 */
+	@Override
+	public void destroy() {
+		for (Codec codec = this.codecs.poll(); codec != null; codec = this.codecs.poll()) {
+			codec.end();
+		}
+	}
+
+	private ByteString compress(ByteString data) {
+		Codec codec = acquireCodec();
+		try {
+			Deflater deflater = codec.deflater;
+			CRC32 crc = codec.crc;
+			byte[] input = codec.input;
+			byte[] output = codec.output;
+			deflater.reset();
+			// Pooled deflaters may have been created before the compression level was changed.
+			deflater.setLevel(this.compressionLevel);
+			crc.reset();
+
+			ByteString.Output compressed = ByteString.newOutput(data.size() / 2);
+			compressed.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+
+			for (int offset = 0; offset < data.size(); offset += input.length) {
+				int length = Math.min(input.length, data.size() - offset);
+				data.copyTo(input, offset, 0, length);
+				crc.update(input, 0, length);
+				deflater.setInput(input, 0, length);
+				while (!deflater.needsInput()) {
+					compressed.write(output, 0, deflater.deflate(output));
+				}
+			}
+
+			deflater.finish();
+			while (!deflater.finished()) {
+				compressed.write(output, 0, deflater.deflate(output));
+			}
+
+			writeIntLittleEndian(compressed, (int) crc.getValue());
+			writeIntLittleEndian(compressed, data.size());
+			return compressed.toByteString();
+		}
+		finally {
+			releaseCodec(codec);
+		}
+	}
+
+	private ByteString decompress(ByteString data) {
+		Codec codec = acquireCodec();
+		try {
+			int offset = skipGzipHeader(data);
+			int end = data.size() - GZIP_TRAILER_SIZE;
+			if (offset > end) {
+				throw new PubSubMessageConversionException("Compressed message data is truncated.");
+			}
+
+			Inflater inflater = codec.inflater;
+			CRC32 crc = codec.crc;
+			byte[] input = codec.input;
+			byte[] output = codec.output;
+			inflater.reset();
+			crc.reset();
+
+			ByteString.Output decompressed = ByteString.newOutput(
+					(int) Math.min((long) data.size() * 2, this.maxDecompressedSize));
+			while (!inflater.finished()) {
+				if (inflater.needsInput()) {
+					if (offset >= end) {
+						throw new PubSubMessageConversionException("Compressed message data is truncated.");
+					}
+					int length = Math.min(input.length, end - offset);
+					data.copyTo(input, offset, 0, length);
+					inflater.setInput(input, 0, length);
+					offset += length;
+				}
+				int inflated = inflater.inflate(output);
+				if (decompressed.size() + inflated > this.maxDecompressedSize) {
+					throw new PubSubMessageConversionException("Decompressed message data exceeds the maximum size of "
+							+ this.maxDecompressedSize + " bytes.");
+				}
+				crc.update(output, 0, inflated);
+				decompressed.write(output, 0, inflated);
+			}
+
+			if (readIntLittleEndian(data, end) != (int) crc.getValue()
+					|| readIntLittleEndian(data, end + 4) != decompressed.size()) {
+				throw new PubSubMessageConversionException("Compressed message data is corrupt.");
+			}
+			return decompressed.toByteString();
+		}
+		catch (DataFormatException | IndexOutOfBoundsException e) {
+			throw new PubSubMessageConversionException("Compressed message data is corrupt.", e);
+		}
+		finally {
+			releaseCodec(codec);
+		}
+	}
+
+	private static int skipGzipHeader(ByteString data) {
+		if (data.size() < GZIP_HEADER.length + GZIP_TRAILER_SIZE
+				|| readShortLittleEndian(data, 0) != GZIP_MAGIC
+				|| data.byteAt(2) != Deflater.DEFLATED) {
+			throw new PubSubMessageConversionException("Message data isn't in the gzip format.");
+		}
+
+		int flags = data.byteAt(3);
+		int offset = GZIP_HEADER.length;
+		if ((flags & FEXTRA) != 0) {
+			offset += 2 + readShortLittleEndian(data, offset);
+		}
+		if ((flags & FNAME) != 0) {
+			offset = skipZeroTerminated(data, offset);
+		}
+		if ((flags & FCOMMENT) != 0) {
+			offset = skipZeroTerminated(data, offset);
+		}
+		if ((flags & FHCRC) != 0) {
+			offset += 2;
+		}
+		return offset;
+	}
+
+	private static int skipZeroTerminated(ByteString data, int offset) {
+		int position = offset;
+		while (position < data.size() && data.byteAt(position) != 0) {
+			position++;
+		}
+		return position + 1;
+	}
+
+	private static int readShortLittleEndian(ByteString data, int offset) {
+		return (data.byteAt(offset) & 0xff) | ((data.byteAt(offset + 1) & 0xff) << 8);
+	}
+
+	private static int readIntLittleEndian(ByteString data, int offset) {
+		return readShortLittleEndian(data, offset) | (readShortLittleEndian(data, offset + 2) << 16);
+	}
+
+	private static void writeIntLittleEndian(ByteString.Output output, int value) {
+		output.write(value);
+		output.write(value >> 8);
+		output.write(value >> 16);
+		output.write(value >> 24);
+	}
+
+	private Codec acquireCodec() {
+		Codec codec = this.codecs.poll();
+		return (codec != null) ? codec : new Codec();
+	}
+
+	private void releaseCodec(Codec codec) {
+		if (!this.codecs.offer(codec)) {
+			codec.end();
+		}
+	}
+
+	/**
+	 * The native compression state and buffers needed to compress or decompress one message.
+	 */
+	private static final class Codec {
+
+		private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+		private final Inflater inflater = new Inflater(true);
+
+		private final CRC32 crc = new CRC32();
+
+		private final byte[] input = new byte[BUFFER_SIZE];
+
+		private final byte[] output = new byte[BUFFER_SIZE];
+
+		void end() {
+			this.deflater.end();
+			this.inflater.end();
+		}
+	}
+
+}
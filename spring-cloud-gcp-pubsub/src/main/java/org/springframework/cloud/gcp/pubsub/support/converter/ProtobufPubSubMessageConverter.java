@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * A converter for payloads that are Protocol Buffers {@link Message}s.
+ *
+ * <p>Payloads are sent in the protobuf binary format, and the full name of their message type is
+ * set in the {@link #MESSAGE_TYPE_ATTRIBUTE} attribute. When converting a received message, the
+ * attribute, if present, must match the requested payload type. The default instance, and with it
+ * the {@link Parser}, of each payload type is looked up once and reused.
+ *
+ * @since 1.1
+ */
+public class ProtobufPubSubMessageConverter implements PubSubMessageConverter {
+
+	/**
+	 * The attribute carrying the full name of the protobuf message type of the payload.
+	 */
+	public static final String MESSAGE_TYPE_ATTRIBUTE = "protobuf_message_type";
+
+	private final Map<Class<?>, Message> defaultInstances = new ConcurrentHashMap<>();
+
+	@Override
+	public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+		if (!(payload instanceof Message)) {
+			throw new PubSubMessageConversionException("Unable to convert payload of type " +
+					(payload != null ? payload.getClass().getName() : null) + " to a protobuf message.");
+		}
+
+		Message protobufMessage = (Message) payload;
+		PubsubMessage.Builder pubsubMessageBuilder = PubsubMessage.newBuilder()
+				.setData(protobufMessage.toByteString());
+
+		if (headers != null) {
+			pubsubMessageBuilder.putAllAttributes(headers);
+		}
+
+		return pubsubMessageBuilder
+				.putAttributes(MESSAGE_TYPE_ATTRIBUTE, protobufMessage.getDescriptorForType().getFullName())
+				.build();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+		Message defaultInstance = this.defaultInstances.computeIfAbsent(payloadType, this::getDefaultInstance);
+
+		String messageType = message.getAttributesOrDefault(MESSAGE_TYPE_ATTRIBUTE, null);
+		String expectedMessageType = defaultInstance.getDescriptorForType().getFullName();
+		if (messageType != null && !messageType.equals(expectedMessageType)) {
+			throw new PubSubMessageConversionException("The Pub/Sub message contains a protobuf message of type " +
+					messageType + ", which can't be converted to " + expectedMessageType + ".");
+		}
+
+		try {
+			return (T) defaultInstance.getParserForType().parseFrom(message.getData());
+		}
+		catch (InvalidProtocolBufferException e) {
+			throw new PubSubMessageConversionException("Protobuf deserialization of an object of type " +
+					payloadType.getName() + " failed.", e);
+		}
+	}
+
+	private Message getDefaultInstance(Class<?> payloadType) {
+		if (!Message.class.isAssignableFrom(payloadType)) {
+			throw new PubSubMessageConversionException("Unable to convert Pub/Sub message to payload of type " +
+					payloadType.getName() + ", which isn't a protobuf message.");
+		}
+
+		try {
+			return (Message) payloadType.getMethod("getDefaultInstance").invoke(null);
+		}
+		catch (ReflectiveOperationException | ClassCastException e) {
+			throw new PubSubMessageConversionException("Unable to get the default instance of the protobuf " +
+					"message type " + payloadType.getName() + ".", e);
+		}
+	}
+
+}
@@ -27,6 +27,9 @@ import com.google.pubsub.v1.PubsubMessage;
  * A simple {@link PubSubMessageConverter} that directly maps payloads of type
  * {@code byte[]}, {@code ByteString}, {@code ByteBuffer}, and {@code String} to Pub/Sub messages.
  *
+ * <p>Payloads are only copied when the target type requires it. {@code ByteString} payloads are
+ * returned as is, and {@code ByteBuffer} payloads are read-only views of the message data.
+ *
  * @author Mike Eltsufin
  */
 public class SimplePubSubMessageConverter implements PubSubMessageConverter {
@@ -50,7 +53,7 @@ public class SimplePubSubMessageConverter implements PubSubMessageConverter {
 			convertedPayload = (ByteString) payload;
 		}
 		else if (payload instanceof String) {
-			convertedPayload = ByteString.copyFrom(((String) payload).getBytes(this.charset));
+			convertedPayload = ByteString.copyFrom((String) payload, this.charset);
 		}
 		else if (payload instanceof ByteBuffer) {
 			convertedPayload = ByteString.copyFrom((ByteBuffer) payload);
@@ -77,19 +80,19 @@ public class SimplePubSubMessageConverter implements PubSubMessageConverter {
 	@Override
 	public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
 		T result;
-		byte[] payload = message.getData().toByteArray();
+		ByteString data = message.getData();
 
 		if (payloadType == ByteString.class) {
-			result = (T) message.getData();
+			result = (T) data;
 		}
 		else if (payloadType == String.class) {
-			result = (T) new String(payload, this.charset);
+			result = (T) data.toString(this.charset);
 		}
 		else if (payloadType == ByteBuffer.class) {
-			result = (T) ByteBuffer.wrap(payload);
+			result = (T) data.asReadOnlyByteBuffer();
 		}
 		else if (payloadType == byte[].class) {
-			result = (T) payload;
+			result = (T) data.toByteArray();
 		}
 		else {
 			throw new PubSubMessageConversionException("Unable to convert Pub/Sub message to payload of type " +
@@ -16,13 +16,42 @@
 
 package org.springframework.cloud.gcp.pubsub;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.UnaryCallable;
 import com.google.cloud.pubsub.v1.SubscriptionAdminClient;
 import com.google.cloud.pubsub.v1.TopicAdminClient;
+import com.google.cloud.pubsub.v1.stub.PublisherStub;
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.DeleteSubscriptionRequest;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.Topic;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
 /**
  * @author João André Martins
  */
@@ -49,4 +78,213 @@ public class PubSubAdminTests {
 	public void testNewPubSubAdmin_nullSubscriptionAdminClient() {
 		new PubSubAdmin(() -> "test-project", this.mockTopicAdminClient, null);
 	}
+
+	@Test
+	public void testCreateTopicsConcurrently() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		FakePublisherStub publisherStub = new FakePublisherStub(topic -> {
+			SettableApiFuture<Topic> future = SettableApiFuture.create();
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			executor.execute(() -> {
+				sleep(5);
+				inFlight.decrementAndGet();
+				future.set(topic);
+			});
+			return future;
+		});
+		PubSubAdmin pubSubAdmin = new PubSubAdmin(() -> "test-project", TopicAdminClient.create(publisherStub),
+				this.mockSubscriptionAdminClient);
+		pubSubAdmin.setMaxConcurrentRequests(3);
+		List<String> topicNames = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			topicNames.add("topic" + i);
+		}
+
+		try {
+			List<Topic> topics = pubSubAdmin.createTopics(topicNames);
+
+			assertThat(topics.stream().map(Topic::getName).collect(Collectors.toList()))
+					.isEqualTo(topicNames.stream().map(name -> "projects/test-project/topics/" + name)
+							.collect(Collectors.toList()));
+			assertThat(maxInFlight.get()).isBetween(1, 3);
+		}
+		finally {
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void testCreateSubscriptionsAsync() {
+		List<Subscription> requests = Collections.synchronizedList(new ArrayList<>());
+		FakeSubscriberStub subscriberStub = new FakeSubscriberStub(subscription -> {
+			requests.add(subscription);
+			return ApiFutures.immediateFuture(subscription);
+		}, null);
+		PubSubAdmin pubSubAdmin = new PubSubAdmin(() -> "test-project", this.mockTopicAdminClient,
+				SubscriptionAdminClient.create(subscriberStub));
+		pubSubAdmin.setDefaultAckDeadline(30);
+		Map<String, String> topicsBySubscription = new LinkedHashMap<>();
+		topicsBySubscription.put("sub1", "topic1");
+		topicsBySubscription.put("sub2", "topic2");
+
+		List<Subscription> subscriptions = pubSubAdmin.createSubscriptions(topicsBySubscription);
+
+		assertThat(subscriptions).hasSize(2);
+		assertThat(subscriptions.get(1).getName()).isEqualTo("projects/test-project/subscriptions/sub2");
+		assertThat(subscriptions.get(1).getTopic()).isEqualTo("projects/test-project/topics/topic2");
+		assertThat(subscriptions.get(1).getAckDeadlineSeconds()).isEqualTo(30);
+		assertThat(requests).hasSize(2);
+	}
+
+	@Test
+	public void testDeleteSubscriptionsFailure() {
+		List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+		FakeSubscriberStub subscriberStub = new FakeSubscriberStub(null, request -> {
+			if (request.getSubscription().endsWith("/sub2")) {
+				return ApiFutures.immediateFailedFuture(new IllegalStateException("Deletion failed."));
+			}
+			deleted.add(request.getSubscription());
+			return ApiFutures.immediateFuture(Empty.getDefaultInstance());
+		});
+		PubSubAdmin pubSubAdmin = new PubSubAdmin(() -> "test-project", this.mockTopicAdminClient,
+				SubscriptionAdminClient.create(subscriberStub));
+
+		try {
+			pubSubAdmin.deleteSubscriptions(Arrays.asList("sub1", "sub2", "sub3"));
+			fail("Expected the bulk deletion to fail.");
+		}
+		catch (PubSubException pse) {
+			assertThat(pse.getMessage()).contains("1 of 3 requests failed");
+			assertThat(pse.getCause()).hasMessage("Deletion failed.");
+		}
+
+		assertThat(deleted).containsExactly(
+				"projects/test-project/subscriptions/sub1", "projects/test-project/subscriptions/sub3");
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A callable answering requests with a function.
+	 */
+	private static final class FunctionCallable<RequestT, ResponseT> extends UnaryCallable<RequestT, ResponseT> {
+
+		private final Function<RequestT, ApiFuture<ResponseT>> function;
+
+		FunctionCallable(Function<RequestT, ApiFuture<ResponseT>> function) {
+			this.function = function;
+		}
+
+		@Override
+		public ApiFuture<ResponseT> futureCall(RequestT request, ApiCallContext context) {
+			return this.function.apply(request);
+		}
+	}
+
+	/**
+	 * A {@link PublisherStub} creating topics with a function.
+	 */
+	private static final class FakePublisherStub extends PublisherStub {
+
+		private final UnaryCallable<Topic, Topic> createTopicCallable;
+
+		FakePublisherStub(Function<Topic, ApiFuture<Topic>> createTopic) {
+			this.createTopicCallable = new FunctionCallable<>(createTopic);
+		}
+
+		@Override
+		public UnaryCallable<Topic, Topic> createTopicCallable() {
+			return this.createTopicCallable;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return false;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return false;
+		}
+
+		@Override
+		public void shutdownNow() {
+		}
+
+		@Override
+		public boolean awaitTermination(long duration, TimeUnit unit) {
+			return true;
+		}
+	}
+
+	/**
+	 * A {@link SubscriberStub} creating and deleting subscriptions with functions.
+	 */
+	private static final class FakeSubscriberStub extends SubscriberStub {
+
+		private final UnaryCallable<Subscription, Subscription> createSubscriptionCallable;
+
+		private final UnaryCallable<DeleteSubscriptionRequest, Empty> deleteSubscriptionCallable;
+
+		FakeSubscriberStub(Function<Subscription, ApiFuture<Subscription>> createSubscription,
+				Function<DeleteSubscriptionRequest, ApiFuture<Empty>> deleteSubscription) {
+			this.createSubscriptionCallable = new FunctionCallable<>(createSubscription);
+			this.deleteSubscriptionCallable = new FunctionCallable<>(deleteSubscription);
+		}
+
+		@Override
+		public UnaryCallable<Subscription, Subscription> createSubscriptionCallable() {
+			return this.createSubscriptionCallable;
+		}
+
+		@Override
+		public UnaryCallable<DeleteSubscriptionRequest, Empty> deleteSubscriptionCallable() {
+			return this.deleteSubscriptionCallable;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return false;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return false;
+		}
+
+		@Override
+		public void shutdownNow() {
+		}
+
+		@Override
+		public boolean awaitTermination(long duration, TimeUnit unit) {
+			return true;
+		}
+	}
 }
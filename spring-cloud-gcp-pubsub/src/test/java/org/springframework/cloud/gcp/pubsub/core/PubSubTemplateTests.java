@@ -17,12 +17,17 @@
 package org.springframework.cloud.gcp.pubsub.core;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.core.ApiService;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
 import com.google.api.core.SettableApiFuture;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Publisher;
@@ -35,21 +40,30 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubBulkPublishException;
 import org.springframework.cloud.gcp.pubsub.core.publisher.PubSubPublisherTemplate;
+import org.springframework.cloud.gcp.pubsub.core.publisher.PublishFlowController;
 import org.springframework.cloud.gcp.pubsub.core.test.allowed.AllowedPayload;
+import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.pubsub.support.PublisherFactory;
 import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
 import org.springframework.cloud.gcp.pubsub.support.converter.JacksonPubSubMessageConverter;
+import org.springframework.cloud.gcp.pubsub.support.converter.PubSubMessageConversionException;
 import org.springframework.util.concurrent.ListenableFuture;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -121,6 +135,22 @@ public class PubSubTemplateTests {
 		assertEquals("result", future.get());
 	}
 
+	@Test
+	public void testPublish_metrics() {
+		PubSubMetrics metrics = mock(PubSubMetrics.class);
+		PubSubPublisherTemplate pubSubPublisherTemplate = new PubSubPublisherTemplate(this.mockPublisherFactory);
+		pubSubPublisherTemplate.setMetrics(metrics);
+
+		pubSubPublisherTemplate.publish("testTopic", "testPayload");
+		verify(metrics, times(1)).messageSerialized(eq("testTopic"), anyLong());
+		verify(metrics, times(1)).publishStarted("testTopic");
+		verify(metrics, never()).publishCompleted(any(), anyLong(), anyLong(), any());
+
+		RuntimeException failure = new RuntimeException("Publishing failed.");
+		this.settableApiFuture.setException(failure);
+		verify(metrics, times(1)).publishCompleted(eq("testTopic"), anyLong(), anyLong(), eq(failure));
+	}
+
 	@Test
 	public void testPublish_String() {
 		this.pubSubTemplate.publish("testTopic", "testPayload");
@@ -196,6 +226,182 @@ public class PubSubTemplateTests {
 		}
 	}
 
+	@Test
+	public void testPublishAll() throws ExecutionException, InterruptedException {
+		SettableApiFuture<String> first = SettableApiFuture.create();
+		SettableApiFuture<String> second = SettableApiFuture.create();
+		when(this.mockPublisher.publish(isA(PubsubMessage.class))).thenReturn(first, second);
+
+		ListenableFuture<List<String>> future = this.pubSubTemplate.publishAll("testTopic",
+				Arrays.asList("payload1", "payload2"), Collections.singletonMap("key", "value"));
+
+		second.set("id2");
+		assertFalse(future.isDone());
+		first.set("id1");
+
+		assertEquals(Arrays.asList("id1", "id2"), future.get());
+		verify(this.mockPublisherFactory, times(1)).createPublisher("testTopic");
+		verify(this.mockPublisher, times(2)).publish(argThat(message ->
+				message.getAttributesMap().get("key").equals("value")));
+	}
+
+	@Test
+	public void testPublishAll_partialFailure() throws InterruptedException {
+		SettableApiFuture<String> first = SettableApiFuture.create();
+		SettableApiFuture<String> second = SettableApiFuture.create();
+		SettableApiFuture<String> third = SettableApiFuture.create();
+		when(this.mockPublisher.publish(isA(PubsubMessage.class))).thenReturn(first, second, third);
+
+		ListenableFuture<List<String>> future = this.pubSubTemplate.publishAll("testTopic",
+				Arrays.asList("payload1", "payload2", "payload3"));
+
+		first.set("id1");
+		second.setException(new Exception("second failed."));
+		third.set("id3");
+
+		try {
+			future.get();
+			fail("Test should fail.");
+		}
+		catch (ExecutionException ee) {
+			PubSubBulkPublishException exception = (PubSubBulkPublishException) ee.getCause();
+			assertEquals(Arrays.asList("id1", null, "id3"), exception.getMessageIds());
+			assertEquals(Collections.singleton(1), exception.getFailures().keySet());
+			assertEquals("second failed.", exception.getFailures().get(1).getMessage());
+		}
+	}
+
+	@Test
+	public void testPublishAll_conversionFailure() throws InterruptedException {
+		SettableApiFuture<String> first = SettableApiFuture.create();
+		SettableApiFuture<String> third = SettableApiFuture.create();
+		when(this.mockPublisher.publish(isA(PubsubMessage.class))).thenReturn(first, third);
+
+		ListenableFuture<List<String>> future = this.pubSubTemplate.publishAll("testTopic",
+				Arrays.asList("payload1", 2, "payload3"));
+
+		verify(this.mockPublisher, times(2)).publish(isA(PubsubMessage.class));
+		first.set("id1");
+		assertFalse(future.isDone());
+		third.set("id3");
+
+		try {
+			future.get();
+			fail("Test should fail.");
+		}
+		catch (ExecutionException ee) {
+			PubSubBulkPublishException exception = (PubSubBulkPublishException) ee.getCause();
+			assertEquals(Arrays.asList("id1", null, "id3"), exception.getMessageIds());
+			assertEquals(Collections.singleton(1), exception.getFailures().keySet());
+			assertTrue(exception.getFailures().get(1) instanceof PubSubMessageConversionException);
+		}
+	}
+
+	@Test
+	public void testPublishAll_empty() throws ExecutionException, InterruptedException {
+		ListenableFuture<List<String>> future =
+				this.pubSubTemplate.publishAll("testTopic", Collections.emptyList());
+
+		assertTrue(future.get().isEmpty());
+		verify(this.mockPublisher, never()).publish(any());
+	}
+
+	@Test
+	public void testPublish_flowControl() throws ExecutionException, InterruptedException {
+		PublishFlowController flowController = new PublishFlowController(FlowControlSettings.newBuilder()
+				.setMaxOutstandingElementCount(1L)
+				.setLimitExceededBehavior(LimitExceededBehavior.ThrowException)
+				.build());
+		this.pubSubTemplate.getPubSubPublisherTemplate().setPublishFlowController(flowController);
+
+		ListenableFuture<String> future = this.pubSubTemplate.publish("testTopic", this.pubsubMessage);
+		assertEquals(1, flowController.getOutstandingMessageCount());
+		assertEquals(this.pubsubMessage.getSerializedSize(), flowController.getOutstandingBytes());
+
+		try {
+			this.pubSubTemplate.publish("testTopic", this.pubsubMessage);
+			fail("The second message should exceed the flow control limits.");
+		}
+		catch (PubSubException pse) {
+			verify(this.mockPublisher, times(1)).publish(isA(PubsubMessage.class));
+		}
+
+		this.settableApiFuture.set("result");
+		assertEquals("result", future.get());
+		assertEquals(0, flowController.getOutstandingMessageCount());
+		assertEquals(0, flowController.getOutstandingBytes());
+	}
+
+	@Test
+	public void testPublishAll_flowControl() throws InterruptedException {
+		PublishFlowController flowController = new PublishFlowController(FlowControlSettings.newBuilder()
+				.setMaxOutstandingElementCount(1L)
+				.setLimitExceededBehavior(LimitExceededBehavior.ThrowException)
+				.build());
+		this.pubSubTemplate.getPubSubPublisherTemplate().setPublishFlowController(flowController);
+
+		ListenableFuture<List<String>> future = this.pubSubTemplate.publishAll("testTopic",
+				Arrays.asList("payload1", "payload2"));
+		this.settableApiFuture.set("id1");
+
+		try {
+			future.get();
+			fail("Test should fail.");
+		}
+		catch (ExecutionException ee) {
+			PubSubBulkPublishException exception = (PubSubBulkPublishException) ee.getCause();
+			assertEquals(Arrays.asList("id1", null), exception.getMessageIds());
+			assertTrue(exception.getFailures().get(1) instanceof PubSubException);
+		}
+		assertEquals(0, flowController.getOutstandingMessageCount());
+	}
+
+	@Test
+	public void testPublish_orderingKey() throws ExecutionException, InterruptedException {
+		Publisher keyPublisher = mock(Publisher.class);
+		when(this.mockPublisherFactory.createPublisher("testTopic", "key")).thenReturn(keyPublisher);
+		SettableApiFuture<String> first = SettableApiFuture.create();
+		SettableApiFuture<String> second = SettableApiFuture.create();
+		when(keyPublisher.publish(isA(PubsubMessage.class))).thenReturn(first, second);
+		Map<String, String> headers = Collections.singletonMap(GcpPubSubHeaders.ORDERING_KEY, "key");
+
+		ListenableFuture<String> firstFuture = this.pubSubTemplate.publish("testTopic", "payload1", headers);
+		ListenableFuture<String> secondFuture = this.pubSubTemplate.publish("testTopic", "payload2", headers);
+		verify(keyPublisher, times(1)).publish(isA(PubsubMessage.class));
+
+		first.set("id1");
+		verify(keyPublisher, times(2)).publish(isA(PubsubMessage.class));
+		second.set("id2");
+
+		assertEquals("id1", firstFuture.get());
+		assertEquals("id2", secondFuture.get());
+		verify(this.mockPublisher, never()).publish(any());
+	}
+
+	@Test
+	public void testPublish_orderingKeyResume() throws ExecutionException, InterruptedException {
+		Publisher keyPublisher = mock(Publisher.class);
+		when(this.mockPublisherFactory.createPublisher("testTopic", "key")).thenReturn(keyPublisher);
+		SettableApiFuture<String> failed = SettableApiFuture.create();
+		failed.setException(new Exception("publish failed."));
+		when(keyPublisher.publish(isA(PubsubMessage.class))).thenReturn(failed, this.settableApiFuture);
+		Map<String, String> headers = Collections.singletonMap(GcpPubSubHeaders.ORDERING_KEY, "key");
+
+		assertTrue(this.pubSubTemplate.publish("testTopic", "payload1", headers).isDone());
+		try {
+			this.pubSubTemplate.publish("testTopic", "payload2", headers).get();
+			fail("Publishing the key should be paused.");
+		}
+		catch (ExecutionException ee) {
+			assertTrue(ee.getCause() instanceof PubSubException);
+			verify(keyPublisher, times(1)).publish(isA(PubsubMessage.class));
+		}
+
+		this.pubSubTemplate.resumePublishing("testTopic", "key");
+		this.settableApiFuture.set("result");
+		assertEquals("result", this.pubSubTemplate.publish("testTopic", "payload3", headers).get());
+	}
+
 	@Test
 	public void testSubscribe() {
 		Subscriber subscriber = this.pubSubTemplate.subscribe("testSubscription",
@@ -0,0 +1,167 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.publisher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link OrderingKeySequencer}.
+ */
+public class OrderingKeySequencerTests {
+
+	private final OrderingKeySequencer sequencer = new OrderingKeySequencer();
+
+	private final List<PubsubMessage> sent = new ArrayList<>();
+
+	private final List<SettableApiFuture<String>> sendFutures = new ArrayList<>();
+
+	@Test
+	public void testSameKeyPublishedInOrder() throws Exception {
+		ApiFuture<String> first = publish("topic", "key", "first");
+		ApiFuture<String> second = publish("topic", "key", "second");
+
+		assertThat(this.sent).extracting(message -> message.getData().toStringUtf8()).containsExactly("first");
+
+		this.sendFutures.get(0).set("id1");
+		assertThat(first.get()).isEqualTo("id1");
+		assertThat(this.sent).extracting(message -> message.getData().toStringUtf8())
+				.containsExactly("first", "second");
+
+		this.sendFutures.get(1).set("id2");
+		assertThat(second.get()).isEqualTo("id2");
+		assertThat(this.sequencer.getSequenceCount()).isZero();
+	}
+
+	@Test
+	public void testDifferentKeysPublishedInParallel() {
+		publish("topic", "key1", "first");
+		publish("topic", "key2", "second");
+		publish("otherTopic", "key1", "third");
+
+		assertThat(this.sent).hasSize(3);
+		assertThat(this.sequencer.getSequenceCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void testFailurePausesKeyUntilResumed() throws Exception {
+		ApiFuture<String> first = publish("topic", "key", "first");
+		ApiFuture<String> second = publish("topic", "key", "second");
+		ApiFuture<String> otherKey = publish("topic", "otherKey", "other");
+
+		this.sendFutures.get(0).setException(new RuntimeException("first failed."));
+
+		assertThatThrownBy(first::get).isInstanceOf(ExecutionException.class).hasRootCauseMessage("first failed.");
+		assertThatThrownBy(second::get).hasCauseInstanceOf(PubSubException.class);
+		assertThatThrownBy(() -> publish("topic", "key", "third").get())
+				.hasCauseInstanceOf(PubSubException.class);
+		assertThat(this.sent).hasSize(2);
+
+		this.sendFutures.get(1).set("otherId");
+		assertThat(otherKey.get()).isEqualTo("otherId");
+
+		this.sequencer.resume("topic", "key");
+		ApiFuture<String> fourth = publish("topic", "key", "fourth");
+		assertThat(this.sent).hasSize(3);
+		this.sendFutures.get(2).set("id4");
+		assertThat(fourth.get()).isEqualTo("id4");
+	}
+
+	@Test
+	public void testPausedKeyExpires() throws Exception {
+		this.sequencer.setPausedExpiration(Duration.ZERO);
+		ApiFuture<String> first = publish("topic", "key", "first");
+
+		this.sendFutures.get(0).setException(new RuntimeException("first failed."));
+
+		assertThatThrownBy(first::get).isInstanceOf(ExecutionException.class);
+		assertThat(this.sequencer.getSequenceCount()).isZero();
+		ApiFuture<String> second = publish("topic", "key", "second");
+		assertThat(this.sent).hasSize(2);
+		this.sendFutures.get(1).set("id2");
+		assertThat(second.get()).isEqualTo("id2");
+	}
+
+	@Test
+	public void testPausedKeyKeptUntilExpired() {
+		publish("topic", "key", "first");
+
+		this.sendFutures.get(0).setException(new RuntimeException("first failed."));
+
+		assertThat(this.sequencer.getSequenceCount()).isEqualTo(1);
+		this.sequencer.resume("topic", "key");
+		assertThat(this.sequencer.getSequenceCount()).isZero();
+	}
+
+	@Test
+	public void testSenderExceptionPausesKey() {
+		ApiFuture<String> failed = this.sequencer.publish("topic", "key", message("first"), message -> {
+			throw new IllegalStateException("can't send.");
+		});
+
+		assertThatThrownBy(failed::get).hasCauseInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> publish("topic", "key", "second").get())
+				.hasCauseInstanceOf(PubSubException.class);
+	}
+
+	@Test
+	public void testImmediatelyCompletingSendsDontGrowTheStack() throws Exception {
+		ApiFuture<String> first = publish("topic", "key", "first");
+		List<ApiFuture<String>> queued = new ArrayList<>();
+		for (int i = 0; i < 100000; i++) {
+			queued.add(this.sequencer.publish("topic", "key", message("queued"),
+					message -> ApiFutures.immediateFuture("queued-id")));
+		}
+
+		// Completing the first message sends the queued ones, each of which completes right away.
+		this.sendFutures.get(0).set("id1");
+
+		assertThat(first.get()).isEqualTo("id1");
+		for (ApiFuture<String> future : queued) {
+			assertThat(future.get()).isEqualTo("queued-id");
+		}
+		assertThat(this.sequencer.getSequenceCount()).isZero();
+	}
+
+	private ApiFuture<String> publish(String topic, String orderingKey, String data) {
+		return this.sequencer.publish(topic, orderingKey, message(data), message -> {
+			SettableApiFuture<String> future = SettableApiFuture.create();
+			this.sent.add(message);
+			this.sendFutures.add(future);
+			return future;
+		});
+	}
+
+	private static PubsubMessage message(String data) {
+		return PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(data)).build();
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.publisher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the default methods of {@link PubSubPublisherOperations}.
+ */
+public class PubSubPublisherOperationsTests {
+
+	private final PubSubPublisherOperations publisherOperations =
+			mock(PubSubPublisherOperations.class, CALLS_REAL_METHODS);
+
+	@Test
+	public void testPublishAll() throws Exception {
+		Map<String, String> headers = Collections.singletonMap("key", "value");
+		SettableListenableFuture<String> second = new SettableListenableFuture<>();
+		when(this.publisherOperations.publish("topic", "first", headers)).thenReturn(completed("id1"));
+		when(this.publisherOperations.publish("topic", "second", headers)).thenReturn(second);
+
+		ListenableFuture<List<String>> future =
+				this.publisherOperations.publishAll("topic", Arrays.asList("first", "second"), headers);
+
+		assertThat(future.isDone()).isFalse();
+		second.set("id2");
+		assertThat(future.get()).containsExactly("id1", "id2");
+	}
+
+	@Test
+	public void testPublishAllWithoutHeaders() throws Exception {
+		when(this.publisherOperations.publish("topic", "payload", null)).thenReturn(completed("id"));
+
+		assertThat(this.publisherOperations.publishAll("topic", Collections.singletonList("payload")).get())
+				.containsExactly("id");
+	}
+
+	@Test
+	public void testPublishAllEmpty() throws Exception {
+		assertThat(this.publisherOperations.publishAll("topic", Collections.emptyList()).get()).isEmpty();
+	}
+
+	@Test
+	public void testPublishAllFailures() {
+		RuntimeException publishFailure = new RuntimeException("publish failed");
+		RuntimeException conversionFailure = new RuntimeException("conversion failed");
+		SettableListenableFuture<String> failed = new SettableListenableFuture<>();
+		failed.setException(publishFailure);
+		when(this.publisherOperations.publish("topic", "first", null)).thenReturn(completed("id1"));
+		when(this.publisherOperations.publish("topic", "second", null)).thenReturn(failed);
+		when(this.publisherOperations.publish("topic", "third", null)).thenThrow(conversionFailure);
+
+		ListenableFuture<List<String>> future =
+				this.publisherOperations.publishAll("topic", Arrays.asList("first", "second", "third"));
+
+		Throwable thrown = catchThrowable(future::get);
+		assertThat(thrown).isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(PubSubBulkPublishException.class);
+		PubSubBulkPublishException exception = (PubSubBulkPublishException) thrown.getCause();
+		assertThat(exception.getMessageIds()).containsExactly("id1", null, null);
+		assertThat(exception.getFailures()).containsOnlyKeys(1, 2);
+		assertThat(exception.getFailures().get(1)).isSameAs(publishFailure);
+		assertThat(exception.getFailures().get(2)).isSameAs(conversionFailure);
+	}
+
+	private static ListenableFuture<String> completed(String messageId) {
+		SettableListenableFuture<String> future = new SettableListenableFuture<>();
+		future.set(messageId);
+		return future;
+	}
+
+}
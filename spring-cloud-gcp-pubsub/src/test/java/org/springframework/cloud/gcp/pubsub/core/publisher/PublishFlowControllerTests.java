@@ -0,0 +1,152 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.publisher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link PublishFlowController}.
+ */
+public class PublishFlowControllerTests {
+
+	@Test
+	public void testReserveAndRelease() {
+		PublishFlowController flowController = create(2L, 100L, LimitExceededBehavior.ThrowException);
+
+		flowController.reserve("topic1", 40);
+		flowController.reserve("topic2", 50);
+		assertThat(flowController.getOutstandingMessageCount()).isEqualTo(2);
+		assertThat(flowController.getOutstandingBytes()).isEqualTo(90);
+
+		flowController.release("topic1", 40);
+		assertThat(flowController.getOutstandingMessageCount()).isEqualTo(1);
+		assertThat(flowController.getOutstandingBytes()).isEqualTo(50);
+	}
+
+	@Test
+	public void testThrowWhenMessageCountExceeded() {
+		PublishFlowController flowController = create(1L, null, LimitExceededBehavior.ThrowException);
+
+		flowController.reserve("topic1", 10);
+
+		assertThatThrownBy(() -> flowController.reserve("topic2", 10)).isInstanceOf(PubSubException.class);
+		assertThat(flowController.getOutstandingMessageCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testThrowWhenBytesExceeded() {
+		PublishFlowController flowController = create(null, 100L, LimitExceededBehavior.ThrowException);
+
+		flowController.reserve("topic1", 60);
+
+		assertThatThrownBy(() -> flowController.reserve("topic2", 60)).isInstanceOf(PubSubException.class);
+	}
+
+	@Test
+	public void testOversizedMessageAdmittedWhenIdle() {
+		PublishFlowController flowController = create(null, 100L, LimitExceededBehavior.ThrowException);
+
+		flowController.reserve("topic1", 1000);
+		assertThat(flowController.getOutstandingBytes()).isEqualTo(100);
+
+		flowController.release("topic1", 1000);
+		assertThat(flowController.getOutstandingBytes()).isZero();
+	}
+
+	@Test
+	public void testOversizedMessageWaitsForOtherTopics() {
+		PublishFlowController flowController = create(null, 100L, LimitExceededBehavior.ThrowException);
+
+		flowController.reserve("topic1", 10);
+
+		assertThatThrownBy(() -> flowController.reserve("topic2", 1000)).isInstanceOf(PubSubException.class);
+		assertThat(flowController.getOutstandingBytes()).isEqualTo(10);
+	}
+
+	@Test
+	public void testDefaultMaxTopicShare() {
+		PublishFlowController flowController = create(null, 100L, LimitExceededBehavior.ThrowException);
+		assertThat(flowController.getMaxTopicShare()).isEqualTo(PublishFlowController.DEFAULT_MAX_TOPIC_SHARE);
+
+		flowController.reserve("hotTopic", 40);
+		assertThatThrownBy(() -> flowController.reserve("hotTopic", 20)).isInstanceOf(PubSubException.class);
+
+		flowController.reserve("quietTopic", 40);
+		assertThat(flowController.getOutstandingBytes()).isEqualTo(80);
+	}
+
+	@Test
+	public void testMaxTopicShare() {
+		PublishFlowController flowController = create(null, 100L, LimitExceededBehavior.ThrowException);
+		flowController.setMaxTopicShare(0.5);
+
+		flowController.reserve("hotTopic", 30);
+		assertThatThrownBy(() -> flowController.reserve("hotTopic", 30)).isInstanceOf(PubSubException.class);
+
+		flowController.reserve("quietTopic", 30);
+		assertThat(flowController.getOutstandingBytes()).isEqualTo(60);
+	}
+
+	@Test
+	public void testIgnoreOnlyCounts() {
+		PublishFlowController flowController = create(1L, 10L, LimitExceededBehavior.Ignore);
+
+		flowController.reserve("topic1", 10);
+		flowController.reserve("topic1", 10);
+
+		assertThat(flowController.getOutstandingMessageCount()).isEqualTo(2);
+		assertThat(flowController.getOutstandingBytes()).isEqualTo(20);
+	}
+
+	@Test
+	public void testBlockUntilReleased() throws Exception {
+		PublishFlowController flowController = create(1L, null, LimitExceededBehavior.Block);
+		flowController.reserve("topic1", 10);
+
+		CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> flowController.reserve("topic2", 10));
+		Thread.sleep(100);
+		assertThat(blocked).isNotDone();
+
+		flowController.release("topic1", 10);
+		blocked.get(10, TimeUnit.SECONDS);
+		assertThat(flowController.getOutstandingMessageCount()).isEqualTo(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxTopicShare() {
+		create(null, 100L, LimitExceededBehavior.Block).setMaxTopicShare(0);
+	}
+
+	private static PublishFlowController create(Long maxMessages, Long maxBytes, LimitExceededBehavior behavior) {
+		return new PublishFlowController(FlowControlSettings.newBuilder()
+				.setMaxOutstandingElementCount(maxMessages)
+				.setMaxOutstandingRequestBytes(maxBytes)
+				.setLimitExceededBehavior(behavior)
+				.build());
+	}
+
+}
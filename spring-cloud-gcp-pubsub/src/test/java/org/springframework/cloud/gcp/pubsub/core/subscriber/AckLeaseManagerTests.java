@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link AckLeaseManager}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AckLeaseManagerTests {
+
+	@Mock
+	private SubscriberStub subscriberStub;
+
+	@Mock
+	private UnaryCallable<ModifyAckDeadlineRequest, Empty> modifyAckDeadlineCallable;
+
+	@Mock
+	private ApiFuture<Empty> apiFuture;
+
+	@Mock
+	private ScheduledExecutorService executor;
+
+	@Captor
+	private ArgumentCaptor<ModifyAckDeadlineRequest> modifyAckDeadlineRequest;
+
+	private AckLeaseManager leaseManager;
+
+	@Before
+	public void setUp() {
+		this.leaseManager = new AckLeaseManager(this.subscriberStub, 60000, this.executor);
+	}
+
+	@Test
+	public void testLeasesExtendedInBatchBeforeExpiry() {
+		mockModifyAckDeadline();
+		this.leaseManager.track("sub1", "ack1", 0);
+		this.leaseManager.track("sub1", "ack2", 0);
+
+		this.leaseManager.extendLeases(4000);
+		verify(this.modifyAckDeadlineCallable, never()).futureCall(any(ModifyAckDeadlineRequest.class));
+
+		this.leaseManager.extendLeases(5000);
+		verify(this.modifyAckDeadlineCallable).futureCall(this.modifyAckDeadlineRequest.capture());
+		assertThat(this.modifyAckDeadlineRequest.getValue().getSubscription()).isEqualTo("sub1");
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckIdsList()).containsExactlyInAnyOrder("ack1", "ack2");
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckDeadlineSeconds())
+				.isEqualTo(AckLeaseManager.MIN_ACK_DEADLINE_SECONDS);
+
+		// The extended leases aren't due again right away.
+		this.leaseManager.extendLeases(6000);
+		verify(this.modifyAckDeadlineCallable, times(1)).futureCall(any(ModifyAckDeadlineRequest.class));
+	}
+
+	@Test
+	public void testReleasedLeaseNotExtended() {
+		mockModifyAckDeadline();
+		this.leaseManager.track("sub1", "ack1", 0);
+		this.leaseManager.track("sub1", "ack2", 0);
+
+		this.leaseManager.release("ack1", 1000);
+		this.leaseManager.deadlineModified("ack2", 0, 1000);
+		assertThat(this.leaseManager.getLeaseCount()).isEqualTo(0);
+
+		this.leaseManager.track("sub1", "ack3", 0);
+		this.leaseManager.extendLeases(5000);
+
+		verify(this.modifyAckDeadlineCallable).futureCall(this.modifyAckDeadlineRequest.capture());
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckIdsList()).containsExactly("ack3");
+	}
+
+	@Test
+	public void testAckDeadlineFromProcessingTimePercentile() {
+		assertThat(this.leaseManager.getAckDeadlineSeconds()).isEqualTo(AckLeaseManager.MIN_ACK_DEADLINE_SECONDS);
+
+		for (int i = 0; i < 100; i++) {
+			this.leaseManager.track("sub1", "ack" + i, 0);
+		}
+		for (int i = 0; i < 98; i++) {
+			this.leaseManager.release("ack" + i, 1000);
+		}
+		this.leaseManager.release("ack98", 45000);
+		this.leaseManager.release("ack99", 45000);
+
+		assertThat(this.leaseManager.getAckDeadlineSeconds()).isEqualTo(45);
+
+		this.leaseManager.track("sub1", "slow", 0);
+		this.leaseManager.release("slow", 3600000);
+		this.leaseManager.track("sub1", "slower", 0);
+		this.leaseManager.release("slower", 3600000);
+
+		assertThat(this.leaseManager.getAckDeadlineSeconds()).isEqualTo(AckLeaseManager.MAX_ACK_DEADLINE_SECONDS);
+	}
+
+	@Test
+	public void testLeaseNotExtendedPastMaxExtensionPeriod() {
+		mockModifyAckDeadline();
+		this.leaseManager = new AckLeaseManager(this.subscriberStub, 12000, this.executor);
+		this.leaseManager.track("sub1", "ack1", 0);
+
+		this.leaseManager.extendLeases(5000);
+		verify(this.modifyAckDeadlineCallable).futureCall(this.modifyAckDeadlineRequest.capture());
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckDeadlineSeconds()).isEqualTo(7);
+
+		this.leaseManager.extendLeases(12000);
+		assertThat(this.leaseManager.getLeaseCount()).isEqualTo(0);
+		verify(this.modifyAckDeadlineCallable, times(1)).futureCall(any(ModifyAckDeadlineRequest.class));
+	}
+
+	private void mockModifyAckDeadline() {
+		when(this.subscriberStub.modifyAckDeadlineCallable()).thenReturn(this.modifyAckDeadlineCallable);
+		when(this.modifyAckDeadlineCallable.futureCall(any(ModifyAckDeadlineRequest.class)))
+				.thenReturn(this.apiFuture);
+	}
+
+}
@@ -0,0 +1,233 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.threeten.bp.Duration;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link AcknowledgementBatcher}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AcknowledgementBatcherTests {
+
+	@Mock
+	private SubscriberStub subscriberStub;
+
+	@Mock
+	private UnaryCallable<AcknowledgeRequest, Empty> ackCallable;
+
+	@Mock
+	private UnaryCallable<ModifyAckDeadlineRequest, Empty> modifyAckDeadlineCallable;
+
+	@Mock
+	private ScheduledExecutorService executor;
+
+	@Mock
+	private ScheduledFuture<?> scheduledFuture;
+
+	@Captor
+	private ArgumentCaptor<AcknowledgeRequest> ackRequest;
+
+	@Captor
+	private ArgumentCaptor<ModifyAckDeadlineRequest> modifyAckDeadlineRequest;
+
+	@Captor
+	private ArgumentCaptor<Runnable> scheduledFlush;
+
+	@Before
+	public void setUp() {
+		doReturn(this.scheduledFuture).when(this.executor)
+				.schedule(this.scheduledFlush.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testBatchSentAtRequestByteThreshold() {
+		SettableApiFuture<Empty> apiFuture = mockAck();
+		// Each of these ack IDs takes 9 bytes in the request: a tag, a length and 7 characters.
+		AcknowledgementBatcher batcher = createBatcher(100L, 18L);
+
+		ListenableFuture<Void> first = batcher.ack("sub1", "ackId-1");
+		verify(this.ackCallable, never()).futureCall(any(AcknowledgeRequest.class));
+
+		ListenableFuture<Void> second = batcher.ack("sub1", "ackId-2");
+		verify(this.ackCallable).futureCall(this.ackRequest.capture());
+		assertThat(this.ackRequest.getValue().getSubscription()).isEqualTo("sub1");
+		assertThat(this.ackRequest.getValue().getAckIdsList()).containsExactly("ackId-1", "ackId-2");
+		assertThat(first).isNotDone();
+
+		apiFuture.set(Empty.getDefaultInstance());
+		assertThat(first).isDone();
+		assertThat(second).isDone();
+	}
+
+	@Test
+	public void testBatchSizeCappedAtMaxAckIdsPerRequest() {
+		mockAck();
+		AcknowledgementBatcher batcher = createBatcher(5000L, null);
+
+		for (int i = 0; i < AcknowledgementBatcher.MAX_ACK_IDS_PER_REQUEST + 1; i++) {
+			batcher.ack("sub1", "ack" + i);
+		}
+
+		verify(this.ackCallable).futureCall(this.ackRequest.capture());
+		assertThat(this.ackRequest.getValue().getAckIdsCount())
+				.isEqualTo(AcknowledgementBatcher.MAX_ACK_IDS_PER_REQUEST);
+
+		batcher.flush();
+		verify(this.ackCallable, times(2)).futureCall(this.ackRequest.capture());
+		assertThat(this.ackRequest.getValue().getAckIdsList())
+				.containsExactly("ack" + AcknowledgementBatcher.MAX_ACK_IDS_PER_REQUEST);
+	}
+
+	@Test
+	public void testSeparateBatchesPerAckDeadline() {
+		mockAck();
+		mockModifyAckDeadline();
+		AcknowledgementBatcher batcher = createBatcher(100L, null);
+
+		batcher.modifyAckDeadline("sub1", "ack1", 10);
+		batcher.modifyAckDeadline("sub1", "ack2", 20);
+		batcher.modifyAckDeadline("sub1", "ack3", 10);
+		batcher.modifyAckDeadline("sub1", "ack4", 0);
+		batcher.ack("sub1", "ack5");
+		batcher.flush();
+
+		verify(this.modifyAckDeadlineCallable, times(3)).futureCall(this.modifyAckDeadlineRequest.capture());
+		List<String> batches = new ArrayList<>();
+		this.modifyAckDeadlineRequest.getAllValues().forEach(request ->
+				batches.add(request.getAckDeadlineSeconds() + "=" + request.getAckIdsList()));
+		assertThat(batches).containsExactlyInAnyOrder("10=[ack1, ack3]", "20=[ack2]", "0=[ack4]");
+		verify(this.ackCallable).futureCall(this.ackRequest.capture());
+		assertThat(this.ackRequest.getValue().getAckIdsList()).containsExactly("ack5");
+	}
+
+	@Test
+	public void testFuturesFailWhenRequestFails() {
+		when(this.subscriberStub.acknowledgeCallable()).thenReturn(this.ackCallable);
+		when(this.ackCallable.futureCall(any(AcknowledgeRequest.class)))
+				.thenReturn(ApiFutures.immediateFailedFuture(new PubSubException("Ack failed.")));
+		AcknowledgementBatcher batcher = createBatcher(2L, null);
+
+		ListenableFuture<Void> first = batcher.ack("sub1", "ack1");
+		ListenableFuture<Void> second = batcher.ack("sub1", "ack2");
+
+		assertThatThrownBy(first::get).hasCauseInstanceOf(PubSubException.class);
+		assertThatThrownBy(second::get).hasCauseInstanceOf(PubSubException.class);
+	}
+
+	@Test
+	public void testFuturesFailWhenRequestCantBeSent() {
+		when(this.subscriberStub.modifyAckDeadlineCallable()).thenReturn(this.modifyAckDeadlineCallable);
+		when(this.modifyAckDeadlineCallable.futureCall(any(ModifyAckDeadlineRequest.class)))
+				.thenThrow(new IllegalStateException("Stub closed."));
+		AcknowledgementBatcher batcher = createBatcher(100L, null);
+
+		ListenableFuture<Void> nack = batcher.modifyAckDeadline("sub1", "ack1", 0);
+		batcher.flush();
+
+		assertThatThrownBy(nack::get).hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testScheduledFlushCancelledAfterThresholdFlush() {
+		mockAck();
+		AcknowledgementBatcher batcher = createBatcher(2L, null);
+
+		batcher.ack("sub1", "ack1");
+		batcher.ack("sub1", "ack2");
+
+		verify(this.scheduledFuture).cancel(false);
+		verify(this.ackCallable, times(1)).futureCall(any(AcknowledgeRequest.class));
+
+		// A scheduled flush that runs anyway doesn't send the batch again.
+		this.scheduledFlush.getValue().run();
+		verify(this.ackCallable, times(1)).futureCall(any(AcknowledgeRequest.class));
+	}
+
+	@Test
+	public void testScheduledFlushSendsBatch() {
+		mockAck();
+		AcknowledgementBatcher batcher = createBatcher(100L, null);
+
+		ListenableFuture<Void> future = batcher.ack("sub1", "ack1");
+		verify(this.executor).schedule(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+		verify(this.ackCallable, never()).futureCall(any(AcknowledgeRequest.class));
+
+		this.scheduledFlush.getValue().run();
+		verify(this.ackCallable).futureCall(this.ackRequest.capture());
+		assertThat(this.ackRequest.getValue().getAckIdsList()).containsExactly("ack1");
+		assertThat(future).isNotDone();
+	}
+
+	private AcknowledgementBatcher createBatcher(Long elementCountThreshold, Long requestByteThreshold) {
+		return new AcknowledgementBatcher(this.subscriberStub, BatchingSettings.newBuilder()
+				.setElementCountThreshold(elementCountThreshold)
+				.setRequestByteThreshold(requestByteThreshold)
+				.setDelayThreshold(Duration.ofMillis(50))
+				.build(), this.executor);
+	}
+
+	private SettableApiFuture<Empty> mockAck() {
+		SettableApiFuture<Empty> apiFuture = SettableApiFuture.create();
+		when(this.subscriberStub.acknowledgeCallable()).thenReturn(this.ackCallable);
+		when(this.ackCallable.futureCall(any(AcknowledgeRequest.class))).thenReturn(apiFuture);
+		return apiFuture;
+	}
+
+	private void mockModifyAckDeadline() {
+		when(this.subscriberStub.modifyAckDeadlineCallable()).thenReturn(this.modifyAckDeadlineCallable);
+		when(this.modifyAckDeadlineCallable.futureCall(any(ModifyAckDeadlineRequest.class)))
+				.thenReturn(SettableApiFuture.create());
+	}
+
+}
@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.core.subscriber;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the default methods of {@link PubSubSubscriberOperations}.
+ */
+public class PubSubSubscriberOperationsTests {
+
+	@Test
+	public void testParallelPull() {
+		PubSubSubscriberOperations subscriberOperations = mock(PubSubSubscriberOperations.class, CALLS_REAL_METHODS);
+		List<AcknowledgeablePubsubMessage> messages =
+				Collections.singletonList(mock(AcknowledgeablePubsubMessage.class));
+		when(subscriberOperations.pull("subscription", 10, true)).thenReturn(messages);
+
+		assertThat(subscriberOperations.parallelPull("subscription", 10, true, 4)).isSameAs(messages);
+	}
+
+}
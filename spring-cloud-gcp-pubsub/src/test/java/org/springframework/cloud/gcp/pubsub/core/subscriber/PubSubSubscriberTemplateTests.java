@@ -20,11 +20,16 @@ import java.math.BigInteger;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.core.FixedExecutorProvider;
 import com.google.api.gax.rpc.UnaryCallable;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.MessageReceiver;
@@ -45,9 +50,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.threeten.bp.Duration;
 
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
 import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.PubSubMetrics;
 import org.springframework.cloud.gcp.pubsub.support.SubscriberFactory;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
@@ -56,11 +64,18 @@ import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
-
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -122,6 +137,18 @@ public class PubSubSubscriberTemplateTests {
 	@Mock
 	private ApiFuture<Empty> apiFuture;
 
+	@Mock
+	private ScheduledExecutorService ackExecutor;
+
+	@Captor
+	private ArgumentCaptor<AcknowledgeRequest> acknowledgeRequest;
+
+	@Captor
+	private ArgumentCaptor<ModifyAckDeadlineRequest> modifyAckDeadlineRequest;
+
+	@Captor
+	private ArgumentCaptor<Runnable> scheduledFlush;
+
 
 	@Before
 	public void setUp() throws InterruptedException, TimeoutException, ExecutionException {
@@ -356,6 +383,272 @@ public class PubSubSubscriberTemplateTests {
 		assertThat(result.get(0).getProjectSubscriptionName().getSubscription()).isEqualTo("sub2");
 	}
 
+	@Test
+	public void testPullAndConvertFailureNacksReceivedMessages() {
+		PubsubMessage unconvertible = PubsubMessage.newBuilder().setMessageId("unconvertible").build();
+		when(this.pullCallable.call(any(PullRequest.class))).thenReturn(PullResponse.newBuilder()
+				.addReceivedMessages(ReceivedMessage.newBuilder().setAckId("ack1").setMessage(this.pubsubMessage))
+				.addReceivedMessages(ReceivedMessage.newBuilder().setAckId("ack2").setMessage(unconvertible))
+				.build());
+		when(this.messageConverter.fromPubSubMessage(any(PubsubMessage.class), eq(BigInteger.class)))
+				.thenReturn(BigInteger.ONE)
+				.thenThrow(new PubSubException("Conversion failed."));
+
+		assertThatThrownBy(() -> this.pubSubSubscriberTemplate.pullAndConvert("sub2", 2, true, BigInteger.class))
+				.isInstanceOf(PubSubException.class)
+				.hasMessage("Conversion failed.");
+
+		verify(this.modifyAckDeadlineCallable).futureCall(this.modifyAckDeadlineRequest.capture());
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckIdsList()).containsExactly("ack1", "ack2");
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckDeadlineSeconds()).isZero();
+		assertThat(this.modifyAckDeadlineRequest.getValue().getSubscription()).isEqualTo("sub2");
+	}
+
+	@Test
+	public void testBatchedAckFlushedByElementCount() throws InterruptedException, ExecutionException {
+		this.pubSubSubscriberTemplate.setAckBatchingSettings(BatchingSettings.newBuilder()
+				.setElementCountThreshold(2L)
+				.setDelayThreshold(Duration.ofSeconds(60))
+				.build(), FixedExecutorProvider.create(this.ackExecutor));
+
+		AcknowledgeablePubsubMessage first = this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0);
+		AcknowledgeablePubsubMessage second = this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0);
+
+		ListenableFuture<Void> firstFuture = first.ack();
+		assertThat(firstFuture.isDone()).isFalse();
+		verify(this.ackCallable, never()).futureCall(any(AcknowledgeRequest.class));
+
+		ListenableFuture<Void> secondFuture = second.ack();
+
+		verify(this.ackCallable).futureCall(this.acknowledgeRequest.capture());
+		assertThat(this.acknowledgeRequest.getValue().getAckIdsCount()).isEqualTo(2);
+		assertThat(this.acknowledgeRequest.getValue().getSubscription()).isEqualTo("sub2");
+
+		firstFuture.get();
+		secondFuture.get();
+		assertThat(firstFuture.isDone()).isTrue();
+		assertThat(secondFuture.isDone()).isTrue();
+	}
+
+	@Test
+	public void testBatchedNackFlushedByDelay() throws InterruptedException, ExecutionException {
+		this.pubSubSubscriberTemplate.setAckBatchingSettings(BatchingSettings.newBuilder()
+				.setElementCountThreshold(100L)
+				.setDelayThreshold(Duration.ofMillis(50))
+				.build(), FixedExecutorProvider.create(this.ackExecutor));
+
+		AcknowledgeablePubsubMessage message = this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0);
+
+		ListenableFuture<Void> future = message.nack();
+		verify(this.ackExecutor).schedule(this.scheduledFlush.capture(), eq(50L), eq(TimeUnit.MILLISECONDS));
+		verify(this.modifyAckDeadlineCallable, never()).futureCall(any(ModifyAckDeadlineRequest.class));
+
+		this.scheduledFlush.getValue().run();
+
+		verify(this.modifyAckDeadlineCallable).futureCall(this.modifyAckDeadlineRequest.capture());
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckIdsCount()).isEqualTo(1);
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckDeadlineSeconds()).isEqualTo(0);
+
+		future.get();
+		assertThat(future.isDone()).isTrue();
+	}
+
+	@Test
+	public void testDestroyFlushesBatchedAcks() throws InterruptedException, ExecutionException {
+		ScheduledFuture<?> scheduledFuture = mock(ScheduledFuture.class);
+		doReturn(scheduledFuture).when(this.ackExecutor).schedule(any(Runnable.class), anyLong(), any());
+		this.pubSubSubscriberTemplate.setAckBatchingSettings(BatchingSettings.newBuilder()
+				.setElementCountThreshold(100L)
+				.setDelayThreshold(Duration.ofSeconds(60))
+				.build(), FixedExecutorProvider.create(this.ackExecutor));
+
+		AcknowledgeablePubsubMessage message = this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0);
+		ListenableFuture<Void> future = message.ack();
+		verify(this.ackCallable, never()).futureCall(any(AcknowledgeRequest.class));
+
+		this.pubSubSubscriberTemplate.destroy();
+
+		verify(this.ackCallable).futureCall(this.acknowledgeRequest.capture());
+		assertThat(this.acknowledgeRequest.getValue().getAckIdsCount()).isEqualTo(1);
+		verify(scheduledFuture).cancel(false);
+		future.get();
+		assertThat(future.isDone()).isTrue();
+	}
+
+	@Test
+	public void testReplacingAckBatchingSettingsFlushesBatchedAcks() {
+		this.pubSubSubscriberTemplate.setAckBatchingSettings(BatchingSettings.newBuilder()
+				.setElementCountThreshold(100L)
+				.setDelayThreshold(Duration.ofSeconds(60))
+				.build(), FixedExecutorProvider.create(this.ackExecutor));
+
+		AcknowledgeablePubsubMessage message = this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0);
+		message.nack();
+		verify(this.modifyAckDeadlineCallable, never()).futureCall(any(ModifyAckDeadlineRequest.class));
+
+		this.pubSubSubscriberTemplate.setAckBatchingSettings(BatchingSettings.newBuilder()
+				.setIsEnabled(false)
+				.setDelayThreshold(Duration.ofSeconds(60))
+				.build(), FixedExecutorProvider.create(this.ackExecutor));
+
+		verify(this.modifyAckDeadlineCallable).futureCall(this.modifyAckDeadlineRequest.capture());
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckIdsCount()).isEqualTo(1);
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckDeadlineSeconds()).isEqualTo(0);
+	}
+
+	@Test
+	public void testAcksAndNacksRecordedAfterSuccess() {
+		PubSubMetrics metrics = mock(PubSubMetrics.class);
+		this.pubSubSubscriberTemplate.setMetrics(metrics);
+
+		this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0).ack();
+		this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0).nack();
+		this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0).modifyAckDeadline(10);
+		this.pubSubSubscriberTemplate.pullAndAck("sub2", 1, true);
+
+		verify(metrics, times(2)).messagesAcked("sub2", 1);
+		verify(metrics).messagesNacked("sub2", 1);
+	}
+
+	@Test
+	public void testFailedAcksAndNacksNotRecorded() {
+		PubSubMetrics metrics = mock(PubSubMetrics.class);
+		this.pubSubSubscriberTemplate.setMetrics(metrics);
+		when(this.ackCallable.futureCall(any(AcknowledgeRequest.class)))
+				.thenReturn(ApiFutures.immediateFailedFuture(new PubSubException("Ack failed.")));
+		when(this.modifyAckDeadlineCallable.futureCall(any(ModifyAckDeadlineRequest.class)))
+				.thenReturn(ApiFutures.immediateFailedFuture(new PubSubException("Nack failed.")));
+
+		this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0).ack();
+		this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0).nack();
+		this.pubSubSubscriberTemplate.pullAndAck("sub2", 1, true);
+
+		verify(metrics, never()).messagesAcked(any(), anyInt());
+		verify(metrics, never()).messagesNacked(any(), anyInt());
+	}
+
+	@Test
+	public void testBatchedAcksRecordedAfterSuccess() {
+		PubSubMetrics metrics = mock(PubSubMetrics.class);
+		this.pubSubSubscriberTemplate.setMetrics(metrics);
+		this.pubSubSubscriberTemplate.setAckBatchingSettings(BatchingSettings.newBuilder()
+				.setElementCountThreshold(100L)
+				.setDelayThreshold(Duration.ofSeconds(60))
+				.build(), FixedExecutorProvider.create(this.ackExecutor));
+
+		this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0).ack();
+		this.pubSubSubscriberTemplate.pull("sub2", 1, true).get(0).nack();
+		verify(metrics, never()).messagesAcked(any(), anyInt());
+		verify(metrics, never()).messagesNacked(any(), anyInt());
+
+		this.pubSubSubscriberTemplate.destroy();
+
+		verify(metrics).messagesAcked("sub2", 1);
+		verify(metrics).messagesNacked("sub2", 1);
+	}
+
+	@Test
+	public void testProjectSubscriptionNameReused() {
+		List<AcknowledgeablePubsubMessage> first = this.pubSubSubscriberTemplate.pull("sub2", 1, true);
+		List<AcknowledgeablePubsubMessage> second = this.pubSubSubscriberTemplate.pull("sub2", 1, true);
+
+		assertThat(first.get(0).getProjectSubscriptionName())
+				.isSameAs(second.get(0).getProjectSubscriptionName());
+	}
+
+	@Test
+	public void testProjectSubscriptionNameCacheBounded() {
+		for (int i = 0; i < PubSubSubscriberTemplate.MAX_CACHED_SUBSCRIPTION_NAMES; i++) {
+			this.pubSubSubscriberTemplate.pull("sub" + i, 1, true);
+		}
+
+		List<AcknowledgeablePubsubMessage> first = this.pubSubSubscriberTemplate.pull("uncached", 1, true);
+		List<AcknowledgeablePubsubMessage> second = this.pubSubSubscriberTemplate.pull("uncached", 1, true);
+
+		assertThat(first.get(0).getProjectSubscriptionName())
+				.isEqualTo(second.get(0).getProjectSubscriptionName())
+				.isNotSameAs(second.get(0).getProjectSubscriptionName());
+		assertThat(this.pubSubSubscriberTemplate.pull("sub0", 1, true).get(0).getProjectSubscriptionName())
+				.isSameAs(this.pubSubSubscriberTemplate.pull("sub0", 1, true).get(0).getProjectSubscriptionName());
+	}
+
+	@Test
+	public void testPullAndAckAcksReceivedAckIds() {
+		when(this.pullCallable.call(any(PullRequest.class))).thenReturn(PullResponse.newBuilder()
+				.addReceivedMessages(ReceivedMessage.newBuilder().setMessage(this.pubsubMessage).setAckId("ack1"))
+				.addReceivedMessages(ReceivedMessage.newBuilder().setMessage(this.pubsubMessage).setAckId("ack2"))
+				.build());
+
+		List<PubsubMessage> result = this.pubSubSubscriberTemplate.pullAndAck("sub2", 2, true);
+
+		assertThat(result).containsExactly(this.pubsubMessage, this.pubsubMessage);
+		verify(this.ackCallable).futureCall(this.acknowledgeRequest.capture());
+		assertThat(this.acknowledgeRequest.getValue().getSubscription()).isEqualTo("sub2");
+		assertThat(this.acknowledgeRequest.getValue().getAckIdsList()).containsExactly("ack1", "ack2");
+	}
+
+	@Test
+	public void testPullNextFromEmptySubscription() {
+		when(this.pullCallable.call(any(PullRequest.class))).thenReturn(PullResponse.getDefaultInstance());
+
+		assertThat(this.pubSubSubscriberTemplate.pullNext("sub2")).isNull();
+		verify(this.ackCallable, never()).futureCall(any(AcknowledgeRequest.class));
+	}
+
+	@Test
+	public void testParallelPull() {
+		when(this.pullCallable.futureCall(any(PullRequest.class))).thenReturn(ApiFutures.immediateFuture(
+				PullResponse.newBuilder()
+						.addReceivedMessages(ReceivedMessage.newBuilder().setMessage(this.pubsubMessage).build())
+						.build()));
+
+		List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.parallelPull("sub2", 10, true, 3);
+
+		verify(this.subscriberFactory).createPullRequest("sub2", 4, true);
+		verify(this.subscriberFactory, times(2)).createPullRequest("sub2", 3, true);
+		verify(this.pullCallable, times(3)).futureCall(any(PullRequest.class));
+		assertThat(result.size()).isEqualTo(3);
+		assertThat(result.get(0).getProjectSubscriptionName().getSubscription()).isEqualTo("sub2");
+	}
+
+	@Test
+	public void testParallelPullNeverRequestsZeroMessages() {
+		when(this.pullCallable.futureCall(any(PullRequest.class)))
+				.thenReturn(ApiFutures.immediateFuture(PullResponse.getDefaultInstance()));
+
+		List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.parallelPull("sub2", 2, true, 5);
+
+		verify(this.subscriberFactory, times(2)).createPullRequest("sub2", 1, true);
+		assertThat(result).isEmpty();
+	}
+
+	@Test(expected = PubSubException.class)
+	public void testParallelPullFailure() {
+		when(this.pullCallable.futureCall(any(PullRequest.class)))
+				.thenReturn(ApiFutures.immediateFailedFuture(new PubSubException("Pull failed.")));
+
+		this.pubSubSubscriberTemplate.parallelPull("sub2", 10, true, 2);
+	}
+
+	@Test
+	public void testParallelPullFailureNacksReceivedMessages() {
+		when(this.pullCallable.futureCall(any(PullRequest.class)))
+				.thenReturn(ApiFutures.immediateFuture(PullResponse.newBuilder()
+						.addReceivedMessages(ReceivedMessage.newBuilder()
+								.setAckId("ack1")
+								.setMessage(this.pubsubMessage))
+						.build()))
+				.thenReturn(ApiFutures.immediateFailedFuture(new PubSubException("Pull failed.")));
+
+		assertThatThrownBy(() -> this.pubSubSubscriberTemplate.parallelPull("sub2", 10, true, 2))
+				.isInstanceOf(PubSubException.class)
+				.hasMessage("Pull failed.");
+
+		verify(this.modifyAckDeadlineCallable).futureCall(this.modifyAckDeadlineRequest.capture());
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckIdsList()).containsExactly("ack1");
+		assertThat(this.modifyAckDeadlineRequest.getValue().getAckDeadlineSeconds()).isZero();
+		assertThat(this.modifyAckDeadlineRequest.getValue().getSubscription()).isEqualTo("sub2");
+	}
 
 	private class TestConsumer implements Consumer<BasicAcknowledgeablePubsubMessage> {
 
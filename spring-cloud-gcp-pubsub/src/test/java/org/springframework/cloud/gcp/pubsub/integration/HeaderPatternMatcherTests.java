@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.integration;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.integration.support.utils.PatternMatchUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link HeaderPatternMatcher}.
+ */
+public class HeaderPatternMatcherTests {
+
+	private static final List<String> HEADER_NAMES = Arrays.asList(
+			"id", "timestamp", "gcp_pubsub_acknowledgement", "gcp_pubsub_ordering_key", "nativeHeaders",
+			"key1", "key2", "keyless", "custom_key", "custom", "", "!id", "x-trace-id", "x-span");
+
+	@Test
+	public void testMatchesAll() {
+		HeaderPatternMatcher matcher = new HeaderPatternMatcher("*", "!id");
+
+		assertThat(matcher.matchesAll()).isTrue();
+		assertThat(HEADER_NAMES).allMatch(matcher::matches);
+	}
+
+	@Test
+	public void testNoPatterns() {
+		HeaderPatternMatcher matcher = new HeaderPatternMatcher();
+
+		assertThat(matcher.matchesAll()).isFalse();
+		assertThat(HEADER_NAMES).noneMatch(matcher::matches);
+	}
+
+	@Test
+	public void testSameDecisionsAsSmartMatch() {
+		assertSameDecisionsAsSmartMatch("!id", "!timestamp", "!gcp_pubsub_acknowledgement", "!nativeHeaders", "*");
+		assertSameDecisionsAsSmartMatch("key1", "key*");
+		assertSameDecisionsAsSmartMatch("!key1", "key*", "custom");
+		assertSameDecisionsAsSmartMatch("!x-*", "*-id", "*");
+		assertSameDecisionsAsSmartMatch("*_key", "!gcp_pubsub_*", "gcp_*");
+		assertSameDecisionsAsSmartMatch("!gcp_pubsub_*", "*_key", "x-*-id");
+		assertSameDecisionsAsSmartMatch("\\!id", "ke*", "!key*");
+		assertSameDecisionsAsSmartMatch("!*", "*");
+	}
+
+	@Test
+	public void testCachedDecisions() {
+		HeaderPatternMatcher matcher = new HeaderPatternMatcher("!key1", "key*");
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(matcher.matches("key1")).isFalse();
+			assertThat(matcher.matches("key2")).isTrue();
+			assertThat(matcher.matches("other")).isFalse();
+		}
+	}
+
+	private static void assertSameDecisionsAsSmartMatch(String... patterns) {
+		HeaderPatternMatcher matcher = new HeaderPatternMatcher(patterns);
+		for (String headerName : HEADER_NAMES) {
+			assertThat(matcher.matches(headerName))
+					.as("%s matched by %s", headerName, Arrays.toString(patterns))
+					.isEqualTo(Boolean.TRUE.equals(PatternMatchUtils.smartMatch(headerName, patterns)));
+		}
+	}
+
+}
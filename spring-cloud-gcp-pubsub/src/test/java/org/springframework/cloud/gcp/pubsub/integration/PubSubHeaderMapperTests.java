@@ -16,11 +16,13 @@
 
 package org.springframework.cloud.gcp.pubsub.integration;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.Test;
 
+import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.NativeMessageHeaderAccessor;
 
@@ -69,4 +71,16 @@ public class PubSubHeaderMapperTests {
 		Map<String, Object> internalHeaders = mapper.toHeaders(originalHeaders);
 		assertThat(internalHeaders.size()).isEqualTo(3);
 	}
+
+	@Test
+	public void testOrderingKeyMapped() {
+		PubSubHeaderMapper mapper = new PubSubHeaderMapper();
+		MessageHeaders internalHeaders = new MessageHeaders(
+				Collections.singletonMap(GcpPubSubHeaders.ORDERING_KEY, "customer-42"));
+
+		Map<String, String> pubsubHeaders = new HashMap<>();
+		mapper.fromHeaders(internalHeaders, pubsubHeaders);
+		assertThat(pubsubHeaders).containsEntry(GcpPubSubHeaders.ORDERING_KEY, "customer-42");
+		assertThat(mapper.toHeaders(pubsubHeaders)).containsEntry(GcpPubSubHeaders.ORDERING_KEY, "customer-42");
+	}
 }
@@ -17,25 +17,48 @@
 package org.springframework.cloud.gcp.pubsub.integration.inbound;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 import java.util.function.Consumer;
 
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.pubsub.v1.PubsubMessage;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import org.springframework.cloud.gcp.pubsub.core.PubSubOperations;
 import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
 import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+import org.springframework.cloud.gcp.pubsub.integration.PubSubHeaderMapper;
+import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.converter.CompressingPubSubMessageConverter;
 import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import org.springframework.cloud.gcp.pubsub.support.converter.SimplePubSubMessageConverter;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.scheduling.TaskScheduler;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -62,6 +85,8 @@ public class PubSubInboundChannelAdapterTests {
 
 	private String value;
 
+	private ConvertedBasicAcknowledgeablePubsubMessage message;
+
 	@Before
 	public void setUp() throws UnsupportedEncodingException {
 		this.pubSubOperations = mock(PubSubOperations.class);
@@ -69,6 +94,7 @@ public class PubSubInboundChannelAdapterTests {
 		this.messageChannel = mock(MessageChannel.class);
 		this.value = null;
 		ConvertedBasicAcknowledgeablePubsubMessage message = mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+		this.message = message;
 
 		doAnswer(invocation -> {
 			this.value = NACK;
@@ -118,6 +144,25 @@ public class PubSubInboundChannelAdapterTests {
 		Assert.assertEquals(NACK, this.value);
 	}
 
+	@Test
+	public void testAckModeAutoWithFailureHandler() {
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				this.pubSubSubscriberOperations, "testSubscription");
+		List<Throwable> failures = new ArrayList<>();
+
+		adapter.setAckMode(AckMode.AUTO);
+		adapter.setOutputChannel(this.messageChannel);
+		adapter.setFailureHandler((message, failure) -> failures.add(failure));
+
+		// The failure isn't thrown to the subscriber, which would nack the message.
+		adapter.start();
+
+		Assert.assertEquals(1, failures.size());
+		Assert.assertEquals(EXCEPTION_MESSAGE, failures.get(0).getMessage());
+		verify(this.message, never()).ack();
+		verify(this.message, never()).nack();
+	}
+
 	@Test
 	public void testAckModeAutoAck() {
 		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
@@ -138,4 +183,186 @@ public class PubSubInboundChannelAdapterTests {
 		Assert.assertNull(this.value);
 	}
 
+	@Test
+	public void testBatchSize() {
+		QueueChannel outputChannel = new QueueChannel();
+		TaskScheduler taskScheduler = mock(TaskScheduler.class);
+		Consumer<ConvertedBasicAcknowledgeablePubsubMessage> consumer =
+				startBatchAdapter(AckMode.AUTO, outputChannel, taskScheduler);
+		ConvertedBasicAcknowledgeablePubsubMessage first = mockMessage("first", "key", "value1");
+		ConvertedBasicAcknowledgeablePubsubMessage second = mockMessage("second", "key", "value2");
+		ConvertedBasicAcknowledgeablePubsubMessage third = mockMessage("third", "key", "value3");
+
+		consumer.accept(first);
+		consumer.accept(second);
+		Assert.assertNull(outputChannel.receive(0));
+
+		consumer.accept(third);
+		Message<?> batch = outputChannel.receive(0);
+		Assert.assertEquals(Arrays.asList("first", "second", "third"), batch.getPayload());
+		List<Map<String, Object>> batchHeaders = (List<Map<String, Object>>) batch.getHeaders()
+				.get(GcpPubSubHeaders.BATCH_HEADERS);
+		Assert.assertEquals(3, batchHeaders.size());
+		Assert.assertEquals("value2", batchHeaders.get(1).get("key"));
+		Assert.assertFalse(batch.getHeaders().containsKey(GcpPubSubHeaders.ACKNOWLEDGEMENT));
+
+		verify(first, times(1)).ack();
+		verify(second, times(1)).ack();
+		verify(third, times(1)).ack();
+		verify(taskScheduler, times(1)).schedule(isA(Runnable.class), isA(Date.class));
+	}
+
+	@Test
+	public void testBatchTimeout() {
+		QueueChannel outputChannel = new QueueChannel();
+		TaskScheduler taskScheduler = mock(TaskScheduler.class);
+		Consumer<ConvertedBasicAcknowledgeablePubsubMessage> consumer =
+				startBatchAdapter(AckMode.AUTO, outputChannel, taskScheduler);
+		ConvertedBasicAcknowledgeablePubsubMessage first = mockMessage("first", "key", "value1");
+
+		consumer.accept(first);
+		ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+		verify(taskScheduler).schedule(timeout.capture(), isA(Date.class));
+		Assert.assertNull(outputChannel.receive(0));
+
+		timeout.getValue().run();
+		Assert.assertEquals(Arrays.asList("first"), outputChannel.receive(0).getPayload());
+		verify(first, times(1)).ack();
+
+		timeout.getValue().run();
+		Assert.assertNull(outputChannel.receive(0));
+	}
+
+	@Test
+	public void testBatchAutoNack() {
+		TaskScheduler taskScheduler = mock(TaskScheduler.class);
+		Consumer<ConvertedBasicAcknowledgeablePubsubMessage> consumer =
+				startBatchAdapter(AckMode.AUTO, this.messageChannel, taskScheduler);
+		ConvertedBasicAcknowledgeablePubsubMessage first = mockMessage("first", "key", "value1");
+		ConvertedBasicAcknowledgeablePubsubMessage second = mockMessage("second", "key", "value2");
+		ConvertedBasicAcknowledgeablePubsubMessage third = mockMessage("third", "key", "value3");
+
+		consumer.accept(first);
+		consumer.accept(second);
+		try {
+			consumer.accept(third);
+			Assert.fail(EXPECTED_EXCEPTION);
+		}
+		catch (RuntimeException re) {
+			Assert.assertEquals(EXCEPTION_MESSAGE, re.getCause().getMessage());
+		}
+
+		verify(first, times(1)).nack();
+		verify(second, times(1)).nack();
+		verify(third, times(1)).nack();
+		verify(first, never()).ack();
+	}
+
+	@Test
+	public void testBatchManualAck() {
+		QueueChannel outputChannel = new QueueChannel();
+		Consumer<ConvertedBasicAcknowledgeablePubsubMessage> consumer =
+				startBatchAdapter(AckMode.MANUAL, outputChannel, mock(TaskScheduler.class));
+		ConvertedBasicAcknowledgeablePubsubMessage first = mockMessage("first", "key", "value1");
+		ConvertedBasicAcknowledgeablePubsubMessage second = mockMessage("second", "key", "value2");
+		ConvertedBasicAcknowledgeablePubsubMessage third = mockMessage("third", "key", "value3");
+
+		consumer.accept(first);
+		consumer.accept(second);
+		consumer.accept(third);
+		verify(first, never()).ack();
+
+		outputChannel.receive(0).getHeaders()
+				.get(GcpPubSubHeaders.ACKNOWLEDGEMENT, AckReplyConsumer.class).ack();
+		verify(first, times(1)).ack();
+		verify(second, times(1)).ack();
+		verify(third, times(1)).ack();
+	}
+
+	@Test
+	public void testMessageFilter() {
+		PubSubSubscriberOperations subscriberOperations = mock(PubSubSubscriberOperations.class);
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				subscriberOperations, "testSubscription");
+		QueueChannel outputChannel = new QueueChannel();
+		adapter.setOutputChannel(outputChannel);
+		adapter.setMessageFilter(message -> message.getPubsubMessage().containsAttributes("key"));
+		adapter.start();
+		ArgumentCaptor<Consumer> consumer = ArgumentCaptor.forClass(Consumer.class);
+		verify(subscriberOperations).subscribeAndConvert(eq("testSubscription"), consumer.capture(),
+				eq(byte[].class));
+		ConvertedBasicAcknowledgeablePubsubMessage rejected = mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+		when(rejected.getPubsubMessage()).thenReturn(PubsubMessage.getDefaultInstance());
+
+		consumer.getValue().accept(rejected);
+		consumer.getValue().accept(mockMessage("accepted", "key", "value"));
+
+		Assert.assertEquals("accepted", outputChannel.receive(0).getPayload());
+		Assert.assertNull(outputChannel.receive(0));
+		verify(rejected, times(1)).ack();
+	}
+
+	@Test
+	public void testCompressedMessageRepublished() {
+		CompressingPubSubMessageConverter converter =
+				new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter());
+		String payload = String.join("", Collections.nCopies(1000, "payload"));
+		PubsubMessage received = converter.toPubSubMessage(payload, Collections.singletonMap("key", "value"));
+		ConvertedBasicAcknowledgeablePubsubMessage message = mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+		when(message.getPubsubMessage()).thenReturn(received);
+		when(message.getPayload()).thenReturn(converter.fromPubSubMessage(received, String.class));
+
+		PubSubSubscriberOperations subscriberOperations = mock(PubSubSubscriberOperations.class);
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				subscriberOperations, "testSubscription");
+		QueueChannel outputChannel = new QueueChannel();
+		adapter.setOutputChannel(outputChannel);
+		adapter.start();
+		ArgumentCaptor<Consumer> consumer = ArgumentCaptor.forClass(Consumer.class);
+		verify(subscriberOperations).subscribeAndConvert(eq("testSubscription"), consumer.capture(),
+				eq(byte[].class));
+		consumer.getValue().accept(message);
+
+		Message<?> inbound = outputChannel.receive(0);
+		Assert.assertEquals("value", inbound.getHeaders().get("key"));
+		Assert.assertFalse(inbound.getHeaders()
+				.containsKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE));
+
+		Map<String, String> attributes = new HashMap<>();
+		new PubSubHeaderMapper().fromHeaders(inbound.getHeaders(), attributes);
+		PubsubMessage republished = converter.toPubSubMessage(inbound.getPayload(), attributes);
+
+		Assert.assertEquals("gzip",
+				republished.getAttributesOrThrow(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE));
+		Assert.assertTrue(republished.getData().size() < payload.length());
+		Assert.assertEquals(payload, converter.fromPubSubMessage(republished, String.class));
+	}
+
+	private Consumer<ConvertedBasicAcknowledgeablePubsubMessage> startBatchAdapter(AckMode ackMode,
+			MessageChannel outputChannel, TaskScheduler taskScheduler) {
+		PubSubSubscriberOperations subscriberOperations = mock(PubSubSubscriberOperations.class);
+		PubSubInboundChannelAdapter adapter = new PubSubInboundChannelAdapter(
+				subscriberOperations, "testSubscription");
+		adapter.setAckMode(ackMode);
+		adapter.setBatchSize(3);
+		adapter.setOutputChannel(outputChannel);
+		adapter.setTaskScheduler(taskScheduler);
+		doReturn(mock(ScheduledFuture.class)).when(taskScheduler).schedule(any(Runnable.class), any(Date.class));
+
+		adapter.start();
+
+		ArgumentCaptor<Consumer> consumer = ArgumentCaptor.forClass(Consumer.class);
+		verify(subscriberOperations).subscribeAndConvert(eq("testSubscription"), consumer.capture(),
+				eq(byte[].class));
+		return consumer.getValue();
+	}
+
+	private static ConvertedBasicAcknowledgeablePubsubMessage mockMessage(String payload, String key,
+			String value) {
+		ConvertedBasicAcknowledgeablePubsubMessage message = mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+		when(message.getPayload()).thenReturn(payload);
+		when(message.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder().putAttributes(key, value).build());
+		return message;
+	}
+
 }
@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.integration.inbound;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
+import org.springframework.cloud.gcp.pubsub.integration.AckMode;
+import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.cloud.gcp.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.integration.acks.AcknowledgmentCallback.Status;
+import org.springframework.integration.mapping.HeaderMapper;
+import org.springframework.messaging.Message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PubSubMessageSource}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PubSubMessageSourceTests {
+
+	@Mock
+	private PubSubSubscriberOperations pubSubSubscriberOperations;
+
+	private PubSubMessageSource messageSource;
+
+	@Before
+	public void setUp() {
+		this.messageSource = new PubSubMessageSource(this.pubSubSubscriberOperations, "testSubscription");
+	}
+
+	@Test
+	public void testBufferedMessages() {
+		ConvertedAcknowledgeablePubsubMessage<byte[]> first = mockMessage("first");
+		ConvertedAcknowledgeablePubsubMessage<byte[]> second = mockMessage("second");
+		this.messageSource.setMaxMessages(2);
+		when(this.pubSubSubscriberOperations.pullAndConvert("testSubscription", 2, true, byte[].class))
+				.thenReturn(Arrays.asList(first, second));
+
+		assertThat(this.messageSource.receive().getPayload()).isEqualTo("first".getBytes());
+		assertThat(this.messageSource.getBufferedMessageCount()).isEqualTo(1);
+		Message<?> message = this.messageSource.receive();
+		assertThat(message.getPayload()).isEqualTo("second".getBytes());
+		assertThat(message.getHeaders()).containsEntry("key", "second");
+		assertThat(this.messageSource.getBufferedMessageCount()).isZero();
+
+		verify(this.pubSubSubscriberOperations, times(1))
+				.pullAndConvert("testSubscription", 2, true, byte[].class);
+	}
+
+	@Test
+	public void testNoMessages() {
+		this.messageSource.setBlockOnPull(true);
+		when(this.pubSubSubscriberOperations.pullAndConvert("testSubscription", 1, false, byte[].class))
+				.thenReturn(Collections.emptyList());
+
+		assertThat(this.messageSource.receive()).isNull();
+	}
+
+	@Test
+	public void testAckModeAuto() {
+		ConvertedAcknowledgeablePubsubMessage<byte[]> first = mockMessage("first");
+		ConvertedAcknowledgeablePubsubMessage<byte[]> second = mockMessage("second");
+		AcknowledgmentCallback firstCallback = receiveCallback(AckMode.AUTO, first);
+		AcknowledgmentCallback secondCallback = receiveCallback(AckMode.AUTO, second);
+
+		assertThat(firstCallback.isAutoAck()).isTrue();
+		firstCallback.acknowledge(Status.ACCEPT);
+		secondCallback.acknowledge(Status.REJECT);
+
+		verify(first, times(1)).ack();
+		verify(second, times(1)).nack();
+		assertThat(firstCallback.isAcknowledged()).isTrue();
+	}
+
+	@Test
+	public void testAckModeAutoAck() {
+		ConvertedAcknowledgeablePubsubMessage<byte[]> first = mockMessage("first");
+		ConvertedAcknowledgeablePubsubMessage<byte[]> second = mockMessage("second");
+		AcknowledgmentCallback firstCallback = receiveCallback(AckMode.AUTO_ACK, first);
+		AcknowledgmentCallback secondCallback = receiveCallback(AckMode.AUTO_ACK, second);
+
+		firstCallback.acknowledge(Status.ACCEPT);
+		secondCallback.acknowledge(Status.REJECT);
+
+		verify(first, times(1)).ack();
+		verify(second, never()).nack();
+		verify(second, never()).ack();
+	}
+
+	@Test
+	public void testAckModeManual() {
+		ConvertedAcknowledgeablePubsubMessage<byte[]> first = mockMessage("first");
+		this.messageSource.setAckMode(AckMode.MANUAL);
+		when(this.pubSubSubscriberOperations.pullAndConvert(eq("testSubscription"), anyInt(), anyBoolean(),
+				eq(byte[].class))).thenReturn(Collections.singletonList(first));
+
+		Message<?> message = this.messageSource.receive();
+		assertThat(StaticMessageHeaderAccessor.getAcknowledgmentCallback(message).isAutoAck()).isFalse();
+
+		message.getHeaders().get(GcpPubSubHeaders.ACKNOWLEDGEMENT, AckReplyConsumer.class).ack();
+		verify(first, times(1)).ack();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMessageNackedWhenNotReturned() {
+		ConvertedAcknowledgeablePubsubMessage<byte[]> first = mock(ConvertedAcknowledgeablePubsubMessage.class);
+		when(first.getPubsubMessage()).thenReturn(PubsubMessage.getDefaultInstance());
+		when(this.pubSubSubscriberOperations.pullAndConvert("testSubscription", 1, true, byte[].class))
+				.thenReturn(Collections.singletonList(first));
+		HeaderMapper<Map<String, String>> headerMapper = mock(HeaderMapper.class);
+		when(headerMapper.toHeaders(any())).thenThrow(new IllegalStateException("Can't map the headers."));
+		this.messageSource.setHeaderMapper(headerMapper);
+
+		assertThatThrownBy(() -> this.messageSource.receive())
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Can't map the headers.");
+
+		verify(first, times(1)).nack();
+	}
+
+	private AcknowledgmentCallback receiveCallback(AckMode ackMode,
+			ConvertedAcknowledgeablePubsubMessage<byte[]> pulledMessage) {
+		this.messageSource.setAckMode(ackMode);
+		when(this.pubSubSubscriberOperations.pullAndConvert(eq("testSubscription"), anyInt(), anyBoolean(),
+				eq(byte[].class))).thenReturn(Collections.singletonList(pulledMessage));
+
+		Message<?> message = this.messageSource.receive();
+		assertThat(message.getHeaders()).doesNotContainKey(GcpPubSubHeaders.ACKNOWLEDGEMENT);
+		return StaticMessageHeaderAccessor.getAcknowledgmentCallback(message);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ConvertedAcknowledgeablePubsubMessage<byte[]> mockMessage(String payload) {
+		ConvertedAcknowledgeablePubsubMessage<byte[]> message = mock(ConvertedAcknowledgeablePubsubMessage.class);
+		when(message.getPayload()).thenReturn(payload.getBytes());
+		when(message.getPubsubMessage()).thenReturn(PubsubMessage.newBuilder().putAttributes("key", payload).build());
+		return message;
+	}
+
+}
@@ -27,14 +27,26 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import org.springframework.cloud.gcp.pubsub.core.PubSubOperations;
 import org.springframework.cloud.gcp.pubsub.support.GcpPubSubHeaders;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.common.LiteralExpression;
+import org.springframework.integration.MessageTimeoutException;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.expression.ValueExpression;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.support.ErrorMessage;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 import org.springframework.util.concurrent.SettableListenableFuture;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -86,7 +98,8 @@ public class PubSubMessageHandlerTests {
 	@Test
 	public void testPublishSync() {
 		this.adapter.setSync(true);
-		Expression timeout = spy(this.adapter.getPublishTimeoutExpression());
+		Expression timeout = mock(Expression.class);
+		when(timeout.getValue(eq(null), eq(this.message), eq(Long.class))).thenReturn(1000L);
 		this.adapter.setPublishTimeoutExpression(timeout);
 
 		this.adapter.handleMessage(this.message);
@@ -94,6 +107,46 @@ public class PubSubMessageHandlerTests {
 				eq(null), eq(this.message), eq(Long.class));
 	}
 
+	@Test
+	public void testLiteralExpressionsNotEvaluated() {
+		this.adapter.setSync(true);
+		Expression topic = spy(new LiteralExpression("testTopic"));
+		Expression timeout = spy(new ValueExpression<>(1000L));
+		this.adapter.setTopicExpression(topic);
+		this.adapter.setPublishTimeoutExpression(timeout);
+
+		this.adapter.handleMessage(this.message);
+		this.adapter.handleMessage(this.message);
+
+		verify(topic, never()).getValue(any(EvaluationContext.class), any(), eq(String.class));
+		verify(timeout, never()).getValue(any(EvaluationContext.class), any(), eq(Long.class));
+		verify(this.pubSubTemplate, times(2))
+				.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class));
+	}
+
+	@Test
+	public void testSpelLiteralTopic() {
+		this.adapter.setTopicExpressionString("'testTopic'");
+		this.adapter.setPublishTimeoutExpressionString("1000");
+		this.adapter.setSync(true);
+
+		this.adapter.handleMessage(this.message);
+		verify(this.pubSubTemplate, times(1))
+				.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class));
+	}
+
+	@Test
+	public void testPublishCompiledTopicExpression() {
+		this.adapter.setTopicExpressionString("headers['key1'] == 'value1' ? 'testTopic' : 'otherTopic'");
+		this.adapter.afterPropertiesSet();
+
+		for (int i = 0; i < 200; i++) {
+			this.adapter.handleMessage(this.message);
+		}
+		verify(this.pubSubTemplate, times(200))
+				.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class));
+	}
+
 	@Test
 	public void testPublishCallback() {
 		ListenableFutureCallback<String> callbackSpy = spy(new ListenableFutureCallback<String>() {
@@ -114,4 +167,52 @@ public class PubSubMessageHandlerTests {
 
 		verify(callbackSpy, times(1)).onSuccess(eq("benfica"));
 	}
+
+	@Test
+	public void testPublishWindow() {
+		SettableListenableFuture<String> first = new SettableListenableFuture<>();
+		SettableListenableFuture<String> second = new SettableListenableFuture<>();
+		when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class)))
+				.thenReturn(first, second);
+		this.adapter.setMaxInFlight(1);
+		this.adapter.setPublishTimeout(10);
+
+		this.adapter.handleMessage(this.message);
+		assertThat(this.adapter.getInFlightCount()).isEqualTo(1);
+
+		assertThatThrownBy(() -> this.adapter.handleMessage(this.message))
+				.isInstanceOf(MessageTimeoutException.class);
+		verify(this.pubSubTemplate, times(1))
+				.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class));
+
+		first.set("benfica");
+		assertThat(this.adapter.getInFlightCount()).isZero();
+
+		this.adapter.handleMessage(this.message);
+		assertThat(this.adapter.getInFlightCount()).isEqualTo(1);
+		second.setException(new RuntimeException("publish failed."));
+		assertThat(this.adapter.getInFlightCount()).isZero();
+	}
+
+	@Test
+	public void testPublishFailureSentToErrorChannel() {
+		SettableListenableFuture<String> future = new SettableListenableFuture<>();
+		when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), isA(Map.class)))
+				.thenReturn(future);
+		QueueChannel errorChannel = new QueueChannel();
+		this.adapter.setErrorChannel(errorChannel);
+		this.adapter.setMaxInFlight(10);
+
+		this.adapter.handleMessage(this.message);
+		RuntimeException failure = new RuntimeException("publish failed.");
+		future.setException(failure);
+
+		ErrorMessage errorMessage = (ErrorMessage) errorChannel.receive(0);
+		assertThat(errorMessage.getOriginalMessage()).isSameAs(this.message);
+		assertThat(errorMessage.getPayload()).isInstanceOf(MessageHandlingException.class);
+		assertThat(((MessageHandlingException) errorMessage.getPayload()).getFailedMessage())
+				.isSameAs(this.message);
+		assertThat(errorMessage.getPayload().getCause()).isSameAs(failure);
+		assertThat(this.adapter.getInFlightCount()).isZero();
+	}
 }
@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.reactive;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import org.springframework.cloud.gcp.pubsub.core.PubSubException;
+import org.springframework.cloud.gcp.pubsub.core.subscriber.PubSubSubscriberOperations;
+import org.springframework.cloud.gcp.pubsub.support.AcknowledgeablePubsubMessage;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PubSubReactiveFactory}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PubSubReactiveFactoryTests {
+
+	@Mock
+	private PubSubSubscriberOperations subscriberOperations;
+
+	private PubSubReactiveFactory factory;
+
+	@Before
+	public void setUp() {
+		this.factory = new PubSubReactiveFactory(this.subscriberOperations, Schedulers.single());
+	}
+
+	@Test
+	public void testPullSizedFromDemand() {
+		when(this.subscriberOperations.pull("sub1", 3, true)).thenReturn(messages(3));
+
+		StepVerifier.create(this.factory.poll("sub1", 10), 3)
+				.expectNextCount(3)
+				.thenCancel()
+				.verify(Duration.ofSeconds(5));
+
+		verify(this.subscriberOperations).pull("sub1", 3, true);
+	}
+
+	@Test
+	public void testNoPullWithoutDemand() {
+		StepVerifier.create(this.factory.poll("sub1", 10), 0)
+				.expectSubscription()
+				.expectNoEvent(Duration.ofMillis(100))
+				.thenCancel()
+				.verify(Duration.ofSeconds(5));
+
+		verify(this.subscriberOperations, never()).pull(eq("sub1"), anyInt(), eq(true));
+	}
+
+	@Test
+	public void testEmptySubscriptionPolledAgain() {
+		when(this.subscriberOperations.pull("sub1", 2, true))
+				.thenReturn(Collections.emptyList())
+				.thenReturn(messages(2));
+
+		StepVerifier.create(this.factory.poll("sub1", 10), 2)
+				.expectNextCount(2)
+				.thenCancel()
+				.verify(Duration.ofSeconds(5));
+
+		verify(this.subscriberOperations, times(2)).pull("sub1", 2, true);
+	}
+
+	@Test
+	public void testMaxMessagesPerPullCapsRequest() {
+		this.factory.setMaxMessagesPerPull(2);
+		when(this.subscriberOperations.pull("sub1", 2, true)).thenReturn(messages(2));
+		when(this.subscriberOperations.pull("sub1", 1, true)).thenReturn(messages(1));
+
+		StepVerifier.create(this.factory.poll("sub1", 10), 5)
+				.expectNextCount(5)
+				.thenCancel()
+				.verify(Duration.ofSeconds(5));
+
+		verify(this.subscriberOperations, times(2)).pull("sub1", 2, true);
+		verify(this.subscriberOperations).pull("sub1", 1, true);
+	}
+
+	@Test
+	public void testPullErrorTerminatesFlux() {
+		when(this.subscriberOperations.pull("sub1", 1, true))
+				.thenThrow(new PubSubException("Pull failed."));
+
+		StepVerifier.create(this.factory.poll("sub1", 10), 1)
+				.expectError(PubSubException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPollingPeriod() {
+		this.factory.poll("sub1", 0);
+	}
+
+	private static List<AcknowledgeablePubsubMessage> messages(int count) {
+		List<AcknowledgeablePubsubMessage> messages = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			messages.add(mock(AcknowledgeablePubsubMessage.class));
+		}
+		return messages;
+	}
+
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.gcp.pubsub.support;
 
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.cloud.pubsub.v1.Publisher;
 import com.google.pubsub.v1.ProjectTopicName;
@@ -23,8 +24,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.threeten.bp.Duration;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author João André Martins
@@ -47,6 +51,78 @@ public class DefaultPublisherFactoryTests {
 		assertEquals("projectId", ((ProjectTopicName) publisher.getTopicName()).getProject());
 	}
 
+	@Test
+	public void testPublisherPoolRoundRobin() {
+		DefaultPublisherFactory factory = new DefaultPublisherFactory(() -> "projectId");
+		factory.setCredentialsProvider(this.credentialsProvider);
+		factory.setPoolSize("hotTopic", 3);
+
+		Publisher[] publishers = factory.getPublishers("hotTopic");
+		assertEquals(0, publishers.length);
+
+		Publisher first = factory.createPublisher("hotTopic");
+		Publisher second = factory.createPublisher("hotTopic");
+		Publisher third = factory.createPublisher("hotTopic");
+		publishers = factory.getPublishers("hotTopic");
+
+		assertEquals(3, publishers.length);
+		assertArrayEquals(new Publisher[] { first, second, third }, publishers);
+		assertSame(first, factory.createPublisher("hotTopic"));
+		assertSame(first, factory.getCache().get("hotTopic"));
+		assertEquals(1, factory.getCache().size());
+	}
+
+	@Test
+	public void testPublisherPoolByKey() {
+		DefaultPublisherFactory factory = new DefaultPublisherFactory(() -> "projectId");
+		factory.setCredentialsProvider(this.credentialsProvider);
+		factory.setPoolSize(4);
+
+		Publisher publisher = factory.createPublisher("testTopic", "key");
+
+		assertEquals(4, factory.getPublishers("testTopic").length);
+		for (int i = 0; i < 10; i++) {
+			assertSame(publisher, factory.createPublisher("testTopic", "key"));
+		}
+	}
+
+	@Test
+	public void testDefaultPoolSize() {
+		DefaultPublisherFactory factory = new DefaultPublisherFactory(() -> "projectId");
+		factory.setCredentialsProvider(this.credentialsProvider);
+
+		Publisher publisher = factory.createPublisher("testTopic");
+
+		assertSame(publisher, factory.createPublisher("testTopic"));
+		assertSame(publisher, factory.createPublisher("testTopic", "key"));
+		assertEquals(1, factory.getPublishers("testTopic").length);
+	}
+
+	@Test
+	public void testTopicBatchingSettings() {
+		BatchingSettings defaultSettings = BatchingSettings.newBuilder()
+				.setElementCountThreshold(100L)
+				.setRequestByteThreshold(10000L)
+				.setDelayThreshold(Duration.ofMillis(100))
+				.build();
+		BatchingSettings topicSettings = defaultSettings.toBuilder()
+				.setElementCountThreshold(1L)
+				.build();
+
+		DefaultPublisherFactory factory = new DefaultPublisherFactory(() -> "projectId");
+		factory.setCredentialsProvider(this.credentialsProvider);
+		factory.setBatchingSettings(defaultSettings);
+		factory.setBatchingSettings("controlTopic", topicSettings);
+
+		assertEquals(topicSettings, factory.createPublisher("controlTopic").getBatchingSettings());
+		assertEquals(defaultSettings, factory.createPublisher("telemetryTopic").getBatchingSettings());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPoolSize() {
+		new DefaultPublisherFactory(() -> "projectId").setPoolSize("testTopic", 0);
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testNewDefaultPublisherFactory_nullProjectIdProvider() {
 		new DefaultPublisherFactory(null);
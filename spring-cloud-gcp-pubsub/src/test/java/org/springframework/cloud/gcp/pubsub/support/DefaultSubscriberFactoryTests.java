@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.gcp.pubsub.support;
 
+import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.cloud.pubsub.v1.Subscriber;
 import org.junit.Test;
@@ -45,6 +46,27 @@ public class DefaultSubscriberFactoryTests {
 				.isEqualTo("projects/angeldust/subscriptions/midnight cowboy");
 	}
 
+	@Test
+	public void testSubscriptionFlowControlSettings() {
+		FlowControlSettings globalSettings = FlowControlSettings.newBuilder()
+				.setMaxOutstandingElementCount(10L).build();
+		FlowControlSettings subscriptionSettings = FlowControlSettings.newBuilder()
+				.setMaxOutstandingElementCount(100L).build();
+		DefaultSubscriberFactory factory = new DefaultSubscriberFactory(() -> "angeldust");
+		factory.setCredentialsProvider(this.credentialsProvider);
+		factory.setFlowControlSettings(globalSettings);
+		factory.setFlowControlSettings("hot", subscriptionSettings);
+
+		assertThat(factory.createSubscriber("hot", (message, consumer) -> { }).getFlowControlSettings())
+				.isEqualTo(subscriptionSettings);
+		assertThat(factory.createSubscriber("cold", (message, consumer) -> { }).getFlowControlSettings())
+				.isEqualTo(globalSettings);
+
+		factory.setFlowControlSettings("hot", null);
+		assertThat(factory.createSubscriber("hot", (message, consumer) -> { }).getFlowControlSettings())
+				.isEqualTo(globalSettings);
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testNewDefaultSubscriberFactory_nullProjectProvider() {
 		new DefaultSubscriberFactory(null);
@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link MicrometerPubSubMetrics}.
+ */
+public class MicrometerPubSubMetricsTests {
+
+	@Test
+	public void testPublishMeters() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		MicrometerPubSubMetrics metrics = new MicrometerPubSubMetrics(registry);
+
+		metrics.messageSerialized("orders", TimeUnit.MILLISECONDS.toNanos(1));
+		metrics.publishStarted("orders");
+		metrics.publishStarted("projects/my-project/topics/orders");
+		assertEquals(2, registry.get("pubsub.publish.pending").tag("topic", "orders").gauge().value(), 0.0001);
+
+		metrics.publishCompleted("orders", 100, TimeUnit.MILLISECONDS.toNanos(20), null);
+		metrics.publishCompleted("projects/my-project/topics/orders", 50, TimeUnit.MILLISECONDS.toNanos(30),
+				new RuntimeException("Publishing failed."));
+
+		assertEquals(0, registry.get("pubsub.publish.pending").tag("topic", "orders").gauge().value(), 0.0001);
+		assertEquals(1, registry.get("pubsub.publish").tags("topic", "orders", "outcome", "success").timer().count());
+		assertEquals(1, registry.get("pubsub.publish").tags("topic", "orders", "outcome", "failure").timer().count());
+		assertEquals(100, registry.get("pubsub.publish.bytes").tag("topic", "orders").counter().count(), 0.0001);
+		assertEquals(1, registry.get("pubsub.publish.conversion").tag("topic", "orders").timer().count());
+	}
+
+	@Test
+	public void testSubscribeMeters() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		MicrometerPubSubMetrics metrics = new MicrometerPubSubMetrics(registry);
+
+		metrics.messagesPulled("projects/my-project/subscriptions/billing", 2);
+		metrics.messageReceived("projects/my-project/subscriptions/billing", 10);
+		metrics.messageReceived("billing", 20);
+		metrics.messageDeserialized("billing", 1000);
+		metrics.messagesAcked("billing", 1);
+		metrics.messagesNacked("billing", 1);
+		metrics.messageDelivered("billing", 1000, null);
+
+		assertEquals(2, registry.get("pubsub.receive.messages").tag("subscription", "billing").counter().count(),
+				0.0001);
+		assertEquals(30, registry.get("pubsub.receive.bytes").tag("subscription", "billing").counter().count(),
+				0.0001);
+		assertEquals(2, registry.get("pubsub.pull.size").tag("subscription", "billing").summary().totalAmount(),
+				0.0001);
+		assertEquals(1, registry.get("pubsub.receive.conversion").tag("subscription", "billing").timer().count());
+		assertEquals(1, registry.get("pubsub.acks").tag("subscription", "billing").counter().count(), 0.0001);
+		assertEquals(1, registry.get("pubsub.nacks").tag("subscription", "billing").counter().count(), 0.0001);
+		assertEquals(1, registry.get("pubsub.delivery").tags("subscription", "billing", "outcome", "success")
+				.timer().count());
+	}
+
+	@Test
+	public void testMetersAddedToLaterRegistry() {
+		MicrometerPubSubMetrics metrics = new MicrometerPubSubMetrics();
+		metrics.messagesAcked("billing", 1);
+
+		MeterRegistry registry = new SimpleMeterRegistry();
+		metrics.bindTo(registry);
+		metrics.messagesAcked("billing", 2);
+
+		assertEquals(2, registry.get("pubsub.acks").tag("subscription", "billing").counter().count(), 0.0001);
+	}
+
+}
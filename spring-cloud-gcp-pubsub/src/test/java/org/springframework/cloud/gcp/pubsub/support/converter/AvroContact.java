@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import org.apache.avro.Schema;
+import org.apache.avro.specific.SpecificRecordBase;
+
+/**
+ * An Avro record class for tests, shaped like the ones generated by the Avro compiler.
+ */
+public class AvroContact extends SpecificRecordBase {
+
+	public static final Schema SCHEMA$ = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"AvroContact\","
+			+ "\"namespace\":\"org.springframework.cloud.gcp.pubsub.support.converter\","
+			+ "\"fields\":[{\"name\":\"name\",\"type\":\"string\"},{\"name\":\"zip\",\"type\":\"int\"}]}");
+
+	CharSequence name;
+
+	int zip;
+
+	public AvroContact() {
+	}
+
+	AvroContact(CharSequence name, int zip) {
+		this.name = name;
+		this.zip = zip;
+	}
+
+	@Override
+	public Schema getSchema() {
+		return SCHEMA$;
+	}
+
+	@Override
+	public Object get(int field) {
+		return (field == 0) ? this.name : this.zip;
+	}
+
+	@Override
+	public void put(int field, Object value) {
+		if (field == 0) {
+			this.name = (CharSequence) value;
+		}
+		else {
+			this.zip = (Integer) value;
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link AvroPubSubMessageConverter}.
+ */
+public class AvroPubSubMessageConverterTests {
+
+	private AvroPubSubMessageConverter converter = new AvroPubSubMessageConverter();
+
+	@Test
+	public void testRoundTrip() {
+		AvroContact contact = new AvroContact("Grace", 8817);
+
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(contact, null);
+
+		assertThat(pubsubMessage.getAttributesMap()).containsEntry(
+				AvroPubSubMessageConverter.SCHEMA_ATTRIBUTE,
+				"org.springframework.cloud.gcp.pubsub.support.converter.AvroContact");
+
+		AvroContact converted = this.converter.fromPubSubMessage(pubsubMessage, AvroContact.class);
+		assertThat(converted.name.toString()).isEqualTo("Grace");
+		assertThat(converted.zip).isEqualTo(8817);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testFromMismatchedSchema() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(new AvroContact("Grace", 8817), null)
+				.toBuilder()
+				.putAttributes(AvroPubSubMessageConverter.SCHEMA_ATTRIBUTE, "com.example.Other")
+				.build();
+
+		this.converter.fromPubSubMessage(pubsubMessage, AvroContact.class);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testToNonAvroPayload() {
+		this.converter.toPubSubMessage("not an Avro record", null);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testFromNonAvroType() {
+		this.converter.fromPubSubMessage(PubsubMessage.getDefaultInstance(), String.class);
+	}
+
+}
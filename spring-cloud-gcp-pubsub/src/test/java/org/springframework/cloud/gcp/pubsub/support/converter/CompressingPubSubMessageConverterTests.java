@@ -0,0 +1,229 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import org.junit.Test;
+
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link CompressingPubSubMessageConverter}.
+ */
+public class CompressingPubSubMessageConverterTests {
+
+	private static final String LARGE_PAYLOAD = String.join("", Collections.nCopies(1000, "{\"key\":\"value\"}"));
+
+	private CompressingPubSubMessageConverter converter =
+			new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter());
+
+	@Test
+	public void testRoundTrip() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD,
+				Collections.singletonMap("key", "value"));
+
+		assertThat(pubsubMessage.getData().size()).isLessThan(LARGE_PAYLOAD.length());
+		assertThat(pubsubMessage.getAttributesMap())
+				.containsEntry("key", "value")
+				.containsEntry(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip");
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(LARGE_PAYLOAD);
+	}
+
+	@Test
+	public void testRepeatedRoundTrips() {
+		for (int i = 0; i < 10; i++) {
+			String payload = LARGE_PAYLOAD + i;
+			PubsubMessage pubsubMessage = this.converter.toPubSubMessage(payload, null);
+			assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(payload);
+		}
+	}
+
+	@Test
+	public void testCompressedDataIsGzip() throws IOException {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+
+		try (InputStream inputStream = new GZIPInputStream(pubsubMessage.getData().newInput())) {
+			assertThat(StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8)).isEqualTo(LARGE_PAYLOAD);
+		}
+	}
+
+	@Test
+	public void testFromGzipData() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream outputStream = new GZIPOutputStream(bytes)) {
+			outputStream.write(LARGE_PAYLOAD.getBytes(StandardCharsets.UTF_8));
+		}
+
+		PubsubMessage pubsubMessage = PubsubMessage.newBuilder()
+				.setData(ByteString.copyFrom(bytes.toByteArray()))
+				.putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip")
+				.build();
+
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(LARGE_PAYLOAD);
+	}
+
+	@Test
+	public void testContentEncodingHeaderIgnored() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD,
+				Collections.singletonMap(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip"));
+
+		assertThat(pubsubMessage.getData().size()).isLessThan(LARGE_PAYLOAD.length());
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(LARGE_PAYLOAD);
+
+		pubsubMessage = this.converter.toPubSubMessage("small payload",
+				Collections.singletonMap(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip"));
+
+		assertThat(pubsubMessage.getAttributesMap())
+				.doesNotContainKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo("small payload");
+	}
+
+	@Test
+	public void testSmallPayloadNotCompressed() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage("small payload", null);
+
+		assertThat(pubsubMessage.getData().toStringUtf8()).isEqualTo("small payload");
+		assertThat(pubsubMessage.getAttributesMap())
+				.doesNotContainKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo("small payload");
+	}
+
+	@Test
+	public void testIncompressiblePayloadNotCompressed() {
+		byte[] payload = new byte[4096];
+		new Random(42).nextBytes(payload);
+
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(payload, null);
+
+		assertThat(pubsubMessage.getData().toByteArray()).isEqualTo(payload);
+		assertThat(pubsubMessage.getAttributesMap())
+				.doesNotContainKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testUnsupportedEncoding() {
+		PubsubMessage pubsubMessage = PubsubMessage.newBuilder()
+				.setData(ByteString.copyFromUtf8(LARGE_PAYLOAD))
+				.putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "br")
+				.build();
+
+		this.converter.fromPubSubMessage(pubsubMessage, String.class);
+	}
+
+	@Test
+	public void testDestroyEndsPooledCodecs() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+
+		this.converter.destroy();
+
+		// Ended codecs fail when used, so these conversions must get new ones.
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(LARGE_PAYLOAD);
+		assertThat(this.converter.toPubSubMessage(LARGE_PAYLOAD, null)).isEqualTo(pubsubMessage);
+	}
+
+	@Test
+	public void testCompressionLevelAppliesToPooledCodecs() {
+		assertThat(this.converter.toPubSubMessage(LARGE_PAYLOAD, null).getAttributesMap())
+				.containsKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+
+		this.converter.setCompressionLevel(Deflater.NO_COMPRESSION);
+
+		// Stored data is larger than the payload, so the message is left uncompressed.
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+		assertThat(pubsubMessage.getAttributesMap())
+				.doesNotContainKey(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE);
+		assertThat(pubsubMessage.getData().toStringUtf8()).isEqualTo(LARGE_PAYLOAD);
+	}
+
+	@Test
+	public void testDecompressedSizeLimited() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+		this.converter.setMaxDecompressedSize(LARGE_PAYLOAD.length() - 1);
+
+		assertThatThrownBy(() -> this.converter.fromPubSubMessage(pubsubMessage, String.class))
+				.isInstanceOf(PubSubMessageConversionException.class)
+				.hasMessageContaining("maximum size");
+	}
+
+	@Test
+	public void testDecompressedSizeAtLimit() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+		this.converter.setMaxDecompressedSize(LARGE_PAYLOAD.length());
+
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(LARGE_PAYLOAD);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testTruncatedExtraHeaderField() {
+		byte[] data = new byte[20];
+		data[0] = (byte) 0x1f;
+		data[1] = (byte) 0x8b;
+		data[2] = Deflater.DEFLATED;
+		// FEXTRA, with an extra field longer than the data.
+		data[3] = 4;
+		data[10] = (byte) 0xff;
+		data[11] = (byte) 0xff;
+
+		this.converter.fromPubSubMessage(gzipMessage(data), String.class);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testUnterminatedFileNameHeaderField() {
+		byte[] data = new byte[20];
+		data[0] = (byte) 0x1f;
+		data[1] = (byte) 0x8b;
+		data[2] = Deflater.DEFLATED;
+		// FNAME, with a file name running to the end of the data.
+		data[3] = 8;
+		for (int i = 10; i < data.length; i++) {
+			data[i] = 'a';
+		}
+
+		this.converter.fromPubSubMessage(gzipMessage(data), String.class);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testCorruptData() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+		ByteString data = pubsubMessage.getData();
+
+		this.converter.fromPubSubMessage(pubsubMessage.toBuilder()
+				.setData(data.substring(0, data.size() / 2)).build(), String.class);
+	}
+
+	private static PubsubMessage gzipMessage(byte[] data) {
+		return PubsubMessage.newBuilder()
+				.setData(ByteString.copyFrom(data))
+				.putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip")
+				.build();
+	}
+
+}
@@ -17,6 +17,7 @@
 package org.springframework.cloud.gcp.pubsub.support.converter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
 import org.json.JSONException;
 import org.junit.Assert;
@@ -68,6 +69,28 @@ public class JacksonPubSubMessageConverterTests {
 		assertThat(o).as("verify that deserialized object is equal to the original one").isEqualTo(contact);
 	}
 
+	@Test
+	public void testPojoConvertedRepeatedly() throws JSONException {
+		for (int i = 0; i < 3; i++) {
+			Contact contact = new Contact("Nikola", "Tesla", i);
+
+			PubsubMessage pubsubMessage = this.converter.toPubSubMessage(contact, null);
+
+			JSONAssert.assertEquals(
+					"{\"firstName\":\"Nikola\",\"lastName\":\"Tesla\",\"zip\":" + i + "}",
+					pubsubMessage.getData().toStringUtf8(),
+					true);
+			assertThat(this.converter.fromPubSubMessage(pubsubMessage, Contact.class)).isEqualTo(contact);
+		}
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testFromMalformedJson() {
+		this.converter.fromPubSubMessage(
+				PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("{\"firstName\":")).build(),
+				Contact.class);
+	}
+
 	@Test
 	public void testToPubSubMessageWithNullPayload() throws JSONException {
 		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(null, null);
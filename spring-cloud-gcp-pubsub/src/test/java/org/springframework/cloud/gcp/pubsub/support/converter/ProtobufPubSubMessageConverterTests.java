@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2018 original author or authors.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.springframework.cloud.gcp.pubsub.support.converter;
+
+import java.util.Collections;
+
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.Topic;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ProtobufPubSubMessageConverter}.
+ */
+public class ProtobufPubSubMessageConverterTests {
+
+	private ProtobufPubSubMessageConverter converter = new ProtobufPubSubMessageConverter();
+
+	@Test
+	public void testRoundTrip() {
+		Topic topic = Topic.newBuilder().setName("projects/test-project/topics/test-topic").build();
+
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(topic, Collections.singletonMap("key", "value"));
+
+		assertThat(pubsubMessage.getData()).isEqualTo(topic.toByteString());
+		assertThat(pubsubMessage.getAttributesMap())
+				.containsEntry("key", "value")
+				.containsEntry(ProtobufPubSubMessageConverter.MESSAGE_TYPE_ATTRIBUTE, "google.pubsub.v1.Topic");
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, Topic.class)).isEqualTo(topic);
+	}
+
+	@Test
+	public void testFromMessageWithoutTypeAttribute() {
+		Topic topic = Topic.newBuilder().setName("projects/test-project/topics/test-topic").build();
+
+		PubsubMessage pubsubMessage = PubsubMessage.newBuilder().setData(topic.toByteString()).build();
+
+		assertThat(this.converter.fromPubSubMessage(pubsubMessage, Topic.class)).isEqualTo(topic);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testFromMismatchedType() {
+		PubsubMessage pubsubMessage = this.converter.toPubSubMessage(Topic.getDefaultInstance(), null);
+
+		this.converter.fromPubSubMessage(pubsubMessage, Subscription.class);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testToNonProtobufPayload() {
+		this.converter.toPubSubMessage("not a protobuf message", null);
+	}
+
+	@Test(expected = PubSubMessageConversionException.class)
+	public void testFromNonProtobufType() {
+		this.converter.fromPubSubMessage(PubsubMessage.getDefaultInstance(), String.class);
+	}
+
+}
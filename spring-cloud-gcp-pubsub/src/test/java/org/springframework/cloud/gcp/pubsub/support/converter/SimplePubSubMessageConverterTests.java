@@ -29,6 +29,8 @@ import org.junit.Test;
 import org.springframework.core.convert.converter.Converter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Mike Eltsufin
@@ -73,7 +75,28 @@ public class SimplePubSubMessageConverterTests {
 
 	@Test
 	public void testToByteBuffer() {
-		doToTestForType(ByteBuffer.class, a -> new String(a.array()));
+		doToTestForType(ByteBuffer.class, a -> {
+			byte[] bytes = new byte[a.remaining()];
+			a.get(bytes);
+			return new String(bytes);
+		});
+	}
+
+	@Test
+	public void testToByteBufferIsReadOnlyView() {
+		ByteBuffer byteBuffer = new SimplePubSubMessageConverter().fromPubSubMessage(
+				PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(TEST_STRING)).build(), ByteBuffer.class);
+
+		assertTrue(byteBuffer.isReadOnly());
+		assertEquals(TEST_STRING.length(), byteBuffer.remaining());
+	}
+
+	@Test
+	public void testToByteStringIsNotCopied() {
+		ByteString data = ByteString.copyFromUtf8(TEST_STRING);
+
+		assertSame(data, new SimplePubSubMessageConverter().fromPubSubMessage(
+				PubsubMessage.newBuilder().setData(data).build(), ByteString.class));
 	}
 
 	@Test